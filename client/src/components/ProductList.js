@@ -1,7 +1,7 @@
 import React, { useState, useEffect, useContext, useRef } from 'react';
 import { observer } from 'mobx-react-lite';
 import { useNavigate } from 'react-router-dom';
-import { getProducts, deleteProduct } from '../http/productApi';
+import { getProducts, getCatalog, deleteProduct } from '../http/productApi';
 import { getDescriptionByProductId } from '../http/descriptionApi';
 import cartStore from '../store/CartStore';
 import { Context } from '../index';
@@ -24,6 +24,7 @@ const ProductList = observer(() => {
 
     const { user } = useContext(Context);
     const navigate = useNavigate();
+    const isAdmin = user?.user?.ROLE === 'ADMIN';
 
     const [currentPage, setCurrentPage] = useState(0);
     const [itemsPerPage] = useState(8);
@@ -74,7 +75,10 @@ const ProductList = observer(() => {
     const fetchProducts = async () => {
         try {
             setLoading(true);
-            const response = await getProducts(currentPage, itemsPerPage);
+            // Остатки и полное описание нужны только администратору, покупателям хватает витрины каталога
+            const response = isAdmin
+                ? await getProducts(currentPage, itemsPerPage)
+                : await getCatalog(currentPage, itemsPerPage);
 
             if (response && response.content && Array.isArray(response.content)) {
                 setProducts(response.content);
@@ -100,7 +104,7 @@ const ProductList = observer(() => {
 
     useEffect(() => {
         fetchProducts();
-    }, [currentPage, itemsPerPage]);
+    }, [currentPage, itemsPerPage, isAdmin]);
 
     const getImageUrl = (imagePath) => {
         if (!imagePath) return null;
@@ -252,8 +256,6 @@ const ProductList = observer(() => {
         return pageNumbers;
     };
 
-    const isAdmin = user?.user?.ROLE === 'ADMIN';
-
     if (loading) return <div className="loading-container">Загружаем продукты...</div>;
     if (error) return <div className="error-container">{error}</div>;
 
@@ -300,7 +302,7 @@ const ProductList = observer(() => {
                         {products.map(product => {
                             const imageUrl = getImageUrl(product.image);
                             const inventoryQuantity = product.inventory?.quantity || 0;
-                            const isOutOfStock = inventoryQuantity === 0;
+                            const isOutOfStock = product.inventory ? inventoryQuantity === 0 : !product.inStock;
                             const isDeleting = deletingProductId === product.id;
                             const hasDescription = !!descriptions[product.id];
                             const isHovered = hoveredProduct?.id === product.id; // ПРОВЕРКА НАВЕДЕНИЯ
@@ -336,9 +338,11 @@ const ProductList = observer(() => {
                                         </div>
 
                                         <div className="product-badges-overlay">
-                                            <span className="inventory-badge">
-                                                📦 {inventoryQuantity}
-                                            </span>
+                                            {isAdmin && (
+                                                <span className="inventory-badge">
+                                                    📦 {inventoryQuantity}
+                                                </span>
+                                            )}
                                             {hasDescription && (
                                                 <span className="description-badge" title="Есть подробное описание">
                                                     📋
@@ -358,7 +362,9 @@ const ProductList = observer(() => {
 
                                         <div className="product-descriptions">
                                             <p className="short-description">{product.shortDescription}</p>
-                                            <p className="long-description">{product.longDescription}</p>
+                                            {product.longDescription && (
+                                                <p className="long-description">{product.longDescription}</p>
+                                            )}
                                         </div>
 
                                         <div className="product-actions">
@@ -1,6 +1,6 @@
 import React, { useState, useMemo, useEffect } from 'react';
 import { observer } from 'mobx-react-lite';
-import { getProducts } from '../http/productApi';
+import { getCatalog } from '../http/productApi';
 import cartStore from '../store/CartStore';
 import './ProductShowcase.css';
 
@@ -23,7 +23,7 @@ const ProductShowcase = observer(() => {
             let hasMore = true;
 
             while (hasMore) {
-                const response = await getProducts(currentPage, 10);
+                const response = await getCatalog(currentPage, 100);
 
                 if (response && response.content && Array.isArray(response.content)) {
                     allProducts = [...allProducts, ...response.content];
@@ -141,15 +141,9 @@ const ProductShowcase = observer(() => {
         return topThree;
     }, [products, selectedCategory, priceRange, sortBy]); // Добавляем sortBy в зависимости
 
-    // Проверка наличия товара
+    // Проверка наличия товара (витрина каталога отдает только признак наличия)
     const isProductAvailable = (product) => {
-        const inventoryQuantity = product.inventory?.quantity || 0;
-        return inventoryQuantity > 0;
-    };
-
-    // Получение количества товара в наличии
-    const getProductQuantity = (product) => {
-        return product.inventory?.quantity || 0;
+        return product.inStock === true;
     };
 
     const handleAddToCart = (product) => {
@@ -261,7 +255,6 @@ const ProductShowcase = observer(() => {
                         {safeTopRatedProducts.map((product, index) => {
                             const imageUrl = getImageUrl(product.image);
                             const isAvailable = isProductAvailable(product);
-                            const availableQuantity = getProductQuantity(product);
                             const rating = parseFloat(product.raiting) || 0;
 
                             return (
@@ -312,7 +305,7 @@ const ProductShowcase = observer(() => {
                                         <div className="availability-info">
                                             {isAvailable ? (
                                                 <span className="in-stock">
-                                                    📦 В наличии: {availableQuantity} шт.
+                                                    📦 В наличии
                                                 </span>
                                             ) : (
                                                 <span className="out-of-stock">
@@ -1,4 +1,4 @@
-import { $authhost } from ".";
+import { $host, $authhost } from ".";
 
 export const getProducts = async (page = 0, size = 10) => {
     try {
@@ -56,6 +56,41 @@ export const getProducts = async (page = 0, size = 10) => {
     }
 };
 
+// Витрина каталога: отдается из снимка в памяти сервера, без обращения к базе данных
+export const getCatalog = async (page = 0, size = 10, sort = 'id') => {
+    try {
+        const { data } = await $host.get('/product/catalog', {
+            params: {
+                page,
+                size,
+                sort
+            }
+        });
+        return data;
+    } catch (error) {
+        console.log("Get catalog error:", error);
+
+        let errorMessage = "Ошибка получения списка продуктов";
+
+        if (error.response) {
+            if (error.response.status === 400) {
+                errorMessage = error.response.data?.message || "Неверный запрос";
+            }
+            else if (error.response.data?.message) {
+                errorMessage = error.response.data.message;
+            }
+        }
+        else if (error.code === 'NETWORK_ERROR' || error.code === 'ECONNREFUSED') {
+            errorMessage = "Не удалось подключиться к серверу";
+        }
+        else if (error.message) {
+            errorMessage = error.message;
+        }
+
+        throw new Error(errorMessage);
+    }
+};
+
 export const getProductById = async (productId) => {
     try {
         console.log('Fetching product with ID:', productId);
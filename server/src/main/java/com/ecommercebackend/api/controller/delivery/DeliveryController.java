@@ -0,0 +1,82 @@
+package com.ecommercebackend.api.controller.delivery;
+
+import com.ecommercebackend.api.model.DeliveryQuote;
+import com.ecommercebackend.api.model.DeliveryQuoteBody;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.service.DeliveryQuoteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controller to handle delivery requests made before an order exists.
+ */
+@RestController
+@RequestMapping("/delivery")
+@Tag(name = "Доставка", description = "API для расчета доставки через Яндекс Доставку")
+public class DeliveryController {
+
+    /** The Delivery Quote Service. */
+    @Autowired
+    private DeliveryQuoteService deliveryQuoteService;
+
+    @PostMapping("/quote")
+    @Operation(
+        summary = "Рассчитать стоимость доставки корзины",
+        description = "Возвращает предварительную стоимость доставки строк корзины на адрес пользователя. "
+            + "Груз считается по габаритам и весу из описаний товаров и округляется вверх до класса размера "
+            + "и веса; цены для одного города и одних классов кэшируются. Требуется JWT токен."
+    )
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Стоимость рассчитана",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = DeliveryQuote.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Некорректная корзина"
+        ),
+        @ApiResponse(
+            responseCode = "401",
+            description = "Пользователь не аутентифицирован"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Адрес пользователя или товар не найден"
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Яндекс Доставка недоступна, стоимость рассчитать не удалось"
+        )
+    })
+    public DeliveryQuote getQuote(
+        @Parameter(hidden = true)
+        @AuthenticationPrincipal LocalUser user,
+
+        @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "Адрес доставки и строки корзины",
+            required = true,
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = DeliveryQuoteBody.class)
+            )
+        )
+        @Valid @RequestBody DeliveryQuoteBody body) {
+
+        return deliveryQuoteService.getQuote(body, user);
+    }
+}
@@ -5,6 +5,7 @@ import com.ecommercebackend.api.model.DescriptionResponse;
 import com.ecommercebackend.model.Description;
 import com.ecommercebackend.model.LocalUser;
 import com.ecommercebackend.service.DescriptionService;
+import com.ecommercebackend.service.EntityTagService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,6 +15,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.AllArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -30,6 +33,8 @@ public class DescriptionController {
 
     private final DescriptionService descriptionService;
 
+    private final EntityTagService entityTagService;
+
     /**
      * Create a new description for a product.
      */
@@ -84,7 +89,8 @@ public class DescriptionController {
     @GetMapping("/product/{productId}")
     @Operation(
         summary = "Получить описание по ID товара",
-        description = "Возвращает техническое описание для указанного товара"
+        description = "Возвращает техническое описание для указанного товара. "
+            + "Ответ содержит ETag; при совпадении If-None-Match возвращается 304 без загрузки описания."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -92,6 +98,10 @@ public class DescriptionController {
             description = "Описание найдено",
             content = @Content(schema = @Schema(implementation = DescriptionResponse.class))
         ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Описание не изменилось"
+        ),
         @ApiResponse(
             responseCode = "404",
             description = "Описание для товара не найдено"
@@ -99,11 +109,25 @@ public class DescriptionController {
     })
     public ResponseEntity<DescriptionResponse> getDescriptionByProductId(
             @Parameter(description = "ID товара", required = true, example = "123")
-            @PathVariable Long productId) {
+            @PathVariable Long productId,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
+        if (ifNoneMatch != null) {
+            String current = entityTagService.currentDescriptionTag(productId).orElse(null);
+            if (current != null && EntityTagService.matches(ifNoneMatch, current)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(current)
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+        }
         Description description = descriptionService.getDescriptionByProductId(productId);
         DescriptionResponse response = convertToResponse(description);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .eTag(entityTagService.descriptionTag(description))
+                .cacheControl(CacheControl.noCache())
+                .body(response);
     }
 
     /**
@@ -1,8 +1,15 @@
 package com.ecommercebackend.api.controller.order;
 
+import com.ecommercebackend.api.model.InsufficientStockResponse;
+import com.ecommercebackend.api.model.OrderHistoryPage;
+import com.ecommercebackend.api.model.OrderSummaryPage;
+import com.ecommercebackend.api.model.ProductsUnavailableResponse;
 import com.ecommercebackend.api.model.RegistrationBody;
+import com.ecommercebackend.exception.InsufficientStockException;
+import com.ecommercebackend.exception.ProductsUnavailableException;
 import com.ecommercebackend.model.LocalUser;
 import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.service.IdempotencyService;
 import com.ecommercebackend.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,6 +22,8 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
@@ -31,6 +40,9 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @GetMapping
     @Operation(
         summary = "Получить список заказов пользователя",
@@ -66,10 +78,95 @@ public class OrderController {
         return orderService.getOrders(user);
     }
 
+    @GetMapping("/history")
+    @Operation(
+        summary = "История заказов по курсору",
+        description = """
+            Возвращает заказы пользователя от новых к старым вместе со строками и товарами.
+            Для следующей страницы передайте `nextCursor` из ответа в параметр `cursor`.
+            Страница загружается фиксированным числом запросов при любом количестве заказов и строк.
+            Требуется JWT токен.
+            """
+    )
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Страница истории успешно получена",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = OrderHistoryPage.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Некорректный курсор или размер страницы"
+        ),
+        @ApiResponse(
+            responseCode = "401",
+            description = "Пользователь не аутентифицирован"
+        )
+    })
+    public OrderHistoryPage getOrderHistory(
+        @Parameter(hidden = true)
+        @AuthenticationPrincipal LocalUser user,
+
+        @Parameter(description = "Курсор из предыдущего ответа; без него возвращается первая страница", example = "b3JkZXI6NDI")
+        @RequestParam(required = false) String cursor,
+
+        @Parameter(description = "Размер страницы (1-100)", example = "20")
+        @RequestParam(defaultValue = "20") int size) {
+
+        return orderService.getOrderHistory(user, cursor, size);
+    }
+
+    @GetMapping("/summary")
+    @Operation(
+        summary = "Краткий список заказов по курсору",
+        description = """
+            Возвращает для каждого заказа только ID, дату, сумму и количество единиц товара - для списков,
+            где строки заказа не нужны. Сумма считается по ценам на момент заказа.
+            Для следующей страницы передайте `nextCursor` из ответа в параметр `cursor`. Требуется JWT токен.
+            """
+    )
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Страница успешно получена",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = OrderSummaryPage.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Некорректный курсор или размер страницы"
+        ),
+        @ApiResponse(
+            responseCode = "401",
+            description = "Пользователь не аутентифицирован"
+        )
+    })
+    public OrderSummaryPage getOrderSummaries(
+        @Parameter(hidden = true)
+        @AuthenticationPrincipal LocalUser user,
+
+        @Parameter(description = "Курсор из предыдущего ответа; без него возвращается первая страница", example = "b3JkZXI6NDI")
+        @RequestParam(required = false) String cursor,
+
+        @Parameter(description = "Размер страницы (1-100)", example = "20")
+        @RequestParam(defaultValue = "20") int size) {
+
+        return orderService.getOrderSummaries(user, cursor, size);
+    }
+
     @PostMapping("/create")
     @Operation(
         summary = "Создать новый заказ",
-        description = "Создает новый заказ для аутентифицированного пользователя. Требуется JWT токен."
+        description = "Создает новый заказ для аутентифицированного пользователя. Требуется JWT токен. "
+            + "С заголовком Idempotency-Key повтор того же запроса с тем же ключом не создает второй заказ, "
+            + "а возвращает ранее созданный (с заголовком Idempotent-Replayed: true)."
     )
     @SecurityRequirement(name = "bearerAuth")
     @ApiResponses(value = {
@@ -93,19 +190,33 @@ public class OrderController {
             responseCode = "403",
             description = "Недостаточно прав для создания заказа"
         ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Запрос с тем же Idempotency-Key еще выполняется"
+        ),
         @ApiResponse(
             responseCode = "422",
-            description = "Невозможно создать заказ (например, товара нет в наличии)"
+            description = "Невозможно создать заказ. Если товары удалены или не существуют, "
+                + "перечисляются все их ID (ProductsUnavailableResponse); если товара не хватает на складе, "
+                + "перечисляются все такие строки с доступным остатком (InsufficientStockResponse); "
+                + "Idempotency-Key уже использован с другим запросом",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(oneOf = {ProductsUnavailableResponse.class, InsufficientStockResponse.class})
+            )
         ),
         @ApiResponse(
             responseCode = "500",
             description = "Внутренняя ошибка сервера"
         )
     })
-    public WebOrder createOrder(
+    public ResponseEntity<Object> createOrder(
         @Parameter(hidden = true)
         @AuthenticationPrincipal LocalUser user,
 
+        @Parameter(description = "Ключ идемпотентности запроса (до 255 символов)", example = "3f1c9a52-7d4e-4b8a-9c61-0e2f5d7a8b90")
+        @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey,
+
         @io.swagger.v3.oas.annotations.parameters.RequestBody(
             description = "Данные нового заказа",
             required = true,
@@ -116,7 +227,26 @@ public class OrderController {
         )
         @Valid @RequestBody WebOrder order) {
 
+        return idempotencyService.execute(user, idempotencyKey, "POST /order/create", order,
+            () -> orderService.createOrder(order, user));
+    }
+
+    /**
+     * Перечисляет все недоступные товары заказа, чтобы клиент мог исправить корзину за один раз.
+     */
+    @ExceptionHandler(ProductsUnavailableException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ProductsUnavailableResponse handleProductsUnavailable(ProductsUnavailableException e) {
+        return new ProductsUnavailableResponse(
+            "Некоторые товары недоступны для заказа", e.getMissingIds(), e.getDeletedIds());
+    }
 
-        return orderService.createOrder(order, user);
+    /**
+     * Перечисляет все строки заказа, которых не хватает на складе, с доступным остатком.
+     */
+    @ExceptionHandler(InsufficientStockException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public InsufficientStockResponse handleInsufficientStock(InsufficientStockException e) {
+        return new InsufficientStockResponse("Недостаточно товара на складе", e.getShortfalls());
     }
-}
\ No newline at end of file
+}
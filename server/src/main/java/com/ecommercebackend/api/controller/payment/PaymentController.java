@@ -2,6 +2,8 @@ package com.ecommercebackend.api.controller.payment;
 
 import com.ecommercebackend.model.LocalUser;
 import com.ecommercebackend.api.model.PaymentBody;
+import com.ecommercebackend.service.IdempotencyService;
+import com.ecommercebackend.service.InventoryReservationService;
 import com.ecommercebackend.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,6 +16,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import ru.loolzaaa.youkassa.model.Payment;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,6 +31,12 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private InventoryReservationService reservationService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @PostMapping
     @Operation(
         summary = "Создать платеж",
@@ -40,6 +49,15 @@ public class PaymentController {
             3. Возвращается объект платежа с `confirmation_url`
             4. Пользователь перенаправляется на этот URL для оплаты
             
+            Если передан `orderId`, сумма должна совпадать с суммой заказа. Пока платеж не оплачен,
+            остатки остаются в резерве заказа: они закрепляются за заказом, когда ЮKassa сообщает
+            об оплате, и возвращаются на склад, если платеж отменен или не оплачен до конца резерва.
+            Если платеж создать не удалось, резерв сохраняется и запрос можно повторить.
+            
+            **Повторы:** с заголовком `Idempotency-Key` повтор того же запроса с тем же ключом
+            возвращает ранее созданный платеж (с заголовком `Idempotent-Replayed: true`), а в ЮKassa
+            уходит ключ идемпотентности, выведенный из ключа клиента.
+            
             Требуется JWT токен авторизации.
             """
     )
@@ -55,7 +73,7 @@ public class PaymentController {
         ),
         @ApiResponse(
             responseCode = "400",
-            description = "Некорректные данные платежа (неверная сумма, описание и т.д.)"
+            description = "Некорректные данные платежа (неверная сумма, сумма не совпадает с суммой заказа и т.д.)"
         ),
         @ApiResponse(
             responseCode = "401",
@@ -65,19 +83,32 @@ public class PaymentController {
             responseCode = "402",
             description = "Ошибка платежной системы"
         ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Заказ с указанным orderId не найден"
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Резерв заказа уже возвращен на склад (заказ брошен или отменен), "
+                + "для заказа уже создан платеж, либо запрос с тем же Idempotency-Key еще выполняется"
+        ),
         @ApiResponse(
             responseCode = "422",
-            description = "Не удалось создать платеж (неверные параметры, ограничения ЮKassa)"
+            description = "Не удалось создать платеж (неверные параметры, ограничения ЮKassa), "
+                + "либо Idempotency-Key уже использован с другим запросом"
         ),
         @ApiResponse(
             responseCode = "500",
             description = "Внутренняя ошибка сервера"
         )
     })
-    public Payment createOrder(
+    public ResponseEntity<Object> createOrder(
         @Parameter(hidden = true)
         @AuthenticationPrincipal LocalUser user,
 
+        @Parameter(description = "Ключ идемпотентности запроса (до 255 символов)", example = "3f1c9a52-7d4e-4b8a-9c61-0e2f5d7a8b90")
+        @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey,
+
         @io.swagger.v3.oas.annotations.parameters.RequestBody(
             description = "Данные для создания платежа",
             required = true,
@@ -88,10 +119,28 @@ public class PaymentController {
         )
         @Valid @RequestBody PaymentBody body) {
 
-        return paymentService.createPayment(
+        return idempotencyService.execute(user, idempotencyKey, "POST /pay", body,
+            () -> pay(user, idempotencyKey, body));
+    }
+
+    private Payment pay(LocalUser user, String idempotencyKey, PaymentBody body) {
+        // Сумма и резерв проверяются до похода в ЮKassa: чужой, брошенный или уже оплачиваемый
+        // заказ отсекается раньше, чем создан платеж, а резерв продлевается на время оплаты
+        if (body.getOrderId() != null) {
+            reservationService.preparePayment(body.getOrderId(), user, body.getAmount());
+        }
+        // Если платеж создать не удалось, заказ остается в резерве: повтор с тем же ключом
+        // получит тот же платеж в ЮKassa, а брошенный заказ вернет на склад сборщик
+        Payment payment = paymentService.createPayment(
             body.getAmount(),
             body.getDescription(),
-            body.getConfirmationReturnUrl()
+            body.getConfirmationReturnUrl(),
+            IdempotencyService.externalKey(user, idempotencyKey, "POST /pay")
         );
+        // Дальше резерв ведет PaymentStatusPoller по статусу платежа
+        if (body.getOrderId() != null) {
+            reservationService.attachPayment(body.getOrderId(), payment.getId());
+        }
+        return payment;
     }
-}
\ No newline at end of file
+}
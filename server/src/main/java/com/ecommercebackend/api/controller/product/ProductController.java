@@ -1,9 +1,23 @@
 package com.ecommercebackend.api.controller.product;
 
 import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.api.model.CatalogItem;
+import com.ecommercebackend.api.model.FacetedProductPage;
+import com.ecommercebackend.api.model.FlashSaleStatus;
+import com.ecommercebackend.api.model.ProductBatchResponse;
 import com.ecommercebackend.api.model.ProductBody;
+import com.ecommercebackend.api.model.ProductCursorPage;
+import com.ecommercebackend.api.model.ProductStatistics;
 import com.ecommercebackend.model.Product;
+import com.ecommercebackend.service.CatalogSnapshotService;
+import com.ecommercebackend.service.EntityTagService;
+import com.ecommercebackend.service.FlashSaleService;
+import com.ecommercebackend.service.ProductExportService;
+import com.ecommercebackend.service.ProductFacetService;
+import com.ecommercebackend.service.ProductSearchService;
 import com.ecommercebackend.service.ProductService;
+import com.ecommercebackend.service.ProductStatisticsService;
+import com.ecommercebackend.service.export.ProductExportFormat;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,13 +28,21 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Controller to handle the creation, updating & viewing of products.
@@ -34,10 +56,43 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    /** The Product Search Service. */
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    /** The Catalog Snapshot Service. */
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    /** The Entity Tag Service. */
+    @Autowired
+    private EntityTagService entityTagService;
+
+    /** The Product Export Service. */
+    @Autowired
+    private ProductExportService productExportService;
+
+    /** The Product Statistics Service. */
+    @Autowired
+    private ProductStatisticsService productStatisticsService;
+
+    /** The Product Facet Service. */
+    @Autowired
+    private ProductFacetService productFacetService;
+
+    /** The Flash Sale Service. */
+    @Autowired
+    private FlashSaleService flashSaleService;
+
     @GetMapping
     @Operation(
         summary = "Получить список товаров с пагинацией",
-        description = "Возвращает страницу товаров с поддержкой пагинации. Без авторизации."
+        description = """
+            Возвращает страницу товаров с поддержкой пагинации. Без авторизации.
+            Ответ содержит ETag; при совпадении If-None-Match возвращается 304 без загрузки товаров.
+            Товары читаются из базы вместе с остатками; витрине для покупателей достаточно /product/catalog,
+            который отдается из снимка в памяти.
+            """
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -48,25 +103,320 @@ public class ProductController {
                 schema = @Schema(implementation = Page.class)
             )
         ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Страница не изменилась"
+        ),
         @ApiResponse(
             responseCode = "400",
             description = "Некорректные параметры пагинации"
         )
     })
-    public Page<Product> getProducts(
+    public ResponseEntity<Page<Product>> getProducts(
+            @Parameter(description = "Номер страницы (начиная с 0)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+
+            @Parameter(description = "Количество товаров на странице", example = "10")
+            @RequestParam(defaultValue = "10") int size,
+
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (ifNoneMatch != null) {
+            String current = entityTagService.currentPageTag(ProductService.listingPage(page, size));
+            if (EntityTagService.matches(ifNoneMatch, current)) {
+                return notModified(current);
+            }
+        }
+        Page<Product> products = productService.getProducts(page, size);
+        return ResponseEntity.ok()
+                .eTag(entityTagService.pageTag(products))
+                .cacheControl(CacheControl.noCache())
+                .body(products);
+    }
+
+    @GetMapping("/catalog")
+    @Operation(
+        summary = "Витрина каталога",
+        description = """
+            Возвращает страницу товаров в сокращенном виде из снимка каталога в памяти, без обращения к базе данных.
+            Поддерживает сортировку и фильтр по цене. Снимок обновляется при каждом изменении товара. Без авторизации.
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Страница каталога успешно получена",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = Page.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Некорректная сортировка или параметры пагинации"
+        )
+    })
+    public Page<CatalogItem> getCatalog(
+            @Parameter(description = "Сортировка: id, price или raiting", example = "price")
+            @RequestParam(defaultValue = "id") String sort,
+
+            @Parameter(description = "Направление: asc или desc (по умолчанию desc для raiting, иначе asc)", example = "asc")
+            @RequestParam(required = false) String direction,
+
+            @Parameter(description = "Минимальная цена", example = "1000")
+            @RequestParam(required = false) Double minPrice,
+
+            @Parameter(description = "Максимальная цена", example = "50000")
+            @RequestParam(required = false) Double maxPrice,
+
             @Parameter(description = "Номер страницы (начиная с 0)", example = "0")
             @RequestParam(defaultValue = "0") int page,
 
             @Parameter(description = "Количество товаров на странице", example = "10")
             @RequestParam(defaultValue = "10") int size) {
 
-        return productService.getProducts(page, size);
+        return catalogSnapshotService.getCatalog(sort, direction, minPrice, maxPrice, page, size);
+    }
+
+    @GetMapping("/batch")
+    @Operation(
+        summary = "Получить несколько товаров по списку ID",
+        description = """
+            Возвращает товары в порядке запрошенных ID одним запросом к базе - для корзины и истории заказов.
+            Удаленные товары тоже возвращаются (с deleted = true) и перечисляются в deletedIds;
+            несуществующие ID перечисляются в missingIds. Не более 100 ID. Без авторизации.
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Товары успешно получены",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = ProductBatchResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Список ID пуст или слишком длинный"
+        )
+    })
+    public ProductBatchResponse getProductsBatch(
+            @Parameter(description = "ID товаров через запятую", required = true, example = "3,1,2")
+            @RequestParam List<Long> ids) {
+
+        return productService.getProductsBatch(ids);
+    }
+
+    @GetMapping("/export")
+    @Operation(
+        summary = "Выгрузить весь каталог",
+        description = """
+            Потоково выгружает все товары вместе с остатками и техническим описанием в формате NDJSON
+            (по одному JSON-объекту на строку) или CSV. Память сервера не зависит от размера каталога.
+            Требуются права администратора.
+            """
+    )
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Выгрузка начата",
+            content = {
+                @Content(mediaType = "application/x-ndjson"),
+                @Content(mediaType = "text/csv")
+            }
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Неизвестный формат"
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Недостаточно прав"
+        )
+    })
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @Parameter(hidden = true) @AuthenticationPrincipal LocalUser user,
+
+            @Parameter(description = "Формат: ndjson или csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        ProductExportFormat exportFormat;
+        try {
+            exportFormat = ProductExportFormat.fromValue(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        StreamingResponseBody body = productExportService.export(user, exportFormat);
+        String filename = "products-" + LocalDate.now() + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/statistics")
+    @Operation(
+        summary = "Статистика каталога",
+        description = """
+            Возвращает количество активных и удаленных товаров, среднюю, минимальную и максимальную цену,
+            суммарный остаток и число товаров без остатка. Значения поддерживаются в памяти и периодически
+            сверяются с базой данных. Требуются права администратора.
+            """
+    )
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Статистика успешно получена",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = ProductStatistics.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Недостаточно прав"
+        )
+    })
+    public ProductStatistics getProductStatistics(
+            @Parameter(hidden = true) @AuthenticationPrincipal LocalUser user) {
+
+        return productStatisticsService.getStatistics(user);
+    }
+
+    @GetMapping("/facets")
+    @Operation(
+        summary = "Каталог с фильтрами и счетчиками",
+        description = """
+            Возвращает страницу товаров под выбранными фильтрами и количество товаров для каждого значения фильтров.
+            Несколько значений одного фильтра объединяются через ИЛИ, разные фильтры - через И.
+            Счетчики считаются по индексу в памяти, без запросов к базе данных. Без авторизации.
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Страница и счетчики успешно получены",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = FacetedProductPage.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Некорректные фильтры, сортировка или параметры пагинации"
+        )
+    })
+    public FacetedProductPage getFacetedProducts(
+            @Parameter(description = "Диапазоны цен: 0-1000, 1000-5000, 5000-10000, 10000-50000, 50000-100000, 100000+", example = "1000-5000")
+            @RequestParam(required = false) Set<String> price,
+
+            @Parameter(description = "Минимальный рейтинг (от 1 до 4)", example = "4")
+            @RequestParam(required = false) Integer minRaiting,
+
+            @Parameter(description = "Страна производства", example = "Китай")
+            @RequestParam(required = false) Set<String> country,
+
+            @Parameter(description = "Цвет/отделка", example = "Белый")
+            @RequestParam(required = false) Set<String> color,
+
+            @Parameter(description = "Только товары в наличии", example = "true")
+            @RequestParam(required = false) Boolean inStock,
+
+            @Parameter(description = "Сортировка: id, price или raiting", example = "price")
+            @RequestParam(defaultValue = "id") String sort,
+
+            @Parameter(description = "Номер страницы (начиная с 0)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+
+            @Parameter(description = "Количество товаров на странице", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+
+        return productFacetService.query(price, minRaiting, country, color, inStock, sort, page, size);
+    }
+
+    @GetMapping("/cursor")
+    @Operation(
+        summary = "Получить список товаров по курсору",
+        description = """
+            Постраничный обход каталога без подсчета общего количества (keyset-пагинация).
+            Для первой страницы курсор не передается, для следующих - значение `nextCursor` из предыдущего ответа.
+            Курсор действителен только для той сортировки, с которой он был получен. Без авторизации.
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Страница товаров успешно получена",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = ProductCursorPage.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Некорректный курсор, сортировка или размер страницы"
+        )
+    })
+    public ProductCursorPage getProductsByCursor(
+            @Parameter(description = "Сортировка: id, price (по возрастанию) или raiting (по убыванию)", example = "id")
+            @RequestParam(defaultValue = "id") String sort,
+
+            @Parameter(description = "Курсор следующей страницы из предыдущего ответа", example = "aWQ6OjEw")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Количество товаров на странице (1-100)", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+
+        return productService.getProductsByCursor(sort, cursor, size);
+    }
+
+    @GetMapping("/search")
+    @Operation(
+        summary = "Полнотекстовый поиск товаров",
+        description = """
+            Ищет товары по названию, описаниям, модели и материалам с учетом словоформ русского языка.
+            Результаты упорядочены по релевантности; последнее слово запроса ищется и по префиксу,
+            поэтому поиск работает по мере ввода. Без авторизации.
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Результаты поиска успешно получены",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = Page.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Пустой запрос или некорректные параметры пагинации"
+        )
+    })
+    public Page<Product> searchProducts(
+            @Parameter(description = "Поисковый запрос", required = true, example = "холодильник двухкамерный")
+            @RequestParam String q,
+
+            @Parameter(description = "Номер страницы (начиная с 0)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+
+            @Parameter(description = "Количество товаров на странице", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+
+        return productSearchService.search(q, page, size);
     }
 
     @GetMapping("/{id}")
     @Operation(
         summary = "Получить товар по ID",
-        description = "Возвращает подробную информацию о товаре по его идентификатору. Без авторизации."
+        description = """
+            Возвращает подробную информацию о товаре по его идентификатору. Без авторизации.
+            Ответ содержит ETag; при совпадении If-None-Match возвращается 304, проверка идет только по версии строки.
+            """
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -77,16 +427,44 @@ public class ProductController {
                 schema = @Schema(implementation = Product.class)
             )
         ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Товар не изменился"
+        ),
         @ApiResponse(
             responseCode = "404",
             description = "Товар с указанным ID не найден"
         )
     })
-    public Product getProductById(
+    public ResponseEntity<Product> getProductById(
             @Parameter(description = "ID товара", required = true, example = "1")
-            @PathVariable Long id) {
+            @PathVariable Long id,
 
-        return productService.getProductById(id);
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (ifNoneMatch != null) {
+            Optional<String> current = entityTagService.currentProductTag(id);
+            if (current.isPresent() && EntityTagService.matches(ifNoneMatch, current.get())) {
+                return notModified(current.get());
+            }
+        }
+        Product product = productService.getProductById(id);
+        return ResponseEntity.ok()
+                .eTag(entityTagService.productTag(product))
+                .cacheControl(CacheControl.noCache())
+                .body(product);
+    }
+
+    /**
+     * Ответ 304 повторяет ETag и Cache-Control; no-cache заодно не дает
+     * Spring Security выставить no-store, при котором браузер не хранит ответ.
+     */
+    private static <T> ResponseEntity<T> notModified(String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(tag)
+                .cacheControl(CacheControl.noCache())
+                .build();
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -178,4 +556,82 @@ public class ProductController {
         productService.deleteProduct(user, id);
         return "Product deleted successfully";
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{id}/flash-sale")
+    @Operation(
+        summary = "Состояние режима распродажи товара",
+        description = "Возвращает, включен ли режим распродажи, остаток в счетчике и продажи, "
+            + "еще не списанные с остатка в базе. Требуются права администратора."
+    )
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Состояние успешно получено",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = FlashSaleStatus.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Недостаточно прав"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Товар с указанным ID не найден"
+        )
+    })
+    public FlashSaleStatus getFlashSale(
+        @Parameter(hidden = true)
+        @AuthenticationPrincipal LocalUser user,
+
+        @Parameter(description = "ID товара", required = true, example = "1")
+        @PathVariable Long id) {
+
+        return flashSaleService.getStatus(id, user);
+    }
+
+    @PutMapping("/{id}/flash-sale")
+    @Operation(
+        summary = "Включить или выключить режим распродажи товара",
+        description = """
+            В режиме распродажи остаток товара держится в памяти в нескольких независимых счетчиках,
+            и заказы резервируют его без блокировки строки остатка в базе. Проданное списывается
+            с остатка в базе пачками в фоне; после перезапуска несписанные продажи дописываются
+            до приема заказов. Метрики: `inventory.flash_sale.reservations` (по тегу result)
+            и `inventory.flash_sale.available`. Требуются права администратора.
+            """
+    )
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Режим изменен",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = FlashSaleStatus.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Недостаточно прав"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Товар с указанным ID не найден"
+        )
+    })
+    public FlashSaleStatus setFlashSale(
+        @Parameter(hidden = true)
+        @AuthenticationPrincipal LocalUser user,
+
+        @Parameter(description = "ID товара", required = true, example = "1")
+        @PathVariable Long id,
+
+        @Parameter(description = "Включить (true) или выключить (false) режим распродажи", required = true, example = "true")
+        @RequestParam boolean enabled) {
+
+        return flashSaleService.setEnabled(id, enabled, user);
+    }
+}
@@ -5,6 +5,8 @@ import com.ecommercebackend.model.Address;
 import com.ecommercebackend.model.LocalUser;
 import com.ecommercebackend.model.dao.AddressDAO;
 import com.ecommercebackend.service.UserService;
+import com.ecommercebackend.service.event.AddressSavedEvent;
+import com.ecommercebackend.service.geocoding.GeocodingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -15,6 +17,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -42,6 +45,12 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private GeocodingService geocodingService;
+
     @GetMapping("/{userId}/address")
     @Operation(
         summary = "Получить список адресов пользователя",
@@ -105,6 +114,8 @@ public class UserController {
         refUser.setId(userId);
         address.setUser(refUser);
         Address savedAddress = addressDAO.save(address);
+        // Координаты определяются в фоне, ответ их не ждет
+        eventPublisher.publishEvent(new AddressSavedEvent(savedAddress.getId()));
         simpMessagingTemplate.convertAndSend("/topic/user/" + userId + "/address",
             new DataChange<>(DataChange.ChangeType.INSERT, address));
         return ResponseEntity.ok(savedAddress);
@@ -148,7 +159,12 @@ public class UserController {
                 LocalUser originalUser = opOriginalAddress.get().getUser();
                 if (originalUser.getId() == userId) {
                     address.setUser(originalUser);
+                    // Координаты в теле не приходят: без переноса save стер бы их у неизмененного адреса
+                    boolean located = geocodingService.carryCoordinates(opOriginalAddress.get(), address);
                     Address savedAddress = addressDAO.save(address);
+                    if (!located) {
+                        eventPublisher.publishEvent(new AddressSavedEvent(savedAddress.getId()));
+                    }
                     simpMessagingTemplate.convertAndSend("/topic/user/" + userId + "/address",
                         new DataChange<>(DataChange.ChangeType.UPDATE, address));
                     return ResponseEntity.ok(savedAddress);
@@ -0,0 +1,38 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Compact, immutable view of a product for catalog listings.
+ */
+@Getter
+@AllArgsConstructor
+@Schema(description = "Товар в витрине каталога (сокращенное представление)")
+public class CatalogItem {
+
+    @Schema(description = "ID товара", example = "1")
+    private final Long id;
+
+    @Schema(description = "Название товара", example = "Смартфон Samsung Galaxy S23")
+    private final String name;
+
+    @Schema(description = "Краткое описание товара", example = "Флагманский смартфон с камерой 200 МП")
+    private final String shortDescription;
+
+    @Schema(description = "Цена товара", example = "89999.99")
+    private final double price;
+
+    @Schema(description = "Рейтинг товара (от 0 до 5)", example = "4.5")
+    private final double raiting;
+
+    @Schema(description = "Есть ли товар в наличии", example = "true")
+    private final boolean inStock;
+
+    @Schema(description = "Ключ изображения в хранилище", example = "products/3f1c.png", nullable = true)
+    private final String image;
+
+    @Schema(description = "Публичный URL изображения", example = "https://storage.yandexcloud.net/ecommerce/products/3f1c.png", nullable = true)
+    private final String imageUrl;
+}
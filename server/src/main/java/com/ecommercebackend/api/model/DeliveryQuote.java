@@ -0,0 +1,34 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Предварительная стоимость доставки корзины.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Предварительная стоимость доставки. Цена рассчитана для верхней границы "
+    + "класса размера и веса груза, поэтому не ниже стоимости доставки самой корзины")
+public class DeliveryQuote {
+
+    @Schema(description = "Стоимость доставки", example = "349.00")
+    private BigDecimal price;
+
+    @Schema(description = "Валюта", example = "RUB")
+    private String currency;
+
+    @Schema(description = "Класс размера: граница самой длинной стороны, см", example = "60")
+    private int sizeClassCm;
+
+    @Schema(description = "Класс размера: граница суммарного объема, л", example = "25")
+    private int volumeClassLiters;
+
+    @Schema(description = "Класс веса: граница суммарного веса, кг", example = "5")
+    private int weightClassKg;
+}
@@ -0,0 +1,42 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(description = "Корзина и адрес для предварительного расчета стоимости доставки")
+public class DeliveryQuoteBody {
+
+    @NotNull
+    @Schema(description = "ID адреса доставки пользователя", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long addressId;
+
+    @NotEmpty
+    @Size(max = 100)
+    @Valid
+    @Schema(description = "Строки корзины", requiredMode = Schema.RequiredMode.REQUIRED)
+    private List<Line> lines;
+
+    @Data
+    @Schema(description = "Строка корзины")
+    public static class Line {
+
+        @NotNull
+        @Schema(description = "ID товара", example = "42", requiredMode = Schema.RequiredMode.REQUIRED)
+        private Long productId;
+
+        @NotNull
+        @Min(1)
+        @Max(1000)
+        @Schema(description = "Количество", example = "2", requiredMode = Schema.RequiredMode.REQUIRED)
+        private Integer quantity;
+    }
+}
@@ -0,0 +1,40 @@
+package com.ecommercebackend.api.model;
+
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.service.facet.ProductFacetIndex;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Страница каталога с фильтрами и счетчиками по каждому фильтру.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Товары, подходящие под фильтры, и количество товаров для каждого значения фильтров")
+public class FacetedProductPage {
+
+    @Schema(description = "Товары текущей страницы")
+    private List<Product> content;
+
+    @Schema(description = "Номер страницы (начиная с 0)", example = "0")
+    private int page;
+
+    @Schema(description = "Размер страницы", example = "20")
+    private int size;
+
+    @Schema(description = "Всего товаров под выбранными фильтрами", example = "134")
+    private long totalElements;
+
+    @Schema(
+        description = "Счетчики по фильтрам: price, raiting (N и выше), country, color, inStock. "
+            + "Счетчик значения учитывает все выбранные фильтры, кроме фильтра того же вида",
+        example = "{\"country\": [{\"value\": \"Китай\", \"count\": 42}]}"
+    )
+    private Map<String, List<ProductFacetIndex.FacetCount>> facets;
+}
@@ -0,0 +1,26 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Flash-sale state of one product.
+ */
+@Getter
+@AllArgsConstructor
+@Schema(description = "Состояние режима распродажи товара")
+public class FlashSaleStatus {
+
+    @Schema(description = "ID товара", example = "1")
+    private final Long productId;
+
+    @Schema(description = "Включен ли режим распродажи", example = "true")
+    private final boolean enabled;
+
+    @Schema(description = "Остаток в счетчике распродажи; null, если режим выключен", example = "842", nullable = true)
+    private final Long available;
+
+    @Schema(description = "Продано из счетчика, но еще не списано с остатка в базе", example = "17")
+    private final Long pending;
+}
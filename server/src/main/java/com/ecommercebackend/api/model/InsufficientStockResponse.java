@@ -0,0 +1,25 @@
+package com.ecommercebackend.api.model;
+
+import com.ecommercebackend.exception.InsufficientStockException;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ответ, когда товаров заказа не хватает на складе.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Строки заказа, которых не хватает на складе")
+public class InsufficientStockResponse {
+
+    @Schema(description = "Описание ошибки", example = "Недостаточно товара на складе")
+    private String message;
+
+    @Schema(description = "Строки заказа с нехваткой остатков")
+    private List<InsufficientStockException.Shortfall> shortfalls;
+}
@@ -0,0 +1,33 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * New delivery status of an order, pushed to /topic/user/{userId}/order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Изменение статуса доставки заказа")
+public class OrderDeliveryUpdate {
+
+    @Schema(description = "Идентификатор заказа", example = "42")
+    private Long orderId;
+
+    @Schema(description = "Идентификатор заявки в Яндекс Доставке")
+    private String claimId;
+
+    @Schema(description = "Статус заявки в Яндекс Доставке", example = "performer_found")
+    private String status;
+
+    @Schema(description = "Статус посещения точки заказа, если заявка везет несколько заказов", example = "visited")
+    private String pointStatus;
+
+    @Schema(description = "Время, когда изменение было обнаружено")
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,32 @@
+package com.ecommercebackend.api.model;
+
+import com.ecommercebackend.model.WebOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница истории заказов при keyset-пагинации.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница истории заказов (от новых к старым) при обходе по курсору")
+public class OrderHistoryPage {
+
+    @Schema(description = "Заказы текущей страницы вместе со строками и товарами")
+    private List<WebOrder> content;
+
+    @Schema(
+        description = "Курсор для запроса следующей страницы (null, если страница последняя)",
+        example = "b3JkZXI6NDI",
+        nullable = true
+    )
+    private String nextCursor;
+
+    @Schema(description = "Есть ли следующая страница", example = "true")
+    private boolean hasNext;
+}
@@ -0,0 +1,33 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact view of an order for list views, computed by the database.
+ */
+@Getter
+@Schema(description = "Краткие сведения о заказе для списков")
+public class OrderSummary {
+
+    @Schema(description = "ID заказа", example = "42")
+    private final Long id;
+
+    @Schema(description = "Дата создания заказа (null для заказов, созданных до появления поля)", nullable = true)
+    private final LocalDateTime createdAt;
+
+    @Schema(description = "Сумма заказа по ценам на момент заказа", example = "179999.98")
+    private final double total;
+
+    @Schema(description = "Количество единиц товара в заказе", example = "2")
+    private final long itemCount;
+
+    public OrderSummary(Long id, LocalDateTime createdAt, Double total, Long itemCount) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.total = total != null ? total : 0.0;
+        this.itemCount = itemCount != null ? itemCount : 0L;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница кратких сведений о заказах при keyset-пагинации.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница кратких сведений о заказах (от новых к старым) при обходе по курсору")
+public class OrderSummaryPage {
+
+    @Schema(description = "Заказы текущей страницы")
+    private List<OrderSummary> content;
+
+    @Schema(
+        description = "Курсор для запроса следующей страницы (null, если страница последняя)",
+        example = "b3JkZXI6NDI",
+        nullable = true
+    )
+    private String nextCursor;
+
+    @Schema(description = "Есть ли следующая страница", example = "true")
+    private boolean hasNext;
+}
@@ -46,4 +46,12 @@ public class PaymentBody {
         maxLength = 2048
     )
     private String confirmationReturnUrl;
-}
\ No newline at end of file
+
+    @Schema(
+        description = "ID оплачиваемого заказа. Если указан, резерв остатков заказа закрепляется "
+            + "при создании платежа и возвращается на склад, если платеж создать не удалось",
+        example = "42",
+        nullable = true
+    )
+    private Long orderId;
+}
@@ -0,0 +1,28 @@
+package com.ecommercebackend.api.model;
+
+import com.ecommercebackend.model.Product;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Результат пакетного запроса товаров.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Товары, запрошенные пакетом по списку ID")
+public class ProductBatchResponse {
+
+    @Schema(description = "Найденные товары в порядке запрошенных ID, включая удаленные (deleted = true)")
+    private List<Product> products;
+
+    @Schema(description = "ID, для которых товар не существует", example = "[404]")
+    private List<Long> missingIds;
+
+    @Schema(description = "ID удаленных (мягко) товаров; сами товары есть в products", example = "[17]")
+    private List<Long> deletedIds;
+}
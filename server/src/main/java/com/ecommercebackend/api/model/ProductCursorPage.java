@@ -0,0 +1,32 @@
+package com.ecommercebackend.api.model;
+
+import com.ecommercebackend.model.Product;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница каталога при keyset-пагинации.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница товаров при постраничном обходе по курсору")
+public class ProductCursorPage {
+
+    @Schema(description = "Товары текущей страницы")
+    private List<Product> content;
+
+    @Schema(
+        description = "Курсор для запроса следующей страницы (null, если страница последняя)",
+        example = "cHJpY2U6NDIuNTk6NQ",
+        nullable = true
+    )
+    private String nextCursor;
+
+    @Schema(description = "Есть ли следующая страница", example = "true")
+    private boolean hasNext;
+}
@@ -0,0 +1,43 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregated catalog statistics for the admin dashboard.
+ */
+@Getter
+@AllArgsConstructor
+@Schema(description = "Сводная статистика каталога")
+public class ProductStatistics {
+
+    @Schema(description = "Всего товаров, включая удаленные", example = "1250")
+    private final long totalProducts;
+
+    @Schema(description = "Активных (не удаленных) товаров", example = "1200")
+    private final long activeProducts;
+
+    @Schema(description = "Удаленных товаров", example = "50")
+    private final long deletedProducts;
+
+    @Schema(description = "Средняя цена активных товаров", example = "15499.5", nullable = true)
+    private final Double averagePrice;
+
+    @Schema(description = "Минимальная цена активных товаров", example = "199.0", nullable = true)
+    private final Double minPrice;
+
+    @Schema(description = "Максимальная цена активных товаров", example = "349999.0", nullable = true)
+    private final Double maxPrice;
+
+    @Schema(description = "Суммарный остаток активных товаров на складе", example = "48210")
+    private final long totalStock;
+
+    @Schema(description = "Активных товаров без остатка", example = "37")
+    private final long outOfStockProducts;
+
+    @Schema(description = "Время последней сверки с базой данных", nullable = true)
+    private final LocalDateTime reconciledAt;
+}
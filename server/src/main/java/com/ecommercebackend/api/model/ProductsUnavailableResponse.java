@@ -0,0 +1,27 @@
+package com.ecommercebackend.api.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ответ, когда в заказе есть недоступные товары.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Товары заказа, которые нельзя заказать")
+public class ProductsUnavailableResponse {
+
+    @Schema(description = "Описание ошибки", example = "Некоторые товары недоступны для заказа")
+    private String message;
+
+    @Schema(description = "ID несуществующих товаров", example = "[404]")
+    private List<Long> missingIds;
+
+    @Schema(description = "ID удаленных товаров", example = "[17]")
+    private List<Long> deletedIds;
+}
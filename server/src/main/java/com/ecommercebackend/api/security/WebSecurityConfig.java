@@ -46,7 +46,7 @@ public class WebSecurityConfig implements WebMvcConfigurer {
               ).permitAll()
 
               // Ваши существующие публичные эндпоинты
-              .requestMatchers("/product", "/auth/register", "/auth/login",
+              .requestMatchers("/product", "/product/batch", "/product/catalog", "/product/facets", "/product/cursor", "/product/search", "/auth/register", "/auth/login",
                   "/auth/verify", "/auth/forgot", "/auth/reset", "/error",
                   "/websocket", "/websocket/**",
                   "/images/**").permitAll()
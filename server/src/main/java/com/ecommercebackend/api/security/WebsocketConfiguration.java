@@ -88,7 +88,8 @@ public class WebsocketConfiguration
       implements ChannelInterceptor {
 
     private String[] paths = new String[] {
-        "/topic/user/*/address"
+        "/topic/user/*/address",
+        "/topic/user/*/order"
     };
 
     @Override
@@ -16,4 +16,8 @@ public class YooKassaConfig {
 
     @Value("${yookassa.test.mode:true}")
     private boolean testMode;
+
+    // Адрес API заглушки, используется только в профиле stub (StubYooKassaClient); SDK ходит на свой
+    @Value("${yookassa.api.url:}")
+    private String url;
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.ecommercebackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Enables @Async methods and declares the executors they run on.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /** Executor for geocoding saved addresses. */
+    public static final String GEOCODING_EXECUTOR = "geocodingExecutor";
+
+    /**
+     * Few threads, so the provider is not flooded; when the queue is full the
+     * address is skipped until it is saved again.
+     */
+    @Bean(GEOCODING_EXECUTOR)
+    public ThreadPoolTaskExecutor geocodingExecutor(@Value("${app.geocoding.threads:2}") int threads,
+                                                    @Value("${app.geocoding.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("geocoding-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ecommercebackend.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the in-process caches. The caches themselves (names, size, TTL)
+ * are configured through the spring.cache.* properties.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /** Cache of product detail reads keyed by product id. */
+    public static final String PRODUCT_CACHE = "products";
+}
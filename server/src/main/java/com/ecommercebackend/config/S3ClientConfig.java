@@ -25,6 +25,7 @@ public class S3ClientConfig {
         return S3Client.builder()
                 .region(Region.of("ru-central1"))
                 .endpointOverride(URI.create(s3Config.getEndpoint()))
+                .forcePathStyle(s3Config.isPathStyleAccess())
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
                 .build();
     }
@@ -12,4 +12,6 @@ public class S3Config {
     private String secretKey;
     private String bucketName;
     private String endpoint = "https://storage.yandexcloud.net";
+    // Бакет в пути, а не в имени хоста: нужно для локального хранилища (профиль stub)
+    private boolean pathStyleAccess;
 }
\ No newline at end of file
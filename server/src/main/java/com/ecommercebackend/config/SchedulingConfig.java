@@ -0,0 +1,12 @@
+package com.ecommercebackend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs (statistics reconciliation and the like).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,29 @@
+package com.ecommercebackend.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.List;
+
+/**
+ * Thrown when some order lines ask for more than is in stock.
+ * Carries every short line so the client can fix the whole cart at once.
+ */
+@Getter
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<Shortfall> shortfalls;
+
+    public InsufficientStockException(List<Shortfall> shortfalls) {
+        super("Insufficient stock: " + shortfalls);
+        this.shortfalls = shortfalls;
+    }
+
+    /**
+     * One order line that could not be reserved.
+     */
+    public record Shortfall(Long productId, int requested, int available) {
+    }
+}
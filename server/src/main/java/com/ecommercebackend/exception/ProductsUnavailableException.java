@@ -0,0 +1,26 @@
+package com.ecommercebackend.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.List;
+
+/**
+ * Thrown when order lines reference products that do not exist or were deleted.
+ * Carries every offending id so the client can fix the whole cart at once.
+ */
+@Getter
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class ProductsUnavailableException extends RuntimeException {
+
+    private final List<Long> missingIds;
+
+    private final List<Long> deletedIds;
+
+    public ProductsUnavailableException(List<Long> missingIds, List<Long> deletedIds) {
+        super("Products unavailable: missing " + missingIds + ", deleted " + deletedIds);
+        this.missingIds = missingIds;
+        this.deletedIds = deletedIds;
+    }
+}
@@ -1,6 +1,7 @@
 package com.ecommercebackend.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -36,6 +37,15 @@ public class Address {
   @Column(name = "country", nullable = false, length = 75)
   private String country;
 
+  /** Coordinates resolved by GeocodingService after the address is saved; null until then or if not found. */
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @Column(name = "latitude")
+  private Double latitude;
+
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @Column(name = "longitude")
+  private Double longitude;
+
   @JsonIgnore
   @ManyToOne(optional = false)
   @JoinColumn(name = "user_id", nullable = false)
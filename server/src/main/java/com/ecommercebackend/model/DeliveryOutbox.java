@@ -0,0 +1,69 @@
+package com.ecommercebackend.model;
+
+import com.ecommercebackend.model.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A delivery claim request waiting to be sent to Yandex Delivery. Written in
+ * the same transaction as the order and sent by DeliveryOutboxDispatcher,
+ * either alone or merged with other entries leaving the same warehouse.
+ */
+@Entity
+@Table(name = "delivery_outbox", indexes = {
+    @Index(name = "idx_delivery_outbox_status_next_attempt", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_delivery_outbox_batch", columnList = "batch_id")
+})
+@Getter
+@Setter
+public class DeliveryOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private WebOrder order;
+
+    // request_id вызова claims/create; у записей, созданных до разделения заказов по складам, пуст - тогда это ID заказа
+    @Column(name = "request_id")
+    private String requestId;
+
+    // Склад, откуда забирается отгрузка; пусто - основной склад. Объединяются только записи одного склада
+    @Column(name = "warehouse_id")
+    private Long warehouseId;
+
+    // request_id многоточечной заявки, в которую объединена запись; у первой записи пачки она остается
+    // PENDING и отправляется за всех, остальные ждут в статусе BATCHED
+    @Column(name = "batch_id")
+    private String batchId;
+
+    // Тело запроса claims/create, собранное при создании заказа
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // Раньше этого времени запись не берется в работу (backoff или аренда обработчиком)
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,66 @@
+package com.ecommercebackend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A Yandex Delivery claim of an order whose status is polled by
+ * DeliveryTracker until the claim is finished. A multi-drop claim has one
+ * row per order, told apart by the point of the order in the claim.
+ */
+@Entity
+@Table(name = "delivery_tracking", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_delivery_tracking_claim_point", columnNames = {"claim_id", "point_ref"})
+}, indexes = {
+    @Index(name = "idx_delivery_tracking_finished_next_poll", columnList = "finished, next_poll_at"),
+    @Index(name = "idx_delivery_tracking_order", columnList = "order_id")
+})
+@Getter
+@Setter
+public class DeliveryTracking {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    // У заказа, разделенного по складам, несколько заявок
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private WebOrder order;
+
+    // Копия владельца заказа: уведомления о статусе не требуют загрузки заказа
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "claim_id", nullable = false)
+    private String claimId;
+
+    // external_order_id точки заказа в многоточечной заявке; пусто, если заявка только этого заказа
+    @Column(name = "point_ref")
+    private String pointRef;
+
+    // Статус заявки в Яндекс Доставке как есть (performer_found, delivered, ...)
+    @Column(name = "status", length = 64)
+    private String status;
+
+    // Статус посещения точки заказа (pending, arrived, visited, ...); только для многоточечных заявок
+    @Column(name = "point_status", length = 32)
+    private String pointStatus;
+
+    @Column(name = "status_changed_at")
+    private LocalDateTime statusChangedAt;
+
+    // Заявка в конечном статусе больше не опрашивается
+    @Column(name = "finished", nullable = false)
+    private boolean finished;
+
+    @Column(name = "next_poll_at", nullable = false)
+    private LocalDateTime nextPollAt;
+
+    @Column(name = "last_polled_at")
+    private LocalDateTime lastPolledAt;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Technical specifications and detailed description of a product.
@@ -33,6 +34,24 @@ public class Description {
     @Column(name = "weight")
     private String weight; // Например "68 кг"
 
+    // Габариты и вес в числах, разобранные из строк выше при записи описания;
+    // null, если строку разобрать не удалось
+    @Column(name = "length_cm")
+    @JsonIgnore
+    private Double lengthCm;
+
+    @Column(name = "width_cm")
+    @JsonIgnore
+    private Double widthCm;
+
+    @Column(name = "height_cm")
+    @JsonIgnore
+    private Double heightCm;
+
+    @Column(name = "weight_kg")
+    @JsonIgnore
+    private Double weightKg;
+
     // Внешний вид
     @Column(name = "color_finish")
     private String colorFinish;
@@ -63,4 +82,11 @@ public class Description {
 
     @Column(name = "deleted", nullable = true)
     private boolean deleted = false;
+
+    // Версия строки для ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.ecommercebackend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Coordinates resolved for a normalized address, so each distinct address
+ * is sent to the geocoding provider only once.
+ */
+@Entity
+@Table(name = "geocode_cache", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_geocode_cache_address_key", columnNames = "address_key")
+})
+@Getter
+@Setter
+public class GeocodeCacheEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    // Нормализованные страна, город и строка адреса, см. GeocodingService.addressKey
+    @Column(name = "address_key", nullable = false, length = 1024)
+    private String addressKey;
+
+    @Column(name = "latitude", nullable = false)
+    private double latitude;
+
+    @Column(name = "longitude", nullable = false)
+    private double longitude;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
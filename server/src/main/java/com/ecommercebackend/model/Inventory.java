@@ -9,8 +9,10 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Inventory of a product that available for purchase.
@@ -36,4 +38,20 @@ public class Inventory {
 
   @Column(name = "deleted", nullable = true)
   private boolean deleted = false;
+
+  /**
+   * In flash-sale mode the stock is sold from an in-memory counter and the
+   * quantity here lags behind until FlashSaleService writes the sales back.
+   */
+  @JsonIgnore
+  @ColumnDefault("false")
+  @Column(name = "flash_sale", nullable = false)
+  private boolean flashSale = false;
+
+  /** Row version, part of the product ETag since the stock is serialized with the product. */
+  @JsonIgnore
+  @Version
+  @ColumnDefault("0")
+  @Column(name = "version", nullable = false)
+  private Long version;
 }
\ No newline at end of file
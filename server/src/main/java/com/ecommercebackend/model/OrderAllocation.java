@@ -0,0 +1,46 @@
+package com.ecommercebackend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Quantity of a product an order ships from a warehouse, kept so the
+ * warehouse stock can be returned if the order is released.
+ */
+@Entity
+@Table(name = "order_allocation", indexes = {
+    @Index(name = "idx_order_allocation_order", columnList = "order_id"),
+    @Index(name = "idx_order_allocation_product_pending", columnList = "product_id, stock_pending")
+})
+@Getter
+@Setter
+public class OrderAllocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private WebOrder order;
+
+    // null - основной склад из настроек доставки, его остатки ведет только inventory
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id")
+    private Warehouse warehouse;
+
+    // Просто ID: товар могут удалить, а строки заказа его переживают
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private int quantity;
+
+    // Товар взят из счетчика распродажи: остаток склада спишет FlashSaleService.writeBack
+    @ColumnDefault("false")
+    @Column(name = "stock_pending", nullable = false)
+    private boolean stockPending;
+}
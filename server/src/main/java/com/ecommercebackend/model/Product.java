@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.Where;
 
@@ -15,13 +16,28 @@ import java.util.ArrayList;
  * A product available for purchasing.
  */
 @Entity
-@Table(name = "product")
+@Table(name = "product", indexes = {
+    // Индексы под keyset-пагинацию; deleted первым, т.к. все выборки идут с deleted = false
+    @Index(name = "idx_product_deleted_id", columnList = "deleted, id"),
+    @Index(name = "idx_product_deleted_price_id", columnList = "deleted, price, id"),
+    @Index(name = "idx_product_deleted_raiting_id", columnList = "deleted, raiting, id")
+})
+@NamedEntityGraph(name = Product.DETAILS_GRAPH, attributeNodes = {
+    @NamedAttributeNode("inventory"),
+    @NamedAttributeNode("description")
+})
 @Getter
 @Setter
-@SQLDelete(sql = "UPDATE product SET deleted = true, deleted_at = CURRENT_TIMESTAMP WHERE id = ?")
+@SQLDelete(sql = "UPDATE product SET deleted = true, deleted_at = CURRENT_TIMESTAMP, version = version + 1 WHERE id = ? AND version = ?")
 @Where(clause = "deleted = false")
 public class Product {
 
+    /**
+     * Inventory и Description - необладающие стороны @OneToOne, Hibernate не может
+     * загрузить их лениво и без графа делает по отдельному запросу на каждый товар.
+     */
+    public static final String DETAILS_GRAPH = "Product.details";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id", nullable = false)
@@ -45,6 +61,15 @@ public class Product {
     @Column(name = "image", nullable = false)
     private String image;
 
+    /**
+     * Версия строки, увеличивается Hibernate при каждом изменении; из нее строится ETag.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private Long version;
+
     @OneToOne(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private Inventory inventory;
 
@@ -0,0 +1,44 @@
+package com.ecommercebackend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A warehouse orders can be picked up from by Yandex Delivery.
+ */
+@Entity
+@Table(name = "warehouse")
+@Getter
+@Setter
+public class Warehouse {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    // Адрес одной строкой для точки забора заявки
+    @Column(name = "address", nullable = false, length = 512)
+    private String address;
+
+    @Column(name = "latitude", nullable = false)
+    private double latitude;
+
+    @Column(name = "longitude", nullable = false)
+    private double longitude;
+
+    // Станция Яндекс Доставки склада, если он к ней подключен
+    @Column(name = "platform_id")
+    private String platformId;
+
+    @Column(name = "contact_phone", nullable = false, length = 32)
+    private String contactPhone;
+
+    // Неактивный склад не попадает в индекс маршрутизации
+    @Column(name = "active", nullable = false)
+    private boolean active = true;
+}
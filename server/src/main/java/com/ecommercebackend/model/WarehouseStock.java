@@ -0,0 +1,36 @@
+package com.ecommercebackend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Stock of a product held in one warehouse. Inventory keeps the total that
+ * orders reserve against; these rows say where that stock physically is.
+ */
+@Entity
+@Table(name = "warehouse_stock", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_warehouse_stock_warehouse_product", columnNames = {"warehouse_id", "product_id"})
+}, indexes = {
+    @Index(name = "idx_warehouse_stock_product", columnList = "product_id")
+})
+@Getter
+@Setter
+public class WarehouseStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id", nullable = false)
+    private Warehouse warehouse;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(name = "quantity", nullable = false)
+    private int quantity;
+}
@@ -1,19 +1,28 @@
 package com.ecommercebackend.model;
 
+import com.ecommercebackend.model.enums.DeliveryStatus;
+import com.ecommercebackend.model.enums.ReservationStatus;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,11 +30,27 @@ import java.util.List;
  * Order generated from the website.
  */
 @Entity
-@Table(name = "web_order")
+@Table(name = "web_order", indexes = {
+    @Index(name = "idx_web_order_reservation", columnList = "reservation_status, reserved_until")
+})
+@NamedEntityGraph(name = WebOrder.HISTORY_GRAPH, attributeNodes = {
+    @NamedAttributeNode("user"),
+    @NamedAttributeNode("address"),
+    @NamedAttributeNode(value = "quantities", subgraph = "lines")
+}, subgraphs = {
+    @NamedSubgraph(name = "lines", attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product")),
+    @NamedSubgraph(name = "product", attributeNodes = {
+        @NamedAttributeNode("inventory"),
+        @NamedAttributeNode("description")
+    })
+})
 @Getter
 @Setter
 public class WebOrder {
 
+  /** Everything the order JSON needs: lines with their products, inventory and description. */
+  public static final String HISTORY_GRAPH = "WebOrder.history";
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   @Column(name = "id", nullable = false)
@@ -39,7 +64,38 @@ public class WebOrder {
   @JoinColumn(name = "address_id", nullable = false)
   private Address address;
 
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
   @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
   private List<WebOrderQuantities> quantities = new ArrayList<>();
 
+  /**
+   * Claim id in Yandex Delivery, set once the outbox has sent the first claim.
+   * An order split across warehouses has one claim per warehouse, all in delivery_tracking.
+   */
+  @Column(name = "delivery_claim_id")
+  private String deliveryClaimId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "delivery_status")
+  private DeliveryStatus deliveryStatus;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "reservation_status")
+  private ReservationStatus reservationStatus;
+
+  /** Until when unpaid stock stays reserved; after that the sweeper releases it. */
+  @Column(name = "reserved_until")
+  private LocalDateTime reservedUntil;
+
+  /**
+   * YooKassa payment created for the order. While it is set the reservation
+   * follows the payment: committed once it succeeds, released once it is
+   * canceled or left unpaid past reservedUntil.
+   */
+  @JsonIgnore
+  @Column(name = "payment_id")
+  private String paymentId;
+
 }
\ No newline at end of file
@@ -12,6 +12,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * The quantity ordered of a product.
@@ -39,6 +40,16 @@ public class WebOrderQuantities {
     @JoinColumn(name = "product_id")
     private Product product;
 
+    // Цена товара на момент заказа
+    @Column(name = "unit_price")
+    private Double unitPrice;
+
+    // Количество взято из счетчика распродажи и еще не списано с inventory
+    @JsonIgnore
+    @ColumnDefault("false")
+    @Column(name = "stock_pending", nullable = false)
+    private boolean stockPending;
+
     // ЗАМОРОЖЕННЫЕ ДАННЫЕ ТОВАРА (заполняются при удалении товара)
     @Column(name = "frozen_product_name")
     private String frozenProductName;
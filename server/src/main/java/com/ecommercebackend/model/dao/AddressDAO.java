@@ -1,7 +1,10 @@
 package com.ecommercebackend.model.dao;
 
 import com.ecommercebackend.model.Address;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +17,18 @@ public interface AddressDAO extends ListCrudRepository<Address, Long> {
 
   List<Address> findByUser_Id(Long id);
 
+  /**
+   * Stores geocoded coordinates unless the address was edited since it was
+   * geocoded: the update only matches while line, city and country are unchanged.
+   */
+  @Modifying
+  @Query("UPDATE Address a SET a.latitude = :latitude, a.longitude = :longitude "
+      + "WHERE a.id = :id AND a.addressLine = :addressLine AND a.city = :city AND a.country = :country")
+  int updateCoordinates(@Param("id") Long id,
+                        @Param("addressLine") String addressLine,
+                        @Param("city") String city,
+                        @Param("country") String country,
+                        @Param("latitude") Double latitude,
+                        @Param("longitude") Double longitude);
+
 }
@@ -0,0 +1,51 @@
+package com.ecommercebackend.model.dao;
+
+import com.ecommercebackend.model.DeliveryOutbox;
+import com.ecommercebackend.model.enums.OutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Access Object for the delivery outbox.
+ */
+@Repository
+public interface DeliveryOutboxDAO extends JpaRepository<DeliveryOutbox, Long> {
+
+    /**
+     * Записи, которые пора отправить. Строки блокируются с SKIP LOCKED
+     * (lock timeout -2), поэтому несколько экземпляров приложения разбирают
+     * outbox параллельно, не беря одну запись дважды.
+     * @param createdBefore Записи новее этого еще ждут окна объединения заявок.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM DeliveryOutbox o WHERE o.status = :status AND o.nextAttemptAt <= :now"
+            + " AND o.createdAt <= :createdBefore ORDER BY o.id")
+    List<DeliveryOutbox> findDue(@Param("status") OutboxStatus status, @Param("now") LocalDateTime now,
+                                 @Param("createdBefore") LocalDateTime createdBefore, Pageable pageable);
+
+    /**
+     * Записи, которые еще ни разу не отправлялись и не объединены: их можно
+     * объединить в многоточечную заявку, в том числе раньше окончания окна.
+     * Блокируются так же, как в findDue.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM DeliveryOutbox o WHERE o.status = :status AND o.attempts = 0 AND o.batchId IS NULL ORDER BY o.id")
+    List<DeliveryOutbox> findBatchable(@Param("status") OutboxStatus status, Pageable pageable);
+
+    /**
+     * Записи пачки в статусе status по порядку точек заявки.
+     */
+    List<DeliveryOutbox> findByBatchIdAndStatusOrderById(String batchId, OutboxStatus status);
+}
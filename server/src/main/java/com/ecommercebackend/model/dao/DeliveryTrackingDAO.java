@@ -0,0 +1,33 @@
+package com.ecommercebackend.model.dao;
+
+import com.ecommercebackend.model.DeliveryTracking;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Access Object for tracked delivery claims.
+ */
+@Repository
+public interface DeliveryTrackingDAO extends JpaRepository<DeliveryTracking, Long> {
+
+    /**
+     * Незавершенные заявки, которые пора опросить, начиная с самых
+     * просроченных. Как и в outbox, строки берутся с SKIP LOCKED.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT t FROM DeliveryTracking t WHERE t.finished = false AND t.nextPollAt <= :now ORDER BY t.nextPollAt")
+    List<DeliveryTracking> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    List<DeliveryTracking> findByOrder_Id(Long orderId);
+}
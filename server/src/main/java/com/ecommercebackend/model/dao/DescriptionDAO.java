@@ -2,6 +2,8 @@ package com.ecommercebackend.model.dao;
 
 import com.ecommercebackend.model.Description;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,6 +13,14 @@ public interface DescriptionDAO extends JpaRepository<Description, Long> {
 
     Optional<Description> findByProductId(Long productId);
 
+    /**
+     * Versions the description response of a product is built from: the
+     * description itself and the product, whose name is part of the response.
+     */
+    @Query("SELECT d.id AS id, d.version AS version, p.version AS productVersion " +
+           "FROM Description d JOIN d.product p WHERE p.id = :productId")
+    Optional<DescriptionVersionView> findVersionByProductId(@Param("productId") Long productId);
+
     Optional<Description> findByArticleSku(String articleSku);
 
     boolean existsByArticleSku(String articleSku);
@@ -0,0 +1,13 @@
+package com.ecommercebackend.model.dao;
+
+/**
+ * Projection of the row versions a description response is built from.
+ */
+public interface DescriptionVersionView {
+
+    Long getId();
+
+    Long getVersion();
+
+    Long getProductVersion();
+}
@@ -0,0 +1,16 @@
+package com.ecommercebackend.model.dao;
+
+import com.ecommercebackend.model.GeocodeCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Data Access Object for the geocoding cache.
+ */
+@Repository
+public interface GeocodeCacheEntryDAO extends JpaRepository<GeocodeCacheEntry, Long> {
+
+    Optional<GeocodeCacheEntry> findByAddressKey(String addressKey);
+}
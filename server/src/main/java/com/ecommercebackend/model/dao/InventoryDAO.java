@@ -0,0 +1,22 @@
+package com.ecommercebackend.model.dao;
+
+import com.ecommercebackend.model.Inventory;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Data Access Object to access Inventory data.
+ */
+@Repository
+public interface InventoryDAO extends ListCrudRepository<Inventory, Long> {
+
+    // Пары [product_id, quantity] - без загрузки сущностей в persistence context
+    @Query("SELECT i.product.id, i.quantity FROM Inventory i WHERE i.product.id IN :productIds")
+    List<Object[]> findQuantities(@Param("productIds") Collection<Long> productIds);
+
+}
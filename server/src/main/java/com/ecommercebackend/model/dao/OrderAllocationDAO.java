@@ -0,0 +1,16 @@
+package com.ecommercebackend.model.dao;
+
+import com.ecommercebackend.model.OrderAllocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Data Access Object for the warehouse allocations of orders.
+ */
+@Repository
+public interface OrderAllocationDAO extends JpaRepository<OrderAllocation, Long> {
+
+    List<OrderAllocation> findByOrder_Id(Long orderId);
+}
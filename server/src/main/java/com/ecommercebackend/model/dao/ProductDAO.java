@@ -2,17 +2,26 @@ package com.ecommercebackend.model.dao;
 
 import com.ecommercebackend.model.Product;
 import com.ecommercebackend.model.WebOrderQuantities;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object for accessing Product data.
@@ -22,28 +31,153 @@ public interface ProductDAO extends JpaRepository<Product, Long> {
 
     boolean existsByNameAndDeletedFalse(String name);
 
+    // Все выборки товаров подгружают Inventory и Description тем же запросом (см. Product.DETAILS_GRAPH)
+
+    @Override
+    @EntityGraph(Product.DETAILS_GRAPH)
+    Page<Product> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(Product.DETAILS_GRAPH)
+    Optional<Product> findById(Long id);
+
+    @Override
+    @EntityGraph(Product.DETAILS_GRAPH)
+    List<Product> findAllById(Iterable<Long> ids);
+
+    /**
+     * Удаленные товары из списка id. @Where скрывает их от JPQL, поэтому
+     * запрос нативный. Только для чтения: связи удаленного товара
+     * фильтруются тем же @Where, и Inventory у него не подгружается.
+     */
+    @Query(nativeQuery = true,
+           value = "SELECT * FROM product WHERE deleted = true AND id IN (:ids)")
+    List<Product> findAllDeletedById(@Param("ids") Collection<Long> ids);
+
+    @Query(nativeQuery = true,
+           value = "SELECT id FROM product WHERE deleted = true AND id IN (:ids)")
+    List<Long> findDeletedIds(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(Product.DETAILS_GRAPH)
     @Query("SELECT p FROM Product p WHERE p.deleted = true")
     Page<Product> findAllDeleted(Pageable pageable);
 
-    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    /**
+     * Товар по id, в том числе удаленный. Запрос нативный по той же причине,
+     * что и findAllDeletedById: JPQL с @Where удаленный товар не находит.
+     */
+    @Query(nativeQuery = true, value = "SELECT * FROM product WHERE id = :id")
     Optional<Product> findByIdIncludingDeleted(@Param("id") Long id);
 
 
+    @EntityGraph(Product.DETAILS_GRAPH)
     @Query("SELECT p FROM Product p WHERE p.deleted = false AND LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
     Page<Product> findByNameContainingIgnoreCase(@Param("name") String name, Pageable pageable);
 
 
+    @EntityGraph(Product.DETAILS_GRAPH)
     @Query("SELECT p FROM Product p WHERE p.deleted = false AND p.price BETWEEN :minPrice AND :maxPrice")
     Page<Product> findByPriceBetween(@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice, Pageable pageable);
 
-    @Query("SELECT " +
-           "COUNT(p) as total, " +
-           "SUM(CASE WHEN p.deleted = true THEN 1 ELSE 0 END) as deleted, " +
-           "AVG(p.price) as avgPrice, " +
-           "MAX(p.price) as maxPrice, " +
-           "MIN(p.price) as minPrice " +
-           "FROM Product p")
-    Object[] getProductStatistics();
+    // Keyset-пагинация: выборка без OFFSET и без COUNT(*), Slice запрашивает size + 1 строк
+
+    @EntityGraph(Product.DETAILS_GRAPH)
+    @Query("SELECT p FROM Product p WHERE p.deleted = false ORDER BY p.id")
+    Slice<Product> findFirstOrderById(Pageable pageable);
+
+    @EntityGraph(Product.DETAILS_GRAPH)
+    @Query("SELECT p FROM Product p WHERE p.deleted = false AND p.id > :lastId ORDER BY p.id")
+    Slice<Product> findAfterOrderById(@Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(Product.DETAILS_GRAPH)
+    @Query("SELECT p FROM Product p WHERE p.deleted = false ORDER BY p.price, p.id")
+    Slice<Product> findFirstOrderByPrice(Pageable pageable);
+
+    @EntityGraph(Product.DETAILS_GRAPH)
+    @Query("SELECT p FROM Product p WHERE p.deleted = false " +
+           "AND (p.price > :lastPrice OR (p.price = :lastPrice AND p.id > :lastId)) " +
+           "ORDER BY p.price, p.id")
+    Slice<Product> findAfterOrderByPrice(@Param("lastPrice") Double lastPrice, @Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(Product.DETAILS_GRAPH)
+    @Query("SELECT p FROM Product p WHERE p.deleted = false ORDER BY p.raiting DESC, p.id DESC")
+    Slice<Product> findFirstOrderByRaiting(Pageable pageable);
+
+    @EntityGraph(Product.DETAILS_GRAPH)
+    @Query("SELECT p FROM Product p WHERE p.deleted = false " +
+           "AND (p.raiting < :lastRaiting OR (p.raiting = :lastRaiting AND p.id < :lastId)) " +
+           "ORDER BY p.raiting DESC, p.id DESC")
+    Slice<Product> findAfterOrderByRaiting(@Param("lastRaiting") Double lastRaiting, @Param("lastId") Long lastId, Pageable pageable);
+
+    /**
+     * Обход всех неудаленных товаров пачками по id - для построения
+     * in-memory индексов без загрузки всего каталога одним списком.
+     */
+    default void forEachInBatches(int batchSize, Consumer<Product> action) {
+        Pageable batch = PageRequest.of(0, batchSize);
+        Slice<Product> slice = findFirstOrderById(batch);
+        while (true) {
+            slice.forEach(action);
+            if (!slice.hasNext() || !slice.hasContent()) {
+                return;
+            }
+            Long lastId = slice.getContent().get(slice.getNumberOfElements() - 1).getId();
+            slice = findAfterOrderById(lastId, batch);
+        }
+    }
+
+    // Только версии строк - для проверки If-None-Match без загрузки товаров
+
+    @Query("SELECT p.id AS id, p.version AS version, i.version AS inventoryVersion " +
+           "FROM Product p LEFT JOIN p.inventory i WHERE p.id = :id")
+    Optional<ProductVersionView> findVersionById(@Param("id") Long id);
+
+    @Query(value = "SELECT p.id AS id, p.version AS version, i.version AS inventoryVersion " +
+                   "FROM Product p LEFT JOIN p.inventory i",
+           countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductVersionView> findVersions(Pageable pageable);
+
+    /**
+     * Весь каталог серверным курсором для выгрузки. Вызывать внутри транзакции
+     * (иначе драйвер Postgres игнорирует fetch size и читает все строки сразу)
+     * и отсоединять прочитанные товары от контекста.
+     */
+    @EntityGraph(Product.DETAILS_GRAPH)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllForExport();
+
+    // Статистика каталога. Запросы нативные: @Where скрыл бы удаленные товары
+
+    /**
+     * Одна строка: total, deleted, activePriceSum, minPrice, maxPrice, totalStock, outOfStock.
+     * Цены и остатки - только по активным товарам.
+     */
+    @Query(nativeQuery = true,
+           value = "SELECT COUNT(*), " +
+                   "SUM(CASE WHEN p.deleted = true THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN p.deleted IS NOT TRUE THEN p.price END), " +
+                   "MIN(CASE WHEN p.deleted IS NOT TRUE THEN p.price END), " +
+                   "MAX(CASE WHEN p.deleted IS NOT TRUE THEN p.price END), " +
+                   "SUM(CASE WHEN p.deleted IS NOT TRUE THEN COALESCE(i.quantity, 0) END), " +
+                   "SUM(CASE WHEN p.deleted IS NOT TRUE AND COALESCE(i.quantity, 0) <= 0 THEN 1 ELSE 0 END) " +
+                   "FROM product p LEFT JOIN inventory i ON i.product_id = p.id")
+    List<Object[]> getProductStatistics();
+
+    /** Строки id, price, deleted, quantity для учета товаров в статистике. */
+    @Query(nativeQuery = true,
+           value = "SELECT p.id, p.price, p.deleted, i.quantity " +
+                   "FROM product p LEFT JOIN inventory i ON i.product_id = p.id WHERE p.id IN (:ids)")
+    List<Object[]> findStatisticsRows(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(nativeQuery = true,
+           value = "SELECT p.id, p.price, p.deleted, i.quantity " +
+                   "FROM product p LEFT JOIN inventory i ON i.product_id = p.id")
+    Stream<Object[]> streamStatisticsRows();
 
     @Modifying
     @Query(nativeQuery = true,
@@ -0,0 +1,15 @@
+package com.ecommercebackend.model.dao;
+
+/**
+ * Projection of the row versions a product response is built from, used to
+ * validate an ETag without loading the entity graph.
+ */
+public interface ProductVersionView {
+
+    Long getId();
+
+    Long getVersion();
+
+    /** Null when the product has no inventory. */
+    Long getInventoryVersion();
+}
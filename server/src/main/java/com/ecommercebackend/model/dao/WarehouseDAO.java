@@ -0,0 +1,16 @@
+package com.ecommercebackend.model.dao;
+
+import com.ecommercebackend.model.Warehouse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Data Access Object for warehouses.
+ */
+@Repository
+public interface WarehouseDAO extends JpaRepository<Warehouse, Long> {
+
+    List<Warehouse> findByActiveTrue();
+}
@@ -0,0 +1,13 @@
+package com.ecommercebackend.model.dao;
+
+import com.ecommercebackend.model.WarehouseStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Data Access Object for per-warehouse stock.
+ */
+@Repository
+public interface WarehouseStockDAO extends JpaRepository<WarehouseStock, Long> {
+
+}
@@ -1,10 +1,19 @@
 package com.ecommercebackend.model.dao;
 
+import com.ecommercebackend.api.model.OrderSummary;
 import com.ecommercebackend.model.LocalUser;
 import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.enums.ReservationStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -13,6 +22,75 @@ import java.util.List;
 @Repository
 public interface WebOrderDAO extends ListCrudRepository<WebOrder, Long> {
 
+  @EntityGraph(WebOrder.HISTORY_GRAPH)
   List<WebOrder> findByUser(LocalUser user);
 
+  // История заказов по курсору: сначала ID страницы, затем сами заказы одним запросом.
+  // Коллекцию quantities нельзя тянуть JOIN FETCH вместе с LIMIT - Hibernate обрезал бы страницу в памяти
+  @Query("SELECT o.id FROM WebOrder o WHERE o.user = :user AND o.id < :beforeId ORDER BY o.id DESC")
+  List<Long> findIdsByUserBefore(@Param("user") LocalUser user, @Param("beforeId") Long beforeId, Pageable pageable);
+
+  @EntityGraph(WebOrder.HISTORY_GRAPH)
+  @Query("SELECT DISTINCT o FROM WebOrder o WHERE o.id IN :ids ORDER BY o.id DESC")
+  List<WebOrder> findAllWithLinesById(@Param("ids") Collection<Long> ids);
+
+  @Query("SELECT new com.ecommercebackend.api.model.OrderSummary(o.id, o.createdAt, "
+      + "SUM(q.quantity * COALESCE(q.unitPrice, p.price, q.frozenProductPrice, 0.0)), SUM(q.quantity)) "
+      + "FROM WebOrder o LEFT JOIN o.quantities q LEFT JOIN q.product p "
+      + "WHERE o.user = :user AND o.id < :beforeId GROUP BY o.id, o.createdAt ORDER BY o.id DESC")
+  List<OrderSummary> findSummariesByUserBefore(@Param("user") LocalUser user,
+                                               @Param("beforeId") Long beforeId,
+                                               Pageable pageable);
+
+  /** Total of the order at order prices, as in the order summaries. */
+  @Query("SELECT SUM(q.quantity * COALESCE(q.unitPrice, p.price, q.frozenProductPrice, 0.0)) "
+      + "FROM WebOrderQuantities q LEFT JOIN q.product p WHERE q.order.id = :id")
+  Double findTotal(@Param("id") Long id);
+
+  /** Moves reservedUntil of a reservation that is still active; 0 if it is not. */
+  @Modifying
+  @Query("UPDATE WebOrder o SET o.reservedUntil = :until "
+      + "WHERE o.id = :id AND o.reservationStatus = :status AND o.reservedUntil > :now")
+  int extendReservation(@Param("id") Long id,
+                        @Param("status") ReservationStatus status,
+                        @Param("now") LocalDateTime now,
+                        @Param("until") LocalDateTime until);
+
+  @Modifying
+  @Query("UPDATE WebOrder o SET o.paymentId = :paymentId WHERE o.id = :id AND o.reservationStatus = :status")
+  int updatePaymentId(@Param("id") Long id,
+                      @Param("status") ReservationStatus status,
+                      @Param("paymentId") String paymentId);
+
+  /**
+   * Id, payment id and reservedUntil of reservations waiting for their
+   * payment, after the given order id.
+   */
+  @Query("SELECT o.id, o.paymentId, o.reservedUntil FROM WebOrder o WHERE o.reservationStatus = :status "
+      + "AND o.paymentId IS NOT NULL AND o.id > :afterId ORDER BY o.id")
+  List<Object[]> findAwaitingPayment(@Param("status") ReservationStatus status,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
+  /**
+   * Moves the reservation of an order from one status to another. Returns 0
+   * when the order is not in the expected status, so of two concurrent
+   * transitions only one wins.
+   */
+  @Modifying
+  @Query("UPDATE WebOrder o SET o.reservationStatus = :to WHERE o.id = :id AND o.reservationStatus = :from")
+  int updateReservationStatus(@Param("id") Long id,
+                              @Param("from") ReservationStatus from,
+                              @Param("to") ReservationStatus to);
+
+  /**
+   * Expired reservations without a payment; those with one are released by
+   * PaymentStatusPoller, which first checks the payment was not made.
+   */
+  @Query("SELECT o.id FROM WebOrder o WHERE o.reservationStatus = :status AND o.reservedUntil < :now "
+      + "AND o.paymentId IS NULL ORDER BY o.id")
+  List<Long> findIdsByReservationExpired(@Param("status") ReservationStatus status,
+                                         @Param("now") LocalDateTime now,
+                                         Pageable pageable);
+
 }
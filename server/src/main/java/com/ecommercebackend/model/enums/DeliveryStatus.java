@@ -0,0 +1,13 @@
+package com.ecommercebackend.model.enums;
+
+/**
+ * Состояние заявки в Яндекс Доставке для заказа.
+ */
+public enum DeliveryStatus {
+    /** Заявка еще не создана, запрос ждет отправки в outbox. */
+    PENDING,
+    /** Заявка создана, ее id сохранен в заказе. */
+    CREATED,
+    /** Все попытки создать заявку исчерпаны. */
+    FAILED
+}
@@ -0,0 +1,11 @@
+package com.ecommercebackend.model.enums;
+
+/**
+ * State of a request made with an Idempotency-Key.
+ */
+public enum IdempotencyStatus {
+    // Запрос выполняется; повтор с тем же ключом получит 409
+    IN_PROGRESS,
+    // Ответ сохранен; повтор получит его без повторного выполнения
+    COMPLETED
+}
@@ -0,0 +1,12 @@
+package com.ecommercebackend.model.enums;
+
+/**
+ * Состояние записи outbox.
+ */
+public enum OutboxStatus {
+    PENDING,
+    /** Объединена в многоточечную заявку и отправляется вместе с первой записью пачки. */
+    BATCHED,
+    SENT,
+    FAILED
+}
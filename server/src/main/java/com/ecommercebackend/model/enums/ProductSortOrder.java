@@ -0,0 +1,27 @@
+package com.ecommercebackend.model.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Порядок сортировки для keyset-пагинации каталога.
+ * ID и PRICE - по возрастанию, RAITING - по убыванию (сначала лучшие).
+ */
+@Getter
+@AllArgsConstructor
+public enum ProductSortOrder {
+    ID("id"),
+    PRICE("price"),
+    RAITING("raiting");
+
+    private final String value;
+
+    public static ProductSortOrder fromValue(String value) {
+        for (ProductSortOrder order : values()) {
+            if (order.value.equalsIgnoreCase(value)) {
+                return order;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort order: " + value);
+    }
+}
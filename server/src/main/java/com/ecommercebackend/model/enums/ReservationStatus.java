@@ -0,0 +1,13 @@
+package com.ecommercebackend.model.enums;
+
+/**
+ * State of the stock reserved for an order.
+ */
+public enum ReservationStatus {
+    // Остатки списаны, заказ ждет оплаты, в том числе уже созданного платежа
+    RESERVED,
+    // Платеж прошел, остатки остаются за заказом
+    COMMITTED,
+    // Остатки возвращены: заказ брошен или оплата не прошла
+    RELEASED
+}
@@ -0,0 +1,102 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.CatalogItem;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.model.enums.ProductSortOrder;
+import com.ecommercebackend.service.catalog.CatalogSnapshot;
+import com.ecommercebackend.service.event.ProductChangeCoalescer;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serves the anonymous catalog listing from an in-memory snapshot so that
+ * storefront traffic does not reach the database. The snapshot is loaded
+ * once on startup and then patched with the products of ProductChangedEvents,
+ * coalesced into batches.
+ */
+@Slf4j
+@Service
+public class CatalogSnapshotService {
+
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private final ProductDAO productDAO;
+
+    private final YandexStorageService storageService;
+
+    private final ProductChangeCoalescer<List<CatalogItem>> changes;
+
+    private volatile CatalogSnapshot snapshot = CatalogSnapshot.EMPTY;
+
+    public CatalogSnapshotService(ProductDAO productDAO, YandexStorageService storageService,
+                                  PlatformTransactionManager transactionManager) {
+        this.productDAO = productDAO;
+        this.storageService = storageService;
+        this.changes = new ProductChangeCoalescer<>(transactionManager,
+                ids -> productDAO.findAllById(ids).stream().map(this::toItem).toList(),
+                this::apply);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        List<CatalogItem> items = new ArrayList<>();
+        productDAO.forEachInBatches(LOAD_BATCH_SIZE, product -> items.add(toItem(product)));
+        CatalogSnapshot rebuilt = CatalogSnapshot.of(items);
+        snapshot = rebuilt;
+        log.info("Catalog snapshot built: {} products in {} ms", rebuilt.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.submit(event.getProductIds());
+    }
+
+    public Page<CatalogItem> getCatalog(String sort, String direction, Double minPrice, Double maxPrice, int page, int size) {
+        ProductSortOrder sortOrder;
+        try {
+            sortOrder = ProductSortOrder.fromValue(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (page < 0 || size < 1 || size > 100 || page > Integer.MAX_VALUE / size) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page or size");
+        }
+        boolean descending = direction == null
+                ? sortOrder == ProductSortOrder.RAITING
+                : "desc".equalsIgnoreCase(direction);
+        return snapshot.query(sortOrder, descending, minPrice, maxPrice, page, size);
+    }
+
+    private synchronized void apply(Set<Long> productIds, List<CatalogItem> items) {
+        snapshot = snapshot.replacing(productIds, items);
+    }
+
+    private CatalogItem toItem(Product product) {
+        boolean inStock = product.getInventory() != null
+                && product.getInventory().getQuantity() != null
+                && product.getInventory().getQuantity() > 0;
+        return new CatalogItem(
+                product.getId(),
+                product.getName(),
+                product.getShortDescription(),
+                product.getPrice() != null ? product.getPrice() : 0.0,
+                product.getRaiting() != null ? product.getRaiting() : 0.0,
+                inStock,
+                product.getImage(),
+                storageService.getImageUrl(product.getImage()));
+    }
+}
@@ -0,0 +1,122 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.DeliveryQuote;
+import com.ecommercebackend.api.model.DeliveryQuoteBody;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.Warehouse;
+import com.ecommercebackend.model.dao.AddressDAO;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.service.delivery.CargoProfile;
+import com.ecommercebackend.service.delivery.QuoteKey;
+import com.ecommercebackend.service.delivery.YandexDeliveryClient;
+import com.ecommercebackend.service.fulfilment.FulfilmentService;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Предварительный расчет стоимости доставки корзины до оформления заказа.
+ * <p>
+ * Груз считается от склада, который выберет для корзины FulfilmentService.
+ * Цены кэшируются по QuoteKey - складу, ячейке назначения и классам размера
+ * и веса груза, так что похожие корзины в один город получают цену без
+ * обращения к Яндексу. Кэш асинхронный: параллельные запросы с одним ключом ждут один и
+ * тот же вызов API, а неудачный вызов в кэше не остается.
+ */
+@Slf4j
+@Service
+public class DeliveryQuoteService {
+
+    private final AddressDAO addressDAO;
+
+    private final ProductDAO productDAO;
+
+    private final YandexDeliveryClient deliveryClient;
+
+    private final FulfilmentService fulfilmentService;
+
+    private final AsyncCache<QuoteKey, YandexDeliveryClient.Price> quotes;
+
+    public DeliveryQuoteService(AddressDAO addressDAO,
+                                ProductDAO productDAO,
+                                YandexDeliveryClient deliveryClient,
+                                FulfilmentService fulfilmentService,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.delivery.quote.ttl:PT15M}") Duration ttl,
+                                @Value("${app.delivery.quote.max-size:10000}") long maxSize) {
+        this.addressDAO = addressDAO;
+        this.productDAO = productDAO;
+        this.deliveryClient = deliveryClient;
+        this.fulfilmentService = fulfilmentService;
+        this.quotes = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, quotes, "delivery.quotes");
+    }
+
+    /**
+     * Стоимость доставки строк корзины на адрес пользователя.
+     */
+    @Transactional(readOnly = true)
+    public DeliveryQuote getQuote(DeliveryQuoteBody body, LocalUser user) {
+        Address address = addressDAO.findById(body.getAddressId())
+                .filter(found -> found.getUser().getId().equals(user.getId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address not found"));
+
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (DeliveryQuoteBody.Line line : body.getLines()) {
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        Map<Long, Product> products = new HashMap<>();
+        productDAO.findAllById(quantities.keySet()).forEach(product -> products.put(product.getId(), product));
+        List<CargoProfile.Item> items = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found: " + entry.getKey());
+            }
+            items.add(new CargoProfile.Item(product.getDescription(), entry.getValue()));
+        }
+        return quote(address, fulfilmentService.sourceWarehouse(address, quantities), CargoProfile.of(items));
+    }
+
+    /**
+     * Цена для груза на адрес из кэша или, при промахе, от Яндекса.
+     * @param source Склад отправления; null - основной склад.
+     */
+    public DeliveryQuote quote(Address address, Warehouse source, CargoProfile profile) {
+        QuoteKey key = QuoteKey.of(source, address, profile);
+        YandexDeliveryClient.Price price;
+        try {
+            price = YandexDeliveryClient.await(quotes.get(key, (quoteKey, executor) ->
+                    deliveryClient.checkPriceAsync(source, quoteKey.representativeSize(), quoteKey.weightKg(),
+                            quoteKey.fullname())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Delivery quote is unavailable");
+        } catch (IOException e) {
+            log.warn("Delivery quote for {} failed: {}", key, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Delivery quote is unavailable");
+        }
+        return new DeliveryQuote(price.amount(), price.currency(), key.longestSideCm(), key.volumeLiters(), key.weightKg());
+    }
+}
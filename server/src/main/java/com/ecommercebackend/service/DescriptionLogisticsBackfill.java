@@ -0,0 +1,128 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.service.delivery.LogisticsAttributes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Заполняет числовые габариты и вес у описаний, записанных до появления
+ * колонок length_cm/width_cm/height_cm/weight_kg.
+ * <p>
+ * Строки обходятся по id пачками, каждая пачка - отдельная транзакция.
+ * Значения, которые не удалось разобрать, остаются null (доставка берет
+ * значения по умолчанию) и попадают в отчет; при следующем запуске они
+ * проверяются снова, так что исправленный через API текст подхватится сам.
+ */
+@Slf4j
+@Service
+public class DescriptionLogisticsBackfill {
+
+    private static final String PENDING_SQL =
+            "SELECT id, dimensions, weight FROM product_description "
+                    + "WHERE id > ? AND ((dimensions IS NOT NULL AND length_cm IS NULL) "
+                    + "OR (weight IS NOT NULL AND weight_kg IS NULL)) ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_SQL =
+            "UPDATE product_description SET length_cm = COALESCE(?, length_cm), width_cm = COALESCE(?, width_cm), "
+                    + "height_cm = COALESCE(?, height_cm), weight_kg = COALESCE(?, weight_kg) WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    public DescriptionLogisticsBackfill(JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${app.description.logistics-backfill.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Значение, которое не удалось разобрать.
+     * @param field "dimensions" или "weight".
+     */
+    public record Unparseable(Long descriptionId, String field, String value) {
+    }
+
+    /**
+     * Итог прохода: сколько строк просмотрено, сколько обновлено и что не разобрано.
+     */
+    public record Report(int scanned, int updated, List<Unparseable> unparseable) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public Report backfill() {
+        List<Unparseable> unparseable = new ArrayList<>();
+        int scanned = 0;
+        int updated = 0;
+        long lastId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long afterId = lastId;
+            Batch batch = transactionTemplate.execute(status -> backfillBatch(afterId, unparseable));
+            scanned += batch.scanned();
+            updated += batch.updated();
+            if (batch.scanned() < batchSize) {
+                break;
+            }
+            lastId = batch.lastId();
+        }
+        if (scanned > 0) {
+            log.info("Description logistics backfill: {} rows scanned, {} updated, {} values unparseable",
+                    scanned, updated, unparseable.size());
+        }
+        return new Report(scanned, updated, unparseable);
+    }
+
+    private Batch backfillBatch(long afterId, List<Unparseable> unparseable) {
+        List<Object[]> rows = jdbcTemplate.query(PENDING_SQL,
+                (rs, rowNum) -> new Object[]{rs.getLong("id"), rs.getString("dimensions"), rs.getString("weight")},
+                afterId, batchSize);
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            String dimensionsText = (String) row[1];
+            String weightText = (String) row[2];
+            LogisticsAttributes.Dimensions dimensions = LogisticsAttributes.parseDimensions(dimensionsText);
+            Double weightKg = LogisticsAttributes.parseWeight(weightText);
+            if (dimensionsText != null && dimensions == null) {
+                report(unparseable, new Unparseable(id, "dimensions", dimensionsText));
+            }
+            if (weightText != null && weightKg == null) {
+                report(unparseable, new Unparseable(id, "weight", weightText));
+            }
+            if (dimensions != null || weightKg != null) {
+                updates.add(new Object[]{
+                        dimensions != null ? dimensions.length() : null,
+                        dimensions != null ? dimensions.width() : null,
+                        dimensions != null ? dimensions.height() : null,
+                        weightKg,
+                        id});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+        long lastId = rows.isEmpty() ? afterId : (Long) rows.get(rows.size() - 1)[0];
+        return new Batch(rows.size(), updates.size(), lastId);
+    }
+
+    private void report(List<Unparseable> unparseable, Unparseable value) {
+        log.warn("Cannot parse {} '{}' of description {}", value.field(), value.value(), value.descriptionId());
+        unparseable.add(value);
+    }
+
+    private record Batch(int scanned, int updated, long lastId) {
+    }
+}
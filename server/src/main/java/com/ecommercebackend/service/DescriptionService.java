@@ -9,8 +9,11 @@ import com.ecommercebackend.model.LocalUser;
 import com.ecommercebackend.model.Product;
 import com.ecommercebackend.model.dao.DescriptionDAO;
 import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.service.delivery.LogisticsAttributes;
+import com.ecommercebackend.service.event.ProductChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +29,7 @@ public class DescriptionService {
 
     private final DescriptionDAO descriptionDAO;
     private final ProductDAO productDAO;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final String PRODUCT_NOT_FOUND = "Product not found with id: ";
     private static final String DESCRIPTION_NOT_FOUND = "Description not found with id: ";
@@ -51,6 +55,7 @@ public class DescriptionService {
 
         product.setDescription(savedDescription);
         productDAO.save(product);
+        publishProductChanged(savedDescription);
 
         log.info("Successfully created description with id: {} for product id: {} by user: {}",
                  savedDescription.getId(), productId, user.getUsername());
@@ -83,6 +88,7 @@ public class DescriptionService {
         updateDescriptionFromBody(existingDescription, descriptionBody);
 
         Description updatedDescription = descriptionDAO.save(existingDescription);
+        publishProductChanged(updatedDescription);
         log.info("Successfully updated description with id: {} by user: {}", descriptionId, user.getUsername());
         return updatedDescription;
     }
@@ -118,6 +124,7 @@ public class DescriptionService {
 
             updateDescriptionFromBody(description, descriptionBody);
             Description updated = descriptionDAO.save(description);
+            publishProductChanged(updated);
             log.info("Updated existing description with id: {} by user: {}", updated.getId(), user.getUsername());
             return updated;
         } else {
@@ -131,6 +138,7 @@ public class DescriptionService {
 
         validateAdminUser(user);
         Description description = findDescriptionById(descriptionId);
+        publishProductChanged(description);
         removeDescriptionFromProduct(description);
         descriptionDAO.delete(description);
 
@@ -215,9 +223,21 @@ public class DescriptionService {
         }
         if (body.getDimensions() != null) {
             description.setDimensions(body.getDimensions());
+            LogisticsAttributes.Dimensions dimensions = LogisticsAttributes.parseDimensions(body.getDimensions());
+            if (dimensions == null) {
+                log.warn("Unparseable dimensions '{}', delivery will use default size", body.getDimensions());
+            }
+            description.setLengthCm(dimensions != null ? dimensions.length() : null);
+            description.setWidthCm(dimensions != null ? dimensions.width() : null);
+            description.setHeightCm(dimensions != null ? dimensions.height() : null);
         }
         if (body.getWeight() != null) {
             description.setWeight(body.getWeight());
+            Double weightKg = LogisticsAttributes.parseWeight(body.getWeight());
+            if (weightKg == null) {
+                log.warn("Unparseable weight '{}', delivery will use default weight", body.getWeight());
+            }
+            description.setWeightKg(weightKg);
         }
         if (body.getColorFinish() != null) {
             description.setColorFinish(body.getColorFinish());
@@ -239,6 +259,13 @@ public class DescriptionService {
         }
     }
 
+    private void publishProductChanged(Description description) {
+        if (description.getProduct() != null) {
+            eventPublisher.publishEvent(new ProductChangedEvent(
+                    description.getProduct().getId(), ProductChangedEvent.ChangeType.UPDATED));
+        }
+    }
+
     private void removeDescriptionFromProduct(Description description) {
         Product product = description.getProduct();
         if (product != null) {
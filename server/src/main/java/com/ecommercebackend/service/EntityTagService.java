@@ -0,0 +1,113 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.DescriptionDAO;
+import com.ecommercebackend.model.dao.DescriptionVersionView;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.model.dao.ProductVersionView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Строгие ETag для ответов с товарами и описаниями.
+ * Тег строится только из id и версий строк, поэтому текущий тег можно получить
+ * запросом версий, не загружая сущности. Тег отдаваемого ответа всегда строится
+ * по версиям самих отдаваемых сущностей - так кешированная копия не получит
+ * тег более новой версии.
+ */
+@Service
+@RequiredArgsConstructor
+public class EntityTagService {
+
+    private final ProductDAO productDAO;
+
+    private final DescriptionDAO descriptionDAO;
+
+    public String productTag(Product product) {
+        Long inventoryVersion = product.getInventory() != null ? product.getInventory().getVersion() : null;
+        return productTag(product.getId(), product.getVersion(), inventoryVersion);
+    }
+
+    public Optional<String> currentProductTag(Long productId) {
+        return productDAO.findVersionById(productId)
+                .map(view -> productTag(view.getId(), view.getVersion(), view.getInventoryVersion()));
+    }
+
+    public String descriptionTag(Description description) {
+        Long productVersion = description.getProduct() != null ? description.getProduct().getVersion() : null;
+        return "d" + description.getId() + "-" + description.getVersion() + "-" + productVersion;
+    }
+
+    public Optional<String> currentDescriptionTag(Long productId) {
+        return descriptionDAO.findVersionByProductId(productId)
+                .map(this::descriptionTag);
+    }
+
+    /**
+     * Тег страницы каталога: номер и размер страницы, общее количество и
+     * версии всех товаров на ней, свернутые в SHA-256.
+     */
+    public String pageTag(Page<Product> page) {
+        return pageTag(page, this::productTag);
+    }
+
+    public String currentPageTag(PageRequest pageRequest) {
+        Page<ProductVersionView> versions = productDAO.findVersions(pageRequest);
+        return pageTag(versions, view -> productTag(view.getId(), view.getVersion(), view.getInventoryVersion()));
+    }
+
+    /**
+     * Проверка заголовка If-None-Match: список тегов через запятую или "*".
+     * Слабые теги (W/) сравниваются по значению, как того требует RFC 9110 для GET.
+     */
+    public static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String quoted = "\"" + tag + "\"";
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(quoted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String descriptionTag(DescriptionVersionView view) {
+        return "d" + view.getId() + "-" + view.getVersion() + "-" + view.getProductVersion();
+    }
+
+    private static String productTag(Long id, Long version, Long inventoryVersion) {
+        return "p" + id + "-" + version + "-" + inventoryVersion;
+    }
+
+    private static <T> String pageTag(Page<T> page, Function<T, String> elementTag) {
+        StringBuilder source = new StringBuilder()
+                .append(page.getNumber()).append(':')
+                .append(page.getSize()).append(':')
+                .append(page.getTotalElements());
+        for (T element : page.getContent()) {
+            source.append(':').append(elementTag.apply(element));
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.toString().getBytes(StandardCharsets.UTF_8));
+            return "l" + HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.FlashSaleStatus;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import com.ecommercebackend.service.fulfilment.FulfilmentService;
+import com.ecommercebackend.service.inventory.StripedStockCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Режим распродажи для отдельных товаров.
+ * <p>
+ * Остаток такого товара держится в памяти в StripedStockCounter, и заказы
+ * резервируют его без обращения к строке inventory. Строки заказа, взятые из
+ * счетчика, помечаются stock_pending; writeBack пачками списывает их с
+ * inventory и снимает пометку в одной транзакции. Так в любой момент
+ * остаток = inventory.quantity - сумма pending-строк, и после падения
+ * процесса reconcile при старте дописывает оставшиеся pending-строки и
+ * заново заполняет счетчики из inventory. Остатки складов под эти строки
+ * writeBack списывает там же, через FulfilmentService.applyPending.
+ * <p>
+ * Счетчики живут в памяти одного процесса, поэтому режим рассчитан на
+ * единственный экземпляр приложения, как и остальные индексы в памяти.
+ */
+@Slf4j
+@Service
+public class FlashSaleService {
+
+    private static final String PENDING_SQL =
+            "SELECT id, order_id, product_id, quantity FROM web_order_quantities WHERE stock_pending = true ORDER BY id LIMIT ? FOR UPDATE";
+
+    private static final String APPLY_SQL =
+            "UPDATE inventory SET quantity = GREATEST(quantity - ?, 0), version = version + 1 WHERE product_id = ?";
+
+    private static final String CLEAR_PENDING_SQL =
+            "UPDATE web_order_quantities SET stock_pending = false WHERE id = ?";
+
+    private static final String PENDING_UNITS_SQL =
+            "SELECT COALESCE(SUM(quantity), 0) FROM web_order_quantities WHERE product_id = ? AND stock_pending = true";
+
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+
+    private final Map<Long, Gauge> gauges = new ConcurrentHashMap<>();
+
+    /** Резервы из счетчика, транзакции которых еще не завершились, по ID товара. */
+    private final Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    /** Защелки выключаемых сейчас товаров; открываются, когда выключение закончено. */
+    private final Map<Long, CountDownLatch> drains = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final FulfilmentService fulfilmentService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter reservedLines;
+
+    private final Counter rejectedLines;
+
+    private final int stripes;
+
+    private final int writeBackBatchSize;
+
+    private final Duration drainTimeout;
+
+    public FlashSaleService(JdbcTemplate jdbcTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            FulfilmentService fulfilmentService,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.inventory.flash-sale.stripes:16}") int stripes,
+                            @Value("${app.inventory.flash-sale.write-back-batch-size:1000}") int writeBackBatchSize,
+                            @Value("${app.inventory.flash-sale.drain-timeout:PT5S}") Duration drainTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.fulfilmentService = fulfilmentService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.stripes = stripes;
+        this.writeBackBatchSize = writeBackBatchSize;
+        this.drainTimeout = drainTimeout;
+        // Скорость в секунду считает бэкенд метрик (rate по счетчику)
+        this.reservedLines = Counter.builder("inventory.flash_sale.reservations")
+                .description("Order lines reserved from flash-sale counters")
+                .tag("result", "reserved")
+                .register(meterRegistry);
+        this.rejectedLines = Counter.builder("inventory.flash_sale.reservations")
+                .description("Order lines reserved from flash-sale counters")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Дописывает продажи, не попавшие в inventory до остановки процесса, и
+     * заполняет счетчики товаров, оставшихся в режиме распродажи.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        int applied = writeBack();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT product_id, quantity FROM inventory WHERE flash_sale = true");
+        for (Map<String, Object> row : rows) {
+            activate(((Number) row.get("product_id")).longValue(), ((Number) row.get("quantity")).longValue());
+        }
+        log.info("Flash sale reconciled: {} pending units written back, {} products on sale", applied, rows.size());
+    }
+
+    /**
+     * Счетчик товара в режиме распродажи; null, если товар продается обычным путем.
+     * Пока режим товара выключается, ждет конца выключения (не дольше drainTimeout),
+     * чтобы заказ пошел обычным путем, а не получил ложную нехватку.
+     */
+    public StripedStockCounter counter(Long productId) {
+        StripedStockCounter counter = counters.get(productId);
+        if (counter == null || !counter.isClosed()) {
+            return counter;
+        }
+        CountDownLatch drain = drains.get(productId);
+        if (drain != null) {
+            try {
+                drain.await(drainTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return counters.get(productId);
+    }
+
+    /**
+     * Резервирует количество из счетчика. Взятое числится незавершенным, пока
+     * его не закроет giveBackOnRollback или cancel: выключение режима ждет
+     * такие резервы.
+     */
+    public boolean tryTake(Long productId, StripedStockCounter counter, int quantity) {
+        AtomicInteger pending = inFlight.computeIfAbsent(productId, id -> new AtomicInteger());
+        // Сначала учет, потом проверка закрытия счетчика внутри tryTake: иначе
+        // выключение могло бы не дождаться резерва, прошедшего проверку
+        pending.incrementAndGet();
+        boolean reserved = counter.tryTake(quantity);
+        if (!reserved) {
+            pending.decrementAndGet();
+        }
+        (reserved ? reservedLines : rejectedLines).increment();
+        return reserved;
+    }
+
+    /**
+     * Завершает резервы из счетчиков вместе с текущей транзакцией и возвращает
+     * количества в счетчики, если она откатится; без транзакции - сразу.
+     */
+    public void giveBackOnRollback(Map<Long, Integer> taken) {
+        if (taken.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cancel(taken);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    giveBack(taken);
+                }
+                settle(taken.keySet());
+            }
+        });
+    }
+
+    /** Отменяет резервы из счетчиков сразу, например когда заказу не хватило другого товара. */
+    public void cancel(Map<Long, Integer> taken) {
+        giveBack(taken);
+        settle(taken.keySet());
+    }
+
+    /**
+     * Возвращает количества в счетчики после коммита текущей транзакции;
+     * без транзакции - сразу.
+     */
+    public void giveBackAfterCommit(Map<Long, Integer> released) {
+        if (released.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            giveBack(released);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                giveBack(released);
+            }
+        });
+    }
+
+    /**
+     * Списывает с inventory все строки заказов, взятые из счетчиков, пачками
+     * по writeBackBatchSize строк в отдельных транзакциях.
+     * @return Сколько единиц товара списано.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.flash-sale.write-back-interval:PT1S}")
+    public int writeBack() {
+        int units = 0;
+        WriteBackBatch batch;
+        do {
+            batch = transactionTemplate.execute(status -> writeBackBatch());
+            units += batch.units();
+        } while (batch.lines() == writeBackBatchSize && !Thread.currentThread().isInterrupted());
+        return units;
+    }
+
+    public FlashSaleStatus getStatus(Long productId, LocalUser user) {
+        requireAdmin(user);
+        requireInventory(productId);
+        return status(productId);
+    }
+
+    /**
+     * Включает или выключает режим распродажи товара.
+     * При включении счетчик заполняется остатком из inventory; при выключении
+     * счетчик закрывается, и все его продажи дописываются в inventory до снятия флага.
+     */
+    public synchronized FlashSaleStatus setEnabled(Long productId, boolean enabled, LocalUser user) {
+        requireAdmin(user);
+        requireInventory(productId);
+        if (enabled && !counters.containsKey(productId)) {
+            // Хвосты прошлой распродажи списываем до чтения остатка
+            writeBack();
+            Long quantity = transactionTemplate.execute(status -> {
+                jdbcTemplate.update("UPDATE inventory SET flash_sale = true WHERE product_id = ?", productId);
+                return jdbcTemplate.queryForObject("SELECT quantity FROM inventory WHERE product_id = ?", Long.class, productId);
+            });
+            activate(productId, quantity);
+            log.info("Flash sale enabled for product {} with {} units", productId, quantity);
+        } else if (!enabled) {
+            disable(productId);
+        }
+        return status(productId);
+    }
+
+    /**
+     * Закрывает счетчик, чтобы новые заказы не брали из него, и ждет транзакции,
+     * уже взявшие из него: их pending-строки должны попасть в writeBack до
+     * снятия флага, иначе обычный путь продал бы эти единицы второй раз.
+     * Счетчик убирается только после снятия флага; если выключить не удалось,
+     * он открывается снова.
+     */
+    private void disable(Long productId) {
+        StripedStockCounter counter = counters.get(productId);
+        CountDownLatch drained = new CountDownLatch(1);
+        if (counter != null) {
+            drains.put(productId, drained);
+            counter.close();
+        }
+        try {
+            if (counter != null && !awaitSettled(productId)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Orders for the product are still being placed, please retry");
+            }
+            writeBack();
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.update("UPDATE inventory SET flash_sale = false WHERE product_id = ?", productId));
+            if (counter != null) {
+                counters.remove(productId);
+                Gauge gauge = gauges.remove(productId);
+                if (gauge != null) {
+                    meterRegistry.remove(gauge);
+                }
+                log.info("Flash sale disabled for product {}", productId);
+            }
+        } catch (RuntimeException e) {
+            if (counter != null) {
+                counter.reopen();
+            }
+            throw e;
+        } finally {
+            drains.remove(productId, drained);
+            drained.countDown();
+        }
+    }
+
+    /** Ждет, пока завершатся транзакции резервов из счетчика, не дольше drainTimeout. */
+    private boolean awaitSettled(Long productId) {
+        AtomicInteger pending = inFlight.get(productId);
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        while (pending != null && pending.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private WriteBackBatch writeBackBatch() {
+        List<long[]> lines = jdbcTemplate.query(PENDING_SQL,
+                (rs, rowNum) -> new long[]{rs.getLong("id"), rs.getLong("product_id"), rs.getLong("quantity"),
+                        rs.getLong("order_id")},
+                writeBackBatchSize);
+        if (lines.isEmpty()) {
+            return new WriteBackBatch(0, 0);
+        }
+        Map<Long, Long> byProduct = new TreeMap<>();
+        Map<Long, Set<Long>> productsByOrder = new HashMap<>();
+        List<Object[]> cleared = new ArrayList<>(lines.size());
+        int units = 0;
+        for (long[] line : lines) {
+            byProduct.merge(line[1], line[2], Long::sum);
+            productsByOrder.computeIfAbsent(line[3], id -> new HashSet<>()).add(line[1]);
+            cleared.add(new Object[]{line[0]});
+            units += (int) line[2];
+        }
+        List<Object[]> applied = new ArrayList<>(byProduct.size());
+        byProduct.forEach((productId, quantity) -> applied.add(new Object[]{quantity, productId}));
+        jdbcTemplate.batchUpdate(APPLY_SQL, applied);
+        jdbcTemplate.batchUpdate(CLEAR_PENDING_SQL, cleared);
+        fulfilmentService.applyPending(productsByOrder);
+        // Одно событие на пачку, а не на каждый заказ распродажи
+        eventPublisher.publishEvent(new ProductChangedEvent(byProduct.keySet(), ProductChangedEvent.ChangeType.UPDATED));
+        return new WriteBackBatch(lines.size(), units);
+    }
+
+    private void activate(Long productId, long quantity) {
+        counters.put(productId, new StripedStockCounter(Math.max(0, quantity), stripes));
+        gauges.computeIfAbsent(productId, id -> Gauge.builder("inventory.flash_sale.available", counters,
+                        map -> map.containsKey(id) ? map.get(id).available() : 0)
+                .description("Units left in the flash-sale counter")
+                .tag("product", String.valueOf(id))
+                .register(meterRegistry));
+    }
+
+    private void settle(Set<Long> productIds) {
+        for (Long productId : productIds) {
+            AtomicInteger pending = inFlight.get(productId);
+            if (pending != null) {
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    /** Возвращает количества в счетчики сразу; товары без счетчика пропускаются. */
+    public void giveBack(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            StripedStockCounter counter = counters.get(productId);
+            if (counter != null) {
+                counter.give(quantity);
+            }
+        });
+    }
+
+    private FlashSaleStatus status(Long productId) {
+        StripedStockCounter counter = counters.get(productId);
+        Long pending = jdbcTemplate.queryForObject(PENDING_UNITS_SQL, Long.class, productId);
+        return new FlashSaleStatus(productId, counter != null, counter != null ? counter.available() : null, pending);
+    }
+
+    private void requireInventory(Long productId) {
+        Integer found = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory i JOIN product p ON p.id = i.product_id WHERE i.product_id = ? AND p.deleted = false",
+                Integer.class, productId);
+        if (found == null || found == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+    }
+
+    private void requireAdmin(LocalUser user) {
+        if (user == null || user.getRole() == null || !"ADMIN".equals(user.getRole().getValue())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin privileges required for this operation");
+        }
+    }
+
+    private record WriteBackBatch(int lines, int units) {
+    }
+}
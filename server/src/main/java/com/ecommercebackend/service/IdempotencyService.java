@@ -0,0 +1,184 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.IdempotencyRecord;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.dao.IdempotencyRecordDAO;
+import com.ecommercebackend.model.enums.IdempotencyStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет запрос с заголовком Idempotency-Key не более одного раза.
+ * <p>
+ * Первый запрос с ключом занимает запись (user_id, key) со статусом
+ * IN_PROGRESS - уникальный индекс не даст двум параллельным повторам
+ * выполниться оба. После выполнения в запись сохраняется ответ, и повторы с
+ * тем же ключом и тем же запросом получают его без выполнения; тот же ключ
+ * с другим запросом отклоняется. Если запрос упал, запись удаляется, чтобы
+ * клиент мог повторить его с тем же ключом. Проверка повтора - одно чтение
+ * по уникальному индексу.
+ * <p>
+ * Запись IN_PROGRESS живет только lease: если процесс умер посреди запроса,
+ * ключ освободится через нее, а не через ttl. Готовый ответ хранится ttl.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    /** Заголовок ответа, отданного из сохраненной записи. */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordDAO recordDAO;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration ttl;
+
+    private final Duration lease;
+
+    public IdempotencyService(IdempotencyRecordDAO recordDAO,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.ttl:P1D}") Duration ttl,
+                              @Value("${app.idempotency.lease:PT1M}") Duration lease) {
+        this.recordDAO = recordDAO;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lease = lease;
+    }
+
+    /**
+     * Выполняет действие или возвращает сохраненный ответ на запрос с тем же ключом.
+     * @param key Значение Idempotency-Key; без него действие просто выполняется.
+     * @param operation Имя операции, входит в хэш запроса (например "POST /order/create").
+     * @param request Тело запроса, по которому распознаются повторы.
+     */
+    public <T> ResponseEntity<Object> execute(LocalUser user, String key, String operation, Object request,
+                                              Supplier<T> action) {
+        if (key == null) {
+            return ResponseEntity.ok(action.get());
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = requestHash(operation, request);
+        Optional<IdempotencyRecord> existing = recordDAO.findByUserIdAndIdempotencyKey(user.getId(), key);
+        if (existing.isPresent()) {
+            if (existing.get().getExpiresAt().isAfter(LocalDateTime.now())) {
+                return replay(existing.get(), requestHash);
+            }
+            // Истекшая запись, которую еще не удалил purgeExpired, ключ не занимает
+            recordDAO.delete(existing.get());
+        }
+
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserId(user.getId());
+        record.setIdempotencyKey(key);
+        record.setRequestHash(requestHash);
+        record.setStatus(IdempotencyStatus.IN_PROGRESS);
+        record.setCreatedAt(LocalDateTime.now());
+        record.setExpiresAt(record.getCreatedAt().plus(lease));
+        try {
+            record = recordDAO.save(record);
+        } catch (DataIntegrityViolationException e) {
+            // Параллельный повтор успел занять ключ первым
+            return recordDAO.findByUserIdAndIdempotencyKey(user.getId(), key)
+                    .map(concurrent -> replay(concurrent, requestHash))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                            "A request with this " + HEADER + " is in progress"));
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            recordDAO.delete(record);
+            throw e;
+        }
+        try {
+            record.setResponseBody(objectMapper.writeValueAsString(result));
+            record.setStatus(IdempotencyStatus.COMPLETED);
+            record.setExpiresAt(LocalDateTime.now().plus(ttl));
+            recordDAO.save(record);
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Действие уже выполнено: отдаем ответ, а ключ остается IN_PROGRESS до конца аренды,
+            // чтобы повтор хотя бы сразу не выполнил его второй раз
+            log.error("Failed to store response for {} key {} of user {}", operation, key, user.getId(), e);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Ключ идемпотентности для внешнего API, однозначно выведенный из ключа
+     * клиента: повтор, который все же дошел до внешнего вызова, не создаст
+     * там дубль. Без ключа клиента - случайный.
+     */
+    public static String externalKey(LocalUser user, String key, String operation) {
+        if (key == null) {
+            return UUID.randomUUID().toString();
+        }
+        String seed = operation + "\n" + user.getId() + "\n" + key;
+        return UUID.nameUUIDFromBytes(seed.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:PT10M}")
+    public void purgeExpired() {
+        int deleted = recordDAO.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency records", deleted);
+        }
+    }
+
+    private ResponseEntity<Object> replay(IdempotencyRecord record, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used with a different request");
+        }
+        if (record.getStatus() != IdempotencyStatus.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this " + HEADER + " is in progress");
+        }
+        try {
+            // JsonNode сериализуется обратно как есть, без восстановления исходного типа ответа
+            return ResponseEntity.ok()
+                    .header(REPLAYED_HEADER, "true")
+                    .body(objectMapper.readTree(record.getResponseBody()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is not valid JSON", e);
+        }
+    }
+
+    private String requestHash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot hash request", e);
+        }
+    }
+}
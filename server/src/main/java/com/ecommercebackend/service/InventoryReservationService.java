@@ -0,0 +1,342 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.exception.InsufficientStockException;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.dao.InventoryDAO;
+import com.ecommercebackend.model.dao.WebOrderDAO;
+import com.ecommercebackend.model.enums.ReservationStatus;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import com.ecommercebackend.service.fulfilment.FulfilmentService;
+import com.ecommercebackend.service.inventory.StripedStockCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Резервирует остатки под заказы.
+ * <p>
+ * Остатки списываются условными UPDATE (quantity >= запрошенного) одним
+ * JDBC-батчем на все строки заказа, без чтения и без блокировок на уровне
+ * приложения: гонку за последние единицы товара решает сама база. Строки
+ * обновляются в порядке product_id, поэтому конкурирующие заказы берут
+ * блокировки строк inventory в одном и том же порядке и не взаимоблокируются.
+ * <p>
+ * Неоплаченный резерв живет до reservedUntil, после чего его возвращает
+ * releaseExpired; резерв с созданным платежом закрепляет или возвращает
+ * PaymentStatusPoller по статусу платежа. Переходы статуса резерва заказа сделаны условным UPDATE,
+ * так что остатки возвращаются ровно один раз.
+ */
+@Slf4j
+@Service
+public class InventoryReservationService {
+
+    private static final String RESERVE_SQL =
+            "UPDATE inventory SET quantity = quantity - ?, version = version + 1 "
+                    + "WHERE product_id = ? AND quantity >= ? AND flash_sale = false";
+
+    private static final String RELEASE_SQL =
+            "UPDATE inventory SET quantity = quantity + ?, version = version + 1 WHERE product_id = ?";
+
+    private static final String ORDER_LINES_SQL =
+            "SELECT product_id, quantity, stock_pending FROM web_order_quantities "
+                    + "WHERE order_id = ? AND product_id IS NOT NULL ORDER BY id FOR UPDATE";
+
+    private static final String CLEAR_PENDING_SQL =
+            "UPDATE web_order_quantities SET stock_pending = false WHERE order_id = ? AND stock_pending = true";
+
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final InventoryDAO inventoryDAO;
+
+    private final WebOrderDAO webOrderDAO;
+
+    private final FlashSaleService flashSaleService;
+
+    private final FulfilmentService fulfilmentService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration reservationTtl;
+
+    public InventoryReservationService(JdbcTemplate jdbcTemplate,
+                                       InventoryDAO inventoryDAO,
+                                       WebOrderDAO webOrderDAO,
+                                       FlashSaleService flashSaleService,
+                                       FulfilmentService fulfilmentService,
+                                       ApplicationEventPublisher eventPublisher,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.inventory.reservation.ttl:PT30M}") Duration reservationTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryDAO = inventoryDAO;
+        this.webOrderDAO = webOrderDAO;
+        this.flashSaleService = flashSaleService;
+        this.fulfilmentService = fulfilmentService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reservationTtl = reservationTtl;
+    }
+
+    /**
+     * Списывает остатки под все строки заказа: либо все сразу, либо ни одной.
+     * Товары в режиме распродажи списываются со счетчиков FlashSaleService,
+     * остальные - с inventory; строки первых заказ должен пометить stockPending.
+     * @param requested Количество по ID товара; строки с одним товаром должны быть уже сложены.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Reservation reserve(Map<Long, Integer> requested) {
+        SortedMap<Long, Integer> ordered = new TreeMap<>(requested);
+        Map<Long, Integer> fromCounters = new TreeMap<>();
+        Map<Long, Integer> fromTable = new TreeMap<>();
+        List<Long> shortIds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : ordered.entrySet()) {
+            StripedStockCounter counter = flashSaleService.counter(line.getKey());
+            if (counter == null || !takeFromCounter(counter, line, fromCounters, shortIds)) {
+                fromTable.put(line.getKey(), line.getValue());
+            }
+        }
+
+        Map<Long, Integer> reservedInTable = new TreeMap<>();
+        if (!fromTable.isEmpty()) {
+            List<Object[]> batch = new ArrayList<>(fromTable.size());
+            fromTable.forEach((productId, quantity) -> batch.add(new Object[]{quantity, productId, quantity}));
+            int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, batch);
+            int i = 0;
+            for (Map.Entry<Long, Integer> line : fromTable.entrySet()) {
+                // Драйверы, не сообщающие число строк (SUCCESS_NO_INFO), считаем нехваткой: продать лишнее хуже
+                if (updated[i++] > 0) {
+                    reservedInTable.put(line.getKey(), line.getValue());
+                    continue;
+                }
+                // Товар могли перевести в режим распродажи, пока шел запрос
+                StripedStockCounter counter = flashSaleService.counter(line.getKey());
+                if (counter == null || !takeFromCounter(counter, line, fromCounters, shortIds)) {
+                    shortIds.add(line.getKey());
+                }
+            }
+        }
+
+        if (shortIds.isEmpty()) {
+            flashSaleService.giveBackOnRollback(fromCounters);
+            // По товарам распродажи событие публикует запись в inventory, а не каждый заказ
+            publishChanged(reservedInTable.keySet());
+            return new Reservation(List.of(), fromCounters.keySet());
+        }
+
+        // Откатываем то, что успели списать, чтобы метод не оставлял частичный резерв
+        increase(reservedInTable);
+        flashSaleService.cancel(fromCounters);
+        Collections.sort(shortIds);
+        Map<Long, Integer> available = new HashMap<>();
+        for (Object[] row : inventoryDAO.findQuantities(shortIds)) {
+            available.put((Long) row[0], (Integer) row[1]);
+        }
+        List<InsufficientStockException.Shortfall> shortfalls = new ArrayList<>(shortIds.size());
+        for (Long productId : shortIds) {
+            StripedStockCounter counter = flashSaleService.counter(productId);
+            int left = counter != null ? (int) counter.available() : available.getOrDefault(productId, 0);
+            shortfalls.add(new InsufficientStockException.Shortfall(productId, ordered.get(productId), left));
+        }
+        return new Reservation(shortfalls, Set.of());
+    }
+
+    /** Срок жизни резерва для заказа, созданного сейчас. */
+    public LocalDateTime reservedUntil() {
+        return LocalDateTime.now().plus(reservationTtl);
+    }
+
+    /**
+     * Готовит резерв заказа пользователя к оплате: сумма платежа должна совпадать
+     * с суммой заказа, а резерв продлевается хотя бы на ttl, чтобы сборщик не
+     * вернул остатки, пока покупатель на странице оплаты. Заказ остается
+     * RESERVED, пока ЮKassa не сообщит об успешной оплате.
+     */
+    @Transactional
+    public void preparePayment(Long orderId, LocalUser user, String amount) {
+        WebOrder order = requireOwnOrder(orderId, user);
+        if (order.getReservationStatus() != ReservationStatus.RESERVED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order reservation is no longer active");
+        }
+        if (order.getPaymentId() != null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Payment for the order is already created");
+        }
+        Double total = webOrderDAO.findTotal(orderId);
+        BigDecimal expected = BigDecimal.valueOf(total != null ? total : 0.0).setScale(2, RoundingMode.HALF_UP);
+        if (!isAmount(amount) || new BigDecimal(amount).compareTo(expected) != 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Payment amount must equal the order total " + expected.toPlainString());
+        }
+        LocalDateTime until = reservedUntil();
+        if (order.getReservedUntil() != null && order.getReservedUntil().isAfter(until)) {
+            until = order.getReservedUntil();
+        }
+        // Просроченный, но еще не возвращенный резерв не продлевается
+        if (webOrderDAO.extendReservation(orderId, ReservationStatus.RESERVED, LocalDateTime.now(), until) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order reservation is no longer active");
+        }
+    }
+
+    /**
+     * Запоминает платеж заказа: дальше резерв закрепляет или возвращает
+     * PaymentStatusPoller по статусу платежа.
+     */
+    @Transactional
+    public void attachPayment(Long orderId, String paymentId) {
+        if (webOrderDAO.updatePaymentId(orderId, ReservationStatus.RESERVED, paymentId) == 0) {
+            log.warn("Payment {} was created for order {} whose reservation is no longer active", paymentId, orderId);
+        }
+    }
+
+    /**
+     * Закрепляет остатки за оплаченным заказом; сборщик его больше не тронет.
+     * @return false, если резерв уже закреплен или возвращен.
+     */
+    @Transactional
+    public boolean confirmPayment(Long orderId) {
+        return webOrderDAO.updateReservationStatus(orderId, ReservationStatus.RESERVED, ReservationStatus.COMMITTED) > 0;
+    }
+
+    /**
+     * Возвращает остатки заказа на склад, если резерв еще не закреплен:
+     * заказ брошен или его платеж отменен.
+     * @return false, если резерв уже закреплен или возвращен.
+     */
+    @Transactional
+    public boolean release(Long orderId) {
+        return release(orderId, ReservationStatus.RESERVED);
+    }
+
+    private boolean release(Long orderId, ReservationStatus from) {
+        if (webOrderDAO.updateReservationStatus(orderId, from, ReservationStatus.RELEASED) == 0) {
+            return false;
+        }
+        // Блокируем строки заказа, чтобы FlashSaleService.writeBack не списал их параллельно
+        Map<Long, Integer> applied = new TreeMap<>();
+        Map<Long, Integer> all = new TreeMap<>();
+        jdbcTemplate.query(ORDER_LINES_SQL, rs -> {
+            Long productId = rs.getLong("product_id");
+            int quantity = rs.getInt("quantity");
+            all.merge(productId, quantity, Integer::sum);
+            if (!rs.getBoolean("stock_pending")) {
+                applied.merge(productId, quantity, Integer::sum);
+            }
+        }, orderId);
+        // Не списанные с inventory строки возвращать туда не нужно - только снять пометку
+        jdbcTemplate.update(CLEAR_PENDING_SQL, orderId);
+        increase(applied);
+        fulfilmentService.release(orderId);
+        // Остаток в счетчике = inventory - pending, так что он растет на все строки заказа
+        flashSaleService.giveBackAfterCommit(all);
+        publishChanged(applied.keySet());
+        return true;
+    }
+
+    /**
+     * Возвращает остатки заказов без платежа, не оплаченных до reservedUntil.
+     * Каждый заказ - в своей транзакции, чтобы не держать блокировки пачкой.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.reservation.sweep-interval:PT1M}")
+    public void releaseExpired() {
+        List<Long> expired;
+        int released = 0;
+        do {
+            expired = webOrderDAO.findIdsByReservationExpired(
+                    ReservationStatus.RESERVED, LocalDateTime.now(), PageRequest.of(0, SWEEP_BATCH_SIZE));
+            for (Long orderId : expired) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> release(orderId)))) {
+                    released++;
+                }
+            }
+        } while (expired.size() == SWEEP_BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        if (released > 0) {
+            log.info("Released stock of {} abandoned orders", released);
+        }
+    }
+
+    /**
+     * Резервирует строку из счетчика.
+     * @return false, если режим распродажи товара выключили после получения счетчика:
+     * строку нужно списать с inventory.
+     */
+    private boolean takeFromCounter(StripedStockCounter counter, Map.Entry<Long, Integer> line,
+                                    Map<Long, Integer> taken, List<Long> shortIds) {
+        if (flashSaleService.tryTake(line.getKey(), counter, line.getValue())) {
+            taken.put(line.getKey(), line.getValue());
+            return true;
+        }
+        // Закрытый счетчик - не нехватка: counter() дождется конца выключения
+        if (counter.isClosed() && flashSaleService.counter(line.getKey()) == null) {
+            return false;
+        }
+        shortIds.add(line.getKey());
+        return true;
+    }
+
+    private void increase(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> batch.add(new Object[]{quantity, productId}));
+        jdbcTemplate.batchUpdate(RELEASE_SQL, batch);
+    }
+
+    // Одно событие на заказ: слушатели читают все его товары одним запросом
+    private void publishChanged(Collection<Long> productIds) {
+        if (!productIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productIds, ProductChangedEvent.ChangeType.UPDATED));
+        }
+    }
+
+    private static boolean isAmount(String amount) {
+        return amount != null && amount.matches("\\d+(\\.\\d{1,2})?");
+    }
+
+    private WebOrder requireOwnOrder(Long orderId, LocalUser user) {
+        WebOrder order = webOrderDAO.findById(orderId).orElse(null);
+        if (order == null || user == null || !order.getUser().getId().equals(user.getId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found");
+        }
+        return order;
+    }
+
+    /**
+     * Итог резервирования заказа.
+     * @param shortfalls Строки, которых не хватило; пустой список, если резерв создан.
+     * @param pendingProductIds Товары, взятые из счетчиков распродажи.
+     */
+    public record Reservation(List<InsufficientStockException.Shortfall> shortfalls, Set<Long> pendingProductIds) {
+
+        public boolean isReserved() {
+            return shortfalls.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ecommercebackend.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last order returned by a keyset page of a user's order
+ * history (newest first). Serialized to an opaque URL-safe token, like
+ * ProductCursor.
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderCursor {
+
+    private static final String PREFIX = "order:";
+
+    private final Long lastId;
+
+    public String encode() {
+        String raw = PREFIX + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed.
+     */
+    public static OrderCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        if (!raw.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            return new OrderCursor(Long.valueOf(raw.substring(PREFIX.length())));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
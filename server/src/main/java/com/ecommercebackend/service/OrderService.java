@@ -1,32 +1,44 @@
 package com.ecommercebackend.service;
 
+import com.ecommercebackend.api.model.OrderHistoryPage;
+import com.ecommercebackend.api.model.OrderSummary;
+import com.ecommercebackend.api.model.OrderSummaryPage;
 import com.ecommercebackend.model.LocalUser;
 import com.ecommercebackend.model.WebOrderQuantities;
 import com.ecommercebackend.model.Address;
 import com.ecommercebackend.model.Product;
-import com.ecommercebackend.model.Description;
 import com.ecommercebackend.model.WebOrder;
-import com.ecommercebackend.model.dao.DescriptionDAO;
+import com.ecommercebackend.model.DeliveryOutbox;
+import com.ecommercebackend.model.dao.DeliveryOutboxDAO;
+import com.ecommercebackend.model.enums.DeliveryStatus;
+import com.ecommercebackend.model.enums.ReservationStatus;
 import com.ecommercebackend.model.dao.ProductDAO;
 import com.ecommercebackend.model.dao.WebOrderDAO;
 import com.ecommercebackend.model.dao.AddressDAO;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.ecommercebackend.exception.InsufficientStockException;
+import com.ecommercebackend.exception.ProductsUnavailableException;
+import com.ecommercebackend.service.delivery.YandexClaimWriter;
+import com.ecommercebackend.service.fulfilment.FulfilmentService;
+import com.ecommercebackend.service.fulfilment.Shipment;
 import lombok.AllArgsConstructor;
-import com.ecommercebackend.config.YandexDeliveryConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 /**
  * Service for handling order actions.
  */
+@Slf4j
 @Service
 @AllArgsConstructor
 public class OrderService {
@@ -37,36 +49,98 @@ public class OrderService {
 
     private final ProductDAO productDAO;
 
-    private final YandexDeliveryConfig yandexDeliveryConfig;
+    private final YandexClaimWriter claimWriter;
 
-    private final HttpClient httpClient;
+    private final DeliveryOutboxDAO deliveryOutboxDAO;
+
+    private final InventoryReservationService reservationService;
+
+    private final FulfilmentService fulfilmentService;
 
 
     public List<WebOrder> getOrders(LocalUser user) {
     return webOrderDAO.findByUser(user);
   }
 
+    /**
+     * Страница истории заказов от новых к старым. Два запроса на страницу
+     * при любом числе заказов и строк: ID страницы и заказы со строками,
+     * товарами, остатками и описаниями.
+     */
+    @Transactional(readOnly = true)
+    public OrderHistoryPage getOrderHistory(LocalUser user, String cursor, int size) {
+        Long beforeId = beforeId(cursor, size);
+        List<Long> ids = webOrderDAO.findIdsByUserBefore(user, beforeId, PageRequest.of(0, size + 1));
+        boolean hasNext = ids.size() > size;
+        if (hasNext) {
+            ids = ids.subList(0, size);
+        }
+        List<WebOrder> orders = ids.isEmpty() ? List.of() : webOrderDAO.findAllWithLinesById(ids);
+        String nextCursor = hasNext ? new OrderCursor(ids.get(ids.size() - 1)).encode() : null;
+        return new OrderHistoryPage(orders, nextCursor, hasNext);
+    }
+
+    /**
+     * Страница кратких сведений о заказах (дата, сумма, количество единиц) -
+     * один агрегирующий запрос, без загрузки строк и товаров.
+     */
+    @Transactional(readOnly = true)
+    public OrderSummaryPage getOrderSummaries(LocalUser user, String cursor, int size) {
+        Long beforeId = beforeId(cursor, size);
+        List<OrderSummary> summaries = webOrderDAO.findSummariesByUserBefore(user, beforeId, PageRequest.of(0, size + 1));
+        boolean hasNext = summaries.size() > size;
+        if (hasNext) {
+            summaries = summaries.subList(0, size);
+        }
+        String nextCursor = hasNext ? new OrderCursor(summaries.get(summaries.size() - 1).getId()).encode() : null;
+        return new OrderSummaryPage(summaries, nextCursor, hasNext);
+    }
+
+    private static Long beforeId(String cursor, int size) {
+        if (size < 1 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Size must be between 1 and 100");
+        }
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return OrderCursor.decode(cursor).getLastId();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @Transactional
     public WebOrder createOrder(WebOrder order, LocalUser user) {
         // 1. Создаем заказ в вашей базе данных
         WebOrder newOrder = new WebOrder();
         newOrder.setUser(user);
+        newOrder.setCreatedAt(LocalDateTime.now());
 
         // Загружаем адрес из базы как managed entity
         Address managedAddress = adressDAO.findById(order.getAddress().getId())
                 .orElseThrow(() -> new RuntimeException("Address not found"));
         newOrder.setAddress(managedAddress);
 
-        // Создаем новые quantities
+        // Создаем новые quantities; все товары заказа загружаются одним запросом
         List<WebOrderQuantities> newQuantities = new ArrayList<>();
+        Map<Long, Integer> requested = Map.of();
+        Set<Long> pendingProductIds = Set.of();
         if (order.getQuantities() != null) {
+            // Остатки списываются до загрузки товаров, чтобы в ответе были уже новые количества
+            requested = requestedQuantities(order.getQuantities());
+            InventoryReservationService.Reservation reservation = reservationService.reserve(requested);
+            Map<Long, Product> products = resolveProducts(order.getQuantities());
+            if (!reservation.isReserved()) {
+                throw new InsufficientStockException(reservation.shortfalls());
+            }
+            pendingProductIds = reservation.pendingProductIds();
             for (WebOrderQuantities quantity : order.getQuantities()) {
-                Product managedProduct = productDAO.findById(quantity.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
-
                 WebOrderQuantities newQuantity = new WebOrderQuantities();
-                newQuantity.setProduct(managedProduct);
+                newQuantity.setProduct(products.get(quantity.getProduct().getId()));
                 newQuantity.setQuantity(quantity.getQuantity());
+                newQuantity.setUnitPrice(newQuantity.getProduct().getPrice());
+                newQuantity.setStockPending(reservation.pendingProductIds().contains(quantity.getProduct().getId()));
                 newQuantity.setOrder(newOrder);
 
                 newQuantities.add(newQuantity);
@@ -77,262 +151,70 @@ public class OrderService {
         this.validateOrder(newOrder);
 
         // Сохраняем заказ в БД
+        newOrder.setDeliveryStatus(DeliveryStatus.PENDING);
+        newOrder.setReservationStatus(ReservationStatus.RESERVED);
+        newOrder.setReservedUntil(reservationService.reservedUntil());
         WebOrder savedOrder = webOrderDAO.save(newOrder);
 
-        // 2. Создаем заказ в Яндекс Доставке
-        try {
-            String yandexRequestJson = createYandexDeliveryRequest(savedOrder, user);
-            String yandexResponse = createYandexDelivery(yandexRequestJson, savedOrder);
-
-            // Сохраняем ID заявки из ответа Яндекс (при необходимости)
-            System.out.println("Заказ создан в Яндекс Доставке: " + yandexResponse);
-
-        } catch (Exception e) {
-            // Логируем ошибку, но не прерываем транзакцию создания заказа в нашей БД
-            System.err.println("Ошибка при создании заказа в Яндекс Доставке: " + e.getMessage());
-            // Можно добавить логику для повторных попыток или уведомления администратора
+        // 2. Склады отгрузки: ближайшие к адресу, где есть товары заказа
+        List<Shipment> shipments = fulfilmentService.allocate(savedOrder, requested, pendingProductIds);
+
+        // 3. Заявки в Яндекс Доставку, по одной на склад: кладем в outbox в той же
+        // транзакции, отправит их DeliveryOutboxDispatcher уже после коммита,
+        // объединив с заказами, которые уходят с того же склада в то же окно
+        for (int i = 0; i < shipments.size(); i++) {
+            DeliveryOutbox outbox = new DeliveryOutbox();
+            outbox.setOrder(savedOrder);
+            outbox.setRequestId(i == 0 ? String.valueOf(savedOrder.getId()) : savedOrder.getId() + "-" + (i + 1));
+            Shipment shipment = shipments.get(i);
+            outbox.setWarehouseId(shipment.warehouse() != null ? shipment.warehouse().getId() : null);
+            outbox.setPayload(claimWriter.write(savedOrder, user, shipment));
+            log.debug("Delivery claim {} for order {}: {}", outbox.getRequestId(), savedOrder.getId(), outbox.getPayload());
+            outbox.setCreatedAt(LocalDateTime.now());
+            outbox.setNextAttemptAt(outbox.getCreatedAt());
+            deliveryOutboxDAO.save(outbox);
         }
 
         return savedOrder;
     }
 
-    private String createYandexDeliveryRequest(WebOrder order, LocalUser user) throws Exception {
-        ObjectMapper objectMapper = new ObjectMapper();
-        ObjectNode requestJson = objectMapper.createObjectNode();
-
-        requestJson.put("status", "new");
-        //requestJson.put("auto_accept", true);
-        requestJson.put("comment", "Заказ №" + order.getId() + " из интернет-магазина");
-
-        // Добавляем comment напрямую в корень
-        requestJson.put("comment", "Заказ из интернет-магазина");
-
-        // 1. Информация о точках маршрута (ОБЯЗАТЕЛЬНО)
-        ArrayNode routePoints = objectMapper.createArrayNode();
-
-        // Точка забора (pickup point) - СКЛАД
-        ObjectNode pickupPoint = objectMapper.createObjectNode();
-        pickupPoint.put("point_id", 1);
-        pickupPoint.put("visit_order", 1);
-        pickupPoint.put("type", "source");
-
-        // ДОБАВЛЕНО: platform_station для точки забора
-        ObjectNode platformStation = objectMapper.createObjectNode();
-        platformStation.put("platform_id", yandexDeliveryConfig.getPlatform_id());
-        pickupPoint.set("platform_station", platformStation);
-
-        ObjectNode pickupContact = objectMapper.createObjectNode();
-        pickupContact.put("name", "Склад магазина");
-        pickupContact.put("phone", "+79991234567");
-        pickupPoint.set("contact", pickupContact);
-        ObjectNode pickupAddress = objectMapper.createObjectNode();
-        pickupAddress.put("fullname", "Москва, Ленинградский проспект, 1");
-        ArrayNode pickupCoords = objectMapper.createArrayNode();
-        pickupCoords.add(37.517635);
-        pickupCoords.add(55.755814);
-        pickupAddress.set("coordinates", pickupCoords);
-        pickupPoint.set("address", pickupAddress);
-        pickupPoint.put("skip_confirmation", false);
-        routePoints.add(pickupPoint);
-
-        // Точка доставки (dropoff point) - АДРЕС КЛИЕНТА
-        ObjectNode dropoffPoint = objectMapper.createObjectNode();
-        dropoffPoint.put("point_id", 2);
-        dropoffPoint.put("visit_order", 2);
-        dropoffPoint.put("type", "destination");
-        ObjectNode dropoffContact = objectMapper.createObjectNode();
-        dropoffContact.put("name", user.getFirstName() + " " + user.getLastName());
-        dropoffContact.put("phone", "+79161234567");
-        dropoffPoint.set("contact", dropoffContact);
-        ObjectNode dropoffAddress = objectMapper.createObjectNode();
-        Address address = order.getAddress();
-
-        // Если адрес клиента не заполнен, используем тестовый адрес
-        String clientAddress = (address.getAddressLine() != null && !address.getAddressLine().isEmpty())
-            ? address.getAddressLine()
-            : "Москва, ул. Тверская, 15";
-
-        dropoffAddress.put("fullname", clientAddress);
-        ArrayNode dropoffCoords = objectMapper.createArrayNode();
-        dropoffCoords.add(37.617635);
-        dropoffCoords.add(55.755814);
-        dropoffAddress.set("coordinates", dropoffCoords);
-        dropoffPoint.set("address", dropoffAddress);
-        dropoffPoint.put("skip_confirmation", false);
-        routePoints.add(dropoffPoint);
-
-        requestJson.set("route_points", routePoints);
-
-        // 2. Информация о товарах (ОБЯЗАТЕЛЬНО)
-        ArrayNode itemsArray = objectMapper.createArrayNode();
-        for (WebOrderQuantities quantity : order.getQuantities()) {
-            ObjectNode item = objectMapper.createObjectNode();
-            item.put("pickup_point", 1);  // ID точки забора из route_points
-            item.put("droppof_point", 2); // ID точки доставки из route_points
-            item.put("quantity", quantity.getQuantity());
-            item.put("title", quantity.getProduct().getName());
-            item.put("article", quantity.getProduct().getId().toString());
-
-            // ИСПРАВЛЕНИЕ: Получаем стоимость продукта
-            item.put("cost_value", quantity.getProduct().getPrice().toString()); // цена товара
-            item.put("cost_currency", "RUB"); // валюта
-
-            // РАЗМЕРЫ ТОВАРА: Получаем реальные размеры из Description
-            ObjectNode size = objectMapper.createObjectNode();
-            Description description = quantity.getProduct().getDescription();
-
-            if (description != null && description.getDimensions() != null) {
-                // Парсим размеры из формата "В×Ш×Г" например "178×60×63 см"
-                String dimensions = description.getDimensions();
-                double[] parsedDimensions = parseDimensions(dimensions);
-
-                // Преобразуем в метры (делим на 100)
-                size.put("length", parsedDimensions[0] / 100.0);  // Длина (Ширина в исходных данных)
-                size.put("width", parsedDimensions[1] / 100.0);   // Ширина (Глубина в исходных данных)
-                size.put("height", parsedDimensions[2] / 100.0);  // Высота
-            } else {
-                // Значения по умолчанию, если размеры не указаны
-                size.put("length", 0.1);  // 10 см в метрах
-                size.put("width", 0.05);  // 5 см в метрах
-                size.put("height", 0.03); // 3 см в метрах
-            }
-            item.set("size", size);
-
-            // ВЕС ТОВАРА: Получаем реальный вес из Description
-            if (description != null && description.getWeight() != null) {
-                double weightKg = parseWeight(description.getWeight());
-                item.put("weight", weightKg);
-            } else {
-                item.put("weight", 1.0); // Значение по умолчанию: 1 кг
-            }
-
-            itemsArray.add(item);
-        }
-        requestJson.set("items", itemsArray);
-
-        // 3. Информация о получателе (ОБЯЗАТЕЛЬНО)
-        ObjectNode recipientInfo = objectMapper.createObjectNode();
-        recipientInfo.put("first_name", user.getFirstName());
-        recipientInfo.put("last_name", user.getLastName());
-        recipientInfo.put("email", user.getEmail());
-        recipientInfo.put("phone", "+79161234567");
-        requestJson.set("recipient_info", recipientInfo);
-
-        // 4. Данные для биллинга (ОБЯЗАТЕЛЬНО)
-        ObjectNode billingInfo = objectMapper.createObjectNode();
-        billingInfo.put("payment_method", "already_paid");
-        requestJson.set("billing_info", billingInfo);
-
-        // 5. Дополнительные настройки доставки
-        ObjectNode clientRequirements = objectMapper.createObjectNode();
-        clientRequirements.put("pro_courier", false);
-        clientRequirements.put("taxi_class", "courier");
-        requestJson.set("client_requirements", clientRequirements);
-
-        // 6. Аварийный контакт (ОБЯЗАТЕЛЬНО)
-        ObjectNode emergencyContact = objectMapper.createObjectNode();
-        emergencyContact.put("name", user.getFirstName() + " " + user.getLastName());
-        emergencyContact.put("phone", "+79161234567");
-        requestJson.set("emergency_contact", emergencyContact);
-
-        // 7. Опциональный возврат
-        requestJson.put("optional_return", false);
-
-        System.out.println("Отправляемый JSON в Яндекс Доставку:");
-        System.out.println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(requestJson));
-
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(requestJson);
-    }
-
-    // Метод для парсинга размеров из строки формата "В×Ш×Г" или "ВxШxГ"
-    private double[] parseDimensions(String dimensions) {
-        try {
-            if (dimensions == null || dimensions.trim().isEmpty()) {
-                return getDefaultDimensions();
+    /**
+     * Складывает количества строк с одним и тем же товаром и проверяет строки.
+     */
+    private Map<Long, Integer> requestedQuantities(List<WebOrderQuantities> lines) {
+        Map<Long, Integer> requested = new TreeMap<>();
+        for (WebOrderQuantities line : lines) {
+            if (line.getProduct() == null || line.getProduct().getId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every order line must reference a product");
             }
-
-            // Удаляем единицы измерения и пробелы
-            String cleanDimensions = dimensions.toLowerCase()
-                    .replace("см", "")
-                    .replace("cm", "")
-                    .replace(" ", "")
-                    .trim();
-
-            // Заменяем оба возможных разделителя на стандартный
-            cleanDimensions = cleanDimensions.replace('x', '×');
-
-            // Разделяем по символу ×
-            String[] parts = cleanDimensions.split("×");
-
-            if (parts.length == 3) {
-                double height = Double.parseDouble(parts[0]); // Высота
-                double width = Double.parseDouble(parts[1]);  // Ширина
-                double length = Double.parseDouble(parts[2]); // Длина (Глубина)
-
-                // Проверяем, что размеры положительные
-                if (height > 0 && width > 0 && length > 0) {
-                    return new double[]{length, width, height};
-                } else {
-                    System.err.println("Некорректные размеры (неположительные значения): " + dimensions);
-                }
-            } else {
-                System.err.println("Некорректный формат размеров (ожидается 3 части): " + dimensions);
+            if (line.getQuantity() == null || line.getQuantity() < 1) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be positive");
             }
-        } catch (Exception e) {
-            System.err.println("Ошибка парсинга размеров: " + dimensions + " - " + e.getMessage());
+            requested.merge(line.getProduct().getId(), line.getQuantity(), Integer::sum);
         }
-
-        // Возвращаем значения по умолчанию при ошибке
-        return getDefaultDimensions();
-    }
-
-    // Вспомогательный метод для получения размеров по умолчанию
-    private double[] getDefaultDimensions() {
-        return new double[]{10.0, 5.0, 3.0};
+        return requested;
     }
 
-    // Метод для парсинга веса из строки
-    private double parseWeight(String weight) {
-        try {
-            // Удаляем единицы измерения и пробелы
-            String cleanWeight = weight.replace("кг", "").replace(" ", "");
-            return Double.parseDouble(cleanWeight);
-        } catch (Exception e) {
-            System.err.println("Ошибка парсинга веса: " + weight);
-            return 1.0; // Значение по умолчанию
+    /**
+     * Загружает товары всех строк заказа одним запросом (вместе с Inventory и
+     * Description, которые нужны для заявки в доставку). Если каких-то товаров
+     * нет, ошибка перечисляет их все сразу, а не только первый.
+     */
+    private Map<Long, Product> resolveProducts(List<WebOrderQuantities> lines) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (WebOrderQuantities line : lines) {
+            ids.add(line.getProduct().getId());
         }
-    }
-
-    private String createYandexDelivery(String requestBody, WebOrder order) throws Exception {
-        try {
-            // Добавляем request_id как query parameter в URL
-            String urlWithParams = yandexDeliveryConfig.getUrl() + "/b2b/cargo/integration/v2/claims/create?request_id=" + order.getId();
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(urlWithParams))
-                    .header("Authorization", "Bearer " + yandexDeliveryConfig.getToken())
-                    .header("Content-Type", "application/json")
-                    .header("Accept", "application/json")
-                    .header("Accept-Language", "ru") // Обязательный заголовок
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .timeout(Duration.ofSeconds(30))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            int statusCode = response.statusCode();
-            System.out.println("Статус ответа от Яндекс Доставки: " + statusCode);
-            System.out.println("Тело ответа: " + response.body());
-
-            if (statusCode >= 200 && statusCode < 300) {
-                return response.body();
-            } else {
-                throw new RuntimeException("Yandex API error: " + statusCode + ", body: " + response.body());
-            }
-        } catch (Exception e) {
-            System.err.println("Ошибка при вызове API Яндекс Доставки: " + e.getMessage());
-            throw e;
+        Map<Long, Product> products = new HashMap<>();
+        productDAO.findAllById(ids).forEach(product -> products.put(product.getId(), product));
+        if (products.size() < ids.size()) {
+            List<Long> notFound = ids.stream().filter(id -> !products.containsKey(id)).toList();
+            List<Long> deleted = productDAO.findDeletedIds(notFound);
+            List<Long> missing = notFound.stream().filter(id -> !deleted.contains(id)).toList();
+            throw new ProductsUnavailableException(missing, notFound.stream().filter(deleted::contains).toList());
         }
+        return products;
     }
 
     private void validateOrder(WebOrder order) {
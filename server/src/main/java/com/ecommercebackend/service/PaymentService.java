@@ -1,6 +1,9 @@
 package com.ecommercebackend.service;
 
 import com.ecommercebackend.api.security.YooKassaConfig;
+import com.ecommercebackend.service.payment.PaymentGateway;
+import com.ecommercebackend.service.payment.StubYooKassaClient;
+import org.springframework.beans.factory.ObjectProvider;
 import ru.loolzaaa.youkassa.model.Payment;
 import ru.loolzaaa.youkassa.pojo.Amount;
 import ru.loolzaaa.youkassa.pojo.Confirmation;
@@ -11,22 +14,22 @@ import ru.loolzaaa.youkassa.processors.PaymentProcessor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
-
 @Service
 @RequiredArgsConstructor
-public class PaymentService {
+public class PaymentService implements PaymentGateway {
 
     private final YooKassaConfig yooKassaConfig;
 
+    private final ObjectProvider<StubYooKassaClient> stubClientProvider;
 
-    public Payment createPayment(String amountValue, String description, String confirmationReturnUrl) {
-        // Инициализация клиента
-        ApiClient client = ApiClientBuilder.newBuilder()
-                .configureBasicAuth(yooKassaConfig.getShopId(), yooKassaConfig.getSecretKey())
-                .build();
 
-        PaymentProcessor paymentProcessor = new PaymentProcessor(client);
+    /**
+     * @param idempotenceKey Ключ идемпотентности ЮKassa: повтор с тем же ключом
+     *                       возвращает уже созданный платеж, а не создает новый.
+     */
+    public Payment createPayment(String amountValue, String description, String confirmationReturnUrl,
+                                 String idempotenceKey) {
+        PaymentProcessor paymentProcessor = paymentProcessor();
 
         // Создание объекта Amount
         Amount amount = new Amount();
@@ -78,7 +81,28 @@ public class PaymentService {
             throw new RuntimeException("Ошибка создания Payment", e);
         }
 
-        // Создание платежа в YooKassa
-        return paymentProcessor.create(paymentParams, UUID.randomUUID().toString());
+        // Создание платежа в YooKassa; в профиле stub - в локальной заглушке
+        StubYooKassaClient stubClient = stubClientProvider.getIfAvailable();
+        if (stubClient != null) {
+            return stubClient.createPayment(paymentParams, idempotenceKey, Payment.class);
+        }
+        return paymentProcessor.create(paymentParams, idempotenceKey);
+    }
+
+    @Override
+    public String paymentStatus(String paymentId) {
+        StubYooKassaClient stubClient = stubClientProvider.getIfAvailable();
+        if (stubClient != null) {
+            return stubClient.findPayment(paymentId, Payment.class).getStatus();
+        }
+        return paymentProcessor().findById(paymentId).getStatus();
+    }
+
+    private PaymentProcessor paymentProcessor() {
+        // Инициализация клиента
+        ApiClient client = ApiClientBuilder.newBuilder()
+                .configureBasicAuth(yooKassaConfig.getShopId(), yooKassaConfig.getSecretKey())
+                .build();
+        return new PaymentProcessor(client);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.config.CacheConfig;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts cached product reads once the transaction that changed the product
+ * has committed, so a concurrent reader cannot re-cache the old state.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductCacheListener {
+
+    private final CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_CACHE);
+        if (cache == null) {
+            return;
+        }
+        for (Long productId : event.getProductIds()) {
+            cache.evict(productId);
+        }
+        log.debug("Evicted products {} from cache ({})", event.getProductIds(), event.getChangeType());
+    }
+}
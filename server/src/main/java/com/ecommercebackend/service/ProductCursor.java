@@ -0,0 +1,68 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.enums.ProductSortOrder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row returned by a keyset page. Serialized to an
+ * opaque URL-safe token so clients cannot depend on its structure.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProductCursor {
+
+    private final ProductSortOrder sortOrder;
+
+    /** Value of the sort column of the last row; null for ID ordering. */
+    private final Double lastValue;
+
+    private final Long lastId;
+
+    public static ProductCursor after(Product product, ProductSortOrder sortOrder) {
+        Double value = switch (sortOrder) {
+            case ID -> null;
+            case PRICE -> product.getPrice();
+            case RAITING -> product.getRaiting();
+        };
+        return new ProductCursor(sortOrder, value, product.getId());
+    }
+
+    public String encode() {
+        String raw = sortOrder.getValue() + ":" + (lastValue != null ? lastValue : "") + ":" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed or was issued for another sort order.
+     */
+    public static ProductCursor decode(String token, ProductSortOrder expectedOrder) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        String[] parts = raw.split(":", -1);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        ProductSortOrder sortOrder = ProductSortOrder.fromValue(parts[0]);
+        if (sortOrder != expectedOrder) {
+            throw new IllegalArgumentException("Cursor was issued for sort order " + sortOrder.getValue());
+        }
+        try {
+            Double value = parts[1].isEmpty() ? null : Double.valueOf(parts[1]);
+            if (sortOrder != ProductSortOrder.ID && value == null) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new ProductCursor(sortOrder, value, Long.valueOf(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
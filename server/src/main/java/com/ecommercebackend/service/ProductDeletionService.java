@@ -4,10 +4,12 @@ import com.ecommercebackend.model.Product;
 import com.ecommercebackend.model.WebOrderQuantities;
 import com.ecommercebackend.model.dao.ProductDAO;
 import com.ecommercebackend.model.dao.WebOrderQuantitiesDAO;
+import com.ecommercebackend.service.event.ProductChangedEvent;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import java.time.LocalDateTime;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -19,6 +21,7 @@ public class ProductDeletionService {
 
     private final ProductDAO productDAO;
     private final WebOrderQuantitiesDAO webOrderQuantitiesDAO;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 1. Обычное мягкое удаление (для UI/админки)
@@ -29,6 +32,7 @@ public class ProductDeletionService {
             .orElseThrow(() -> new RuntimeException("Товар не найден"));
         product.softDelete(reason);
         productDAO.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.DELETED));
         log.info("Товар {} помечен как удаленный. Причина: {}", productId, reason);
     }
 
@@ -51,6 +55,7 @@ public class ProductDeletionService {
         if (orderItems.isEmpty()) {
             // Если заказов нет - просто удаляем
             productDAO.delete(product);
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.REMOVED));
             log.info("Товар {} удален (не было заказов)", productId);
             return;
         }
@@ -72,6 +77,7 @@ public class ProductDeletionService {
 
         // 4. Теперь можно физически удалить товар
         productDAO.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.REMOVED));
 
         log.info("ТОВАР {} УДАЛЕН. Данные сохранены в {} заказах",
                  productId, orderItems.size());
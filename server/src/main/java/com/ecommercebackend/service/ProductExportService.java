@@ -0,0 +1,72 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.service.export.ProductExportFormat;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка всего каталога для маркетплейсов и аналитики.
+ * Товары читаются серверным курсором и пишутся в ответ по одному, каждый
+ * прочитанный товар сразу отсоединяется от контекста - память не растет
+ * с размером каталога.
+ */
+@Slf4j
+@Service
+public class ProductExportService {
+
+    private final ProductDAO productDAO;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ProductExportService(ProductDAO productDAO, EntityManager entityManager,
+                                PlatformTransactionManager transactionManager) {
+        this.productDAO = productDAO;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Проверки выполняются сразу, чтобы ошибка ушла обычным статусом;
+     * сама выгрузка начинается, когда контейнер вызовет тело ответа.
+     */
+    public StreamingResponseBody export(LocalUser user, ProductExportFormat format) {
+        if (user == null || user.getRole() == null || !"ADMIN".equals(user.getRole().getValue())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin privileges required for this operation");
+        }
+        return out -> readOnlyTransaction.executeWithoutResult(status -> write(format, out));
+    }
+
+    private void write(ProductExportFormat format, OutputStream out) {
+        long started = System.currentTimeMillis();
+        long rows = 0;
+        try (ProductExportFormat.RowWriter writer = format.open(out);
+             Stream<Product> products = productDAO.streamAllForExport()) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                writer.write(product);
+                // detach каскадом отсоединяет Inventory и Description
+                entityManager.detach(product);
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Catalog export ({}): {} products in {} ms", format.getValue(), rows, System.currentTimeMillis() - started);
+    }
+}
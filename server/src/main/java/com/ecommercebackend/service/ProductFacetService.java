@@ -0,0 +1,124 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.FacetedProductPage;
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.model.enums.ProductSortOrder;
+import com.ecommercebackend.service.event.ProductChangeCoalescer;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import com.ecommercebackend.service.facet.ProductFacetIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Фильтры витрины со счетчиками: цена, рейтинг, страна производства,
+ * цвет/отделка и наличие. Индекс строится при старте и обновляется по
+ * ProductChangedEvent пачками; запрос к базе нужен только за товарами страницы.
+ */
+@Slf4j
+@Service
+public class ProductFacetService {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    /** Deepest offset a page may start at; keeps the top-N heap small. */
+    private static final int MAX_OFFSET = 10_000;
+
+    private final ProductDAO productDAO;
+
+    private final ProductChangeCoalescer<List<ProductFacetIndex.Document>> changes;
+
+    private volatile ProductFacetIndex index = new ProductFacetIndex();
+
+    public ProductFacetService(ProductDAO productDAO, PlatformTransactionManager transactionManager) {
+        this.productDAO = productDAO;
+        this.changes = new ProductChangeCoalescer<>(transactionManager,
+                ids -> productDAO.findAllById(ids).stream().map(this::toDocument).toList(),
+                this::apply);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        long started = System.currentTimeMillis();
+        ProductFacetIndex rebuilt = new ProductFacetIndex();
+        productDAO.forEachInBatches(REBUILD_BATCH_SIZE, product -> rebuilt.put(toDocument(product)));
+        index = rebuilt;
+        log.info("Facet index built: {} products in {} ms", rebuilt.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.submit(event.getProductIds());
+    }
+
+    public FacetedProductPage query(Set<String> prices, Integer minRaiting, Set<String> countries, Set<String> colors,
+                                    Boolean inStock, String sort, int page, int size) {
+        ProductSortOrder sortOrder;
+        try {
+            sortOrder = ProductSortOrder.fromValue(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (minRaiting != null && (minRaiting < 1 || minRaiting > 4)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minRaiting must be between 1 and 4");
+        }
+        if (page < 0 || size < 1 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page or size");
+        }
+        if (page > MAX_OFFSET / size) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page must not start beyond " + MAX_OFFSET + " results");
+        }
+
+        ProductFacetIndex.Result result = index.query(
+                new ProductFacetIndex.Query(prices, minRaiting, countries, colors, inStock),
+                sortOrder, page * size, size);
+        Map<Long, Product> byId = productDAO.findAllById(result.ids()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> content = new ArrayList<>(result.ids().size());
+        for (Long id : result.ids()) {
+            Product product = byId.get(id);
+            if (product != null) {
+                content.add(product);
+            }
+        }
+        return new FacetedProductPage(content, page, size, result.total(), result.facets());
+    }
+
+    private void apply(Set<Long> productIds, List<ProductFacetIndex.Document> documents) {
+        Set<Long> removed = new HashSet<>(productIds);
+        for (ProductFacetIndex.Document document : documents) {
+            index.put(document);
+            removed.remove(document.productId());
+        }
+        removed.forEach(index::remove);
+    }
+
+    private ProductFacetIndex.Document toDocument(Product product) {
+        Description description = product.getDescription();
+        boolean inStock = product.getInventory() != null
+                && product.getInventory().getQuantity() != null
+                && product.getInventory().getQuantity() > 0;
+        return new ProductFacetIndex.Document(
+                product.getId(),
+                product.getPrice() != null ? product.getPrice() : 0.0,
+                product.getRaiting() != null ? product.getRaiting() : 0.0,
+                description != null ? description.getCountryOfOrigin() : null,
+                description != null ? description.getColorFinish() : null,
+                inStock);
+    }
+}
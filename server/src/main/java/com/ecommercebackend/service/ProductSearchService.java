@@ -0,0 +1,115 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.service.event.ProductChangeCoalescer;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import com.ecommercebackend.service.search.ProductSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text product search over name, descriptions, model and materials.
+ * The index is built on startup and kept in sync through ProductChangedEvent.
+ */
+@Slf4j
+@Service
+public class ProductSearchService {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    /** Deepest offset a page may start at; keeps the top-N heap small. */
+    private static final int MAX_OFFSET = 10_000;
+
+    private final ProductDAO productDAO;
+
+    private final ProductChangeCoalescer<Map<Long, List<ProductSearchIndex.Field>>> changes;
+
+    private volatile ProductSearchIndex index = new ProductSearchIndex();
+
+    public ProductSearchService(ProductDAO productDAO, PlatformTransactionManager transactionManager) {
+        this.productDAO = productDAO;
+        this.changes = new ProductChangeCoalescer<>(transactionManager,
+                ids -> productDAO.findAllById(ids).stream().collect(Collectors.toMap(Product::getId, this::fields)),
+                this::apply);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        long started = System.currentTimeMillis();
+        ProductSearchIndex rebuilt = new ProductSearchIndex();
+        productDAO.forEachInBatches(REBUILD_BATCH_SIZE, product -> rebuilt.put(product.getId(), fields(product)));
+        index = rebuilt;
+        log.info("Search index built: {} products in {} ms", rebuilt.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.submit(event.getProductIds());
+    }
+
+    public Page<Product> search(String query, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query must not be empty");
+        }
+        if (page < 0 || size < 1 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page or size");
+        }
+        if (page > MAX_OFFSET / size) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page must not start beyond " + MAX_OFFSET + " results");
+        }
+
+        ProductSearchIndex.Result result = index.search(query, page * size, size);
+        Map<Long, Product> byId = productDAO.findAllById(result.ids()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> ranked = new ArrayList<>(result.ids().size());
+        for (Long id : result.ids()) {
+            Product product = byId.get(id);
+            if (product != null) {
+                ranked.add(product);
+            }
+        }
+        return new PageImpl<>(ranked, PageRequest.of(page, size), result.total());
+    }
+
+    private void apply(Set<Long> productIds, Map<Long, List<ProductSearchIndex.Field>> fields) {
+        for (Long productId : productIds) {
+            List<ProductSearchIndex.Field> productFields = fields.get(productId);
+            if (productFields != null) {
+                index.put(productId, productFields);
+            } else {
+                index.remove(productId);
+            }
+        }
+    }
+
+    private List<ProductSearchIndex.Field> fields(Product product) {
+        List<ProductSearchIndex.Field> fields = new ArrayList<>();
+        fields.add(new ProductSearchIndex.Field(product.getName(), 3.0f));
+        fields.add(new ProductSearchIndex.Field(product.getShortDescription(), 1.5f));
+        fields.add(new ProductSearchIndex.Field(product.getLongDescription(), 1.0f));
+        Description description = product.getDescription();
+        if (description != null) {
+            fields.add(new ProductSearchIndex.Field(description.getModel(), 2.0f));
+            fields.add(new ProductSearchIndex.Field(description.getMaterials(), 1.0f));
+        }
+        return fields;
+    }
+}
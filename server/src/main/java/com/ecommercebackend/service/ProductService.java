@@ -1,16 +1,25 @@
 package com.ecommercebackend.service;
 
+import com.ecommercebackend.config.CacheConfig;
 import com.ecommercebackend.config.UploadConfig;
+import com.ecommercebackend.api.model.ProductBatchResponse;
 import com.ecommercebackend.api.model.ProductBody;
+import com.ecommercebackend.api.model.ProductCursorPage;
 import com.ecommercebackend.model.Inventory;
 import com.ecommercebackend.model.Product;
 import com.ecommercebackend.model.Description;
 import com.ecommercebackend.model.dao.ProductDAO;
 import com.ecommercebackend.model.dao.WebOrderQuantitiesDAO;
+import com.ecommercebackend.model.enums.ProductSortOrder;
+import com.ecommercebackend.service.event.ProductChangedEvent;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,7 +31,13 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -32,6 +47,9 @@ import java.util.UUID;
 @AllArgsConstructor
 public class ProductService {
 
+    /** Максимальное число id в одном пакетном запросе. */
+    public static final int MAX_BATCH_SIZE = 100;
+
     private final ProductDAO productDAO;
 
     private final WebOrderQuantitiesDAO orderQuantitiesDAO;
@@ -42,7 +60,13 @@ public class ProductService {
 
     private final YandexStorageService storageService;
 
-    // ДОБАВЬТЕ ЭТОТ МЕТОД ДЛЯ ПОЛУЧЕНИЯ ТОВАРА ПО ID
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Карточка товара. Результат кешируется; все пишущие методы публикуют
+     * ProductChangedEvent, по которому запись вытесняется из кеша.
+     */
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_CACHE, key = "#id")
     public Product getProductById(Long id) {
         Optional<Product> product = productDAO.findById(id);
         if (product.isEmpty()) {
@@ -132,7 +156,9 @@ public class ProductService {
             product.setInventory(inventory);
             product.setDescription(description);
 
-            return productDAO.save(product);
+            Product savedProduct = productDAO.save(product);
+            eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId(), ProductChangedEvent.ChangeType.CREATED));
+            return savedProduct;
 
         } catch (Exception e) {
             throw new RuntimeException("Ошибка создания продукта: " + e.getMessage(), e);
@@ -140,8 +166,95 @@ public class ProductService {
     }
 
     public Page<Product> getProducts(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return productDAO.findAll(pageable);
+        return productDAO.findAll(listingPage(page, size));
+    }
+
+    /**
+     * Страница общего списка. Порядок по id фиксирован, чтобы одна и та же
+     * страница всегда содержала одни и те же товары (на этом строится ETag списка).
+     */
+    public static PageRequest listingPage(int page, int size) {
+        return PageRequest.of(page, size, Sort.by("id"));
+    }
+
+    /**
+     * Keyset-пагинация каталога: следующая страница ищется по значению
+     * сортировки и id последней строки, без OFFSET и без COUNT(*).
+     */
+    public ProductCursorPage getProductsByCursor(String sort, String cursor, int size) {
+        ProductSortOrder sortOrder;
+        ProductCursor after = null;
+        try {
+            sortOrder = ProductSortOrder.fromValue(sort);
+            if (cursor != null && !cursor.isBlank()) {
+                after = ProductCursor.decode(cursor, sortOrder);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (size < 1 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Size must be between 1 and 100");
+        }
+
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<Product> slice = switch (sortOrder) {
+            case ID -> after == null
+                    ? productDAO.findFirstOrderById(pageable)
+                    : productDAO.findAfterOrderById(after.getLastId(), pageable);
+            case PRICE -> after == null
+                    ? productDAO.findFirstOrderByPrice(pageable)
+                    : productDAO.findAfterOrderByPrice(after.getLastValue(), after.getLastId(), pageable);
+            case RAITING -> after == null
+                    ? productDAO.findFirstOrderByRaiting(pageable)
+                    : productDAO.findAfterOrderByRaiting(after.getLastValue(), after.getLastId(), pageable);
+        };
+
+        String nextCursor = null;
+        if (slice.hasNext() && slice.hasContent()) {
+            Product last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = ProductCursor.after(last, sortOrder).encode();
+        }
+        return new ProductCursorPage(slice.getContent(), nextCursor, slice.hasNext());
+    }
+
+    /**
+     * Пакетная загрузка товаров для корзины и истории заказов: один запрос
+     * за живыми товарами (с Inventory и Description), и только если чего-то
+     * не нашлось - один нативный запрос за удаленными. Порядок ответа
+     * совпадает с порядком запрошенных id, повторы отбрасываются.
+     */
+    public ProductBatchResponse getProductsBatch(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ids must not be empty");
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BATCH_SIZE + " ids are allowed");
+        }
+
+        Map<Long, Product> found = new HashMap<>();
+        productDAO.findAllById(requested).forEach(product -> found.put(product.getId(), product));
+        List<Long> deletedIds = new ArrayList<>();
+        if (found.size() < requested.size()) {
+            List<Long> notFound = requested.stream().filter(id -> !found.containsKey(id)).toList();
+            productDAO.findAllDeletedById(notFound).forEach(product -> found.put(product.getId(), product));
+        }
+
+        List<Product> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            Product product = found.get(id);
+            if (product == null) {
+                missingIds.add(id);
+                continue;
+            }
+            if (product.isDeleted()) {
+                deletedIds.add(id);
+            }
+            products.add(product);
+        }
+        return new ProductBatchResponse(products, missingIds, deletedIds);
     }
 
     public Page<Product> getAllProductsIncludingDeleted(int page, int size) {
@@ -195,6 +308,7 @@ public class ProductService {
             String deleteReason = reason != null ? reason : "Удалено администратором";
             product.softDelete(deleteReason);
             productDAO.save(product);
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.DELETED));
 
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при удалении продукта: " + e.getMessage(), e);
@@ -242,6 +356,7 @@ public class ProductService {
         }
 
         productDAO.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.RESTORED));
     }
 
     /**
@@ -0,0 +1,155 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.ProductStatistics;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.service.event.ProductChangeCoalescer;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import com.ecommercebackend.service.statistics.ProductStatisticsAggregate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Статистика каталога для админ-панели без полного сканирования таблицы на
+ * каждый запрос. Агрегаты обновляются по ProductChangedEvent (пачками
+ * товаров, выборка читается вне блокировки агрегатов), а периодическая
+ * сверка с агрегирующим запросом исправляет расхождения - например,
+ * остатки, измененные в обход событий.
+ */
+@Slf4j
+@Service
+public class ProductStatisticsService {
+
+    /** Допустимое расхождение суммы цен из-за округления. */
+    private static final double PRICE_SUM_TOLERANCE = 0.01;
+
+    private final ProductDAO productDAO;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ProductStatisticsAggregate aggregate = new ProductStatisticsAggregate();
+
+    private final ProductChangeCoalescer<List<ProductStatisticsAggregate.Row>> changes;
+
+    private volatile ProductStatistics current =
+            new ProductStatistics(0, 0, 0, null, null, null, 0, 0, null);
+
+    private LocalDateTime reconciledAt;
+
+    public ProductStatisticsService(ProductDAO productDAO, PlatformTransactionManager transactionManager) {
+        this.productDAO = productDAO;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.changes = new ProductChangeCoalescer<>(transactionManager,
+                ids -> productDAO.findStatisticsRows(ids).stream().map(ProductStatisticsService::toRow).toList(),
+                this::apply);
+    }
+
+    public ProductStatistics getStatistics(LocalUser user) {
+        if (user == null || user.getRole() == null || !"ADMIN".equals(user.getRole().getValue())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin privileges required for this operation");
+        }
+        return current;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.submit(event.getProductIds());
+    }
+
+    /** Товары, которых нет среди строк, удалены из базы насовсем. */
+    private synchronized void apply(Set<Long> productIds, List<ProductStatisticsAggregate.Row> rows) {
+        Map<Long, ProductStatisticsAggregate.Row> byId = new HashMap<>();
+        rows.forEach(row -> byId.put(row.id(), row));
+        for (Long productId : productIds) {
+            aggregate.apply(productId, byId.get(productId));
+        }
+        publish();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        aggregate.clear();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = productDAO.streamStatisticsRows()) {
+                rows.map(ProductStatisticsService::toRow).forEach(row -> aggregate.apply(row.id(), row));
+            }
+        });
+        reconciledAt = LocalDateTime.now();
+        publish();
+        log.info("Product statistics built: {} products in {} ms", aggregate.totalCount(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Сверка с агрегирующим запросом; при расхождении агрегаты строятся заново.
+     */
+    @Scheduled(initialDelayString = "${app.statistics.reconcile-interval:PT10M}",
+               fixedDelayString = "${app.statistics.reconcile-interval:PT10M}")
+    public synchronized void reconcile() {
+        Object[] expected = productDAO.getProductStatistics().get(0);
+        if (matches(expected)) {
+            reconciledAt = LocalDateTime.now();
+            publish();
+            return;
+        }
+        log.warn("Product statistics drifted from the database, rebuilding");
+        rebuild();
+    }
+
+    private boolean matches(Object[] expected) {
+        double priceSum = expected[2] != null ? ((Number) expected[2]).doubleValue() : 0.0;
+        return aggregate.totalCount() == toLong(expected[0])
+                && aggregate.deletedCount() == toLong(expected[1])
+                && Math.abs(aggregate.activePriceSum().doubleValue() - priceSum) <= PRICE_SUM_TOLERANCE
+                && Objects.equals(aggregate.minPrice(), toDouble(expected[3]))
+                && Objects.equals(aggregate.maxPrice(), toDouble(expected[4]))
+                && aggregate.totalStock() == toLong(expected[5])
+                && aggregate.outOfStockCount() == toLong(expected[6]);
+    }
+
+    private void publish() {
+        current = new ProductStatistics(
+                aggregate.totalCount(),
+                aggregate.activeCount(),
+                aggregate.deletedCount(),
+                aggregate.averagePrice(),
+                aggregate.minPrice(),
+                aggregate.maxPrice(),
+                aggregate.totalStock(),
+                aggregate.outOfStockCount(),
+                reconciledAt);
+    }
+
+    private static ProductStatisticsAggregate.Row toRow(Object[] row) {
+        return new ProductStatisticsAggregate.Row(
+                toLong(row[0]),
+                row[1] != null ? ((Number) row[1]).doubleValue() : 0.0,
+                Boolean.TRUE.equals(row[2]),
+                row[3] != null ? ((Number) row[3]).intValue() : 0);
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static Double toDouble(Object value) {
+        return value != null ? ((Number) value).doubleValue() : null;
+    }
+}
@@ -0,0 +1,167 @@
+package com.ecommercebackend.service.catalog;
+
+import com.ecommercebackend.api.model.CatalogItem;
+import com.ecommercebackend.model.enums.ProductSortOrder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the visible catalog. Items are kept in three arrays,
+ * each pre-sorted for one of the supported orders, so a listing request is
+ * a binary search plus an array slice. Changes produce a new snapshot.
+ */
+public final class CatalogSnapshot {
+
+    private static final Comparator<CatalogItem> BY_ID = Comparator.comparing(CatalogItem::getId);
+    private static final Comparator<CatalogItem> BY_PRICE =
+            Comparator.comparingDouble(CatalogItem::getPrice).thenComparing(BY_ID);
+    private static final Comparator<CatalogItem> BY_RAITING =
+            Comparator.comparingDouble(CatalogItem::getRaiting).thenComparing(BY_ID);
+
+    public static final CatalogSnapshot EMPTY = new CatalogSnapshot(new CatalogItem[0], new CatalogItem[0], new CatalogItem[0]);
+
+    private final CatalogItem[] byId;
+    private final CatalogItem[] byPrice;
+    private final CatalogItem[] byRaiting;
+
+    private CatalogSnapshot(CatalogItem[] byId, CatalogItem[] byPrice, CatalogItem[] byRaiting) {
+        this.byId = byId;
+        this.byPrice = byPrice;
+        this.byRaiting = byRaiting;
+    }
+
+    public static CatalogSnapshot of(Collection<CatalogItem> items) {
+        CatalogItem[] byId = items.toArray(new CatalogItem[0]);
+        CatalogItem[] byPrice = byId.clone();
+        CatalogItem[] byRaiting = byId.clone();
+        Arrays.sort(byId, BY_ID);
+        Arrays.sort(byPrice, BY_PRICE);
+        Arrays.sort(byRaiting, BY_RAITING);
+        return new CatalogSnapshot(byId, byPrice, byRaiting);
+    }
+
+    public int size() {
+        return byId.length;
+    }
+
+    /**
+     * A snapshot where the items with the given ids are replaced by the given
+     * items in one pass; ids without a replacement item are removed.
+     */
+    public CatalogSnapshot replacing(Set<Long> productIds, Collection<CatalogItem> items) {
+        return new CatalogSnapshot(
+                merge(byId, productIds, items, BY_ID),
+                merge(byPrice, productIds, items, BY_PRICE),
+                merge(byRaiting, productIds, items, BY_RAITING));
+    }
+
+    /**
+     * One page of items in the given order, optionally restricted to a price
+     * range (inclusive bounds, either may be null).
+     */
+    public Page<CatalogItem> query(ProductSortOrder sortOrder, boolean descending,
+                                   Double minPrice, Double maxPrice, int page, int size) {
+        int from = 0;
+        int to = byPrice.length;
+        if (minPrice != null) {
+            from = lowerBound(minPrice);
+        }
+        if (maxPrice != null) {
+            to = upperBound(maxPrice);
+        }
+        to = Math.max(from, to);
+
+        CatalogItem[] ordered = switch (sortOrder) {
+            case ID -> byId;
+            case PRICE -> byPrice;
+            case RAITING -> byRaiting;
+        };
+        boolean filtered = minPrice != null || maxPrice != null;
+        int offset = page * size;
+        List<CatalogItem> content = new ArrayList<>(size);
+        int total;
+
+        if (ordered == byPrice || !filtered) {
+            // The range is contiguous in this order.
+            int first = ordered == byPrice ? from : 0;
+            total = ordered == byPrice ? to - from : ordered.length;
+            for (int i = offset; i < total && content.size() < size; i++) {
+                content.add(ordered[descending ? first + total - 1 - i : first + i]);
+            }
+        } else {
+            total = to - from;
+            int matched = 0;
+            for (int i = 0; i < ordered.length && content.size() < size; i++) {
+                CatalogItem item = ordered[descending ? ordered.length - 1 - i : i];
+                if (inRange(item, minPrice, maxPrice) && matched++ >= offset) {
+                    content.add(item);
+                }
+            }
+        }
+        return new PageImpl<>(content, PageRequest.of(page, size), total);
+    }
+
+    private static boolean inRange(CatalogItem item, Double minPrice, Double maxPrice) {
+        return (minPrice == null || item.getPrice() >= minPrice) && (maxPrice == null || item.getPrice() <= maxPrice);
+    }
+
+    private static CatalogItem[] merge(CatalogItem[] sorted, Set<Long> productIds,
+                                       Collection<CatalogItem> items, Comparator<CatalogItem> order) {
+        CatalogItem[] added = items.toArray(new CatalogItem[0]);
+        Arrays.sort(added, order);
+        CatalogItem[] merged = new CatalogItem[sorted.length + added.length];
+        int size = 0;
+        int next = 0;
+        for (CatalogItem item : sorted) {
+            if (productIds.contains(item.getId())) {
+                continue;
+            }
+            while (next < added.length && order.compare(added[next], item) < 0) {
+                merged[size++] = added[next++];
+            }
+            merged[size++] = item;
+        }
+        while (next < added.length) {
+            merged[size++] = added[next++];
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    /** First position in byPrice with price >= the given value. */
+    private int lowerBound(double price) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (byPrice[mid].getPrice() < price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** First position in byPrice with price > the given value. */
+    private int upperBound(double price) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (byPrice[mid].getPrice() <= price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.model.Description;
+
+import java.util.List;
+
+/**
+ * Груз корзины для расчета стоимости доставки: самая длинная сторона
+ * среди товаров, суммарный объем и суммарный вес.
+ * @param longestSideCm Самая длинная сторона одного товара, см.
+ * @param volumeLiters Суммарный объем всех единиц товара, л.
+ * @param weightKg Суммарный вес всех единиц товара, кг.
+ */
+public record CargoProfile(double longestSideCm, double volumeLiters, double weightKg) {
+
+    /**
+     * Строка корзины: описание товара (может быть null) и количество.
+     */
+    public record Item(Description description, int quantity) {
+    }
+
+    /**
+     * Считает груз по числовым габаритам и весу описаний; товары без них
+     * считаются по значениям по умолчанию, как и в заявке на доставку.
+     */
+    public static CargoProfile of(List<Item> items) {
+        double longest = 0;
+        double volume = 0;
+        double weight = 0;
+        for (Item item : items) {
+            Description description = item.description();
+            boolean sized = description != null && description.getLengthCm() != null
+                    && description.getWidthCm() != null && description.getHeightCm() != null;
+            double length = sized ? description.getLengthCm() : LogisticsAttributes.DEFAULT_LENGTH_CM;
+            double width = sized ? description.getWidthCm() : LogisticsAttributes.DEFAULT_WIDTH_CM;
+            double height = sized ? description.getHeightCm() : LogisticsAttributes.DEFAULT_HEIGHT_CM;
+            double itemWeight = description != null && description.getWeightKg() != null
+                    ? description.getWeightKg() : LogisticsAttributes.DEFAULT_WEIGHT_KG;
+            longest = Math.max(longest, Math.max(length, Math.max(width, height)));
+            volume += length * width * height / 1000.0 * item.quantity();
+            weight += itemWeight * item.quantity();
+        }
+        return new CargoProfile(longest, volume, weight);
+    }
+}
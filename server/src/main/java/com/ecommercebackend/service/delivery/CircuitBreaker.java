@@ -0,0 +1,140 @@
+package com.ecommercebackend.service.delivery;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Размыкатель цепи по доле ошибок в скользящем окне последних вызовов.
+ * <p>
+ * CLOSED - вызовы проходят, исходы пишутся в окно; когда в окне набралось
+ * не меньше minimumCalls вызовов и доля ошибок достигла порога, цепь
+ * размыкается. OPEN - вызовы сразу отклоняются, пока не пройдет openDuration.
+ * HALF_OPEN - пропускается один пробный вызов: успех замыкает цепь с пустым
+ * окном, ошибка снова размыкает ее.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] window;
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final long openNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final Consumer<Duration> onClosed;
+
+    private State state = State.CLOSED;
+
+    private int calls;
+
+    private int failures;
+
+    private int next;
+
+    private long openedAt;
+
+    // Начало простоя: с первого размыкания до замыкания, включая неудачные пробы
+    private long outageStartedAt;
+
+    private boolean probeInFlight;
+
+    /**
+     * @param onClosed Получает время, которое цепь провела разомкнутой, при каждом замыкании.
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+                          LongSupplier nanoClock, Consumer<Duration> onClosed) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+        this.onClosed = onClosed;
+    }
+
+    /**
+     * @return true, если вызов можно выполнить; после него обязателен onSuccess или onFailure.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.CLOSED) {
+            record(false);
+        } else if (state == State.HALF_OPEN) {
+            close();
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                open();
+            }
+        } else if (state == State.HALF_OPEN) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        openedAt = nanoClock.getAsLong();
+        if (state == State.CLOSED) {
+            outageStartedAt = openedAt;
+        }
+        state = State.OPEN;
+        probeInFlight = false;
+    }
+
+    private void close() {
+        onClosed.accept(Duration.ofNanos(nanoClock.getAsLong() - outageStartedAt));
+        state = State.CLOSED;
+        probeInFlight = false;
+        calls = 0;
+        failures = 0;
+        next = 0;
+    }
+}
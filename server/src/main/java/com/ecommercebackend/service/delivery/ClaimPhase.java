@@ -0,0 +1,46 @@
+package com.ecommercebackend.service.delivery;
+
+import java.util.Set;
+
+/**
+ * Стадия заявки Яндекс Доставки, от которой зависит частота опроса ее статуса.
+ */
+public enum ClaimPhase {
+    /** Курьер еще не назначен: оценка, подтверждение, поиск исполнителя. */
+    WAITING,
+    /** Заказ у курьера или курьер едет за ним; статус меняется часто. */
+    COURIER,
+    /** Конечный статус, заявка больше не опрашивается. */
+    FINISHED;
+
+    private static final Set<String> COURIER_STATUSES = Set.of(
+            "performer_found", "pickup_arrived", "ready_for_pickup_confirmation", "pickuped",
+            "delivery_arrived", "ready_for_delivery_confirmation", "pay_waiting", "delivered",
+            "returning", "return_arrived", "ready_for_return_confirmation", "returned");
+
+    private static final Set<String> FINISHED_STATUSES = Set.of(
+            "delivered_finish", "returned_finish", "failed", "estimating_failed", "performer_not_found",
+            "cancelled", "cancelled_with_payment", "cancelled_by_taxi", "cancelled_with_items_on_hands");
+
+    /**
+     * Стадия заказа в многоточечной заявке: когда курьер доехал до его точки,
+     * для этого заказа доставка закончена, даже если заявка еще везет остальные.
+     * @param pointStatus Статус посещения точки заказа; null для заявки одного заказа.
+     */
+    public static ClaimPhase of(String status, String pointStatus) {
+        return "visited".equals(pointStatus) ? FINISHED : of(status);
+    }
+
+    /**
+     * @param status Статус заявки из API; неизвестный или пустой считается ожиданием.
+     */
+    public static ClaimPhase of(String status) {
+        if (status == null) {
+            return WAITING;
+        }
+        if (COURIER_STATUSES.contains(status)) {
+            return COURIER;
+        }
+        return FINISHED_STATUSES.contains(status) ? FINISHED : WAITING;
+    }
+}
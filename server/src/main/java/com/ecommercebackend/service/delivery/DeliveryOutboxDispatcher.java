@@ -0,0 +1,332 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.model.DeliveryOutbox;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.dao.DeliveryOutboxDAO;
+import com.ecommercebackend.model.enums.DeliveryStatus;
+import com.ecommercebackend.model.enums.OutboxStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Отправляет заявки из delivery_outbox в Яндекс Доставку.
+ * <p>
+ * Записи забираются пачкой в короткой транзакции: им увеличивается счетчик
+ * попыток и выставляется аренда (next_attempt_at в будущем), после чего
+ * транзакция закрывается. HTTP-вызовы идут уже без транзакции и без
+ * соединения с базой; результат каждой записи сохраняется отдельной
+ * транзакцией. Запросы пачки отправляются одновременно, в пределах лимита
+ * клиента; отклоненные клиентом (цепь разомкнута) откладываются как обычная
+ * временная ошибка. Если процесс упадет посреди отправки, запись снова станет
+ * доступна после окончания аренды - повтор безопасен благодаря request_id.
+ * Созданная заявка сразу ставится на отслеживание в DeliveryTracker.
+ * <p>
+ * Новые записи ждут окно window: за это время с того же склада обычно уходят
+ * и другие заказы. Когда окно самой старой записи истекло, к ней добавляются
+ * все еще не отправлявшиеся записи того же склада (не больше maxPoints точек
+ * и maxWeightKg общего веса), и они уходят одной многоточечной заявкой.
+ * Состав пачки сохраняется (batch_id), поэтому повтор отправляет ту же заявку
+ * с тем же request_id. Если API отклонил пачку как ошибочную, записи
+ * отправляются каждая своей заявкой.
+ */
+@Slf4j
+@Component
+public class DeliveryOutboxDispatcher {
+
+    private final DeliveryOutboxDAO outboxDAO;
+
+    private final YandexDeliveryClient deliveryClient;
+
+    private final DeliveryTracker deliveryTracker;
+
+    private final YandexClaimWriter claimWriter;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final Duration lease;
+
+    private final Duration window;
+
+    private final int maxPoints;
+
+    private final double maxWeightKg;
+
+    public DeliveryOutboxDispatcher(DeliveryOutboxDAO outboxDAO,
+                                    YandexDeliveryClient deliveryClient,
+                                    DeliveryTracker deliveryTracker,
+                                    YandexClaimWriter claimWriter,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.delivery.outbox.batch-size:20}") int batchSize,
+                                    @Value("${app.delivery.outbox.max-attempts:10}") int maxAttempts,
+                                    @Value("${app.delivery.outbox.initial-backoff:PT5S}") Duration initialBackoff,
+                                    @Value("${app.delivery.outbox.max-backoff:PT30M}") Duration maxBackoff,
+                                    @Value("${app.delivery.outbox.lease:PT2M}") Duration lease,
+                                    @Value("${app.delivery.batching.window:PT2M}") Duration window,
+                                    @Value("${app.delivery.batching.max-points:10}") int maxPoints,
+                                    @Value("${app.delivery.batching.max-weight-kg:10}") double maxWeightKg) {
+        this.outboxDAO = outboxDAO;
+        this.deliveryClient = deliveryClient;
+        this.deliveryTracker = deliveryTracker;
+        this.claimWriter = claimWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.window = window;
+        this.maxPoints = maxPoints;
+        this.maxWeightKg = maxWeightKg;
+    }
+
+    /**
+     * Одна заявка: первая запись пачки и записи, объединенные с ней (включая ее саму).
+     */
+    private record Send(DeliveryOutbox leader, List<DeliveryOutbox> entries) {
+
+        String requestId() {
+            return leader.getBatchId() != null ? leader.getBatchId() : DeliveryOutboxDispatcher.requestId(leader);
+        }
+
+        List<Long> ids() {
+            return entries.stream().map(DeliveryOutbox::getId).toList();
+        }
+    }
+
+    private record Claimed(int due, List<Send> sends) {
+    }
+
+    @Scheduled(fixedDelayString = "${app.delivery.outbox.poll-interval:PT2S}")
+    public void dispatch() {
+        Claimed claimed;
+        do {
+            claimed = transactionTemplate.execute(status -> claimBatch());
+            // Вся пачка уходит параллельно; ответы сохраняются по одному в этом потоке
+            List<Send> sends = claimed.sends();
+            List<CompletableFuture<YandexDeliveryClient.Claim>> calls = new ArrayList<>(sends.size());
+            for (Send send : sends) {
+                calls.add(deliveryClient.createClaimAsync(send.requestId(), payload(send)));
+            }
+            for (int i = 0; i < sends.size(); i++) {
+                record(sends.get(i), calls.get(i));
+            }
+        } while (claimed.due() == batchSize && !Thread.currentThread().isInterrupted());
+    }
+
+    private Claimed claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<DeliveryOutbox> due = outboxDAO.findDue(OutboxStatus.PENDING, now, now.minus(window),
+                PageRequest.of(0, batchSize));
+        List<DeliveryOutbox> batchable = null;
+        Map<Long, Double> weights = new HashMap<>();
+        Set<Long> taken = new HashSet<>();
+        List<Send> sends = new ArrayList<>(due.size());
+        for (DeliveryOutbox entry : due) {
+            if (!taken.add(entry.getId())) {
+                // Уже объединена в заявку более старой записи
+                continue;
+            }
+            List<DeliveryOutbox> entries;
+            if (entry.getBatchId() != null) {
+                // Повтор пачки: состав тот же, что при первой попытке
+                entries = new ArrayList<>();
+                entries.add(entry);
+                entries.addAll(outboxDAO.findByBatchIdAndStatusOrderById(entry.getBatchId(), OutboxStatus.BATCHED));
+            } else if (entry.getAttempts() == 0 && maxPoints > 1) {
+                if (batchable == null) {
+                    batchable = outboxDAO.findBatchable(OutboxStatus.PENDING, PageRequest.of(0, batchSize * maxPoints));
+                }
+                entries = consolidate(entry, batchable, weights, taken);
+            } else {
+                entries = List.of(entry);
+            }
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setNextAttemptAt(now.plus(lease));
+            // Загружаем id заказов, пока открыта транзакция
+            entries.forEach(batched -> batched.getOrder().getId());
+            sends.add(new Send(entry, entries));
+        }
+        return new Claimed(due.size(), sends);
+    }
+
+    /**
+     * Добирает к записи не отправлявшиеся записи того же склада по порядку,
+     * пока не кончатся точки или допустимый вес, и помечает их пачкой.
+     */
+    private List<DeliveryOutbox> consolidate(DeliveryOutbox leader, List<DeliveryOutbox> candidates,
+                                             Map<Long, Double> weights, Set<Long> taken) {
+        List<DeliveryOutbox> entries = new ArrayList<>();
+        entries.add(leader);
+        double weight = weight(leader, weights);
+        for (DeliveryOutbox candidate : candidates) {
+            if (entries.size() == maxPoints) {
+                break;
+            }
+            if (taken.contains(candidate.getId()) || !Objects.equals(candidate.getWarehouseId(), leader.getWarehouseId())) {
+                continue;
+            }
+            double candidateWeight = weight(candidate, weights);
+            if (weight + candidateWeight > maxWeightKg) {
+                continue;
+            }
+            weight += candidateWeight;
+            entries.add(candidate);
+            taken.add(candidate.getId());
+        }
+        if (entries.size() > 1) {
+            String batchId = "batch-" + leader.getId();
+            leader.setBatchId(batchId);
+            for (DeliveryOutbox member : entries.subList(1, entries.size())) {
+                member.setBatchId(batchId);
+                member.setStatus(OutboxStatus.BATCHED);
+            }
+        }
+        return entries;
+    }
+
+    private static double weight(DeliveryOutbox entry, Map<Long, Double> weights) {
+        return weights.computeIfAbsent(entry.getId(), id -> YandexClaimWriter.cargoWeightKg(entry.getPayload()));
+    }
+
+    private String payload(Send send) {
+        if (send.leader().getBatchId() == null) {
+            return send.leader().getPayload();
+        }
+        return claimWriter.merge(send.entries().stream().map(DeliveryOutbox::getPayload).toList(),
+                send.entries().stream().map(DeliveryOutboxDispatcher::requestId).toList());
+    }
+
+    /**
+     * request_id одиночной заявки записи; у записей, созданных до разделения заказов по складам, это ID заказа.
+     */
+    static String requestId(DeliveryOutbox entry) {
+        return entry.getRequestId() != null ? entry.getRequestId() : String.valueOf(entry.getOrder().getId());
+    }
+
+    private void record(Send send, CompletableFuture<YandexDeliveryClient.Claim> call) {
+        List<Long> ids = send.ids();
+        try {
+            YandexDeliveryClient.Claim claim = YandexDeliveryClient.await(call);
+            transactionTemplate.executeWithoutResult(status -> markSent(ids, claim));
+            log.info("Delivery claim {} created for {} point(s), request {}", claim.id(), ids.size(), send.requestId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Запись вернется в работу после окончания аренды
+        } catch (YandexDeliveryClient.DeliveryUnavailableException e) {
+            transactionTemplate.executeWithoutResult(status -> markDeferred(ids.get(0), e));
+        } catch (Exception e) {
+            boolean retryable = !(e instanceof YandexDeliveryClient.DeliveryApiException apiError) || apiError.isRetryable();
+            transactionTemplate.executeWithoutResult(status -> markFailed(ids, e, retryable));
+        }
+    }
+
+    private void markSent(List<Long> entryIds, YandexDeliveryClient.Claim claim) {
+        LocalDateTime now = LocalDateTime.now();
+        for (DeliveryOutbox entry : outboxDAO.findAllById(entryIds)) {
+            entry.setStatus(OutboxStatus.SENT);
+            entry.setSentAt(now);
+            entry.setLastError(null);
+            WebOrder order = entry.getOrder();
+            // У заказа с несколькими складами в заказе остается первая заявка, а сбой любой из них не затирается
+            if (order.getDeliveryClaimId() == null) {
+                order.setDeliveryClaimId(claim.id());
+            }
+            if (order.getDeliveryStatus() != DeliveryStatus.FAILED) {
+                order.setDeliveryStatus(DeliveryStatus.CREATED);
+            }
+            // В многоточечной заявке заказ отслеживается по своей точке
+            deliveryTracker.track(order, claim, entry.getBatchId() != null ? requestId(entry) : null);
+        }
+    }
+
+    private void markFailed(List<Long> entryIds, Exception error, boolean retryable) {
+        DeliveryOutbox entry = outboxDAO.findById(entryIds.get(0)).orElseThrow();
+        List<DeliveryOutbox> members = outboxDAO.findAllById(entryIds.subList(1, entryIds.size()));
+        entry.setLastError(truncate(error.getClass().getSimpleName() + ": " + error.getMessage()));
+        if (!retryable && entry.getBatchId() != null) {
+            // Пачку API не принял - отправляем заказы по одному. Попытка засчитывается всем,
+            // чтобы записи не объединились снова
+            log.warn("Delivery claim {} for {} point(s) was rejected, sending them one by one: {}",
+                    entry.getBatchId(), entryIds.size(), entry.getLastError());
+            entry.setBatchId(null);
+            entry.setNextAttemptAt(LocalDateTime.now());
+            for (DeliveryOutbox member : members) {
+                member.setBatchId(null);
+                member.setStatus(OutboxStatus.PENDING);
+                member.setAttempts(1);
+                member.setNextAttemptAt(entry.getNextAttemptAt());
+            }
+            return;
+        }
+        if (!retryable || entry.getAttempts() >= maxAttempts) {
+            entry.setStatus(OutboxStatus.FAILED);
+            entry.getOrder().setDeliveryStatus(DeliveryStatus.FAILED);
+            for (DeliveryOutbox member : members) {
+                member.setStatus(OutboxStatus.FAILED);
+                member.setLastError(entry.getLastError());
+                member.getOrder().setDeliveryStatus(DeliveryStatus.FAILED);
+            }
+            log.error("Delivery claim for order {} failed after {} attempts: {}",
+                    entry.getOrder().getId(), entry.getAttempts(), entry.getLastError());
+            return;
+        }
+        Duration delay = backoff(entry.getAttempts(), initialBackoff, maxBackoff);
+        entry.setNextAttemptAt(LocalDateTime.now().plus(delay));
+        log.warn("Delivery claim for order {} failed (attempt {}), retrying in {}s: {}",
+                entry.getOrder().getId(), entry.getAttempts(), delay.toSeconds(), entry.getLastError());
+    }
+
+    /**
+     * Запрос не ушел в API (цепь разомкнута или лимит занят): попытка не
+     * засчитывается, запись откладывается на обычную задержку.
+     */
+    private void markDeferred(Long entryId, Exception error) {
+        DeliveryOutbox entry = outboxDAO.findById(entryId).orElseThrow();
+        entry.setAttempts(entry.getAttempts() - 1);
+        entry.setLastError(truncate(error.getClass().getSimpleName() + ": " + error.getMessage()));
+        entry.setNextAttemptAt(LocalDateTime.now().plus(backoff(Math.max(1, entry.getAttempts()), initialBackoff, maxBackoff)));
+        log.debug("Delivery claim for order {} deferred: {}", entry.getOrder().getId(), error.getMessage());
+    }
+
+    /**
+     * Экспоненциальная задержка с jitter: случайное значение от половины до
+     * полной задержки initial * 2^(attempt - 1), но не больше max.
+     */
+    static Duration backoff(int attempt, Duration initial, Duration max) {
+        long ceiling = initial.toMillis() << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > max.toMillis()) {
+            ceiling = max.toMillis();
+        }
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        return Duration.ofMillis(delay);
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
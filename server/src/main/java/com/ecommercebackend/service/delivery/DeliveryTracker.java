@@ -0,0 +1,205 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.api.model.DataChange;
+import com.ecommercebackend.api.model.OrderDeliveryUpdate;
+import com.ecommercebackend.model.DeliveryTracking;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.dao.DeliveryTrackingDAO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Отслеживает статусы созданных заявок Яндекс Доставки и сообщает об
+ * изменениях владельцу заказа через /topic/user/{userId}/order.
+ * <p>
+ * Каждой заявке назначается время следующего опроса: courierInterval, пока
+ * заказ у курьера, и idleInterval, пока курьер не назначен. Раз в
+ * pollInterval берется не больше maxCallsPerPoll пачек по batchSize самых
+ * просроченных заявок, и каждая пачка опрашивается одним запросом bulk_info.
+ * Поэтому число запросов к API ограничено maxCallsPerPoll / pollInterval
+ * при любом количестве открытых заявок; если заявок больше, чем успевает
+ * пропускная способность, они опрашиваются реже, но по очереди.
+ * Пачка, как в outbox, арендуется на lease: при сбое API заявки вернутся
+ * в опрос после окончания аренды.
+ * <p>
+ * Заказы многоточечной заявки отслеживаются каждый отдельно: кроме статуса
+ * заявки, у них хранится статус посещения своей точки, и заказ, до точки
+ * которого курьер уже доехал, больше не опрашивается.
+ */
+@Slf4j
+@Component
+public class DeliveryTracker {
+
+    private final DeliveryTrackingDAO trackingDAO;
+
+    private final YandexDeliveryClient deliveryClient;
+
+    private final SimpMessagingTemplate simpMessagingTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final int maxCallsPerPoll;
+
+    private final Duration courierInterval;
+
+    private final Duration idleInterval;
+
+    private final Duration lease;
+
+    public DeliveryTracker(DeliveryTrackingDAO trackingDAO,
+                           YandexDeliveryClient deliveryClient,
+                           SimpMessagingTemplate simpMessagingTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.delivery.tracking.batch-size:100}") int batchSize,
+                           @Value("${app.delivery.tracking.max-calls-per-poll:5}") int maxCallsPerPoll,
+                           @Value("${app.delivery.tracking.courier-interval:PT30S}") Duration courierInterval,
+                           @Value("${app.delivery.tracking.idle-interval:PT5M}") Duration idleInterval,
+                           @Value("${app.delivery.tracking.lease:PT1M}") Duration lease) {
+        this.trackingDAO = trackingDAO;
+        this.deliveryClient = deliveryClient;
+        this.simpMessagingTemplate = simpMessagingTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxCallsPerPoll = maxCallsPerPoll;
+        this.courierInterval = courierInterval;
+        this.idleInterval = idleInterval;
+        this.lease = lease;
+    }
+
+    /**
+     * Начинает отслеживать только что созданную заявку заказа.
+     * Вызывается в транзакции, которая сохраняет заявку в заказе.
+     */
+    public void track(WebOrder order, YandexDeliveryClient.Claim claim) {
+        track(order, claim, null);
+    }
+
+    /**
+     * @param pointRef external_order_id точки заказа в многоточечной заявке; null, если заявка только этого заказа.
+     */
+    public void track(WebOrder order, YandexDeliveryClient.Claim claim, String pointRef) {
+        LocalDateTime now = LocalDateTime.now();
+        DeliveryTracking tracking = new DeliveryTracking();
+        tracking.setOrder(order);
+        tracking.setUserId(order.getUser().getId());
+        tracking.setClaimId(claim.id());
+        tracking.setPointRef(pointRef);
+        // Точки только что созданной заявки еще не посещены
+        tracking.setPointStatus(pointRef != null ? "pending" : null);
+        tracking.setStatus(claim.status());
+        tracking.setStatusChangedAt(now);
+        ClaimPhase phase = ClaimPhase.of(claim.status());
+        tracking.setFinished(phase == ClaimPhase.FINISHED);
+        tracking.setNextPollAt(now.plus(interval(phase)));
+        trackingDAO.save(tracking);
+    }
+
+    @Scheduled(fixedRateString = "${app.delivery.tracking.poll-interval:PT1S}")
+    public void poll() {
+        for (int call = 0; call < maxCallsPerPoll && !Thread.currentThread().isInterrupted(); call++) {
+            List<DeliveryTracking> batch = transactionTemplate.execute(status -> claimBatch());
+            if (batch.isEmpty()) {
+                return;
+            }
+            // Заказы одной многоточечной заявки опрашиваются одним id
+            List<String> claimIds = batch.stream().map(DeliveryTracking::getClaimId).distinct().toList();
+            List<YandexDeliveryClient.Claim> claims;
+            try {
+                claims = YandexDeliveryClient.await(deliveryClient.claimsInfoAsync(claimIds));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                // Пачка вернется в опрос после окончания аренды; остальные в этот раз не трогаем
+                log.warn("Cannot poll {} delivery claims: {}", claimIds.size(), e.getMessage());
+                return;
+            }
+            // Уведомляем только после фиксации транзакции
+            List<Change> changes = transactionTemplate.execute(status -> record(batch, claims));
+            for (Change change : changes) {
+                simpMessagingTemplate.convertAndSend("/topic/user/" + change.userId() + "/order",
+                        new DataChange<>(DataChange.ChangeType.UPDATE, change.update()));
+            }
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private List<DeliveryTracking> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<DeliveryTracking> due = trackingDAO.findDue(now, PageRequest.of(0, batchSize));
+        for (DeliveryTracking tracking : due) {
+            tracking.setNextPollAt(now.plus(lease));
+        }
+        return due;
+    }
+
+    private record Change(Long userId, OrderDeliveryUpdate update) {
+    }
+
+    private List<Change> record(List<DeliveryTracking> batch, List<YandexDeliveryClient.Claim> claims) {
+        Map<String, YandexDeliveryClient.Claim> byId = new HashMap<>();
+        for (YandexDeliveryClient.Claim claim : claims) {
+            byId.put(claim.id(), claim);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Change> changes = new ArrayList<>();
+        for (DeliveryTracking tracking : trackingDAO.findAllById(batch.stream().map(DeliveryTracking::getId).toList())) {
+            tracking.setLastPolledAt(now);
+            YandexDeliveryClient.Claim claim = byId.get(tracking.getClaimId());
+            if (claim == null || claim.status() == null) {
+                // Яндекс не вернул заявку: пробуем снова не раньше обычного
+                log.warn("Delivery claim {} is missing from the status response", tracking.getClaimId());
+                tracking.setNextPollAt(now.plus(idleInterval));
+                continue;
+            }
+            String status = claim.status();
+            String pointStatus = pointStatus(claim, tracking.getPointRef());
+            if (!status.equals(tracking.getStatus()) || !Objects.equals(pointStatus, tracking.getPointStatus())) {
+                tracking.setStatus(status);
+                tracking.setPointStatus(pointStatus);
+                tracking.setStatusChangedAt(now);
+                changes.add(new Change(tracking.getUserId(), new OrderDeliveryUpdate(tracking.getOrder().getId(),
+                        tracking.getClaimId(), status, pointStatus, now)));
+            }
+            ClaimPhase phase = ClaimPhase.of(status, pointStatus);
+            tracking.setFinished(phase == ClaimPhase.FINISHED);
+            tracking.setNextPollAt(now.plus(interval(phase)));
+        }
+        return changes;
+    }
+
+    private static String pointStatus(YandexDeliveryClient.Claim claim, String pointRef) {
+        if (pointRef == null) {
+            return null;
+        }
+        for (YandexDeliveryClient.Point point : claim.points()) {
+            if (pointRef.equals(point.externalOrderId())) {
+                return point.visitStatus();
+            }
+        }
+        return null;
+    }
+
+    private Duration interval(ClaimPhase phase) {
+        return phase == ClaimPhase.COURIER ? courierInterval : idleInterval;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ecommercebackend.service.delivery;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор текстовых габаритов и веса из Description в числа.
+ * Вызывается один раз при записи описания (и бэкфиллом для старых строк),
+ * а заявки на доставку читают уже готовые числовые колонки.
+ */
+public final class LogisticsAttributes {
+
+    private static final Pattern DIMENSIONS = Pattern.compile(
+            "^(\\d+(?:[.,]\\d+)?)\\s*[×xх*]\\s*(\\d+(?:[.,]\\d+)?)\\s*[×xх*]\\s*(\\d+(?:[.,]\\d+)?)\\s*(?:см|cm)?\\.?$");
+
+    private static final Pattern WEIGHT = Pattern.compile(
+            "^(\\d+(?:[.,]\\d+)?)\\s*(кг|kg|г|g)?\\.?$");
+
+    /** Габариты и вес по умолчанию, если в описании их нет или их не удалось разобрать. */
+    public static final double DEFAULT_LENGTH_CM = 10.0;
+    public static final double DEFAULT_WIDTH_CM = 5.0;
+    public static final double DEFAULT_HEIGHT_CM = 3.0;
+    public static final double DEFAULT_WEIGHT_KG = 1.0;
+
+    private LogisticsAttributes() {
+    }
+
+    /**
+     * Габариты товара в сантиметрах.
+     */
+    public record Dimensions(double length, double width, double height) {
+    }
+
+    /**
+     * Разбирает строку формата "В×Ш×Г" (например "178×60×63 см", разделитель × или x).
+     * Длиной считается глубина, высотой - первое число.
+     * @return Габариты или null, если строка пуста, не в этом формате или содержит неположительные значения.
+     */
+    public static Dimensions parseDimensions(String dimensions) {
+        if (dimensions == null) {
+            return null;
+        }
+        Matcher matcher = DIMENSIONS.matcher(dimensions.trim().toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            return null;
+        }
+        double height = number(matcher.group(1));
+        double width = number(matcher.group(2));
+        double length = number(matcher.group(3));
+        if (height <= 0 || width <= 0 || length <= 0) {
+            return null;
+        }
+        return new Dimensions(length, width, height);
+    }
+
+    /**
+     * Разбирает вес вида "68 кг", "68" (килограммы) или "500 г".
+     * @return Вес в килограммах или null, если строку не удалось разобрать.
+     */
+    public static Double parseWeight(String weight) {
+        if (weight == null) {
+            return null;
+        }
+        Matcher matcher = WEIGHT.matcher(weight.trim().toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            return null;
+        }
+        double value = number(matcher.group(1));
+        String unit = matcher.group(2);
+        if ("г".equals(unit) || "g".equals(unit)) {
+            value /= 1000.0;
+        }
+        return value > 0 ? value : null;
+    }
+
+    private static double number(String value) {
+        return Double.parseDouble(value.replace(',', '.'));
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.Warehouse;
+
+import java.util.Locale;
+
+/**
+ * Ключ кэша расчетов доставки: склад отправления, ячейка назначения, класс
+ * размера и класс веса.
+ * <p>
+ * Корзины, попавшие в один ключ, получают одну цену, поэтому расчет у
+ * Яндекса запрашивается не для конкретной корзины, а для верхней границы
+ * классов (representativeProfile) - цена не зависит от того, какая корзина
+ * пришла первой, и не бывает ниже реальной.
+ * @param warehouseId Склад отправления; null - основной склад.
+ * @param cell Нормализованные "страна|город" адреса назначения.
+ * @param longestSideCm Класс размера: граница самой длинной стороны, см.
+ * @param volumeLiters Класс размера: граница суммарного объема, л.
+ * @param weightKg Класс веса: граница суммарного веса, кг.
+ */
+public record QuoteKey(Long warehouseId, String cell, int longestSideCm, int volumeLiters, int weightKg) {
+
+    private static final int[] SIDE_CLASSES_CM = {30, 60, 100, 150, 200, 300};
+
+    private static final int[] VOLUME_CLASSES_LITERS = {5, 10, 25, 50, 100, 250, 500, 1000, 2000, 4000};
+
+    private static final int[] WEIGHT_CLASSES_KG = {1, 2, 5, 10, 20, 30, 50, 100, 200, 300, 500, 1000};
+
+    /**
+     * @param source Склад, с которого уйдет груз; null - основной склад.
+     */
+    public static QuoteKey of(Warehouse source, Address address, CargoProfile profile) {
+        return new QuoteKey(source != null ? source.getId() : null, cell(address),
+                upperBound(profile.longestSideCm(), SIDE_CLASSES_CM),
+                upperBound(profile.volumeLiters(), VOLUME_CLASSES_LITERS),
+                upperBound(profile.weightKg(), WEIGHT_CLASSES_KG));
+    }
+
+    /**
+     * Груз, по которому запрашивается цена для ключа: одно место с самой
+     * длинной стороной класса и объемом класса, остальные две стороны равны.
+     * @return Габариты в сантиметрах.
+     */
+    public LogisticsAttributes.Dimensions representativeSize() {
+        double side = Math.min(longestSideCm, Math.sqrt(volumeLiters * 1000.0 / longestSideCm));
+        return new LogisticsAttributes.Dimensions(longestSideCm, side, side);
+    }
+
+    /** Адрес ячейки для API: "страна, город". */
+    public String fullname() {
+        return cell.replace("|", ", ");
+    }
+
+    static String cell(Address address) {
+        return normalize(address.getCountry()) + "|" + normalize(address.getCity());
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT).replace('ё', 'е').replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Наименьшая граница класса, не меньшая значения; выше последней -
+     * кратное последней границе.
+     */
+    static int upperBound(double value, int[] classes) {
+        for (int bound : classes) {
+            if (value <= bound) {
+                return bound;
+            }
+        }
+        int last = classes[classes.length - 1];
+        return (int) Math.ceil(value / last) * last;
+    }
+}
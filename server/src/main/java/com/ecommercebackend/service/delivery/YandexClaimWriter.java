@@ -0,0 +1,318 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.config.YandexDeliveryConfig;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.Warehouse;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.WebOrderQuantities;
+import com.ecommercebackend.service.fulfilment.Shipment;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Пишет тело заявки Яндекс Доставки (claims/create) потоково, без
+ * промежуточного дерева ObjectNode.
+ * <p>
+ * Точка забора (склад) не зависит от заказа, поэтому ее JSON собирается один
+ * раз из YandexDeliveryConfig и вставляется как есть. JsonFactory общий и
+ * потокобезопасный; генератор на каждый вызов свой, а буфер переиспользуется
+ * в пределах потока.
+ * <p>
+ * Заявки нескольких заказов с одного склада объединяются в одну многоточечную
+ * через merge: это делается раз на пачку при отправке, поэтому через дерево.
+ */
+@Component
+public class YandexClaimWriter {
+
+    /** Координаты склада (долгота, широта), откуда забираются все заказы. */
+    public static final double WAREHOUSE_LONGITUDE = 37.517635;
+    public static final double WAREHOUSE_LATITUDE = 55.755814;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final ThreadLocal<ByteArrayBuilder> BUFFERS = ThreadLocal.withInitial(() -> new ByteArrayBuilder(2048));
+
+    // Буфер больше этого не держим в потоке после большой заявки
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private final String pickupPoint;
+
+    public YandexClaimWriter(YandexDeliveryConfig yandexDeliveryConfig) {
+        this.pickupPoint = pickupPoint(yandexDeliveryConfig);
+    }
+
+    /**
+     * @return JSON заявки на доставку всего заказа пользователю с основного склада.
+     */
+    public String write(WebOrder order, LocalUser user) {
+        return write(order, user, null);
+    }
+
+    /**
+     * @param shipment Часть заказа и склад, откуда ее забрать; null - весь заказ с основного склада.
+     * @return JSON заявки на доставку отгрузки пользователю.
+     */
+    public String write(WebOrder order, LocalUser user, Shipment shipment) {
+        ByteArrayBuilder buffer = BUFFERS.get();
+        buffer.reset();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(buffer)) {
+            json.writeStartObject();
+            json.writeStringField("status", "new");
+            json.writeStringField("comment", "Заказ из интернет-магазина");
+
+            // 1. Точки маршрута: склад и адрес клиента
+            json.writeArrayFieldStart("route_points");
+            if (shipment == null || shipment.warehouse() == null) {
+                json.writeRawValue(pickupPoint);
+            } else {
+                writeWarehousePoint(json, shipment.warehouse());
+            }
+            writeDropoffPoint(json, order.getAddress(), user);
+            json.writeEndArray();
+
+            // 2. Товары
+            json.writeArrayFieldStart("items");
+            if (shipment == null) {
+                for (WebOrderQuantities quantity : order.getQuantities()) {
+                    writeItem(json, quantity.getProduct(), quantity.getQuantity());
+                }
+            } else {
+                // Строки с одним товаром в отгрузке уже сложены - пишем товар один раз
+                Set<Long> written = new HashSet<>();
+                for (WebOrderQuantities quantity : order.getQuantities()) {
+                    Long productId = quantity.getProduct().getId();
+                    Integer shipped = shipment.quantities().get(productId);
+                    if (shipped != null && written.add(productId)) {
+                        writeItem(json, quantity.getProduct(), shipped);
+                    }
+                }
+            }
+            json.writeEndArray();
+
+            // 3. Получатель
+            json.writeObjectFieldStart("recipient_info");
+            json.writeStringField("first_name", user.getFirstName());
+            json.writeStringField("last_name", user.getLastName());
+            json.writeStringField("email", user.getEmail());
+            json.writeStringField("phone", "+79161234567");
+            json.writeEndObject();
+
+            // 4. Биллинг
+            json.writeObjectFieldStart("billing_info");
+            json.writeStringField("payment_method", "already_paid");
+            json.writeEndObject();
+
+            // 5. Дополнительные настройки доставки
+            json.writeObjectFieldStart("client_requirements");
+            json.writeBooleanField("pro_courier", false);
+            json.writeStringField("taxi_class", "courier");
+            json.writeEndObject();
+
+            // 6. Аварийный контакт
+            json.writeObjectFieldStart("emergency_contact");
+            json.writeStringField("name", user.getFirstName() + " " + user.getLastName());
+            json.writeStringField("phone", "+79161234567");
+            json.writeEndObject();
+
+            // 7. Опциональный возврат
+            json.writeBooleanField("optional_return", false);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write delivery claim for order " + order.getId(), e);
+        }
+        String payload = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        if (buffer.size() > MAX_RETAINED_BUFFER) {
+            BUFFERS.remove();
+        }
+        return payload;
+    }
+
+    /**
+     * Объединяет заявки с одной точкой забора в одну заявку с несколькими
+     * точками доставки. Точка забора и настройки берутся из первой заявки,
+     * точки доставки и товары - из каждой по порядку.
+     * @param claims Тела заявок, собранные write.
+     * @param pointRefs Номер заказа для каждой заявки; пишется в external_order_id ее точки,
+     *                  по нему статус точки сопоставляется с заказом.
+     * @return JSON многоточечной заявки.
+     */
+    public String merge(List<String> claims, List<String> pointRefs) {
+        ObjectNode first = read(claims.get(0));
+        ObjectNode merged = OBJECT_MAPPER.createObjectNode();
+        merged.put("status", "new");
+        merged.put("comment", "Заказы из интернет-магазина");
+        JsonNode source = first.path("route_points").path(0);
+        ArrayNode routePoints = merged.putArray("route_points");
+        routePoints.add(source);
+        ArrayNode items = merged.putArray("items");
+        for (int i = 0; i < claims.size(); i++) {
+            ObjectNode claim = i == 0 ? first : read(claims.get(i));
+            int pointId = i + 2;
+            ObjectNode destination = (ObjectNode) claim.path("route_points").path(1);
+            destination.put("point_id", pointId);
+            destination.put("visit_order", pointId);
+            destination.put("external_order_id", pointRefs.get(i));
+            routePoints.add(destination);
+            for (JsonNode item : claim.path("items")) {
+                ((ObjectNode) item).put("droppof_point", pointId);
+                items.add(item);
+            }
+        }
+        // Получатели у каждой точки свои, поэтому recipient_info не передаем; аварийный контакт - склад
+        merged.set("billing_info", first.path("billing_info"));
+        merged.set("client_requirements", first.path("client_requirements"));
+        merged.set("emergency_contact", source.path("contact"));
+        merged.put("optional_return", false);
+        return merged.toString();
+    }
+
+    /**
+     * @return Общий вес товаров заявки в килограммах.
+     */
+    public static double cargoWeightKg(String claim) {
+        double weight = 0;
+        for (JsonNode item : read(claim).path("items")) {
+            weight += item.path("weight").asDouble() * item.path("quantity").asInt(1);
+        }
+        return weight;
+    }
+
+    private static ObjectNode read(String claim) {
+        try {
+            return (ObjectNode) OBJECT_MAPPER.readTree(claim);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read delivery claim", e);
+        }
+    }
+
+    private void writeDropoffPoint(JsonGenerator json, Address address, LocalUser user) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("point_id", 2);
+        json.writeNumberField("visit_order", 2);
+        json.writeStringField("type", "destination");
+        json.writeObjectFieldStart("contact");
+        json.writeStringField("name", user.getFirstName() + " " + user.getLastName());
+        json.writeStringField("phone", "+79161234567");
+        json.writeEndObject();
+
+        // Если адрес клиента не заполнен, используем тестовый адрес
+        String clientAddress = (address.getAddressLine() != null && !address.getAddressLine().isEmpty())
+                ? address.getAddressLine()
+                : "Москва, ул. Тверская, 15";
+        json.writeObjectFieldStart("address");
+        json.writeStringField("fullname", clientAddress);
+        // Координаты из геокодера; пока их нет, Яндекс определит точку по fullname
+        if (address.getLatitude() != null && address.getLongitude() != null) {
+            json.writeArrayFieldStart("coordinates");
+            json.writeNumber(address.getLongitude());
+            json.writeNumber(address.getLatitude());
+            json.writeEndArray();
+        }
+        json.writeEndObject();
+        json.writeBooleanField("skip_confirmation", false);
+        json.writeEndObject();
+    }
+
+    private void writeWarehousePoint(JsonGenerator json, Warehouse warehouse) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("point_id", 1);
+        json.writeNumberField("visit_order", 1);
+        json.writeStringField("type", "source");
+        if (warehouse.getPlatformId() != null) {
+            json.writeObjectFieldStart("platform_station");
+            json.writeStringField("platform_id", warehouse.getPlatformId());
+            json.writeEndObject();
+        }
+        json.writeObjectFieldStart("contact");
+        json.writeStringField("name", warehouse.getName());
+        json.writeStringField("phone", warehouse.getContactPhone());
+        json.writeEndObject();
+        json.writeObjectFieldStart("address");
+        json.writeStringField("fullname", warehouse.getAddress());
+        json.writeArrayFieldStart("coordinates");
+        json.writeNumber(warehouse.getLongitude());
+        json.writeNumber(warehouse.getLatitude());
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeBooleanField("skip_confirmation", false);
+        json.writeEndObject();
+    }
+
+    private void writeItem(JsonGenerator json, Product product, int quantity) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("pickup_point", 1);  // ID точки забора из route_points
+        json.writeNumberField("droppof_point", 2); // ID точки доставки из route_points
+        json.writeNumberField("quantity", quantity);
+        json.writeStringField("title", product.getName());
+        json.writeStringField("article", product.getId().toString());
+        json.writeStringField("cost_value", product.getPrice().toString());
+        json.writeStringField("cost_currency", "RUB");
+
+        // Габариты в метрах и вес в кг из числовых полей описания, иначе значения по умолчанию
+        Description description = product.getDescription();
+        json.writeObjectFieldStart("size");
+        if (description != null && description.getLengthCm() != null
+                && description.getWidthCm() != null && description.getHeightCm() != null) {
+            json.writeNumberField("length", description.getLengthCm() / 100.0);
+            json.writeNumberField("width", description.getWidthCm() / 100.0);
+            json.writeNumberField("height", description.getHeightCm() / 100.0);
+        } else {
+            json.writeNumberField("length", LogisticsAttributes.DEFAULT_LENGTH_CM / 100.0);
+            json.writeNumberField("width", LogisticsAttributes.DEFAULT_WIDTH_CM / 100.0);
+            json.writeNumberField("height", LogisticsAttributes.DEFAULT_HEIGHT_CM / 100.0);
+        }
+        json.writeEndObject();
+        json.writeNumberField("weight",
+                description != null && description.getWeightKg() != null
+                        ? description.getWeightKg() : LogisticsAttributes.DEFAULT_WEIGHT_KG);
+        json.writeEndObject();
+    }
+
+    private static String pickupPoint(YandexDeliveryConfig config) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeNumberField("point_id", 1);
+            json.writeNumberField("visit_order", 1);
+            json.writeStringField("type", "source");
+            json.writeObjectFieldStart("platform_station");
+            json.writeStringField("platform_id", config.getPlatform_id());
+            json.writeEndObject();
+            json.writeObjectFieldStart("contact");
+            json.writeStringField("name", "Склад магазина");
+            json.writeStringField("phone", "+79991234567");
+            json.writeEndObject();
+            json.writeObjectFieldStart("address");
+            json.writeStringField("fullname", "Москва, Ленинградский проспект, 1");
+            json.writeArrayFieldStart("coordinates");
+            json.writeNumber(WAREHOUSE_LONGITUDE);
+            json.writeNumber(WAREHOUSE_LATITUDE);
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeBooleanField("skip_confirmation", false);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write warehouse pickup point", e);
+        }
+        return writer.toString();
+    }
+}
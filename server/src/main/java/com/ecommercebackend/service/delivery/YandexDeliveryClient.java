@@ -0,0 +1,360 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.config.YandexDeliveryConfig;
+import com.ecommercebackend.model.Warehouse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * HTTP-клиент B2B API Яндекс Доставки.
+ * <p>
+ * Все вызовы неблокирующие (sendAsync) и проходят через две защиты: не
+ * больше maxInFlight запросов одновременно (лишние сразу отклоняются, а не
+ * ждут в очереди) и размыкатель цепи, который при всплеске ошибок и
+ * таймаутов перестает обращаться к API на openDuration. Так недоступность
+ * Яндекса не занимает потоки приложения, а вызывающий код сразу получает
+ * DeliveryUnavailableException и откладывает попытку.
+ */
+@Slf4j
+@Component
+public class YandexDeliveryClient {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    static final String CREATE_CLAIM = "claims/create";
+
+    static final String CHECK_PRICE = "check-price";
+
+    static final String CLAIMS_INFO = "claims/bulk_info";
+
+    private final YandexDeliveryConfig yandexDeliveryConfig;
+
+    private final HttpClient httpClient;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Semaphore bulkhead;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Duration createClaimTimeout;
+
+    private final Duration checkPriceTimeout;
+
+    private final Duration claimsInfoTimeout;
+
+    public YandexDeliveryClient(YandexDeliveryConfig yandexDeliveryConfig,
+                                HttpClient httpClient,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.delivery.client.max-in-flight:32}") int maxInFlight,
+                                @Value("${app.delivery.client.create-claim-timeout:PT10S}") Duration createClaimTimeout,
+                                @Value("${app.delivery.client.check-price-timeout:PT3S}") Duration checkPriceTimeout,
+                                @Value("${app.delivery.client.claims-info-timeout:PT5S}") Duration claimsInfoTimeout,
+                                @Value("${app.delivery.client.circuit.window-size:20}") int windowSize,
+                                @Value("${app.delivery.client.circuit.minimum-calls:10}") int minimumCalls,
+                                @Value("${app.delivery.client.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                @Value("${app.delivery.client.circuit.open-duration:PT30S}") Duration openDuration) {
+        this.yandexDeliveryConfig = yandexDeliveryConfig;
+        this.httpClient = httpClient;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(maxInFlight);
+        this.createClaimTimeout = createClaimTimeout;
+        this.checkPriceTimeout = checkPriceTimeout;
+        this.claimsInfoTimeout = claimsInfoTimeout;
+        Timer openTime = Timer.builder("delivery.client.circuit.open")
+                .description("Time the Yandex Delivery circuit spent open before closing again")
+                .register(meterRegistry);
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDuration,
+                System::nanoTime, duration -> {
+                    openTime.record(duration);
+                    log.info("Yandex Delivery circuit closed after {}s", duration.toSeconds());
+                });
+        Gauge.builder("delivery.client.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Yandex Delivery circuit state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge.builder("delivery.client.in_flight", bulkhead, semaphore -> maxInFlight - semaphore.availablePermits())
+                .description("Yandex Delivery requests in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Заявка и ее статус.
+     * @param points Точки доставки со своим статусом посещения; заполняются только ответом bulk_info.
+     */
+    public record Claim(String id, String status, List<Point> points) {
+
+        public Claim(String id, String status) {
+            this(id, status, List.of());
+        }
+    }
+
+    /**
+     * Точка доставки заявки.
+     * @param externalOrderId Номер заказа, переданный в точке при создании заявки.
+     * @param visitStatus Статус посещения точки курьером (pending, arrived, visited, skipped, ...).
+     */
+    public record Point(String externalOrderId, String visitStatus) {
+    }
+
+    /** Стоимость доставки. */
+    public record Price(BigDecimal amount, String currency) {
+    }
+
+    /** Ответ API с кодом ошибки; 4xx, кроме 409 и 429, повторять бессмысленно. */
+    public static class DeliveryApiException extends IOException {
+
+        private final int statusCode;
+
+        public DeliveryApiException(int statusCode, String body) {
+            super("Yandex API error: " + statusCode + ", body: " + body);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public boolean isRetryable() {
+            return statusCode >= 500 || statusCode == 409 || statusCode == 429;
+        }
+    }
+
+    /** Запрос не отправлен: цепь разомкнута или занят весь лимит одновременных запросов. */
+    public static class DeliveryUnavailableException extends IOException {
+
+        public DeliveryUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Создает заявку. request_id делает вызов идемпотентным: повтор с тем же
+     * requestId после таймаута не создаст вторую заявку.
+     * @return Future с заявкой; завершается с DeliveryApiException,
+     * DeliveryUnavailableException или другой IOException.
+     */
+    public CompletableFuture<Claim> createClaimAsync(String requestId, String requestBody) {
+        String url = yandexDeliveryConfig.getUrl() + "/b2b/cargo/integration/v2/claims/create?request_id="
+                + URLEncoder.encode(requestId, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Authorization", "Bearer " + yandexDeliveryConfig.getToken())
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Accept-Language", "ru") // Обязательный заголовок
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                .timeout(createClaimTimeout)
+                .build();
+
+        return send(CREATE_CLAIM, request, createClaimTimeout).thenApply(response -> {
+            log.debug("Yandex Delivery claims/create {} -> {}", requestId, response.statusCode());
+            JsonNode body = readJson(response.body());
+            return new Claim(body.path("id").asText(null), body.path("status").asText(null));
+        });
+    }
+
+    /**
+     * Предварительная стоимость доставки одного места со склада по адресу.
+     * @param source Склад отправления; null - основной склад.
+     * @param size Габариты места в сантиметрах.
+     * @param destination Адрес назначения в свободной форме.
+     */
+    public CompletableFuture<Price> checkPriceAsync(Warehouse source, LogisticsAttributes.Dimensions size,
+                                                    double weightKg, String destination) {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        ObjectNode item = body.putArray("items").addObject();
+        item.put("quantity", 1);
+        item.put("weight", weightKg);
+        ObjectNode itemSize = item.putObject("size");
+        itemSize.put("length", size.length() / 100.0);
+        itemSize.put("width", size.width() / 100.0);
+        itemSize.put("height", size.height() / 100.0);
+        ArrayNode routePoints = body.putArray("route_points");
+        ArrayNode origin = routePoints.addObject().putArray("coordinates");
+        if (source != null) {
+            origin.add(source.getLongitude()).add(source.getLatitude());
+        } else {
+            origin.add(YandexClaimWriter.WAREHOUSE_LONGITUDE).add(YandexClaimWriter.WAREHOUSE_LATITUDE);
+        }
+        routePoints.addObject().put("fullname", destination);
+        body.putObject("requirements").put("taxi_class", "courier");
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(yandexDeliveryConfig.getUrl() + "/b2b/cargo/integration/v2/check-price"))
+                .header("Authorization", "Bearer " + yandexDeliveryConfig.getToken())
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Accept-Language", "ru")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .timeout(checkPriceTimeout)
+                .build();
+
+        return send(CHECK_PRICE, request, checkPriceTimeout).thenApply(response -> {
+            JsonNode price = readJson(response.body());
+            return new Price(new BigDecimal(price.path("price").asText("0")),
+                    price.path("currency_rules").path("code").asText("RUB"));
+        });
+    }
+
+    /**
+     * Текущие статусы нескольких заявок одним запросом.
+     * @return Future со списком заявок; заявки, которых Яндекс не знает, в нем отсутствуют.
+     */
+    public CompletableFuture<List<Claim>> claimsInfoAsync(List<String> claimIds) {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        ArrayNode ids = body.putArray("claim_ids");
+        claimIds.forEach(ids::add);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(yandexDeliveryConfig.getUrl() + "/b2b/cargo/integration/v2/claims/bulk_info"))
+                .header("Authorization", "Bearer " + yandexDeliveryConfig.getToken())
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Accept-Language", "ru")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .timeout(claimsInfoTimeout)
+                .build();
+
+        return send(CLAIMS_INFO, request, claimsInfoTimeout).thenApply(response -> {
+            List<Claim> claims = new ArrayList<>(claimIds.size());
+            for (JsonNode claim : readJson(response.body()).path("claims")) {
+                List<Point> points = new ArrayList<>();
+                for (JsonNode point : claim.path("route_points")) {
+                    if ("destination".equals(point.path("type").asText())) {
+                        points.add(new Point(point.path("external_order_id").asText(null),
+                                point.path("visit_status").asText(null)));
+                    }
+                }
+                claims.add(new Claim(claim.path("id").asText(null), claim.path("status").asText(null), points));
+            }
+            return claims;
+        });
+    }
+
+    /**
+     * Блокирующая обертка над createClaimAsync.
+     */
+    public Claim createClaim(String requestId, String requestBody) throws IOException, InterruptedException {
+        return await(createClaimAsync(requestId, requestBody));
+    }
+
+    /**
+     * Дожидается результата вызова и возвращает его ошибку как IOException.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Yandex Delivery call failed", cause);
+        }
+    }
+
+    /**
+     * Отправляет запрос через лимит одновременных запросов и размыкатель цепи.
+     * Ответы 2xx возвращаются, остальные завершают future с DeliveryApiException.
+     * Для размыкателя ошибкой считаются 5xx, 429, таймауты и сетевые сбои;
+     * прочие 4xx говорят о самом запросе, а не о здоровье API.
+     */
+    private CompletableFuture<HttpResponse<String>> send(String endpoint, HttpRequest request, Duration timeout) {
+        if (!bulkhead.tryAcquire()) {
+            record(endpoint, "rejected_bulkhead", 0);
+            return CompletableFuture.failedFuture(
+                    new DeliveryUnavailableException("Too many Yandex Delivery requests in flight"));
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            record(endpoint, "rejected_circuit", 0);
+            return CompletableFuture.failedFuture(
+                    new DeliveryUnavailableException("Yandex Delivery circuit is open"));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> response;
+        try {
+            response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            circuitBreaker.onFailure();
+            record(endpoint, "error", System.nanoTime() - start);
+            return CompletableFuture.failedFuture(new IOException("Cannot send Yandex Delivery request", e));
+        }
+        // Таймаут запроса в HttpClient не покрывает чтение тела, поэтому ограничиваем весь обмен
+        return response
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((result, error) -> {
+                    bulkhead.release();
+                    long elapsed = System.nanoTime() - start;
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        boolean timedOut = cause instanceof HttpTimeoutException || cause instanceof TimeoutException;
+                        circuitBreaker.onFailure();
+                        record(endpoint, timedOut ? "timeout" : "error", elapsed);
+                        throw new CompletionException(cause instanceof IOException io ? io
+                                : new IOException("Yandex Delivery " + endpoint + " failed", cause));
+                    }
+                    int status = result.statusCode();
+                    if (status >= 500 || status == 429) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onSuccess();
+                    }
+                    if (status < 200 || status >= 300) {
+                        record(endpoint, status >= 500 ? "server_error" : "client_error", elapsed);
+                        throw new CompletionException(new DeliveryApiException(status, result.body()));
+                    }
+                    record(endpoint, "success", elapsed);
+                    return result;
+                });
+    }
+
+    private void record(String endpoint, String outcome, long nanos) {
+        Timer.builder("delivery.client.requests")
+                .description("Yandex Delivery API calls")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static JsonNode readJson(String body) {
+        try {
+            return OBJECT_MAPPER.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ecommercebackend.service.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when a user creates or edits an address, so that its
+ * coordinates can be resolved in the background.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AddressSavedEvent {
+
+    private final Long addressId;
+}
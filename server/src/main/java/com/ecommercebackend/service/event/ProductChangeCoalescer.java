@@ -0,0 +1,84 @@
+package com.ecommercebackend.service.event;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Coalesces product ids from concurrent ProductChangedEvents into batches for
+ * one read model. A caller that finds the read model idle drains every pending
+ * id: it reads a batch with one query and then applies it. A caller that finds
+ * another one draining leaves its ids behind and returns at once, so committed
+ * transactions never queue up behind each other in after-commit listeners.
+ * <p>
+ * Each batch is read in a new read-only transaction. The writer's persistence
+ * context is still bound after commit and could hand back its own, possibly
+ * stale, entities. An id is taken off the pending set before its batch is
+ * read, and a change committed after that adds it again, so the last applied
+ * state of a product is never older than its last commit.
+ *
+ * @param <T> What a batch is read into, detached from the persistence context.
+ */
+public class ProductChangeCoalescer<T> {
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private final ReentrantLock draining = new ReentrantLock();
+
+    private final TransactionTemplate readTransaction;
+
+    private final Function<Set<Long>, T> read;
+
+    private final BiConsumer<Set<Long>, T> apply;
+
+    /**
+     * @param read Loads the batch; runs inside the read-only transaction.
+     * @param apply Applies the loaded batch; runs after that transaction has ended.
+     */
+    public ProductChangeCoalescer(PlatformTransactionManager transactionManager,
+                                  Function<Set<Long>, T> read, BiConsumer<Set<Long>, T> apply) {
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.read = read;
+        this.apply = apply;
+    }
+
+    public void submit(Collection<Long> productIds) {
+        pending.addAll(productIds);
+        // Re-checked after unlocking: ids added between the last take and the
+        // unlock were left by callers that failed tryLock and would be lost
+        while (!pending.isEmpty() && draining.tryLock()) {
+            try {
+                for (Set<Long> batch = takePending(); !batch.isEmpty(); batch = takePending()) {
+                    drain(batch);
+                }
+            } finally {
+                draining.unlock();
+            }
+        }
+    }
+
+    private void drain(Set<Long> batch) {
+        T loaded = readTransaction.execute(status -> read.apply(batch));
+        apply.accept(batch, loaded);
+    }
+
+    private Set<Long> takePending() {
+        Set<Long> batch = new HashSet<>();
+        for (Iterator<Long> it = pending.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+        }
+        return batch;
+    }
+}
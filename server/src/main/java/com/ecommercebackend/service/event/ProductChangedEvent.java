@@ -0,0 +1,37 @@
+package com.ecommercebackend.service.event;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by every write path that changes a product, its inventory or
+ * its description, so that derived read models can be refreshed. Bulk
+ * writers such as order reservations publish one event for all of their
+ * products rather than one per product.
+ */
+@Getter
+public class ProductChangedEvent {
+
+    private final List<Long> productIds;
+
+    private final ChangeType changeType;
+
+    public ProductChangedEvent(Long productId, ChangeType changeType) {
+        this(List.of(productId), changeType);
+    }
+
+    public ProductChangedEvent(Collection<Long> productIds, ChangeType changeType) {
+        this.productIds = List.copyOf(productIds);
+        this.changeType = changeType;
+    }
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+        RESTORED,
+        REMOVED
+    }
+}
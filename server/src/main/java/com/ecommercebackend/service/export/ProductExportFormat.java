@@ -0,0 +1,192 @@
+package com.ecommercebackend.service.export;
+
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.Inventory;
+import com.ecommercebackend.model.Product;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Форматы выгрузки каталога. Каждая строка выгрузки - товар вместе с остатком
+ * и техническим описанием; набор колонок общий для всех форматов.
+ */
+@Getter
+@AllArgsConstructor
+public enum ProductExportFormat {
+    NDJSON("ndjson", "application/x-ndjson", "ndjson"),
+    CSV("csv", "text/csv", "csv");
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private final String value;
+
+    private final String mediaType;
+
+    private final String extension;
+
+    /** Колонка выгрузки: имя и способ получить значение из товара. */
+    record Column(String name, Function<Product, Object> value) {
+    }
+
+    static final List<Column> COLUMNS = List.of(
+            new Column("id", Product::getId),
+            new Column("name", Product::getName),
+            new Column("shortDescription", Product::getShortDescription),
+            new Column("longDescription", Product::getLongDescription),
+            new Column("price", Product::getPrice),
+            new Column("raiting", Product::getRaiting),
+            new Column("image", Product::getImage),
+            new Column("quantity", p -> inventory(p, Inventory::getQuantity)),
+            new Column("model", p -> description(p, Description::getModel)),
+            new Column("articleSku", p -> description(p, Description::getArticleSku)),
+            new Column("dimensions", p -> description(p, Description::getDimensions)),
+            new Column("weight", p -> description(p, Description::getWeight)),
+            new Column("colorFinish", p -> description(p, Description::getColorFinish)),
+            new Column("powerConsumption", p -> description(p, Description::getPowerConsumption)),
+            new Column("capacity", p -> description(p, Description::getCapacity)),
+            new Column("materials", p -> description(p, Description::getMaterials)),
+            new Column("warranty", p -> description(p, Description::getWarranty)),
+            new Column("countryOfOrigin", p -> description(p, Description::getCountryOfOrigin))
+    );
+
+    public static ProductExportFormat fromValue(String value) {
+        for (ProductExportFormat format : values()) {
+            if (format.value.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format: " + value);
+    }
+
+    /**
+     * Открывает писатель строк поверх потока ответа. Закрытие писателя
+     * сбрасывает буфер, но не закрывает сам поток.
+     */
+    public RowWriter open(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return switch (this) {
+            case NDJSON -> new NdjsonRowWriter(writer);
+            case CSV -> new CsvRowWriter(writer);
+        };
+    }
+
+    /** Последовательная запись товаров в выгрузку. */
+    public interface RowWriter extends AutoCloseable {
+
+        void write(Product product) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.generator = JSON_FACTORY.createGenerator(writer);
+        }
+
+        @Override
+        public void write(Product product) throws IOException {
+            generator.writeStartObject();
+            for (Column column : COLUMNS) {
+                Object value = column.value().apply(product);
+                if (value instanceof Number number) {
+                    generator.writeFieldName(column.name());
+                    if (number instanceof Double d) {
+                        generator.writeNumber(d);
+                    } else {
+                        generator.writeNumber(number.longValue());
+                    }
+                } else {
+                    generator.writeStringField(column.name(), value != null ? value.toString() : null);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+            writer.flush();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(COLUMNS.get(i).name());
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(Product product) throws IOException {
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = COLUMNS.get(i).value().apply(product);
+                if (value != null) {
+                    writeField(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        /** RFC 4180: поле в кавычках, если в нем есть разделитель, кавычка или перевод строки. */
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static <T> T inventory(Product product, Function<Inventory, T> getter) {
+        return product.getInventory() != null ? getter.apply(product.getInventory()) : null;
+    }
+
+    private static <T> T description(Product product, Function<Description, T> getter) {
+        return product.getDescription() != null ? getter.apply(product.getDescription()) : null;
+    }
+}
@@ -0,0 +1,296 @@
+package com.ecommercebackend.service.facet;
+
+import com.ecommercebackend.model.enums.ProductSortOrder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory facet index: one bitmap per facet value over dense document
+ * numbers. A query ANDs the bitmaps of the selected values (OR within a
+ * facet) and every facet count is the cardinality of one more AND, so
+ * counts never need a GROUP BY over the catalog.
+ * <p>
+ * Counts of a facet ignore the selection in that same facet, as storefront
+ * multi-select filters expect: choosing one country still shows how many
+ * products the other countries have.
+ */
+public class ProductFacetIndex {
+
+    public static final String PRICE = "price";
+    public static final String RAITING = "raiting";
+    public static final String COUNTRY = "country";
+    public static final String COLOR = "color";
+    public static final String IN_STOCK = "inStock";
+
+    /** Price bucket bounds; a bucket holds lower <= price < upper, the last one is open. */
+    private static final double[] PRICE_BOUNDS = {0, 1_000, 5_000, 10_000, 50_000, 100_000};
+
+    /** "Raiting N and above" thresholds. */
+    private static final int[] RAITING_THRESHOLDS = {1, 2, 3, 4};
+
+    /** Facet values of one product. */
+    public record Document(long productId, double price, double raiting, String country, String color, boolean inStock) {
+    }
+
+    /** Selected values per facet; an empty set means the facet is not filtered. */
+    public record Query(Set<String> prices, Integer minRaiting, Set<String> countries, Set<String> colors, Boolean inStock) {
+    }
+
+    /** A facet value with the number of products it would match. */
+    public record FacetCount(String value, long count) {
+    }
+
+    /** Ids of one page of matches, the total and the counts of every facet. */
+    public record Result(List<Long> ids, int total, Map<String, List<FacetCount>> facets) {
+    }
+
+    private final List<Document> documents = new ArrayList<>();
+
+    private final Map<Long, Integer> docByProduct = new HashMap<>();
+
+    private final Deque<Integer> freeDocs = new ArrayDeque<>();
+
+    private final BitSet live = new BitSet();
+
+    private final Map<String, BitSet> priceBuckets = new LinkedHashMap<>();
+
+    private final Map<Integer, BitSet> raitingAtLeast = new LinkedHashMap<>();
+
+    /** Normalized value -> bitmap; TreeMap keeps facet values alphabetical. */
+    private final Map<String, BitSet> countries = new TreeMap<>();
+
+    private final Map<String, BitSet> colors = new TreeMap<>();
+
+    /** Normalized value -> value as first seen, for display. */
+    private final Map<String, String> labels = new HashMap<>();
+
+    private final BitSet inStock = new BitSet();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProductFacetIndex() {
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            priceBuckets.put(priceBucket(i), new BitSet());
+        }
+        for (int threshold : RAITING_THRESHOLDS) {
+            raitingAtLeast.put(threshold, new BitSet());
+        }
+    }
+
+    public void put(Document document) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(document.productId());
+            int doc = freeDocs.isEmpty() ? documents.size() : freeDocs.pop();
+            if (doc == documents.size()) {
+                documents.add(document);
+            } else {
+                documents.set(doc, document);
+            }
+            docByProduct.put(document.productId(), doc);
+            live.set(doc);
+            priceBuckets.get(priceBucketOf(document.price())).set(doc);
+            for (int threshold : RAITING_THRESHOLDS) {
+                if (document.raiting() >= threshold) {
+                    raitingAtLeast.get(threshold).set(doc);
+                }
+            }
+            setValue(countries, document.country(), doc);
+            setValue(colors, document.color(), doc);
+            inStock.set(doc, document.inStock());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Result query(Query query, ProductSortOrder sortOrder, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet byPrice = union(priceBuckets, query.prices(), false);
+            BitSet byRaiting = query.minRaiting() != null ? raitingAtLeast.get(query.minRaiting()) : null;
+            BitSet byCountry = union(countries, query.countries(), true);
+            BitSet byColor = union(colors, query.colors(), true);
+            BitSet byStock = Boolean.TRUE.equals(query.inStock()) ? inStock : null;
+
+            Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+            facets.put(PRICE, counts(priceBuckets, false, matching(null, byRaiting, byCountry, byColor, byStock)));
+            facets.put(RAITING, raitingCounts(matching(byPrice, null, byCountry, byColor, byStock)));
+            facets.put(COUNTRY, counts(countries, true, matching(byPrice, byRaiting, null, byColor, byStock)));
+            facets.put(COLOR, counts(colors, true, matching(byPrice, byRaiting, byCountry, null, byStock)));
+            BitSet stockBase = matching(byPrice, byRaiting, byCountry, byColor, null);
+            stockBase.and(inStock);
+            facets.put(IN_STOCK, List.of(new FacetCount("true", stockBase.cardinality())));
+
+            BitSet matches = matching(byPrice, byRaiting, byCountry, byColor, byStock);
+            return new Result(page(matches, sortOrder, offset, limit), matches.cardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Live documents passing every given filter; null means "not filtered". */
+    private BitSet matching(BitSet... filters) {
+        BitSet result = (BitSet) live.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private BitSet union(Map<String, BitSet> values, Set<String> selected, boolean normalize) {
+        if (selected == null || selected.isEmpty()) {
+            return null;
+        }
+        BitSet union = new BitSet();
+        for (String value : selected) {
+            BitSet bitmap = values.get(normalize ? normalize(value) : value);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private List<FacetCount> counts(Map<String, BitSet> values, boolean labelled, BitSet base) {
+        List<FacetCount> counts = new ArrayList<>(values.size());
+        for (Map.Entry<String, BitSet> entry : values.entrySet()) {
+            BitSet bitmap = (BitSet) base.clone();
+            bitmap.and(entry.getValue());
+            counts.add(new FacetCount(labelled ? labels.get(entry.getKey()) : entry.getKey(), bitmap.cardinality()));
+        }
+        return counts;
+    }
+
+    private List<FacetCount> raitingCounts(BitSet base) {
+        List<FacetCount> counts = new ArrayList<>(raitingAtLeast.size());
+        for (Map.Entry<Integer, BitSet> entry : raitingAtLeast.entrySet()) {
+            BitSet bitmap = (BitSet) base.clone();
+            bitmap.and(entry.getValue());
+            counts.add(new FacetCount(String.valueOf(entry.getKey()), bitmap.cardinality()));
+        }
+        return counts;
+    }
+
+    /** Top offset + limit matches through a bounded heap, then the requested slice. */
+    private List<Long> page(BitSet matches, ProductSortOrder sortOrder, int offset, int limit) {
+        Comparator<Document> order = switch (sortOrder) {
+            case ID -> Comparator.comparingLong(Document::productId);
+            case PRICE -> Comparator.comparingDouble(Document::price).thenComparingLong(Document::productId);
+            case RAITING -> Comparator.comparingDouble(Document::raiting).reversed()
+                    .thenComparing(Comparator.comparingLong(Document::productId).reversed());
+        };
+        int wanted = offset + limit;
+        PriorityQueue<Document> top = new PriorityQueue<>(Math.max(1, Math.min(wanted, 1024)), order.reversed());
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            Document document = documents.get(doc);
+            if (top.size() < wanted) {
+                top.add(document);
+            } else if (order.compare(document, top.peek()) < 0) {
+                top.poll();
+                top.add(document);
+            }
+        }
+        List<Document> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        List<Long> ids = new ArrayList<>(limit);
+        for (int i = offset; i < sorted.size(); i++) {
+            ids.add(sorted.get(i).productId());
+        }
+        return ids;
+    }
+
+    private void removeUnlocked(long productId) {
+        Integer doc = docByProduct.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        Document document = documents.get(doc);
+        documents.set(doc, null);
+        live.clear(doc);
+        priceBuckets.get(priceBucketOf(document.price())).clear(doc);
+        raitingAtLeast.values().forEach(bitmap -> bitmap.clear(doc));
+        clearValue(countries, document.country(), doc);
+        clearValue(colors, document.color(), doc);
+        inStock.clear(doc);
+        freeDocs.push(doc);
+    }
+
+    private void setValue(Map<String, BitSet> values, String value, int doc) {
+        String key = normalize(value);
+        if (key == null) {
+            return;
+        }
+        values.computeIfAbsent(key, k -> new BitSet()).set(doc);
+        labels.putIfAbsent(key, value.trim());
+    }
+
+    private void clearValue(Map<String, BitSet> values, String value, int doc) {
+        String key = normalize(value);
+        if (key == null) {
+            return;
+        }
+        BitSet bitmap = values.get(key);
+        bitmap.clear(doc);
+        if (bitmap.isEmpty()) {
+            values.remove(key);
+            if (!countries.containsKey(key) && !colors.containsKey(key)) {
+                labels.remove(key);
+            }
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String priceBucketOf(double price) {
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[bucket + 1]) {
+            bucket++;
+        }
+        return priceBucket(bucket);
+    }
+
+    /** Bucket key, e.g. "1000-5000" or "100000+" for the last one. */
+    private static String priceBucket(int bucket) {
+        long lower = (long) PRICE_BOUNDS[bucket];
+        return bucket + 1 < PRICE_BOUNDS.length ? lower + "-" + (long) PRICE_BOUNDS[bucket + 1] : lower + "+";
+    }
+}
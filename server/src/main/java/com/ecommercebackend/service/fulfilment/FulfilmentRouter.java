@@ -0,0 +1,107 @@
+package com.ecommercebackend.service.fulfilment;
+
+import com.ecommercebackend.model.Warehouse;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Выбирает склады отгрузки заказа. Работает только с памятью: индексом
+ * складов и уже загруженными остатками, без обращений к базе.
+ * <p>
+ * Склады перебираются от ближайшего к адресу; склады без нужных товаров
+ * пропускаются. Если среди первых candidates складов с товарами есть
+ * склад, где есть весь заказ, заказ целиком едет с ближайшего такого.
+ * Иначе заказ делится: каждый склад по порядку удаленности отдает то, что
+ * у него есть из еще не распределенного. Что не нашлось ни на одном
+ * складе, отгружается с основного склада (Shipment без склада).
+ */
+public final class FulfilmentRouter {
+
+    private FulfilmentRouter() {
+    }
+
+    /**
+     * @param requested Количество по ID товара.
+     * @param stock Остатки по ID склада, затем по ID товара; только положительные.
+     * @param candidates Сколько ближайших складов с товарами проверить на наличие всего заказа.
+     * @return Отгрузки; основной склад, если он нужен, последним.
+     */
+    public static List<Shipment> route(WarehouseIndex index, double latitude, double longitude,
+                                       Map<Long, Integer> requested, Map<Long, Map<Long, Integer>> stock,
+                                       int candidates) {
+        if (stock.isEmpty() || index.size() == 0) {
+            return List.of(new Shipment(null, new TreeMap<>(requested)));
+        }
+        WarehouseIndex.Cursor cursor = index.nearest(latitude, longitude);
+        List<Warehouse> partial = new ArrayList<>(candidates);
+        Warehouse warehouse;
+        while (partial.size() < candidates && (warehouse = cursor.next()) != null) {
+            Map<Long, Integer> levels = stock.get(warehouse.getId());
+            if (levels == null) {
+                continue;
+            }
+            if (covers(levels, requested)) {
+                return List.of(new Shipment(warehouse, new TreeMap<>(requested)));
+            }
+            partial.add(warehouse);
+        }
+
+        Map<Long, Integer> remaining = new TreeMap<>(requested);
+        List<Shipment> shipments = new ArrayList<>();
+        for (Warehouse candidate : partial) {
+            take(candidate, stock.get(candidate.getId()), remaining, shipments);
+            if (remaining.isEmpty()) {
+                return shipments;
+            }
+        }
+        while (!remaining.isEmpty() && (warehouse = cursor.next()) != null) {
+            Map<Long, Integer> levels = stock.get(warehouse.getId());
+            if (levels != null) {
+                take(warehouse, levels, remaining, shipments);
+            }
+        }
+        if (!remaining.isEmpty()) {
+            shipments.add(new Shipment(null, remaining));
+        }
+        return shipments;
+    }
+
+    private static boolean covers(Map<Long, Integer> levels, Map<Long, Integer> requested) {
+        for (Map.Entry<Long, Integer> line : requested.entrySet()) {
+            if (levels.getOrDefault(line.getKey(), 0) < line.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void take(Warehouse warehouse, Map<Long, Integer> levels, Map<Long, Integer> remaining,
+                             List<Shipment> shipments) {
+        Map<Long, Integer> taken = null;
+        Iterator<Map.Entry<Long, Integer>> lines = remaining.entrySet().iterator();
+        while (lines.hasNext()) {
+            Map.Entry<Long, Integer> line = lines.next();
+            int available = levels.getOrDefault(line.getKey(), 0);
+            if (available <= 0) {
+                continue;
+            }
+            int quantity = Math.min(available, line.getValue());
+            if (taken == null) {
+                taken = new TreeMap<>();
+            }
+            taken.put(line.getKey(), quantity);
+            if (quantity == line.getValue()) {
+                lines.remove();
+            } else {
+                line.setValue(line.getValue() - quantity);
+            }
+        }
+        if (taken != null) {
+            shipments.add(new Shipment(warehouse, taken));
+        }
+    }
+}
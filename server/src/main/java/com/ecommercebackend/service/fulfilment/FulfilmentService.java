@@ -0,0 +1,283 @@
+package com.ecommercebackend.service.fulfilment;
+
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.OrderAllocation;
+import com.ecommercebackend.model.Warehouse;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.dao.OrderAllocationDAO;
+import com.ecommercebackend.model.dao.WarehouseDAO;
+import com.ecommercebackend.service.delivery.YandexClaimWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Распределяет заказы по складам.
+ * <p>
+ * inventory.quantity остается общим остатком, который резервирует
+ * InventoryReservationService; warehouse_stock говорит, на каких складах
+ * этот остаток лежит. После резерва остатки складов по товарам заказа
+ * читаются одним запросом, FulfilmentRouter выбирает склады по индексу в
+ * памяти, а выбранное списывается условными UPDATE, как и сам резерв. Если
+ * другой заказ успел забрать остаток склада, распределение повторяется.
+ * Индекс складов перестраивается из базы раз в refresh-interval.
+ * <p>
+ * Товары распродажи списываются со счетчиков без блокировки строк, поэтому
+ * и строки warehouse_stock под них заказ не трогает: распределение
+ * сохраняется с пометкой stock_pending, а со складов его списывает
+ * FlashSaleService.writeBack вместе с inventory. До этого такие
+ * распределения вычитаются из остатков складов при маршрутизации.
+ */
+@Slf4j
+@Service
+public class FulfilmentService {
+
+    private static final String TAKE_SQL =
+            "UPDATE warehouse_stock SET quantity = quantity - ? "
+                    + "WHERE warehouse_id = ? AND product_id = ? AND quantity >= ?";
+
+    private static final String RETURN_SQL =
+            "UPDATE warehouse_stock SET quantity = quantity + ? WHERE warehouse_id = ? AND product_id = ?";
+
+    private static final String ALLOCATIONS_SQL =
+            "SELECT warehouse_id, product_id, quantity FROM order_allocation "
+                    + "WHERE order_id = ? AND warehouse_id IS NOT NULL AND stock_pending = false";
+
+    private static final String APPLY_PENDING_SQL =
+            "UPDATE warehouse_stock SET quantity = GREATEST(quantity - ?, 0) WHERE warehouse_id = ? AND product_id = ?";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final WarehouseDAO warehouseDAO;
+
+    private final OrderAllocationDAO allocationDAO;
+
+    private final int candidates;
+
+    private volatile WarehouseIndex index = new WarehouseIndex(List.of());
+
+    public FulfilmentService(JdbcTemplate jdbcTemplate,
+                             WarehouseDAO warehouseDAO,
+                             OrderAllocationDAO allocationDAO,
+                             @Value("${app.fulfilment.candidates:16}") int candidates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.warehouseDAO = warehouseDAO;
+        this.allocationDAO = allocationDAO;
+        this.candidates = candidates;
+    }
+
+    @Scheduled(fixedDelayString = "${app.fulfilment.refresh-interval:PT5M}")
+    public void refreshIndex() {
+        WarehouseIndex refreshed = new WarehouseIndex(warehouseDAO.findByActiveTrue());
+        if (refreshed.size() != index.size()) {
+            log.info("Warehouse index holds {} warehouses", refreshed.size());
+        }
+        index = refreshed;
+    }
+
+    /**
+     * Выбирает склады для зарезервированного заказа и списывает их остатки.
+     * Адрес без координат считается расположенным у основного склада.
+     * @param requested Количество по ID товара.
+     * @param pendingProductIds Товары, взятые из счетчиков распродажи: их остатки складов спишет writeBack.
+     * @return Отгрузки заказа, по одной заявке на каждую.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Shipment> allocate(WebOrder order, Map<Long, Integer> requested, Set<Long> pendingProductIds) {
+        WarehouseIndex current = index;
+        if (current.size() == 0 || requested.isEmpty()) {
+            return List.of(new Shipment(null, new TreeMap<>(requested)));
+        }
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            List<Shipment> shipments = route(current, order.getAddress(), requested);
+            if (take(shipments, pendingProductIds)) {
+                saveAllocations(order, shipments, pendingProductIds);
+                return shipments;
+            }
+            log.debug("Warehouse stock for order {} changed while routing (attempt {})", order.getId(), attempt);
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Warehouse stock changed, please retry the order");
+    }
+
+    /**
+     * Склад, с которого уйдет корзина на адрес, по тем же правилам, что и
+     * allocate, но без списания остатков: для предварительного расчета
+     * доставки. Если корзина делится, это ближайший к адресу склад маршрута.
+     * @param requested Количество по ID товара.
+     * @return null, если корзина уйдет с основного склада.
+     */
+    @Transactional(readOnly = true)
+    public Warehouse sourceWarehouse(Address address, Map<Long, Integer> requested) {
+        WarehouseIndex current = index;
+        if (current.size() == 0 || requested.isEmpty()) {
+            return null;
+        }
+        return route(current, address, requested).get(0).warehouse();
+    }
+
+    /**
+     * Возвращает на склады все, что было под них списано для заказа.
+     * Вызывается в транзакции, которая снимает резерв заказа.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long orderId) {
+        List<Object[]> batch = new ArrayList<>();
+        jdbcTemplate.query(ALLOCATIONS_SQL, rs -> {
+            batch.add(new Object[]{rs.getInt("quantity"), rs.getLong("warehouse_id"), rs.getLong("product_id")});
+        }, orderId);
+        if (!batch.isEmpty()) {
+            sort(batch);
+            jdbcTemplate.batchUpdate(RETURN_SQL, batch);
+        }
+        jdbcTemplate.update("DELETE FROM order_allocation WHERE order_id = ?", orderId);
+    }
+
+    /**
+     * Списывает с остатков складов распределения строк распродажи, которые
+     * FlashSaleService.writeBack в той же транзакции списывает с inventory.
+     * Строки обновляются в порядке (склад, товар), как и в take.
+     * @param productsByOrder ID товаров списываемых строк по ID заказа.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyPending(Map<Long, Set<Long>> productsByOrder) {
+        if (productsByOrder.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(",", Collections.nCopies(productsByOrder.size(), "?"));
+        Map<List<Long>, Integer> byStock = new HashMap<>();
+        List<Object[]> cleared = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, order_id, warehouse_id, product_id, quantity FROM order_allocation "
+                + "WHERE stock_pending = true AND order_id IN (" + placeholders + ")", rs -> {
+            Long productId = rs.getLong("product_id");
+            if (productsByOrder.get(rs.getLong("order_id")).contains(productId)) {
+                byStock.merge(List.of(rs.getLong("warehouse_id"), productId), rs.getInt("quantity"), Integer::sum);
+                cleared.add(new Object[]{rs.getLong("id")});
+            }
+        }, productsByOrder.keySet().toArray());
+        if (cleared.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(byStock.size());
+        byStock.forEach((key, quantity) -> batch.add(new Object[]{quantity, key.get(0), key.get(1)}));
+        sort(batch);
+        jdbcTemplate.batchUpdate(APPLY_PENDING_SQL, batch);
+        jdbcTemplate.batchUpdate("UPDATE order_allocation SET stock_pending = false WHERE id = ?", cleared);
+    }
+
+    /**
+     * @return Положительные остатки по ID склада, затем по ID товара, за вычетом
+     * еще не списанных распределений распродажи.
+     */
+    /** Адрес без координат считается расположенным у основного склада. */
+    private List<Shipment> route(WarehouseIndex current, Address address, Map<Long, Integer> requested) {
+        boolean located = address.getLatitude() != null && address.getLongitude() != null;
+        double latitude = located ? address.getLatitude() : YandexClaimWriter.WAREHOUSE_LATITUDE;
+        double longitude = located ? address.getLongitude() : YandexClaimWriter.WAREHOUSE_LONGITUDE;
+        return FulfilmentRouter.route(current, latitude, longitude, requested,
+                loadStock(requested.keySet()), candidates);
+    }
+
+    private Map<Long, Map<Long, Integer>> loadStock(Set<Long> productIds) {
+        Map<Long, Map<Long, Integer>> stock = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        Object[] args = new Object[productIds.size() * 2];
+        int i = 0;
+        for (int copy = 0; copy < 2; copy++) {
+            for (Long productId : productIds) {
+                args[i++] = productId;
+            }
+        }
+        jdbcTemplate.query("SELECT s.warehouse_id, s.product_id, s.quantity - COALESCE(p.quantity, 0) AS quantity "
+                + "FROM warehouse_stock s LEFT JOIN ("
+                + "SELECT warehouse_id, product_id, SUM(quantity) AS quantity FROM order_allocation "
+                + "WHERE stock_pending = true AND product_id IN (" + placeholders + ") "
+                + "GROUP BY warehouse_id, product_id) p "
+                + "ON p.warehouse_id = s.warehouse_id AND p.product_id = s.product_id "
+                + "WHERE s.product_id IN (" + placeholders + ")", rs -> {
+            int quantity = rs.getInt("quantity");
+            if (quantity > 0) {
+                stock.computeIfAbsent(rs.getLong("warehouse_id"), id -> new HashMap<>())
+                        .put(rs.getLong("product_id"), quantity);
+            }
+        }, args);
+        return stock;
+    }
+
+    /**
+     * Списывает остатки складов под отгрузки: все или ничего. Строки
+     * обновляются в порядке (склад, товар), чтобы заказы не взаимоблокировались.
+     * Товары распродажи пропускаются - их спишет writeBack.
+     */
+    private boolean take(List<Shipment> shipments, Set<Long> pendingProductIds) {
+        List<Object[]> batch = new ArrayList<>();
+        for (Shipment shipment : shipments) {
+            if (shipment.warehouse() == null) {
+                continue;
+            }
+            shipment.quantities().forEach((productId, quantity) -> {
+                if (!pendingProductIds.contains(productId)) {
+                    batch.add(new Object[]{quantity, shipment.warehouse().getId(), productId, quantity});
+                }
+            });
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+        sort(batch);
+        int[] updated = jdbcTemplate.batchUpdate(TAKE_SQL, batch);
+        List<Object[]> taken = new ArrayList<>(batch.size());
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0) {
+                taken.add(new Object[]{batch.get(i)[0], batch.get(i)[1], batch.get(i)[2]});
+            }
+        }
+        if (taken.size() == batch.size()) {
+            return true;
+        }
+        if (!taken.isEmpty()) {
+            jdbcTemplate.batchUpdate(RETURN_SQL, taken);
+        }
+        return false;
+    }
+
+    private void saveAllocations(WebOrder order, List<Shipment> shipments, Set<Long> pendingProductIds) {
+        List<OrderAllocation> allocations = new ArrayList<>();
+        for (Shipment shipment : shipments) {
+            shipment.quantities().forEach((productId, quantity) -> {
+                OrderAllocation allocation = new OrderAllocation();
+                allocation.setOrder(order);
+                allocation.setWarehouse(shipment.warehouse() == null ? null
+                        : warehouseDAO.getReferenceById(shipment.warehouse().getId()));
+                allocation.setProductId(productId);
+                allocation.setQuantity(quantity);
+                allocation.setStockPending(shipment.warehouse() != null && pendingProductIds.contains(productId));
+                allocations.add(allocation);
+            });
+        }
+        allocationDAO.saveAll(allocations);
+    }
+
+    /** Сортирует строки батча [количество, склад, товар, ...] по складу и товару. */
+    private static void sort(List<Object[]> batch) {
+        batch.sort((a, b) -> {
+            int byWarehouse = Long.compare((Long) a[1], (Long) b[1]);
+            return byWarehouse != 0 ? byWarehouse : Long.compare((Long) a[2], (Long) b[2]);
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.ecommercebackend.service.fulfilment;
+
+import com.ecommercebackend.model.Warehouse;
+
+import java.util.Map;
+
+/**
+ * Часть заказа, которая отгружается с одного склада одной заявкой.
+ * @param warehouse Склад или null - основной склад из настроек доставки.
+ * @param quantities Количество по ID товара.
+ */
+public record Shipment(Warehouse warehouse, Map<Long, Integer> quantities) {
+}
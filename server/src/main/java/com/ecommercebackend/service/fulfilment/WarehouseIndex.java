@@ -0,0 +1,227 @@
+package com.ecommercebackend.service.fulfilment;
+
+import com.ecommercebackend.model.Warehouse;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Неизменяемый пространственный индекс складов для поиска ближайших к точке.
+ * <p>
+ * Склады хранятся как точки на единичной сфере (x, y, z) в неявном k-d
+ * дереве: отрезок массива делится медианой по очередной оси, медиана -
+ * узел, половины - поддеревья. Евклидово расстояние между точками сферы
+ * (хорда) монотонно по расстоянию по поверхности, поэтому порядок
+ * ближайших точный, без искажений долготы у полюсов и у 180-го меридиана.
+ * <p>
+ * Cursor перебирает склады от ближайшего к дальнему лениво (best-first
+ * обход с очередью по нижней границе расстояния), так что найти несколько
+ * ближайших стоит O(log n) операций на склад, а не сортировки всех складов.
+ */
+public final class WarehouseIndex {
+
+    private final Warehouse[] warehouses;
+
+    // x, y, z складов подряд, в порядке дерева
+    private final double[] points;
+
+    public WarehouseIndex(List<Warehouse> warehouses) {
+        this.warehouses = warehouses.toArray(new Warehouse[0]);
+        this.points = new double[this.warehouses.length * 3];
+        for (int i = 0; i < this.warehouses.length; i++) {
+            toPoint(this.warehouses[i].getLatitude(), this.warehouses[i].getLongitude(), points, i * 3);
+        }
+        build(0, this.warehouses.length, 0);
+    }
+
+    public int size() {
+        return warehouses.length;
+    }
+
+    /**
+     * @return Перебор складов по возрастанию расстояния до точки.
+     */
+    public Cursor nearest(double latitude, double longitude) {
+        return new Cursor(latitude, longitude);
+    }
+
+    /**
+     * Ленивый перебор складов от ближайшего; не потокобезопасен, создается на каждый поиск.
+     */
+    public final class Cursor {
+
+        private final double[] query = new double[3];
+
+        // Двоичная куча: узел дерева (отрезок lo..hi, глубина) или склад (depth = -1, lo - его индекс)
+        private double[] keys = new double[32];
+
+        private int[] los = new int[32];
+
+        private int[] his = new int[32];
+
+        private int[] depths = new int[32];
+
+        private int size;
+
+        private Cursor(double latitude, double longitude) {
+            toPoint(latitude, longitude, query, 0);
+            if (warehouses.length > 0) {
+                push(0, 0, warehouses.length, 0);
+            }
+        }
+
+        /**
+         * @return Следующий по удаленности склад или null, если склады кончились.
+         */
+        public Warehouse next() {
+            while (size > 0) {
+                double bound = keys[0];
+                int lo = los[0];
+                int hi = his[0];
+                int depth = depths[0];
+                pop();
+                if (depth < 0) {
+                    return warehouses[lo];
+                }
+                int median = (lo + hi) >>> 1;
+                push(distance(median), median, median + 1, -1);
+                double diff = query[depth % 3] - points[median * 3 + depth % 3];
+                double farBound = Math.max(bound, diff * diff);
+                if (diff < 0) {
+                    pushNode(bound, lo, median, depth + 1);
+                    pushNode(farBound, median + 1, hi, depth + 1);
+                } else {
+                    pushNode(farBound, lo, median, depth + 1);
+                    pushNode(bound, median + 1, hi, depth + 1);
+                }
+            }
+            return null;
+        }
+
+        private double distance(int index) {
+            double dx = query[0] - points[index * 3];
+            double dy = query[1] - points[index * 3 + 1];
+            double dz = query[2] - points[index * 3 + 2];
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        private void pushNode(double key, int lo, int hi, int depth) {
+            if (lo < hi) {
+                push(key, lo, hi, depth);
+            }
+        }
+
+        private void push(double key, int lo, int hi, int depth) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                los = Arrays.copyOf(los, size * 2);
+                his = Arrays.copyOf(his, size * 2);
+                depths = Arrays.copyOf(depths, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+            set(i, key, lo, hi, depth);
+        }
+
+        private void pop() {
+            size--;
+            if (size == 0) {
+                return;
+            }
+            double key = keys[size];
+            int lo = los[size];
+            int hi = his[size];
+            int depth = depths[size];
+            int i = 0;
+            while (true) {
+                int child = i * 2 + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            set(i, key, lo, hi, depth);
+        }
+
+        private void move(int from, int to) {
+            set(to, keys[from], los[from], his[from], depths[from]);
+        }
+
+        private void set(int i, double key, int lo, int hi, int depth) {
+            keys[i] = key;
+            los[i] = lo;
+            his[i] = hi;
+            depths[i] = depth;
+        }
+    }
+
+    /**
+     * Ставит медиану отрезка по оси depth % 3 на середину, меньшие - левее, большие - правее.
+     */
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo < 2) {
+            return;
+        }
+        int median = (lo + hi) >>> 1;
+        int axis = depth % 3;
+        int left = lo;
+        int right = hi - 1;
+        while (left < right) {
+            double pivot = points[median * 3 + axis];
+            swap(median, right);
+            int store = left;
+            for (int i = left; i < right; i++) {
+                if (points[i * 3 + axis] < pivot) {
+                    swap(i, store++);
+                }
+            }
+            swap(store, right);
+            if (store == median) {
+                break;
+            }
+            if (store < median) {
+                left = store + 1;
+            } else {
+                right = store - 1;
+            }
+        }
+        build(lo, median, depth + 1);
+        build(median + 1, hi, depth + 1);
+    }
+
+    private void swap(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        Warehouse warehouse = warehouses[a];
+        warehouses[a] = warehouses[b];
+        warehouses[b] = warehouse;
+        for (int k = 0; k < 3; k++) {
+            double value = points[a * 3 + k];
+            points[a * 3 + k] = points[b * 3 + k];
+            points[b * 3 + k] = value;
+        }
+    }
+
+    private static void toPoint(double latitude, double longitude, double[] target, int offset) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        target[offset] = Math.cos(lat) * Math.cos(lon);
+        target[offset + 1] = Math.cos(lat) * Math.sin(lon);
+        target[offset + 2] = Math.sin(lat);
+    }
+}
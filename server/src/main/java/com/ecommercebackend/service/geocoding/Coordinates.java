@@ -0,0 +1,7 @@
+package com.ecommercebackend.service.geocoding;
+
+/**
+ * Точка на карте в градусах WGS 84.
+ */
+public record Coordinates(double latitude, double longitude) {
+}
@@ -0,0 +1,18 @@
+package com.ecommercebackend.service.geocoding;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Источник координат по адресу. GeocodingService обращается к нему только
+ * при промахе кэша; реализацию можно заменить, объявив другой бин.
+ */
+public interface GeocodingProvider {
+
+    /**
+     * @param query Адрес одной строкой: страна, город, улица и дом.
+     * @return Координаты или пусто, если адрес не найден.
+     * @throws IOException Если провайдер недоступен; результат не кэшируется.
+     */
+    Optional<Coordinates> geocode(String query) throws IOException;
+}
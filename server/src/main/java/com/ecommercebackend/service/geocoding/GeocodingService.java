@@ -0,0 +1,139 @@
+package com.ecommercebackend.service.geocoding;
+
+import com.ecommercebackend.config.AsyncConfig;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.GeocodeCacheEntry;
+import com.ecommercebackend.model.dao.AddressDAO;
+import com.ecommercebackend.model.dao.GeocodeCacheEntryDAO;
+import com.ecommercebackend.service.event.AddressSavedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Определяет координаты адресов пользователей.
+ * <p>
+ * После сохранения адреса координаты ищутся в фоне: сначала в таблице
+ * geocode_cache по нормализованным стране, городу и строке адреса, и только при
+ * промахе - у GeocodingProvider, после чего результат кэшируется навсегда.
+ * Ненайденные адреса и ошибки провайдера не кэшируются. Координаты
+ * записываются в адрес, только если его не успели изменить за это время.
+ */
+@Slf4j
+@Service
+public class GeocodingService {
+
+    private final AddressDAO addressDAO;
+
+    private final GeocodeCacheEntryDAO cacheDAO;
+
+    private final GeocodingProvider provider;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public GeocodingService(AddressDAO addressDAO,
+                            GeocodeCacheEntryDAO cacheDAO,
+                            GeocodingProvider provider,
+                            PlatformTransactionManager transactionManager) {
+        this.addressDAO = addressDAO;
+        this.cacheDAO = cacheDAO;
+        this.provider = provider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Async(AsyncConfig.GEOCODING_EXECUTOR)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAddressSaved(AddressSavedEvent event) {
+        addressDAO.findById(event.getAddressId()).ifPresent(this::geocode);
+    }
+
+    /**
+     * Определяет координаты адреса и сохраняет их в нем.
+     * @return Координаты или пусто, если адрес не найден или провайдер недоступен.
+     */
+    public Optional<Coordinates> geocode(Address address) {
+        Optional<Coordinates> coordinates = resolve(address);
+        coordinates.ifPresent(point -> transactionTemplate.executeWithoutResult(status -> {
+            int updated = addressDAO.updateCoordinates(address.getId(), address.getAddressLine(), address.getCity(),
+                    address.getCountry(), point.latitude(), point.longitude());
+            if (updated == 0) {
+                log.debug("Address {} changed while it was geocoded, coordinates skipped", address.getId());
+            }
+        }));
+        return coordinates;
+    }
+
+    /**
+     * Координаты адреса из кэша или, при промахе, от провайдера.
+     */
+    public Optional<Coordinates> resolve(Address address) {
+        String key = addressKey(address);
+        Optional<GeocodeCacheEntry> cached = cacheDAO.findByAddressKey(key);
+        if (cached.isPresent()) {
+            return Optional.of(new Coordinates(cached.get().getLatitude(), cached.get().getLongitude()));
+        }
+        Optional<Coordinates> coordinates;
+        try {
+            coordinates = provider.geocode(address.getCountry() + ", " + address.getCity() + ", " + address.getAddressLine());
+        } catch (IOException e) {
+            log.warn("Cannot geocode address {}: {}", address.getId(), e.getMessage());
+            return Optional.empty();
+        }
+        if (coordinates.isEmpty()) {
+            log.info("Address {} was not found by the geocoder", address.getId());
+            return coordinates;
+        }
+        GeocodeCacheEntry entry = new GeocodeCacheEntry();
+        entry.setAddressKey(key);
+        entry.setLatitude(coordinates.get().latitude());
+        entry.setLongitude(coordinates.get().longitude());
+        entry.setCreatedAt(LocalDateTime.now());
+        try {
+            cacheDAO.save(entry);
+        } catch (DataIntegrityViolationException e) {
+            // Тот же адрес параллельно закэширован другим потоком
+        }
+        return coordinates;
+    }
+
+    /**
+     * Переносит координаты сохраненного адреса в его новую версию, если
+     * страна, город и строка адреса не изменились (с точностью до addressKey).
+     * Координаты только для чтения и в теле запроса не приходят.
+     * @return true, если координаты перенесены и геокодировать заново не нужно.
+     */
+    public boolean carryCoordinates(Address original, Address updated) {
+        if (original.getLatitude() == null || !addressKey(original).equals(addressKey(updated))) {
+            return false;
+        }
+        updated.setLatitude(original.getLatitude());
+        updated.setLongitude(original.getLongitude());
+        return true;
+    }
+
+    /**
+     * Ключ кэша: страна, город и строка адреса в нижнем регистре, ё заменена на е,
+     * знаки препинания и повторные пробелы сведены к одному пробелу.
+     * Поэтому "ул. Тверская, 15" и "ул Тверская 15" геокодируются один раз,
+     * а одноименные города разных стран - отдельно.
+     */
+    static String addressKey(Address address) {
+        return normalize(address.getCountry()) + "|" + normalize(address.getCity()) + "|" + normalize(address.getAddressLine());
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT)
+                .replace('ё', 'е')
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+}
@@ -0,0 +1,80 @@
+package com.ecommercebackend.service.geocoding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Геокодер Яндекс Карт (HTTP Геокодер, format=json).
+ */
+@Component
+public class YandexGeocodingProvider implements GeocodingProvider {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient;
+
+    private final String url;
+
+    private final String apiKey;
+
+    private final Duration timeout;
+
+    public YandexGeocodingProvider(HttpClient httpClient,
+                                   @Value("${yandex.geocoder.url:https://geocode-maps.yandex.ru/1.x}") String url,
+                                   @Value("${yandex.geocoder.api-key:}") String apiKey,
+                                   @Value("${app.geocoding.timeout:PT5S}") Duration timeout) {
+        this.httpClient = httpClient;
+        this.url = url;
+        this.apiKey = apiKey;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Optional<Coordinates> geocode(String query) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url + "/?format=json&results=1&lang=ru_RU"
+                        + "&apikey=" + URLEncoder.encode(apiKey, StandardCharsets.UTF_8)
+                        + "&geocode=" + URLEncoder.encode(query, StandardCharsets.UTF_8)))
+                .header("Accept", "application/json")
+                .timeout(timeout)
+                .GET()
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Geocoding interrupted", e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Yandex Geocoder error: " + response.statusCode() + ", body: " + response.body());
+        }
+        // Точка приходит строкой "долгота широта"
+        JsonNode members = OBJECT_MAPPER.readTree(response.body())
+                .path("response").path("GeoObjectCollection").path("featureMember");
+        if (members.isEmpty()) {
+            return Optional.empty();
+        }
+        String[] position = members.get(0).path("GeoObject").path("Point").path("pos").asText("").trim().split("\\s+");
+        if (position.length != 2) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new Coordinates(Double.parseDouble(position[1]), Double.parseDouble(position[0])));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected Yandex Geocoder position: " + String.join(" ", position), e);
+        }
+    }
+}
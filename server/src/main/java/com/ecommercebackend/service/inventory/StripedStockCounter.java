@@ -0,0 +1,127 @@
+package com.ecommercebackend.service.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock of one product split across independent stripes, so that concurrent
+ * buyers mostly CAS different cache lines instead of contending on one value
+ * (the idea of LongAdder, but with a floor: no stripe ever goes below zero,
+ * so neither does the total).
+ * <p>
+ * A take first tries to fit the whole quantity into a single stripe starting
+ * from a random one. Only when no stripe holds enough on its own does it
+ * gather units from several stripes, giving them back if the total falls
+ * short. A concurrent gather may therefore briefly make a take fail although
+ * the sum would have been enough; it never lets stock go negative.
+ */
+public final class StripedStockCounter {
+
+    /** Stripes are 16 longs (128 bytes) apart so that no two share a cache line. */
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray cells;
+
+    private final int stripes;
+
+    private volatile boolean closed;
+
+    public StripedStockCounter(long initial, int stripes) {
+        if (stripes < 1 || initial < 0) {
+            throw new IllegalArgumentException("Stripes must be positive and stock non-negative");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, initial / stripes + (i < initial % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Takes the quantity if that much is available and the counter is open.
+     * @return true if the quantity was taken, false if nothing was taken.
+     */
+    public boolean tryTake(long quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (closed) {
+            return false;
+        }
+        int home = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (takeUpTo((home + i) % stripes, quantity, false) == quantity) {
+                return true;
+            }
+        }
+
+        long remaining = quantity;
+        long[] taken = new long[stripes];
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int stripe = (home + i) % stripes;
+            taken[stripe] = takeUpTo(stripe, remaining, true);
+            remaining -= taken[stripe];
+        }
+        if (remaining == 0) {
+            return true;
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (taken[stripe] > 0) {
+                cells.addAndGet(stripe * PADDING, taken[stripe]);
+            }
+        }
+        return false;
+    }
+
+    /** Gives units back, for example when the order that took them is released. */
+    public void give(long quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative");
+        }
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING, quantity);
+    }
+
+    /**
+     * Makes every later take fail whatever is available; a take already past
+     * the check may still complete.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public void reopen() {
+        closed = false;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Sum of all stripes; exact only when nothing is taken or given concurrently. */
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Takes from one stripe: the full quantity or nothing, or with partial set
+     * as much as the stripe holds up to the quantity.
+     * @return The amount taken.
+     */
+    private long takeUpTo(int stripe, long quantity, boolean partial) {
+        int index = stripe * PADDING;
+        while (true) {
+            long current = cells.get(index);
+            long take = Math.min(current, quantity);
+            if (take == 0 || (!partial && take < quantity)) {
+                return 0;
+            }
+            if (cells.compareAndSet(index, current, current - take)) {
+                return take;
+            }
+        }
+    }
+}
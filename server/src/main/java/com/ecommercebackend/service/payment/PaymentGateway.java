@@ -0,0 +1,20 @@
+package com.ecommercebackend.service.payment;
+
+/**
+ * Источник статусов платежей ЮKassa для PaymentStatusPoller. Реализует
+ * PaymentService; в тестах его можно заменить.
+ */
+public interface PaymentGateway {
+
+    String SUCCEEDED = "succeeded";
+
+    String CANCELED = "canceled";
+
+    String PENDING = "pending";
+
+    /**
+     * @return Статус платежа: pending, waiting_for_capture, succeeded или canceled.
+     * @throws RuntimeException Если ЮKassa недоступна; платеж опросят в следующий раз.
+     */
+    String paymentStatus(String paymentId);
+}
@@ -0,0 +1,80 @@
+package com.ecommercebackend.service.payment;
+
+import com.ecommercebackend.model.dao.WebOrderDAO;
+import com.ecommercebackend.model.enums.ReservationStatus;
+import com.ecommercebackend.service.InventoryReservationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ведет резервы заказов по статусам их платежей в ЮKassa.
+ * <p>
+ * Заказ с созданным платежом остается RESERVED: остатки закрепляются за ним,
+ * только когда платеж succeeded, и возвращаются на склад, когда он canceled
+ * или так и остался pending после reservedUntil. Обычный сборщик брошенных
+ * заказов такие заказы не трогает, чтобы не вернуть остатки оплаченного
+ * заказа раньше, чем опрос увидит оплату. Если ЮKassa недоступна, заказ
+ * опрашивается в следующий раз.
+ */
+@Slf4j
+@Component
+public class PaymentStatusPoller {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final WebOrderDAO webOrderDAO;
+
+    private final InventoryReservationService reservationService;
+
+    private final PaymentGateway paymentGateway;
+
+    public PaymentStatusPoller(WebOrderDAO webOrderDAO,
+                               InventoryReservationService reservationService,
+                               PaymentGateway paymentGateway) {
+        this.webOrderDAO = webOrderDAO;
+        this.reservationService = reservationService;
+        this.paymentGateway = paymentGateway;
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.status-poll-interval:PT30S}")
+    public void poll() {
+        List<Object[]> batch;
+        Long afterId = 0L;
+        do {
+            batch = webOrderDAO.findAwaitingPayment(ReservationStatus.RESERVED, afterId, PageRequest.of(0, BATCH_SIZE));
+            for (Object[] row : batch) {
+                afterId = (Long) row[0];
+                update(afterId, (String) row[1], (LocalDateTime) row[2]);
+            }
+        } while (batch.size() == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+    }
+
+    private void update(Long orderId, String paymentId, LocalDateTime reservedUntil) {
+        String status;
+        try {
+            status = paymentGateway.paymentStatus(paymentId);
+        } catch (RuntimeException e) {
+            log.warn("Cannot get status of payment {} of order {}: {}", paymentId, orderId, e.getMessage());
+            return;
+        }
+        if (PaymentGateway.SUCCEEDED.equals(status)) {
+            if (reservationService.confirmPayment(orderId)) {
+                log.info("Order {} is paid, its stock is committed", orderId);
+            }
+        } else if (PaymentGateway.CANCELED.equals(status)) {
+            if (reservationService.release(orderId)) {
+                log.info("Payment {} of order {} was canceled, stock released", paymentId, orderId);
+            }
+        } else if (PaymentGateway.PENDING.equals(status) && reservedUntil.isBefore(LocalDateTime.now())) {
+            // Покупатель так и не оплатил; waiting_for_capture уже оплачен и ждет списания - его не трогаем
+            if (reservationService.release(orderId)) {
+                log.info("Payment {} of order {} was not made in time, stock released", paymentId, orderId);
+            }
+        }
+    }
+}
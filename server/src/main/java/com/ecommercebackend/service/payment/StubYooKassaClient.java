@@ -0,0 +1,102 @@
+package com.ecommercebackend.service.payment;
+
+import com.ecommercebackend.api.security.YooKassaConfig;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Создание и чтение платежей ЮKassa запросами к {yookassa.api.url}/payments напрямую.
+ * <p>
+ * SDK ходит только на свой адрес API, а профилю stub нужна локальная
+ * заглушка, поэтому в нем PaymentService создает и опрашивает платежи через этот клиент.
+ * Клиент не зависит от классов SDK: объекты платежа сериализуются по их полям.
+ */
+@Component
+@Profile("stub")
+@RequiredArgsConstructor
+public class StubYooKassaClient {
+
+    // Платеж в формате API v3 по полям объектов SDK: snake_case, без пустых полей
+    private static final ObjectMapper YOOKASSA_JSON = JsonMapper.builder()
+            .findAndAddModules()
+            .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .visibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .visibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .build();
+
+    private final YooKassaConfig yooKassaConfig;
+
+    private final HttpClient httpClient;
+
+    /**
+     * @param payment        Параметры платежа.
+     * @param idempotenceKey Ключ идемпотентности ЮKassa.
+     * @param responseType   Тип, в который читается созданный платеж.
+     */
+    public <T> T createPayment(Object payment, String idempotenceKey, Class<T> responseType) {
+        try {
+            HttpRequest request = request("/payments")
+                    .header("Idempotence-Key", idempotenceKey)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(YOOKASSA_JSON.writeValueAsString(payment)))
+                    .build();
+            return send(request, responseType);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "YooKassa is unavailable", e);
+        }
+    }
+
+    /**
+     * @param paymentId    Идентификатор платежа в ЮKassa.
+     * @param responseType Тип, в который читается платеж.
+     */
+    public <T> T findPayment(String paymentId, Class<T> responseType) {
+        return send(request("/payments/" + paymentId).GET().build(), responseType);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        String credentials = yooKassaConfig.getShopId() + ":" + yooKassaConfig.getSecretKey();
+        return HttpRequest.newBuilder()
+                .uri(URI.create(yooKassaConfig.getUrl() + path))
+                .header("Authorization", "Basic "
+                        + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                .timeout(Duration.ofSeconds(30));
+    }
+
+    private <T> T send(HttpRequest request, Class<T> responseType) {
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 300) {
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                        "YooKassa error: " + response.statusCode() + ", body: " + response.body());
+            }
+            return YOOKASSA_JSON.readValue(response.body(), responseType);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "YooKassa is unavailable", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "YooKassa call was interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.ecommercebackend.service.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product texts with BM25 ranking.
+ * <p>
+ * All query terms must match; the last one also matches as a prefix so
+ * results appear while the user is still typing. Writes are rare compared
+ * to reads, so a read/write lock is enough for concurrency.
+ */
+public class ProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    /** A piece of indexed text and how much a match in it is worth. */
+    public record Field(String text, float weight) {
+    }
+
+    /** Ids of one page of hits in rank order plus the total number of hits. */
+    public record Result(List<Long> ids, int total) {
+    }
+
+    private record Hit(Long productId, double score) {
+    }
+
+    /** Best score first, ties broken by id so paging is stable. */
+    private static final Comparator<Hit> RANK_ORDER = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Hit::productId);
+
+    /** term -> (product id -> weighted term frequency). Sorted for prefix lookups. */
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+
+    /** product id -> indexed terms, needed to remove a document. */
+    private final Map<Long, List<String>> documentTerms = new HashMap<>();
+
+    private final Map<Long, Float> documentLengths = new HashMap<>();
+
+    private double totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(Long productId, List<Field> fields) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        for (Field field : fields) {
+            for (String term : SearchTokenizer.terms(field.text())) {
+                frequencies.merge(term, field.weight(), Float::sum);
+                length += field.weight();
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(productId);
+            for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(productId, entry.getValue());
+            }
+            documentTerms.put(productId, new ArrayList<>(frequencies.keySet()));
+            documentLengths.put(productId, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documentLengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Result search(String query, int offset, int limit) {
+        List<String> tokens = SearchTokenizer.tokens(query);
+        if (tokens.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            // One alternative set per query token; only the last token expands by prefix.
+            List<List<Map<Long, Float>>> alternatives = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                String term = SearchTokenizer.normalize(tokens.get(i));
+                List<Map<Long, Float>> matches = i == tokens.size() - 1 ? prefixMatches(term) : exactMatch(term);
+                if (matches.isEmpty()) {
+                    return new Result(List.of(), 0);
+                }
+                alternatives.add(matches);
+            }
+
+            // Iterate the rarest token's documents, check the others and keep only the best offset + limit.
+            List<Map<Long, Float>> driver = alternatives.stream()
+                    .min(Comparator.comparingInt(ProductSearchIndex::documentCount))
+                    .orElseThrow();
+            double averageLength = documentLengths.isEmpty() ? 1 : totalLength / documentLengths.size();
+            int wanted = offset + limit;
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.max(1, Math.min(wanted, 1024)), RANK_ORDER.reversed());
+            Set<Long> seen = driver.size() > 1 ? new HashSet<>() : null;
+            int total = 0;
+            for (Map<Long, Float> posting : driver) {
+                for (Long productId : posting.keySet()) {
+                    if (seen != null && !seen.add(productId)) {
+                        continue;
+                    }
+                    double score = score(productId, alternatives, averageLength);
+                    if (score == 0) {
+                        continue;
+                    }
+                    total++;
+                    Hit hit = new Hit(productId, score);
+                    if (top.size() < wanted) {
+                        top.add(hit);
+                    } else if (wanted > 0 && RANK_ORDER.compare(hit, top.peek()) < 0) {
+                        top.poll();
+                        top.add(hit);
+                    }
+                }
+            }
+
+            List<Hit> ranked = new ArrayList<>(top);
+            ranked.sort(RANK_ORDER);
+            List<Long> ids = new ArrayList<>(limit);
+            for (int i = offset; i < ranked.size(); i++) {
+                ids.add(ranked.get(i).productId());
+            }
+            return new Result(ids, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Sum over tokens of the best BM25 contribution among the token's alternatives; 0 if a token is missing. */
+    private double score(Long productId, List<List<Map<Long, Float>>> alternatives, double averageLength) {
+        double lengthNorm = 1 - B + B * documentLengths.get(productId) / averageLength;
+        double total = 0;
+        for (List<Map<Long, Float>> matches : alternatives) {
+            double best = 0;
+            for (Map<Long, Float> posting : matches) {
+                Float frequency = posting.get(productId);
+                if (frequency != null) {
+                    double idf = Math.log(1 + (documentLengths.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+                    best = Math.max(best, idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm));
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private List<Map<Long, Float>> exactMatch(String term) {
+        Map<Long, Float> posting = postings.get(term);
+        return posting == null ? List.of() : List.of(posting);
+    }
+
+    /**
+     * Postings of the terms starting with the given one. A short prefix can
+     * match many terms; only the MAX_PREFIX_EXPANSIONS found in the most
+     * documents are expanded, plus the term itself if it is a whole word.
+     */
+    private List<Map<Long, Float>> prefixMatches(String term) {
+        if (term.length() < MIN_PREFIX_LENGTH) {
+            return exactMatch(term);
+        }
+        SortedMap<String, Map<Long, Float>> range = postings.subMap(term, term + Character.MAX_VALUE);
+        if (range.size() <= MAX_PREFIX_EXPANSIONS) {
+            return new ArrayList<>(range.values());
+        }
+        Map<Long, Float> exact = postings.get(term);
+        PriorityQueue<Map<Long, Float>> frequent = new PriorityQueue<>(MAX_PREFIX_EXPANSIONS + 1,
+                Comparator.comparingInt(Map::size));
+        for (Map<Long, Float> posting : range.values()) {
+            if (posting == exact) {
+                continue;
+            }
+            frequent.add(posting);
+            if (frequent.size() > MAX_PREFIX_EXPANSIONS) {
+                frequent.poll();
+            }
+        }
+        List<Map<Long, Float>> matches = new ArrayList<>(MAX_PREFIX_EXPANSIONS);
+        if (exact != null) {
+            frequent.poll();
+            matches.add(exact);
+        }
+        matches.addAll(frequent);
+        return matches;
+    }
+
+    private static int documentCount(List<Map<Long, Float>> matches) {
+        int count = 0;
+        for (Map<Long, Float> posting : matches) {
+            count += posting.size();
+        }
+        return count;
+    }
+
+    private void removeUnlocked(Long productId) {
+        List<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= documentLengths.remove(productId);
+    }
+}
@@ -0,0 +1,165 @@
+package com.ecommercebackend.service.search;
+
+/**
+ * Russian stemmer following the Snowball algorithm
+ * (https://snowballstem.org/algorithms/russian/stemmer.html).
+ * Expects a lower-cased word with "ё" already folded to "е".
+ */
+final class RussianStemmer {
+
+    private static final String VOWELS = "аеиоуыэюя";
+
+    private static final String[] PERFECTIVE_GERUND_1 = {"вшись", "вши", "в"};
+    private static final String[] PERFECTIVE_GERUND_2 = {"ывшись", "ившись", "ывши", "ивши", "ыв", "ив"};
+
+    private static final String[] ADJECTIVE = {
+        "ими", "ыми", "его", "ого", "ему", "ому",
+        "ее", "ие", "ые", "ое", "ей", "ий", "ый", "ой", "ем", "им", "ым", "ом",
+        "их", "ых", "ую", "юю", "ая", "яя", "ою", "ею"
+    };
+
+    private static final String[] PARTICIPLE_1 = {"ем", "нн", "вш", "ющ", "щ"};
+    private static final String[] PARTICIPLE_2 = {"ивш", "ывш", "ующ"};
+
+    private static final String[] REFLEXIVE = {"ся", "сь"};
+
+    private static final String[] VERB_1 = {
+        "ете", "йте", "ешь", "нно", "ла", "на", "ли", "ем", "ло", "но", "ет", "ют", "ны", "ть", "й", "л", "н"
+    };
+    private static final String[] VERB_2 = {
+        "ейте", "уйте", "ила", "ыла", "ена", "ите", "или", "ыли", "ило", "ыло", "ено", "ует", "уют",
+        "ены", "ить", "ыть", "ишь", "ей", "уй", "ил", "ыл", "им", "ым", "ен", "ят", "ит", "ыт", "ую", "ю"
+    };
+
+    private static final String[] NOUN = {
+        "иями", "ями", "ами", "ией", "иям", "ием", "иях",
+        "ев", "ов", "ие", "ье", "еи", "ии", "ей", "ой", "ий", "ям", "ем", "ам", "ом", "ах", "ях", "ию", "ью", "ия", "ья",
+        "а", "е", "и", "й", "о", "у", "ы", "ь", "ю", "я"
+    };
+
+    private static final String[] SUPERLATIVE = {"ейше", "ейш"};
+
+    private static final String[] DERIVATIONAL = {"ость", "ост"};
+
+    private RussianStemmer() {
+    }
+
+    static String stem(String word) {
+        int rv = rv(word);
+        if (rv >= word.length()) {
+            return word;
+        }
+        int r2 = r2(word);
+        StringBuilder sb = new StringBuilder(word);
+
+        // Step 1
+        int gerund = Math.max(ending(sb, rv, PERFECTIVE_GERUND_1, true), ending(sb, rv, PERFECTIVE_GERUND_2, false));
+        if (gerund > 0) {
+            cut(sb, gerund);
+        } else {
+            cut(sb, ending(sb, rv, REFLEXIVE, false));
+            int adjective = ending(sb, rv, ADJECTIVE, false);
+            if (adjective > 0) {
+                cut(sb, adjective);
+                cut(sb, Math.max(ending(sb, rv, PARTICIPLE_1, true), ending(sb, rv, PARTICIPLE_2, false)));
+            } else {
+                int verb = Math.max(ending(sb, rv, VERB_1, true), ending(sb, rv, VERB_2, false));
+                if (verb > 0) {
+                    cut(sb, verb);
+                } else {
+                    cut(sb, ending(sb, rv, NOUN, false));
+                }
+            }
+        }
+
+        // Step 2
+        cut(sb, ending(sb, rv, new String[]{"и"}, false));
+
+        // Step 3
+        cut(sb, ending(sb, r2, DERIVATIONAL, false));
+
+        // Step 4
+        if (ending(sb, rv, new String[]{"нн"}, false) > 0) {
+            cut(sb, 1);
+        } else {
+            int superlative = ending(sb, rv, SUPERLATIVE, false);
+            if (superlative > 0) {
+                cut(sb, superlative);
+                if (ending(sb, rv, new String[]{"нн"}, false) > 0) {
+                    cut(sb, 1);
+                }
+            } else {
+                cut(sb, ending(sb, rv, new String[]{"ь"}, false));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Length of the longest of the given endings found inside the region,
+     * or 0. Group one endings must additionally be preceded by "а" or "я".
+     */
+    private static int ending(CharSequence word, int region, String[] endings, boolean precededByAYa) {
+        int best = 0;
+        for (String ending : endings) {
+            int start = word.length() - ending.length();
+            if (ending.length() <= best || start < region || !endsWith(word, ending)) {
+                continue;
+            }
+            if (precededByAYa) {
+                if (start - 1 < region) {
+                    continue;
+                }
+                char before = word.charAt(start - 1);
+                if (before != 'а' && before != 'я') {
+                    continue;
+                }
+            }
+            best = ending.length();
+        }
+        return best;
+    }
+
+    private static boolean endsWith(CharSequence word, String ending) {
+        int offset = word.length() - ending.length();
+        for (int i = 0; i < ending.length(); i++) {
+            if (word.charAt(offset + i) != ending.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void cut(StringBuilder sb, int length) {
+        sb.setLength(sb.length() - length);
+    }
+
+    private static boolean isVowel(char c) {
+        return VOWELS.indexOf(c) >= 0;
+    }
+
+    /** Start of RV: the region after the first vowel. */
+    private static int rv(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (isVowel(word.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return word.length();
+    }
+
+    /** Start of R2: R1 applied twice, R1 being the region after the first non-vowel following a vowel. */
+    private static int r2(String word) {
+        int r1 = afterVowelConsonant(word, 1);
+        return afterVowelConsonant(word, r1 + 1);
+    }
+
+    private static int afterVowelConsonant(String word, int from) {
+        for (int i = Math.max(from, 1); i < word.length(); i++) {
+            if (!isVowel(word.charAt(i)) && isVowel(word.charAt(i - 1))) {
+                return i + 1;
+            }
+        }
+        return word.length();
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommercebackend.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into normalized search terms: lower case, "ё" folded to "е",
+ * Cyrillic words reduced to their stem. Latin words and numbers are kept
+ * as-is so model names and SKUs stay searchable.
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : tokens(text)) {
+            terms.add(normalize(token));
+        }
+        return terms;
+    }
+
+    /** Splits on everything that is not a letter or a digit. */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /** Stems a single already lower-cased token. */
+    public static String normalize(String token) {
+        return isCyrillic(token) ? RussianStemmer.stem(token) : token;
+    }
+
+    private static boolean isCyrillic(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.UnicodeBlock.of(token.charAt(i)) != Character.UnicodeBlock.CYRILLIC) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommercebackend.service.statistics;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates over the catalog maintained one product at a time. Every product
+ * is remembered with the values it was counted with, so a change is applied
+ * as "subtract the old row, add the new one". Min and max prices come from a
+ * price multiset, so deleting the cheapest product does not need a rescan.
+ * Not thread-safe.
+ */
+public class ProductStatisticsAggregate {
+
+    /** Product state that contributes to the aggregates. */
+    public record Row(long id, double price, boolean deleted, int quantity) {
+    }
+
+    private final Map<Long, Row> rows = new HashMap<>();
+
+    /** Price -> number of active products with that price. */
+    private final TreeMap<Double, Integer> activePrices = new TreeMap<>();
+
+    private long deletedCount;
+
+    private BigDecimal activePriceSum = BigDecimal.ZERO;
+
+    private long totalStock;
+
+    private long outOfStockCount;
+
+    /** Adds, replaces or (with null) removes the row of the given product. */
+    public void apply(long productId, Row row) {
+        Row previous = row != null ? rows.put(productId, row) : rows.remove(productId);
+        if (previous != null) {
+            account(previous, -1);
+        }
+        if (row != null) {
+            account(row, 1);
+        }
+    }
+
+    private void account(Row row, int sign) {
+        if (row.deleted()) {
+            deletedCount += sign;
+            return;
+        }
+        BigDecimal price = BigDecimal.valueOf(row.price());
+        activePriceSum = sign > 0 ? activePriceSum.add(price) : activePriceSum.subtract(price);
+        activePrices.merge(row.price(), sign, (a, b) -> a + b == 0 ? null : a + b);
+        totalStock += (long) sign * row.quantity();
+        if (row.quantity() <= 0) {
+            outOfStockCount += sign;
+        }
+    }
+
+    public void clear() {
+        rows.clear();
+        activePrices.clear();
+        deletedCount = 0;
+        activePriceSum = BigDecimal.ZERO;
+        totalStock = 0;
+        outOfStockCount = 0;
+    }
+
+    public BigDecimal activePriceSum() {
+        return activePriceSum;
+    }
+
+    public long totalCount() {
+        return rows.size();
+    }
+
+    public long deletedCount() {
+        return deletedCount;
+    }
+
+    public long activeCount() {
+        return rows.size() - deletedCount;
+    }
+
+    public Double averagePrice() {
+        long active = activeCount();
+        return active == 0 ? null : activePriceSum.doubleValue() / active;
+    }
+
+    public Double minPrice() {
+        return activePrices.isEmpty() ? null : activePrices.firstKey();
+    }
+
+    public Double maxPrice() {
+        return activePrices.isEmpty() ? null : activePrices.lastKey();
+    }
+
+    public long totalStock() {
+        return totalStock;
+    }
+
+    public long outOfStockCount() {
+        return outOfStockCount;
+    }
+}
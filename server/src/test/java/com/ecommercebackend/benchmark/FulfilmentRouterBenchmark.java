@@ -0,0 +1,124 @@
+package com.ecommercebackend.benchmark;
+
+import com.ecommercebackend.model.Warehouse;
+import com.ecommercebackend.service.fulfilment.FulfilmentRouter;
+import com.ecommercebackend.service.fulfilment.Shipment;
+import com.ecommercebackend.service.fulfilment.WarehouseIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microseconds per routing decision over 1000 warehouses spread over Russia,
+ * each stocking a random fifth of 500 products, for orders of 1, 5 and 20
+ * products: FulfilmentRouter on the k-d tree index against sorting every
+ * warehouse by distance for each order. Destinations rotate over 1024 random
+ * points. Run with the main method, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FulfilmentRouterBenchmark {
+
+  private static final int WAREHOUSES = 1000;
+
+  private static final int PRODUCTS = 500;
+
+  @Param({"1", "5", "20"})
+  private int lines;
+
+  private List<Warehouse> warehouses;
+
+  private WarehouseIndex index;
+
+  private Map<Long, Map<Long, Integer>> stock;
+
+  private Map<Long, Integer> requested;
+
+  private double[][] destinations;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    warehouses = new ArrayList<>(WAREHOUSES);
+    stock = new HashMap<>();
+    for (long id = 1; id <= WAREHOUSES; id++) {
+      Warehouse warehouse = new Warehouse();
+      warehouse.setId(id);
+      warehouse.setLatitude(43 + random.nextDouble() * 25);
+      warehouse.setLongitude(28 + random.nextDouble() * 110);
+      warehouses.add(warehouse);
+      Map<Long, Integer> levels = new HashMap<>();
+      for (long product = 1; product <= PRODUCTS; product++) {
+        if (random.nextInt(5) == 0) {
+          levels.put(product, 1 + random.nextInt(10));
+        }
+      }
+      stock.put(id, levels);
+    }
+    index = new WarehouseIndex(warehouses);
+    requested = new TreeMap<>();
+    while (requested.size() < lines) {
+      requested.put(1L + random.nextInt(PRODUCTS), 1 + random.nextInt(3));
+    }
+    destinations = new double[1024][];
+    for (int i = 0; i < destinations.length; i++) {
+      destinations[i] = new double[]{43 + random.nextDouble() * 25, 28 + random.nextDouble() * 110};
+    }
+  }
+
+  @Benchmark
+  public List<Shipment> indexRouter() {
+    double[] destination = destinations[next++ & 1023];
+    return FulfilmentRouter.route(index, destination[0], destination[1], requested, stock, 16);
+  }
+
+  @Benchmark
+  public List<Shipment> sortAllWarehouses() {
+    double[] destination = destinations[next++ & 1023];
+    List<Warehouse> sorted = new ArrayList<>(warehouses);
+    sorted.sort(Comparator.comparingDouble(w -> distance(destination[0], destination[1], w)));
+    // Тот же выбор, что у роутера, но по заранее отсортированному списку
+    return FulfilmentRouter.route(new WarehouseIndex(sorted.subList(0, 64)), destination[0], destination[1],
+        requested, stock, 16);
+  }
+
+  private static double distance(double latitude, double longitude, Warehouse warehouse) {
+    double dLat = Math.toRadians(warehouse.getLatitude() - latitude);
+    double dLon = Math.toRadians(warehouse.getLongitude() - longitude);
+    double a = Math.pow(Math.sin(dLat / 2), 2) + Math.cos(Math.toRadians(latitude))
+        * Math.cos(Math.toRadians(warehouse.getLatitude())) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * Math.asin(Math.sqrt(a));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FulfilmentRouterBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -0,0 +1,137 @@
+package com.ecommercebackend.benchmark;
+
+import com.ecommercebackend.service.search.ProductSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the in-memory search index with the LIKE query of
+ * ProductDAO.findByNameContainingIgnoreCase (page query + count query) on
+ * 100k generated products. The LIKE side runs on in-memory H2, which
+ * flatters it compared to a networked Postgres.
+ * Run with the main method, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+  private static final int PRODUCTS = 100_000;
+
+  private static final String[] TYPES = {"Холодильник", "Стиральная машина", "Посудомоечная машина",
+      "Микроволновая печь", "Пылесос", "Телевизор", "Смартфон", "Кофемашина", "Электрочайник", "Духовой шкаф"};
+  private static final String[] BRANDS = {"Samsung", "Bosch", "LG", "Haier", "Indesit", "Beko", "Philips", "Xiaomi"};
+  private static final String[] ADJECTIVES = {"двухкамерный", "встраиваемый", "компактный", "беспроводной",
+      "энергоэффективный", "бесшумный", "умный", "мощный"};
+  private static final String[] MATERIALS = {"нержавеющая сталь", "закаленное стекло", "пластик ABS", "алюминий"};
+
+  @Param({"холодильник", "samsung sa12"})
+  private String query;
+
+  private ProductSearchIndex index;
+
+  private Connection connection;
+
+  private PreparedStatement pageQuery;
+
+  private PreparedStatement countQuery;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    index = new ProductSearchIndex();
+    connection = DriverManager.getConnection("jdbc:h2:mem:search_benchmark;DB_CLOSE_DELAY=-1");
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE product (id BIGINT PRIMARY KEY, name VARCHAR(255), "
+          + "short_description VARCHAR(255), long_description VARCHAR(2000), deleted BOOLEAN)");
+    }
+
+    Random random = new Random(42);
+    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO product VALUES (?, ?, ?, ?, false)")) {
+      for (long id = 1; id <= PRODUCTS; id++) {
+        String type = TYPES[random.nextInt(TYPES.length)];
+        String brand = BRANDS[random.nextInt(BRANDS.length)];
+        String model = brand.substring(0, 2).toUpperCase() + random.nextInt(100) + "-" + random.nextInt(1000);
+        String name = type + " " + brand + " " + model;
+        String shortDescription = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + type.toLowerCase();
+        String longDescription = type + " " + brand + ": " + ADJECTIVES[random.nextInt(ADJECTIVES.length)]
+            + ", корпус - " + MATERIALS[random.nextInt(MATERIALS.length)] + ", гарантия 24 месяца.";
+
+        insert.setLong(1, id);
+        insert.setString(2, name);
+        insert.setString(3, shortDescription);
+        insert.setString(4, longDescription);
+        insert.addBatch();
+        if (id % 1000 == 0) {
+          insert.executeBatch();
+        }
+        index.put(id, List.of(
+            new ProductSearchIndex.Field(name, 3.0f),
+            new ProductSearchIndex.Field(shortDescription, 1.5f),
+            new ProductSearchIndex.Field(longDescription, 1.0f)));
+      }
+    }
+
+    pageQuery = connection.prepareStatement("SELECT p.id, p.name FROM product p "
+        + "WHERE p.deleted = false AND LOWER(p.name) LIKE LOWER(CONCAT('%', ?, '%')) OFFSET 0 ROWS FETCH FIRST 10 ROWS ONLY");
+    countQuery = connection.prepareStatement("SELECT COUNT(p.id) FROM product p "
+        + "WHERE p.deleted = false AND LOWER(p.name) LIKE LOWER(CONCAT('%', ?, '%'))");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    connection.close();
+  }
+
+  @Benchmark
+  public void likeQuery(Blackhole blackhole) throws SQLException {
+    pageQuery.setString(1, query);
+    try (ResultSet rs = pageQuery.executeQuery()) {
+      while (rs.next()) {
+        blackhole.consume(rs.getLong(1));
+      }
+    }
+    countQuery.setString(1, query);
+    try (ResultSet rs = countQuery.executeQuery()) {
+      rs.next();
+      blackhole.consume(rs.getLong(1));
+    }
+  }
+
+  @Benchmark
+  public ProductSearchIndex.Result searchIndex() {
+    return index.search(query, 0, 10);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ProductSearchBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -0,0 +1,173 @@
+package com.ecommercebackend.benchmark;
+
+import com.ecommercebackend.config.YandexDeliveryConfig;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.WebOrderQuantities;
+import com.ecommercebackend.service.delivery.YandexClaimWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders per second for building the Yandex Delivery claim of an order with
+ * 1, 10 and 100 lines: the streaming YandexClaimWriter against the former
+ * approach of a new ObjectMapper and an ObjectNode tree per order, serialized
+ * once with the pretty printer for the log and once for the body.
+ * Run with the main method, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YandexClaimWriterBenchmark {
+
+  @Param({"1", "10", "100"})
+  private int lines;
+
+  private YandexDeliveryConfig config;
+
+  private YandexClaimWriter writer;
+
+  private WebOrder order;
+
+  private LocalUser user;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    config = new YandexDeliveryConfig();
+    config.setPlatform_id("fbed3aa1-2cc6-4370-ab4d-59c5cc9bb924");
+    writer = new YandexClaimWriter(config);
+
+    user = new LocalUser();
+    user.setFirstName("Иван");
+    user.setLastName("Петров");
+    user.setEmail("ivan@example.com");
+    Address address = new Address();
+    address.setAddressLine("Москва, ул. Тверская, 15");
+    order = new WebOrder();
+    order.setId(42L);
+    order.setAddress(address);
+    List<WebOrderQuantities> quantities = new ArrayList<>();
+    for (int i = 0; i < lines; i++) {
+      Description description = new Description();
+      description.setLengthCm(63.0);
+      description.setWidthCm(60.0);
+      description.setHeightCm(178.0);
+      description.setWeightKg(68.0);
+      Product product = new Product();
+      product.setId((long) i + 1);
+      product.setName("Холодильник Samsung RB" + i);
+      product.setPrice(54990.0 + i);
+      product.setDescription(description);
+      WebOrderQuantities quantity = new WebOrderQuantities();
+      quantity.setProduct(product);
+      quantity.setQuantity(1 + i % 3);
+      quantities.add(quantity);
+    }
+    order.setQuantities(quantities);
+  }
+
+  @Benchmark
+  public String streamingWriter() {
+    return writer.write(order, user);
+  }
+
+  @Benchmark
+  public String objectNodeTree() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    ObjectNode requestJson = objectMapper.createObjectNode();
+    requestJson.put("status", "new");
+    requestJson.put("comment", "Заказ из интернет-магазина");
+
+    ArrayNode routePoints = requestJson.putArray("route_points");
+    ObjectNode pickupPoint = routePoints.addObject();
+    pickupPoint.put("point_id", 1);
+    pickupPoint.put("visit_order", 1);
+    pickupPoint.put("type", "source");
+    pickupPoint.putObject("platform_station").put("platform_id", config.getPlatform_id());
+    ObjectNode pickupContact = pickupPoint.putObject("contact");
+    pickupContact.put("name", "Склад магазина");
+    pickupContact.put("phone", "+79991234567");
+    ObjectNode pickupAddress = pickupPoint.putObject("address");
+    pickupAddress.put("fullname", "Москва, Ленинградский проспект, 1");
+    pickupAddress.putArray("coordinates").add(37.517635).add(55.755814);
+    pickupPoint.put("skip_confirmation", false);
+
+    ObjectNode dropoffPoint = routePoints.addObject();
+    dropoffPoint.put("point_id", 2);
+    dropoffPoint.put("visit_order", 2);
+    dropoffPoint.put("type", "destination");
+    ObjectNode dropoffContact = dropoffPoint.putObject("contact");
+    dropoffContact.put("name", user.getFirstName() + " " + user.getLastName());
+    dropoffContact.put("phone", "+79161234567");
+    ObjectNode dropoffAddress = dropoffPoint.putObject("address");
+    dropoffAddress.put("fullname", order.getAddress().getAddressLine());
+    dropoffAddress.putArray("coordinates").add(37.617635).add(55.755814);
+    dropoffPoint.put("skip_confirmation", false);
+
+    ArrayNode items = requestJson.putArray("items");
+    for (WebOrderQuantities quantity : order.getQuantities()) {
+      ObjectNode item = items.addObject();
+      item.put("pickup_point", 1);
+      item.put("droppof_point", 2);
+      item.put("quantity", quantity.getQuantity());
+      item.put("title", quantity.getProduct().getName());
+      item.put("article", quantity.getProduct().getId().toString());
+      item.put("cost_value", quantity.getProduct().getPrice().toString());
+      item.put("cost_currency", "RUB");
+      Description description = quantity.getProduct().getDescription();
+      ObjectNode size = item.putObject("size");
+      size.put("length", description.getLengthCm() / 100.0);
+      size.put("width", description.getWidthCm() / 100.0);
+      size.put("height", description.getHeightCm() / 100.0);
+      item.put("weight", description.getWeightKg());
+    }
+
+    ObjectNode recipientInfo = requestJson.putObject("recipient_info");
+    recipientInfo.put("first_name", user.getFirstName());
+    recipientInfo.put("last_name", user.getLastName());
+    recipientInfo.put("email", user.getEmail());
+    recipientInfo.put("phone", "+79161234567");
+    requestJson.putObject("billing_info").put("payment_method", "already_paid");
+    ObjectNode clientRequirements = requestJson.putObject("client_requirements");
+    clientRequirements.put("pro_courier", false);
+    clientRequirements.put("taxi_class", "courier");
+    ObjectNode emergencyContact = requestJson.putObject("emergency_contact");
+    emergencyContact.put("name", user.getFirstName() + " " + user.getLastName());
+    emergencyContact.put("phone", "+79161234567");
+    requestJson.put("optional_return", false);
+
+    String logged = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(requestJson);
+    return logged.isEmpty() ? null : requestJson.toString();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(YandexClaimWriterBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
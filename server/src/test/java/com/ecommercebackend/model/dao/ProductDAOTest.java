@@ -0,0 +1,211 @@
+package com.ecommercebackend.model.dao;
+
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.Inventory;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.service.statistics.ProductStatisticsAggregate;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Test class to check the number of statements issued by ProductDAO reads.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.sql.init.mode=never"
+})
+public class ProductDAOTest {
+
+  /** The Product DAO. */
+  @Autowired
+  private ProductDAO productDAO;
+
+  /** The entity manager, used to start every read from an empty persistence context. */
+  @Autowired
+  private EntityManager entityManager;
+
+  /** Hibernate statistics to count prepared statements. */
+  private Statistics statistics;
+
+  /**
+   * Creates products with inventory and description.
+   */
+  @BeforeEach
+  public void setUp() {
+    for (int i = 1; i <= 20; i++) {
+      Product product = new Product();
+      product.setName("Product #" + i);
+      product.setShortDescription("Short description #" + i);
+      product.setPrice(10.0 * i);
+      product.setImage("products/" + i + ".png");
+
+      Inventory inventory = new Inventory();
+      inventory.setProduct(product);
+      inventory.setQuantity(i);
+      product.setInventory(inventory);
+
+      Description description = new Description();
+      description.setProduct(product);
+      description.setModel("Model #" + i);
+      product.setDescription(description);
+
+      productDAO.save(product);
+    }
+    entityManager.flush();
+    statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+  }
+
+  /**
+   * Tests that a listing page costs the same number of statements whatever its size.
+   */
+  @Test
+  public void testListingStatementCountIndependentOfPageSize() {
+    long smallPage = countStatements(2);
+    long largePage = countStatements(10);
+    Assertions.assertEquals(smallPage, largePage, "Statement count should not grow with the page size.");
+    Assertions.assertTrue(largePage <= 2, "A page should need at most the select and the count query.");
+  }
+
+  /**
+   * Tests that keyset pages also load inventory and description with the products.
+   */
+  @Test
+  public void testKeysetStatementCount() {
+    entityManager.clear();
+    statistics.clear();
+    productDAO.findFirstOrderByPrice(PageRequest.of(0, 10)).forEach(p -> p.getInventory().getQuantity());
+    Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "A keyset page should be a single query.");
+  }
+
+  /**
+   * Tests that the version lookup is a single statement and follows stock changes.
+   */
+  @Test
+  public void testVersionLookup() {
+    Long productId = productDAO.findFirstOrderById(PageRequest.of(0, 1)).getContent().get(0).getId();
+    entityManager.clear();
+    statistics.clear();
+    ProductVersionView before = productDAO.findVersionById(productId).orElseThrow();
+    Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "Version lookup should be a single query.");
+    Assertions.assertNotNull(before.getInventoryVersion(), "Inventory version should be loaded.");
+
+    Product product = productDAO.findById(productId).orElseThrow();
+    product.getInventory().setQuantity(product.getInventory().getQuantity() + 1);
+    entityManager.flush();
+    entityManager.clear();
+
+    ProductVersionView after = productDAO.findVersionById(productId).orElseThrow();
+    Assertions.assertEquals(before.getVersion(), after.getVersion(), "Product version should not change.");
+    Assertions.assertEquals(before.getInventoryVersion() + 1, after.getInventoryVersion(),
+        "Inventory version should be incremented.");
+  }
+
+  /**
+   * Tests that the soft delete statement binds the version and bumps it.
+   */
+  @Test
+  public void testSoftDeleteIncrementsVersion() {
+    Product product = productDAO.findFirstOrderById(PageRequest.of(0, 1)).getContent().get(0);
+    Long version = product.getVersion();
+    productDAO.delete(product);
+    entityManager.flush();
+    entityManager.clear();
+
+    // @Where hides deleted rows from JPQL, so the row is read natively.
+    Object[] row = (Object[]) entityManager
+        .createNativeQuery("SELECT deleted, version FROM product WHERE id = :id")
+        .setParameter("id", product.getId())
+        .getSingleResult();
+    Assertions.assertEquals(Boolean.TRUE, row[0], "Product should be soft deleted.");
+    Assertions.assertEquals(version + 1, ((Number) row[1]).longValue(), "Soft delete should increment the version.");
+  }
+
+  /**
+   * Tests that soft deleted products are found by the batch fallback query only.
+   */
+  @Test
+  public void testFindAllDeletedById() {
+    List<Product> products = productDAO.findFirstOrderById(PageRequest.of(0, 2)).getContent();
+    Product deleted = products.get(0);
+    productDAO.delete(deleted);
+    entityManager.flush();
+    entityManager.clear();
+
+    List<Long> ids = List.of(deleted.getId(), products.get(1).getId(), -1L);
+    Assertions.assertEquals(1, productDAO.findAllById(ids).size(), "Only the live product should be found.");
+    List<Product> found = productDAO.findAllDeletedById(ids);
+    Assertions.assertEquals(1, found.size(), "Only the deleted product should be found.");
+    Assertions.assertTrue(found.get(0).isDeleted(), "Found product should be marked deleted.");
+    Assertions.assertEquals(deleted.getName(), found.get(0).getName(), "Deleted product should be fully loaded.");
+  }
+
+  /**
+   * Tests that the export stream reads all products with their details in one query.
+   */
+  @Test
+  public void testStreamAllForExport() {
+    entityManager.clear();
+    statistics.clear();
+    long withStock;
+    try (Stream<Product> products = productDAO.streamAllForExport()) {
+      withStock = products.filter(p -> p.getInventory().getQuantity() > 0).count();
+    }
+    Assertions.assertEquals(20, withStock, "All products should be streamed with inventory.");
+    Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "Export should be a single query.");
+  }
+
+  /**
+   * Tests that the statistics query counts deleted products and agrees with the per-row query.
+   */
+  @Test
+  public void testProductStatistics() {
+    productDAO.delete(productDAO.findFirstOrderById(PageRequest.of(0, 1)).getContent().get(0));
+    entityManager.flush();
+
+    Object[] statistics = productDAO.getProductStatistics().get(0);
+    Assertions.assertEquals(20L, ((Number) statistics[0]).longValue(), "Total should include deleted products.");
+    Assertions.assertEquals(1L, ((Number) statistics[1]).longValue(), "Deleted product should be counted.");
+    Assertions.assertEquals(20.0, ((Number) statistics[3]).doubleValue(), "Min price should skip the deleted product.");
+
+    ProductStatisticsAggregate aggregate = new ProductStatisticsAggregate();
+    try (Stream<Object[]> rows = productDAO.streamStatisticsRows()) {
+      rows.forEach(row -> {
+        long id = ((Number) row[0]).longValue();
+        aggregate.apply(id, new ProductStatisticsAggregate.Row(id, ((Number) row[1]).doubleValue(),
+            Boolean.TRUE.equals(row[2]), row[3] != null ? ((Number) row[3]).intValue() : 0));
+      });
+    }
+    Assertions.assertEquals(((Number) statistics[2]).doubleValue(), aggregate.activePriceSum().doubleValue(),
+        "Price sums should agree.");
+    Assertions.assertEquals(((Number) statistics[5]).longValue(), aggregate.totalStock(), "Stock totals should agree.");
+  }
+
+  /**
+   * Loads a listing page from an empty persistence context and touches the stock of every product.
+   * @param size The page size.
+   * @return The number of statements prepared.
+   */
+  private long countStatements(int size) {
+    entityManager.clear();
+    statistics.clear();
+    Page<Product> page = productDAO.findAll(PageRequest.of(0, size));
+    Assertions.assertEquals(size, page.getNumberOfElements(), "Page should be full.");
+    for (Product product : page) {
+      Assertions.assertNotNull(product.getInventory().getQuantity(), "Inventory should be loaded.");
+      product.getDescription();
+    }
+    return statistics.getPrepareStatementCount();
+  }
+
+}
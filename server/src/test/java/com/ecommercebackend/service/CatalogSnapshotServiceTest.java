@@ -0,0 +1,142 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.CatalogItem;
+import com.ecommercebackend.config.S3Config;
+import com.ecommercebackend.model.Inventory;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Test class to check that CatalogSnapshotService patches its snapshot on committed product changes.
+ * Runs without a test transaction so the listener fires after a real commit, as it does behind a controller.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CatalogSnapshotServiceTest {
+
+  /**
+   * Registers the service as a bean so its transactional listener is wired; storage is never called.
+   */
+  @TestConfiguration
+  static class Config {
+
+    @Bean
+    CatalogSnapshotService catalogSnapshotService(ProductDAO productDAO, PlatformTransactionManager transactionManager) {
+      return new CatalogSnapshotService(productDAO, new YandexStorageService(new S3Config(), null), transactionManager);
+    }
+  }
+
+  @Autowired
+  private CatalogSnapshotService catalogService;
+
+  @Autowired
+  private ProductDAO productDAO;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactionTemplate;
+
+  private Long productId;
+
+  /**
+   * Creates a product and adds it to the snapshot.
+   */
+  @BeforeEach
+  public void setUp() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    productId = transactionTemplate.execute(status -> {
+      Product product = new Product();
+      product.setName("Titanium kettle");
+      product.setShortDescription("Boils water");
+      product.setPrice(10.0);
+      product.setImage("products/kettle.png");
+      Inventory inventory = new Inventory();
+      inventory.setProduct(product);
+      inventory.setQuantity(5);
+      product.setInventory(inventory);
+      Long id = productDAO.save(product).getId();
+      eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.CREATED));
+      return id;
+    });
+  }
+
+  /**
+   * Deletes the committed product, bypassing the soft delete.
+   */
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("DELETE FROM inventory WHERE product_id = ?", productId);
+    jdbcTemplate.update("DELETE FROM product WHERE id = ?", productId);
+  }
+
+  /**
+   * Tests that a soft-deleted product leaves the public catalog although the listener still sees the managed entity.
+   */
+  @Test
+  public void testSoftDeleteRemovesFromCatalog() {
+    Assertions.assertEquals(List.of(productId), catalogIds(), "Created product should be listed.");
+    softDelete(ProductChangedEvent.ChangeType.DELETED);
+    Assertions.assertEquals(List.of(), catalogIds(), "Deleted product should not be listed.");
+  }
+
+  /**
+   * Tests that an unrelated update of a soft-deleted product does not list it again.
+   */
+  @Test
+  public void testUpdateOfDeletedProductKeepsItOut() {
+    softDelete(ProductChangedEvent.ChangeType.UPDATED);
+    Assertions.assertEquals(List.of(), catalogIds(), "Deleted product should not be listed.");
+  }
+
+  /**
+   * Tests that a page whose offset overflows is rejected instead of failing with a 500.
+   */
+  @Test
+  public void testOverflowingPageRejected() {
+    ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+        () -> catalogService.getCatalog("id", null, null, null, Integer.MAX_VALUE, 100),
+        "Overflowing page should be rejected.");
+    Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode(), "Overflowing page should be a 400.");
+  }
+
+  private List<Long> catalogIds() {
+    return catalogService.getCatalog("id", null, null, null, 0, 10).getContent().stream()
+        .map(CatalogItem::getId)
+        .toList();
+  }
+
+  private void softDelete(ProductChangedEvent.ChangeType changeType) {
+    transactionTemplate.executeWithoutResult(status -> {
+      Product product = productDAO.findById(productId).orElseThrow();
+      product.softDelete("test");
+      productDAO.save(product);
+      eventPublisher.publishEvent(new ProductChangedEvent(productId, changeType));
+    });
+  }
+}
@@ -0,0 +1,117 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.DeliveryQuote;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.Warehouse;
+import com.ecommercebackend.service.delivery.CargoProfile;
+import com.ecommercebackend.service.delivery.LogisticsAttributes;
+import com.ecommercebackend.service.delivery.YandexDeliveryClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class to check caching and single-flight of DeliveryQuoteService.
+ */
+public class DeliveryQuoteServiceTest {
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  /** Source warehouse of the last API call. */
+  private volatile Warehouse lastSource;
+
+  /** Price future handed out by the fake client; completed by the test. */
+  private volatile CompletableFuture<YandexDeliveryClient.Price> pending;
+
+  private DeliveryQuoteService quoteService;
+
+  @BeforeEach
+  public void setUp() {
+    YandexDeliveryClient client = new YandexDeliveryClient(null, null, new SimpleMeterRegistry(),
+        1, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1), 10, 5, 0.5, Duration.ofSeconds(30)) {
+      @Override
+      public CompletableFuture<Price> checkPriceAsync(Warehouse source, LogisticsAttributes.Dimensions size,
+                                                      double weightKg, String destination) {
+        calls.incrementAndGet();
+        lastSource = source;
+        return pending;
+      }
+    };
+    quoteService = new DeliveryQuoteService(null, null, client, null, new SimpleMeterRegistry(), Duration.ofMinutes(15), 100);
+  }
+
+  /**
+   * Tests that concurrent identical quotes share one API call and later ones are served from the cache.
+   */
+  @Test
+  public void testSingleFlight() throws Exception {
+    pending = new CompletableFuture<>();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<DeliveryQuote>> quotes = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        // Разные корзины, но одни классы груза и один город
+        CargoProfile profile = new CargoProfile(20 + i, 2 + i / 4.0, 0.2 + i / 10.0);
+        quotes.add(executor.submit(() -> quoteService.quote(address("Москва"), null, profile)));
+      }
+      Thread.sleep(200);
+      pending.complete(new YandexDeliveryClient.Price(new BigDecimal("349.00"), "RUB"));
+      for (Future<DeliveryQuote> quote : quotes) {
+        Assertions.assertEquals(new BigDecimal("349.00"), quote.get(5, TimeUnit.SECONDS).getPrice(),
+            "Every request should get the shared price.");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(1, calls.get(), "Identical concurrent quotes should make one API call.");
+
+    quoteService.quote(address("москва"), null, new CargoProfile(30, 5, 1));
+    Assertions.assertEquals(1, calls.get(), "Cached quote should not call the API.");
+    quoteService.quote(address("Казань"), null, new CargoProfile(30, 5, 1));
+    Assertions.assertEquals(2, calls.get(), "Another city should call the API.");
+
+    Warehouse warehouse = new Warehouse();
+    warehouse.setId(5L);
+    quoteService.quote(address("Казань"), warehouse, new CargoProfile(30, 5, 1));
+    Assertions.assertEquals(3, calls.get(), "Another source warehouse should call the API.");
+    Assertions.assertSame(warehouse, lastSource, "Price should be checked from the source warehouse.");
+  }
+
+  /**
+   * Tests that a failed call is reported as unavailable and not cached.
+   */
+  @Test
+  public void testFailureIsNotCached() {
+    pending = CompletableFuture.failedFuture(new YandexDeliveryClient.DeliveryUnavailableException("circuit is open"));
+    ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+        () -> quoteService.quote(address("Москва"), null, new CargoProfile(30, 5, 1)), "Failed quote should be reported.");
+    Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode(), "Failed quote should be a 503.");
+
+    pending = CompletableFuture.completedFuture(new YandexDeliveryClient.Price(new BigDecimal("349.00"), "RUB"));
+    Assertions.assertEquals(new BigDecimal("349.00"), quoteService.quote(address("Москва"), null, new CargoProfile(30, 5, 1)).getPrice(),
+        "Quote should be retried after a failure.");
+    Assertions.assertEquals(2, calls.get(), "Failure should not be cached.");
+  }
+
+  private static Address address(String city) {
+    Address address = new Address();
+    address.setCountry("Россия");
+    address.setCity(city);
+    return address;
+  }
+
+}
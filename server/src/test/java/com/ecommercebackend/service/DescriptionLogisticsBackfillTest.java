@@ -0,0 +1,83 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.dao.DescriptionDAO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class to check the backfill of numeric dimensions and weight of existing descriptions.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+public class DescriptionLogisticsBackfillTest {
+
+  @Autowired
+  private DescriptionDAO descriptionDAO;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private DescriptionLogisticsBackfill backfill;
+
+  @BeforeEach
+  public void setUp() {
+    // A small batch so the pass spans several batches
+    backfill = new DescriptionLogisticsBackfill(jdbcTemplate, transactionManager, 2);
+  }
+
+  /**
+   * Tests that every parseable value is filled in across batches and unparseable ones are reported.
+   */
+  @Test
+  public void testBackfill() {
+    Long sofa = create("178×60×63 см", "68 кг");
+    Long lamp = create("30x20x20", "не указан");
+    Long rug = create("большой", null);
+    Long chair = create(null, "7 кг");
+    Long table = create("75×120×80 см", "30 кг");
+    jdbcTemplate.update("UPDATE product_description SET length_cm = 1, width_cm = 1, height_cm = 1, weight_kg = 1 WHERE id = ?", table);
+
+    DescriptionLogisticsBackfill.Report report = backfill.backfill();
+    Assertions.assertEquals(4, report.scanned(), "Rows already filled in should not be scanned.");
+    Assertions.assertEquals(3, report.updated(), "Rows with at least one parseable value should be updated.");
+    Assertions.assertEquals(List.of(
+        new DescriptionLogisticsBackfill.Unparseable(lamp, "weight", "не указан"),
+        new DescriptionLogisticsBackfill.Unparseable(rug, "dimensions", "большой")), report.unparseable(),
+        "Unparseable values should be reported in id order.");
+
+    Assertions.assertEquals(List.of(63.0, 60.0, 178.0, 68.0), numbers(sofa), "Sofa should be filled in.");
+    Assertions.assertEquals(Arrays.asList(20.0, 20.0, 30.0, null), numbers(lamp),
+        "Lamp dimensions should be filled in and its weight left empty.");
+    Assertions.assertEquals(Arrays.asList(null, null, null, 7.0), numbers(chair), "Chair weight should be filled in.");
+    Assertions.assertEquals(List.of(1.0, 1.0, 1.0, 1.0), numbers(table), "Filled rows should not be touched.");
+
+    Assertions.assertEquals(2, backfill.backfill().scanned(), "Only unparseable rows should be scanned again.");
+  }
+
+  private Long create(String dimensions, String weight) {
+    Description description = new Description();
+    description.setDimensions(dimensions);
+    description.setWeight(weight);
+    return descriptionDAO.saveAndFlush(description).getId();
+  }
+
+  private List<Double> numbers(Long id) {
+    return jdbcTemplate.queryForObject(
+        "SELECT length_cm, width_cm, height_cm, weight_kg FROM product_description WHERE id = ?",
+        (rs, rowNum) -> Arrays.asList(
+            rs.getObject("length_cm", Double.class), rs.getObject("width_cm", Double.class),
+            rs.getObject("height_cm", Double.class), rs.getObject("weight_kg", Double.class)), id);
+  }
+
+}
@@ -0,0 +1,24 @@
+package com.ecommercebackend.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to unit test the If-None-Match matching of the EntityTagService.
+ */
+public class EntityTagServiceTest {
+
+  /**
+   * Tests single, listed, weak and wildcard tags.
+   */
+  @Test
+  public void testMatches() {
+    Assertions.assertTrue(EntityTagService.matches("\"p1-0-0\"", "p1-0-0"), "Equal tag should match.");
+    Assertions.assertTrue(EntityTagService.matches("\"p2-0-0\", \"p1-0-0\"", "p1-0-0"), "Tag in a list should match.");
+    Assertions.assertTrue(EntityTagService.matches("W/\"p1-0-0\"", "p1-0-0"), "Weak tag should match by value.");
+    Assertions.assertTrue(EntityTagService.matches("*", "p1-0-0"), "Wildcard should match.");
+    Assertions.assertFalse(EntityTagService.matches("\"p1-0-1\"", "p1-0-0"), "Other version should not match.");
+    Assertions.assertFalse(EntityTagService.matches(null, "p1-0-0"), "Missing header should not match.");
+  }
+
+}
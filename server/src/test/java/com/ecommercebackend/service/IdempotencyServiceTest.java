@@ -0,0 +1,228 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.IdempotencyRecord;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.dao.IdempotencyRecordDAO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class to check IdempotencyService replays and expiry.
+ * Runs without a test transaction so every record step commits as it does behind a controller.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdempotencyServiceTest {
+
+  private static final String OPERATION = "POST /order/create";
+
+  @Autowired
+  private IdempotencyRecordDAO recordDAO;
+
+  private IdempotencyService idempotencyService;
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @BeforeEach
+  public void setUp() {
+    idempotencyService = new IdempotencyService(recordDAO, new ObjectMapper(), Duration.ofDays(1), Duration.ofMinutes(1));
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    recordDAO.deleteAll();
+  }
+
+  /**
+   * Tests that a repeated request with the same key gets the stored response without running again.
+   */
+  @Test
+  public void testReplay() {
+    ResponseEntity<Object> first = idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of("address", 5), this::order);
+    ResponseEntity<Object> second = idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of("address", 5), this::order);
+    Assertions.assertEquals(1, calls.get(), "Replay should not run the action again.");
+    Assertions.assertEquals(Map.of("id", 1), first.getBody(), "First request should return the action result.");
+    Assertions.assertEquals(1, ((JsonNode) second.getBody()).get("id").asInt(),
+        "Replay should return the stored response.");
+    Assertions.assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER),
+        "Replay should be marked as such.");
+    Assertions.assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER),
+        "First response should not be marked as a replay.");
+  }
+
+  /**
+   * Tests that reusing a key for a different request is rejected, while another user may use the same key.
+   */
+  @Test
+  public void testKeyReuse() {
+    idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of("address", 5), this::order);
+    ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+        () -> idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of("address", 6), this::order),
+        "Same key with a different body should be rejected.");
+    Assertions.assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode(), "Key reuse should be a 422.");
+
+    idempotencyService.execute(user(2L), "key-1", OPERATION, Map.of("address", 6), this::order);
+    Assertions.assertEquals(2, calls.get(), "Keys should be scoped to the user.");
+  }
+
+  /**
+   * Tests that a failed request frees its key so the client can retry with it.
+   */
+  @Test
+  public void testFailureFreesKey() {
+    Assertions.assertThrows(ResponseStatusException.class,
+        () -> idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of(), () -> {
+          throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }), "Failure of the action should reach the caller.");
+    Assertions.assertTrue(recordDAO.findByUserIdAndIdempotencyKey(1L, "key-1").isEmpty(),
+        "Failed request should not keep its record.");
+    idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of(), this::order);
+    Assertions.assertEquals(1, calls.get(), "Retry after a failure should run the action.");
+  }
+
+  /**
+   * Tests that expired records are purged and no longer replayed.
+   */
+  @Test
+  public void testExpiry() {
+    idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of(), this::order);
+    idempotencyService.execute(user(1L), "key-2", OPERATION, Map.of(), this::order);
+    IdempotencyRecord record = recordDAO.findByUserIdAndIdempotencyKey(1L, "key-1").orElseThrow();
+    record.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+    recordDAO.save(record);
+
+    idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of("address", 6), this::order);
+    Assertions.assertEquals(3, calls.get(), "Expired key should not be replayed.");
+
+    record = recordDAO.findByUserIdAndIdempotencyKey(1L, "key-1").orElseThrow();
+    record.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+    recordDAO.save(record);
+    idempotencyService.purgeExpired();
+    Assertions.assertTrue(recordDAO.findByUserIdAndIdempotencyKey(1L, "key-1").isEmpty(),
+        "Expired record should be purged.");
+    Assertions.assertTrue(recordDAO.findByUserIdAndIdempotencyKey(1L, "key-2").isPresent(),
+        "Live record should be kept.");
+  }
+
+  /**
+   * Tests that a key in progress holds only for the lease and a completed response for the whole ttl.
+   */
+  @Test
+  public void testLease() {
+    idempotencyService.execute(user(1L), "key-1", OPERATION, Map.of(), () -> {
+      LocalDateTime expiresAt = recordDAO.findByUserIdAndIdempotencyKey(1L, "key-1").orElseThrow().getExpiresAt();
+      Assertions.assertTrue(expiresAt.isBefore(LocalDateTime.now().plusMinutes(2)),
+          "Key in progress should expire after the lease.");
+      return order();
+    });
+    LocalDateTime expiresAt = recordDAO.findByUserIdAndIdempotencyKey(1L, "key-1").orElseThrow().getExpiresAt();
+    Assertions.assertTrue(expiresAt.isAfter(LocalDateTime.now().plusHours(23)),
+        "Completed response should be kept for the ttl.");
+  }
+
+  /**
+   * Tests that of two concurrent requests with the same key, both past the lookup, only one runs
+   * and the other loses on the unique index with a 409 instead of an error.
+   */
+  @Test
+  public void testConcurrentSameKey() throws Exception {
+    // Both requests find no record before either inserts one
+    CyclicBarrier lookedUp = new CyclicBarrier(2);
+    AtomicInteger lookups = new AtomicInteger();
+    IdempotencyRecordDAO racingDAO = (IdempotencyRecordDAO) Proxy.newProxyInstance(
+        IdempotencyRecordDAO.class.getClassLoader(), new Class<?>[]{IdempotencyRecordDAO.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("findByUserIdAndIdempotencyKey") && lookups.getAndIncrement() < 2) {
+            lookedUp.await(10, TimeUnit.SECONDS);
+          }
+          try {
+            return method.invoke(recordDAO, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+    IdempotencyService racingService =
+        new IdempotencyService(racingDAO, new ObjectMapper(), Duration.ofDays(1), Duration.ofMinutes(1));
+    CountDownLatch finish = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      CompletionService<ResponseEntity<Object>> requests = new ExecutorCompletionService<>(executor);
+      for (int i = 0; i < 2; i++) {
+        requests.submit(() -> racingService.execute(user(1L), "key-1", OPERATION, Map.of(), () -> {
+          try {
+            finish.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return order();
+        }));
+      }
+      // The loser returns while the winner still holds the key
+      ExecutionException lost = Assertions.assertThrows(ExecutionException.class,
+          () -> requests.take().get(), "Concurrent request should not run.");
+      Assertions.assertEquals(HttpStatus.CONFLICT, ((ResponseStatusException) lost.getCause()).getStatusCode(),
+          "Concurrent request should be a 409.");
+      finish.countDown();
+      Assertions.assertEquals(Map.of("id", 1), requests.take().get().getBody(), "Winner should run the action.");
+      Assertions.assertEquals(1, calls.get(), "Action should run once.");
+      Assertions.assertTrue(lookups.get() > 2, "Loser should have read the winner's record after the insert failed.");
+    } finally {
+      finish.countDown();
+      executor.shutdownNow();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Tests that blank keys are rejected and requests without a key always run.
+   */
+  @Test
+  public void testKeyValidation() {
+    ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+        () -> idempotencyService.execute(user(1L), " ", OPERATION, Map.of(), this::order),
+        "Blank key should be rejected.");
+    Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode(), "Blank key should be a 400.");
+    idempotencyService.execute(user(1L), null, OPERATION, Map.of(), this::order);
+    idempotencyService.execute(user(1L), null, OPERATION, Map.of(), this::order);
+    Assertions.assertEquals(2, calls.get(), "Requests without a key should always run.");
+    Assertions.assertEquals(IdempotencyService.externalKey(user(1L), "key-1", OPERATION),
+        IdempotencyService.externalKey(user(1L), "key-1", OPERATION), "External key should be derived from the client key.");
+  }
+
+  private Map<String, Integer> order() {
+    return Map.of("id", calls.incrementAndGet());
+  }
+
+  private static LocalUser user(Long id) {
+    LocalUser user = new LocalUser();
+    user.setId(id);
+    return user;
+  }
+
+}
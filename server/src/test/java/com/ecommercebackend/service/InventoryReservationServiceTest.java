@@ -0,0 +1,401 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.config.YandexDeliveryConfig;
+import com.ecommercebackend.exception.InsufficientStockException;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.Inventory;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.Warehouse;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.WebOrderQuantities;
+import com.ecommercebackend.model.dao.AddressDAO;
+import com.ecommercebackend.model.dao.DeliveryOutboxDAO;
+import com.ecommercebackend.model.dao.InventoryDAO;
+import com.ecommercebackend.model.dao.LocalUserDAO;
+import com.ecommercebackend.model.dao.OrderAllocationDAO;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.model.dao.WarehouseDAO;
+import com.ecommercebackend.model.dao.WebOrderDAO;
+import com.ecommercebackend.model.enums.Role;
+import com.ecommercebackend.service.delivery.YandexClaimWriter;
+import com.ecommercebackend.service.fulfilment.FulfilmentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class to check InventoryReservationService under concurrent orders.
+ * Runs without a test transaction so every reservation really commits.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class InventoryReservationServiceTest {
+
+  private static final int STOCK = 100;
+
+  private static final int ORDERS = 400;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private ProductDAO productDAO;
+
+  @Autowired
+  private InventoryDAO inventoryDAO;
+
+  @Autowired
+  private WebOrderDAO webOrderDAO;
+
+  @Autowired
+  private WarehouseDAO warehouseDAO;
+
+  @Autowired
+  private OrderAllocationDAO allocationDAO;
+
+  @Autowired
+  private LocalUserDAO localUserDAO;
+
+  @Autowired
+  private AddressDAO addressDAO;
+
+  @Autowired
+  private DeliveryOutboxDAO deliveryOutboxDAO;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private FlashSaleService flashSaleService;
+
+  private FulfilmentService fulfilmentService;
+
+  private InventoryReservationService reservationService;
+
+  private TransactionTemplate transactionTemplate;
+
+  private Long first;
+
+  private Long second;
+
+  /**
+   * Creates two products with the same stock.
+   */
+  @BeforeEach
+  public void setUp() {
+    fulfilmentService = new FulfilmentService(jdbcTemplate, warehouseDAO, allocationDAO, 16);
+    flashSaleService = new FlashSaleService(jdbcTemplate, event -> { }, fulfilmentService, transactionManager,
+        new SimpleMeterRegistry(), 8, 1000, Duration.ofSeconds(5));
+    reservationService = new InventoryReservationService(jdbcTemplate, inventoryDAO, webOrderDAO,
+        flashSaleService, fulfilmentService, event -> { }, transactionManager, Duration.ofMinutes(30));
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    first = createProduct(1);
+    second = createProduct(2);
+  }
+
+  /**
+   * Deletes the committed products so other tests do not see them.
+   */
+  @AfterEach
+  public void cleanUp() {
+    productDAO.deleteAllById(List.of(first, second));
+  }
+
+  /**
+   * Tests that concurrent orders for the same products never oversell and never deadlock,
+   * whatever order their lines come in.
+   */
+  @Test
+  public void testConcurrentOrders() throws Exception {
+    Assertions.assertEquals(STOCK, placeConcurrentOrders(), "Exactly the stock should be reserved.");
+    Assertions.assertEquals(0, quantity(first), "Stock should be sold out, never negative.");
+    Assertions.assertEquals(0, quantity(second), "Stock should be sold out, never negative.");
+  }
+
+  /**
+   * Tests that a product on flash sale is sold from its counter without touching its inventory row,
+   * alongside a product sold from the table.
+   */
+  @Test
+  public void testConcurrentOrdersOnFlashSale() throws Exception {
+    flashSaleService.setEnabled(first, true, admin());
+    Assertions.assertEquals(STOCK, placeConcurrentOrders(), "Exactly the stock should be reserved.");
+    Assertions.assertEquals(0, flashSaleService.counter(first).available(), "Counter should be sold out, never negative.");
+    Assertions.assertEquals(STOCK, quantity(first), "Flash-sale stock should only be written back with the order lines.");
+    Assertions.assertEquals(0, quantity(second), "Table stock should be sold out, never negative.");
+  }
+
+  /**
+   * Tests that concurrent orders shipped from a warehouse never lock its row of a flash-sale product:
+   * the warehouse stock is taken by the write back, and no order fails on a warehouse conflict.
+   */
+  @Test
+  public void testConcurrentFlashSaleOrdersWithWarehouses() throws Exception {
+    Address address = createBuyer();
+    LocalUser user = address.getUser();
+    Warehouse warehouse = new Warehouse();
+    warehouse.setName("Склад Москва");
+    warehouse.setAddress("Москва");
+    warehouse.setLatitude(55.75);
+    warehouse.setLongitude(37.62);
+    warehouse.setContactPhone("+79991234567");
+    warehouse = warehouseDAO.save(warehouse);
+    for (Long productId : List.of(first, second)) {
+      jdbcTemplate.update("INSERT INTO warehouse_stock (warehouse_id, product_id, quantity) VALUES (?, ?, ?)",
+          warehouse.getId(), productId, STOCK);
+    }
+    try {
+      fulfilmentService.refreshIndex();
+      flashSaleService.setEnabled(first, true, admin());
+      OrderService orderService = newOrderService();
+
+      AtomicInteger reserved = new AtomicInteger();
+      AtomicInteger rejected = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(32);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+          WebOrder order = order(address.getId(), first, second);
+          futures.add(executor.submit(() -> {
+            try {
+              transactionTemplate.executeWithoutResult(status -> orderService.createOrder(order, user));
+              reserved.incrementAndGet();
+            } catch (InsufficientStockException e) {
+              rejected.incrementAndGet();
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          // A warehouse conflict would surface here as a 409 thrown by the order
+          future.get(60, TimeUnit.SECONDS);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+      Assertions.assertEquals(STOCK, reserved.get(), "Exactly the stock should be ordered.");
+      Assertions.assertEquals(ORDERS - STOCK, rejected.get(), "Every other order should be short of stock.");
+      Assertions.assertEquals(STOCK, warehouseQuantity(warehouse.getId(), first),
+          "Orders should not touch the warehouse row of a flash-sale product.");
+      Assertions.assertEquals(0, warehouseQuantity(warehouse.getId(), second), "Table stock should be taken from the warehouse.");
+
+      flashSaleService.writeBack();
+      Assertions.assertEquals(0, quantity(first), "Write back should take the inventory.");
+      Assertions.assertEquals(0, warehouseQuantity(warehouse.getId(), first), "Write back should take the warehouse stock.");
+      Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+          "SELECT COUNT(*) FROM order_allocation WHERE stock_pending = true", Integer.class),
+          "No allocation should stay pending.");
+    } finally {
+      jdbcTemplate.update("DELETE FROM warehouse_stock");
+      deleteOrders(address);
+      warehouseDAO.deleteById(warehouse.getId());
+    }
+  }
+
+  /**
+   * Tests that disabling a flash sale waits for an order that has already taken from the counter,
+   * so its line is written back before the table path may sell the product again, and that an
+   * order arriving meanwhile is sold from the table instead of being reported short.
+   */
+  @Test
+  public void testDisableWaitsForInFlightOrders() throws Exception {
+    Address address = createBuyer();
+    OrderService orderService = newOrderService();
+    flashSaleService.setEnabled(first, true, admin());
+    CountDownLatch taken = new CountDownLatch(1);
+    CountDownLatch commit = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Future<?> inFlight = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+        orderService.createOrder(order(address.getId(), first), address.getUser());
+        taken.countDown();
+        await(commit);
+      }));
+      Assertions.assertTrue(taken.await(10, TimeUnit.SECONDS), "First order should take from the counter.");
+      Future<?> disabled = executor.submit(() -> flashSaleService.setEnabled(first, false, admin()));
+      // Lets the counter close; counter() itself would wait for the sale to end
+      Thread.sleep(100);
+      Future<?> arriving = executor.submit(() -> transactionTemplate.executeWithoutResult(
+          status -> orderService.createOrder(order(address.getId(), first), address.getUser())));
+      Thread.sleep(200);
+      Assertions.assertFalse(disabled.isDone(), "Disabling should wait for the order in flight.");
+      Assertions.assertFalse(arriving.isDone(), "An arriving order should wait for the flash sale to end.");
+
+      commit.countDown();
+      inFlight.get(10, TimeUnit.SECONDS);
+      disabled.get(10, TimeUnit.SECONDS);
+      arriving.get(10, TimeUnit.SECONDS);
+      Assertions.assertNull(flashSaleService.counter(first), "Counter should be gone once the sale is off.");
+      Assertions.assertEquals(STOCK - 2, quantity(first),
+          "Both the written-back line and the order sold from the table should be taken.");
+      Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+          "SELECT COUNT(*) FROM web_order_quantities WHERE stock_pending = true", Integer.class),
+          "No line should be left pending.");
+    } finally {
+      commit.countDown();
+      executor.shutdownNow();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+      deleteOrders(address);
+    }
+  }
+
+  /**
+   * Tests that a short line leaves the stock of every line untouched and reports what is available.
+   */
+  @Test
+  public void testShortfallTakesNothing() {
+    Long unknown = second + 1000;
+    List<InsufficientStockException.Shortfall> shortfalls = transactionTemplate.execute(
+        status -> reservationService.reserve(Map.of(first, 5, second, STOCK + 1, unknown, 1)).shortfalls());
+    Assertions.assertEquals(List.of(
+        new InsufficientStockException.Shortfall(second, STOCK + 1, STOCK),
+        new InsufficientStockException.Shortfall(unknown, 1, 0)), shortfalls,
+        "Short lines should be reported in product order.");
+    Assertions.assertEquals(STOCK, quantity(first), "Lines in stock should be given back.");
+  }
+
+  /**
+   * Places two-line orders for both products from many threads.
+   * @return The number of orders reserved; every other order must have been rejected.
+   */
+  private int placeConcurrentOrders() throws Exception {
+    AtomicInteger reserved = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(32);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < ORDERS; i++) {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        if (i % 2 == 0) {
+          lines.put(first, 1);
+          lines.put(second, 1);
+        } else {
+          lines.put(second, 1);
+          lines.put(first, 1);
+        }
+        futures.add(executor.submit(() -> {
+          InventoryReservationService.Reservation reservation =
+              transactionTemplate.execute(status -> reservationService.reserve(lines));
+          (reservation.isReserved() ? reserved : rejected).incrementAndGet();
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(ORDERS - reserved.get(), rejected.get(), "Every order should be either reserved or rejected.");
+    return reserved.get();
+  }
+
+  private Long createProduct(int number) {
+    Product product = new Product();
+    product.setName("Product #" + number);
+    product.setShortDescription("Flash sale");
+    product.setPrice(10.0);
+    product.setImage("products/" + number + ".png");
+    Inventory inventory = new Inventory();
+    inventory.setProduct(product);
+    inventory.setQuantity(STOCK);
+    product.setInventory(inventory);
+    return productDAO.save(product).getId();
+  }
+
+  /** A committed user with an address near Moscow. */
+  private Address createBuyer() {
+    LocalUser user = new LocalUser();
+    user.setUsername("flash-buyer");
+    user.setPassword("password");
+    user.setEmail("flash-buyer@example.com");
+    user.setFirstName("Buyer");
+    user.setLastName("Buyer");
+    user.setRole(Role.USER);
+    user = localUserDAO.save(user);
+    Address address = new Address();
+    address.setAddressLine("Москва, ул. Тверская, 15");
+    address.setCity("Москва");
+    address.setCountry("Россия");
+    address.setLatitude(55.7558);
+    address.setLongitude(37.6173);
+    address.setUser(user);
+    return addressDAO.save(address);
+  }
+
+  /** Deletes every order with the buyer who placed them. */
+  private void deleteOrders(Address address) {
+    jdbcTemplate.update("DELETE FROM delivery_outbox");
+    jdbcTemplate.update("DELETE FROM order_allocation");
+    jdbcTemplate.update("DELETE FROM web_order_quantities");
+    jdbcTemplate.update("DELETE FROM web_order");
+    addressDAO.deleteById(address.getId());
+    localUserDAO.deleteById(address.getUser().getId());
+  }
+
+  private OrderService newOrderService() {
+    YandexDeliveryConfig deliveryConfig = new YandexDeliveryConfig();
+    deliveryConfig.setUrl("http://localhost");
+    return new OrderService(webOrderDAO, addressDAO, productDAO, new YandexClaimWriter(deliveryConfig),
+        deliveryOutboxDAO, reservationService, fulfilmentService);
+  }
+
+  private static LocalUser admin() {
+    LocalUser admin = new LocalUser();
+    admin.setRole(Role.ADMIN);
+    return admin;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private WebOrder order(Long addressId, Long... productIds) {
+    WebOrder order = new WebOrder();
+    Address address = new Address();
+    address.setId(addressId);
+    order.setAddress(address);
+    for (Long productId : productIds) {
+      Product product = new Product();
+      product.setId(productId);
+      WebOrderQuantities line = new WebOrderQuantities();
+      line.setProduct(product);
+      line.setQuantity(1);
+      order.getQuantities().add(line);
+    }
+    return order;
+  }
+
+  private int warehouseQuantity(Long warehouseId, Long productId) {
+    return jdbcTemplate.queryForObject("SELECT quantity FROM warehouse_stock WHERE warehouse_id = ? AND product_id = ?",
+        Integer.class, warehouseId, productId);
+  }
+
+  private int quantity(Long productId) {
+    return jdbcTemplate.queryForObject("SELECT quantity FROM inventory WHERE product_id = ?", Integer.class, productId);
+  }
+
+}
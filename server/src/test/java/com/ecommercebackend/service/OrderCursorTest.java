@@ -0,0 +1,38 @@
+package com.ecommercebackend.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Test class to unit test the OrderCursor class.
+ */
+public class OrderCursorTest {
+
+  /**
+   * Tests that a cursor survives encoding and decoding.
+   */
+  @Test
+  public void testRoundTrip() {
+    String token = new OrderCursor(42L).encode();
+    Assertions.assertEquals(42L, OrderCursor.decode(token).getLastId(), "Id should be restored from the cursor.");
+  }
+
+  /**
+   * Tests that malformed cursors and cursors of another kind are rejected.
+   */
+  @Test
+  public void testInvalidCursor() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("not base64!"),
+        "Non-Base64 cursor should be rejected.");
+    String foreign = Base64.getUrlEncoder().withoutPadding().encodeToString("id::42".getBytes(StandardCharsets.UTF_8));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode(foreign),
+        "Product cursor should be rejected.");
+    String notANumber = Base64.getUrlEncoder().withoutPadding().encodeToString("order:x".getBytes(StandardCharsets.UTF_8));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode(notANumber),
+        "Cursor without an id should be rejected.");
+  }
+
+}
@@ -0,0 +1,513 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.OrderHistoryPage;
+import com.ecommercebackend.api.model.OrderSummary;
+import com.ecommercebackend.api.model.OrderSummaryPage;
+import com.ecommercebackend.config.YandexDeliveryConfig;
+import com.ecommercebackend.exception.InsufficientStockException;
+import com.ecommercebackend.exception.ProductsUnavailableException;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.DeliveryOutbox;
+import com.ecommercebackend.model.Inventory;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.Warehouse;
+import com.ecommercebackend.model.WarehouseStock;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.WebOrderQuantities;
+import com.ecommercebackend.model.dao.AddressDAO;
+import com.ecommercebackend.model.dao.DeliveryOutboxDAO;
+import com.ecommercebackend.model.dao.InventoryDAO;
+import com.ecommercebackend.model.dao.OrderAllocationDAO;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.model.dao.WarehouseDAO;
+import com.ecommercebackend.model.dao.WebOrderDAO;
+import com.ecommercebackend.model.enums.ReservationStatus;
+import com.ecommercebackend.model.enums.Role;
+import com.ecommercebackend.service.delivery.YandexClaimWriter;
+import com.ecommercebackend.service.fulfilment.FulfilmentService;
+import com.ecommercebackend.service.payment.PaymentStatusPoller;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class to check the statements issued by OrderService.createOrder.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.sql.init.mode=never"
+})
+public class OrderServiceTest {
+
+  @Autowired
+  private WebOrderDAO webOrderDAO;
+
+  @Autowired
+  private AddressDAO addressDAO;
+
+  @Autowired
+  private ProductDAO productDAO;
+
+  @Autowired
+  private DeliveryOutboxDAO deliveryOutboxDAO;
+
+  @Autowired
+  private InventoryDAO inventoryDAO;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private WarehouseDAO warehouseDAO;
+
+  @Autowired
+  private OrderAllocationDAO allocationDAO;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  /** The Order Service, wired by hand. */
+  private OrderService orderService;
+
+  private InventoryReservationService reservationService;
+
+  private FlashSaleService flashSaleService;
+
+  private FulfilmentService fulfilmentService;
+
+  private Statistics statistics;
+
+  private LocalUser user;
+
+  private Address address;
+
+  private final List<Long> productIds = new ArrayList<>();
+
+  /**
+   * Creates a user with an address and products to order.
+   */
+  @BeforeEach
+  public void setUp() {
+    YandexDeliveryConfig deliveryConfig = new YandexDeliveryConfig();
+    deliveryConfig.setUrl("http://localhost");
+    fulfilmentService = new FulfilmentService(jdbcTemplate, warehouseDAO, allocationDAO, 16);
+    flashSaleService = newFlashSaleService();
+    reservationService = new InventoryReservationService(jdbcTemplate, inventoryDAO,
+        webOrderDAO, flashSaleService, fulfilmentService, event -> { }, transactionManager, Duration.ofMinutes(30));
+    orderService = new OrderService(webOrderDAO, addressDAO, productDAO, new YandexClaimWriter(deliveryConfig), deliveryOutboxDAO,
+        reservationService, fulfilmentService);
+
+    user = new LocalUser();
+    user.setUsername("buyer");
+    user.setPassword("password");
+    user.setEmail("buyer@example.com");
+    user.setFirstName("Buyer");
+    user.setLastName("Buyer");
+    user.setRole(Role.USER);
+    entityManager.persist(user);
+
+    address = new Address();
+    address.setAddressLine("Москва, ул. Тверская, 15");
+    address.setCity("Москва");
+    address.setCountry("Россия");
+    address.setUser(user);
+    addressDAO.save(address);
+
+    for (int i = 1; i <= 10; i++) {
+      Product product = new Product();
+      product.setName("Product #" + i);
+      product.setShortDescription("Short description #" + i);
+      product.setPrice(10.0 * i);
+      product.setImage("products/" + i + ".png");
+      Inventory inventory = new Inventory();
+      inventory.setProduct(product);
+      inventory.setQuantity(100);
+      product.setInventory(inventory);
+      productIds.add(productDAO.save(product).getId());
+    }
+    entityManager.flush();
+    statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+  }
+
+  /**
+   * Tests that the number of non-insert statements does not grow with the number of lines.
+   */
+  @Test
+  public void testQueryCountIndependentOfLineCount() {
+    long twoLines = countQueries(2);
+    long tenLines = countQueries(10);
+    Assertions.assertEquals(twoLines, tenLines, "Queries should not grow with the number of order lines.");
+    Assertions.assertTrue(tenLines <= 2, "Address and all products should be loaded with one query each.");
+  }
+
+  /**
+   * Tests that every missing and deleted product is reported at once.
+   */
+  @Test
+  public void testUnavailableProductsReported() {
+    Long deletedId = productIds.get(0);
+    productDAO.delete(productDAO.findById(deletedId).orElseThrow());
+    entityManager.flush();
+    entityManager.clear();
+
+    WebOrder order = order(productIds.subList(0, 3));
+    order.getQuantities().add(line(-1L));
+    ProductsUnavailableException e = Assertions.assertThrows(ProductsUnavailableException.class,
+        () -> orderService.createOrder(order, user));
+    Assertions.assertEquals(List.of(-1L), e.getMissingIds(), "Unknown product should be reported as missing.");
+    Assertions.assertEquals(List.of(deletedId), e.getDeletedIds(), "Deleted product should be reported as deleted.");
+  }
+
+  /**
+   * Tests that an order takes its stock and that every short line is reported without taking any.
+   */
+  @Test
+  public void testStockReserved() {
+    WebOrder order = order(productIds.subList(0, 2));
+    order.getQuantities().get(0).setQuantity(30);
+    order.getQuantities().add(line(productIds.get(0)));
+    WebOrder saved = orderService.createOrder(order, user);
+    Assertions.assertEquals(ReservationStatus.RESERVED, saved.getReservationStatus(), "Order should hold a reservation.");
+    Assertions.assertEquals(69, quantity(productIds.get(0)), "Lines of the same product should be summed.");
+    Assertions.assertEquals(99, quantity(productIds.get(1)), "Stock should be taken.");
+
+    WebOrder tooMuch = order(productIds.subList(0, 3));
+    tooMuch.getQuantities().get(0).setQuantity(70);
+    tooMuch.getQuantities().get(2).setQuantity(101);
+    InsufficientStockException e = Assertions.assertThrows(InsufficientStockException.class,
+        () -> orderService.createOrder(tooMuch, user));
+    Assertions.assertEquals(List.of(
+        new InsufficientStockException.Shortfall(productIds.get(0), 70, 69),
+        new InsufficientStockException.Shortfall(productIds.get(2), 101, 100)), e.getShortfalls(),
+        "Every short line should be reported with the stock available.");
+    Assertions.assertEquals(99, quantity(productIds.get(1)), "Lines in stock should not be taken when others are short.");
+  }
+
+  /**
+   * Tests that orders ship from the nearest warehouse holding all of them, are split
+   * nearest first otherwise, that quotes use the same warehouse, and that releasing
+   * a split order returns the warehouse stock.
+   */
+  @Test
+  public void testRoutedToWarehouses() {
+    address.setLatitude(55.7558);
+    address.setLongitude(37.6173);
+    Warehouse moscow = warehouse("Москва", 55.75, 37.62);
+    Warehouse tver = warehouse("Тверь", 56.86, 35.90);
+    Warehouse novosibirsk = warehouse("Новосибирск", 55.03, 82.92);
+    stock(moscow, productIds.get(0), 5);
+    stock(tver, productIds.get(0), 5);
+    stock(tver, productIds.get(1), 5);
+    stock(novosibirsk, productIds.get(1), 50);
+    entityManager.flush();
+    fulfilmentService.refreshIndex();
+
+    Assertions.assertEquals(tver.getId(), fulfilmentService.sourceWarehouse(address,
+        Map.of(productIds.get(0), 1, productIds.get(1), 1)).getId(), "Cart should be quoted from the warehouse that ships it.");
+    Assertions.assertEquals(novosibirsk.getId(), fulfilmentService.sourceWarehouse(address,
+        Map.of(productIds.get(1), 10)).getId(), "Cart should be quoted from the nearest warehouse holding all of it.");
+    Assertions.assertEquals(5, warehouseQuantity(tver, productIds.get(1)), "Quoting should not take warehouse stock.");
+
+    WebOrder both = orderService.createOrder(order(productIds.subList(0, 2)), user);
+    Assertions.assertEquals(List.of(tver.getId()), allocatedWarehouses(both),
+        "Nearest warehouse with the whole order should ship it.");
+
+    WebOrder request = order(productIds.subList(0, 1));
+    request.getQuantities().get(0).setQuantity(7);
+    WebOrder split = orderService.createOrder(request, user);
+    Assertions.assertEquals(List.of(moscow.getId(), tver.getId()), allocatedWarehouses(split),
+        "Order should be split nearest first.");
+    Assertions.assertEquals(0, warehouseQuantity(moscow, productIds.get(0)), "Nearest warehouse should give all it has.");
+    Assertions.assertEquals(2, warehouseQuantity(tver, productIds.get(0)), "Next warehouse should give the rest.");
+    List<String> requestIds = deliveryOutboxDAO.findAll().stream()
+        .filter(entry -> entry.getOrder().getId().equals(split.getId()))
+        .map(DeliveryOutbox::getRequestId).toList();
+    Assertions.assertEquals(List.of(split.getId().toString(), split.getId() + "-2"), requestIds,
+        "Every claim of the order should get its own request id.");
+
+    entityManager.flush();
+    Assertions.assertTrue(reservationService.release(split.getId()), "Split order should be released.");
+    Assertions.assertEquals(5, warehouseQuantity(moscow, productIds.get(0)), "Warehouse stock should be given back.");
+    Assertions.assertEquals(4, warehouseQuantity(tver, productIds.get(0)), "Warehouse stock should be given back.");
+  }
+
+  /**
+   * Tests that releasing an abandoned order gives its stock back exactly once.
+   */
+  @Test
+  public void testReleaseOnce() {
+    WebOrder saved = orderService.createOrder(order(productIds.subList(0, 2)), user);
+    entityManager.flush();
+    Assertions.assertTrue(reservationService.release(saved.getId()), "Active reservation should be released.");
+    Assertions.assertFalse(reservationService.release(saved.getId()), "Released reservation should not be released again.");
+    Assertions.assertEquals(100, quantity(productIds.get(0)), "Stock should be given back once.");
+    Assertions.assertEquals(100, quantity(productIds.get(1)), "Stock should be given back once.");
+  }
+
+  /**
+   * Tests that a payment must match the order total, keeps the order reserved
+   * for longer, and cannot be created twice for the same order.
+   */
+  @Test
+  public void testPreparePayment() {
+    WebOrder request = order(productIds.subList(0, 2));
+    request.getQuantities().get(1).setQuantity(3);
+    Long id = orderService.createOrder(request, user).getId();
+    entityManager.flush();
+    jdbcTemplate.update("UPDATE web_order SET reserved_until = ? WHERE id = ?", LocalDateTime.now().plusMinutes(1), id);
+    entityManager.clear();
+
+    ResponseStatusException wrong = Assertions.assertThrows(ResponseStatusException.class,
+        () -> reservationService.preparePayment(id, user, "1.00"), "Amount other than the total should be rejected.");
+    Assertions.assertEquals(HttpStatus.BAD_REQUEST, wrong.getStatusCode(), "Wrong amount should be a bad request.");
+
+    reservationService.preparePayment(id, user, "70.00");
+    Assertions.assertEquals(ReservationStatus.RESERVED.name(), reservationStatus(id), "Order should stay reserved while unpaid.");
+    Assertions.assertTrue(jdbcTemplate.queryForObject("SELECT reserved_until FROM web_order WHERE id = ?",
+        LocalDateTime.class, id).isAfter(LocalDateTime.now().plusMinutes(29)), "Reservation should be extended for the payment.");
+
+    reservationService.attachPayment(id, "payment-1");
+    entityManager.clear();
+    ResponseStatusException repeated = Assertions.assertThrows(ResponseStatusException.class,
+        () -> reservationService.preparePayment(id, user, "70.00"), "Second payment for the order should be rejected.");
+    Assertions.assertEquals(HttpStatus.CONFLICT, repeated.getStatusCode(), "Second payment should be a conflict.");
+  }
+
+  /**
+   * Tests that an order with a payment follows the payment status and is left
+   * alone by the sweeper of abandoned orders.
+   */
+  @Test
+  public void testPaymentStatusPolling() {
+    Long pending = paidOrder("pending");
+    Long succeeded = paidOrder("succeeded");
+    Long canceled = paidOrder("canceled");
+    Long expired = paidOrder("expired");
+    Long unreachable = paidOrder("unreachable");
+    jdbcTemplate.update("UPDATE web_order SET reserved_until = ? WHERE id IN (?, ?)",
+        LocalDateTime.now().minusMinutes(1), expired, unreachable);
+
+    reservationService.releaseExpired();
+    Assertions.assertEquals(ReservationStatus.RESERVED.name(), reservationStatus(expired),
+        "Sweeper should leave orders with a payment to the poller.");
+
+    Map<String, String> statuses = Map.of("pending", "pending", "succeeded", "succeeded",
+        "canceled", "canceled", "expired", "pending");
+    new PaymentStatusPoller(webOrderDAO, reservationService, paymentId -> {
+      if (!statuses.containsKey(paymentId)) {
+        throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "YooKassa is unavailable");
+      }
+      return statuses.get(paymentId);
+    }).poll();
+
+    Assertions.assertEquals(ReservationStatus.RESERVED.name(), reservationStatus(pending), "Pending payment should keep the order reserved.");
+    Assertions.assertEquals(ReservationStatus.COMMITTED.name(), reservationStatus(succeeded), "Paid order should be committed.");
+    Assertions.assertEquals(ReservationStatus.RELEASED.name(), reservationStatus(canceled), "Canceled payment should release the order.");
+    Assertions.assertEquals(ReservationStatus.RELEASED.name(), reservationStatus(expired), "Payment not made in time should release the order.");
+    Assertions.assertEquals(ReservationStatus.RESERVED.name(), reservationStatus(unreachable),
+        "Order should stay reserved while the payment status is unknown.");
+    Assertions.assertEquals(100 - 3, quantity(productIds.get(0)), "Stock of released orders should be given back.");
+  }
+
+  /**
+   * Tests that a flash-sale order leaves inventory alone until it is written back,
+   * and that a restart writes back what was left pending before loading the counter.
+   */
+  @Test
+  public void testFlashSaleWriteBack() {
+    Long productId = productIds.get(0);
+    flashSaleService.setEnabled(productId, true, admin());
+    WebOrder saved = orderService.createOrder(order(List.of(productId)), user);
+    entityManager.flush();
+    Assertions.assertTrue(saved.getQuantities().get(0).isStockPending(), "Line should wait for the write back.");
+    Assertions.assertEquals(99, flashSaleService.counter(productId).available(), "Counter should be taken from.");
+    Assertions.assertEquals(100, quantity(productId), "Inventory should not be touched by the order.");
+
+    FlashSaleService restarted = newFlashSaleService();
+    restarted.reconcile();
+    Assertions.assertEquals(99, quantity(productId), "Pending lines should be written back on startup.");
+    Assertions.assertEquals(0, restarted.getStatus(productId, admin()).getPending(), "No line should stay pending.");
+    Assertions.assertEquals(99, restarted.counter(productId).available(), "Counter should be loaded after the write back.");
+  }
+
+  /**
+   * Tests that releasing a flash-sale order that was not written back yet leaves inventory alone.
+   */
+  @Test
+  public void testFlashSaleRelease() {
+    Long productId = productIds.get(0);
+    flashSaleService.setEnabled(productId, true, admin());
+    WebOrder saved = orderService.createOrder(order(List.of(productId)), user);
+    entityManager.flush();
+    Assertions.assertTrue(reservationService.release(saved.getId()), "Active reservation should be released.");
+    Assertions.assertEquals(100, quantity(productId), "Inventory was never taken, so nothing is given back.");
+    Assertions.assertEquals(0, flashSaleService.getStatus(productId, admin()).getPending(), "No line should stay pending.");
+    flashSaleService.writeBack();
+    Assertions.assertEquals(100, quantity(productId), "Released lines should not be written back.");
+  }
+
+  /**
+   * Tests that every history page takes two queries whatever the number of lines,
+   * and that paging with the cursor visits every order once, newest first.
+   */
+  @Test
+  public void testOrderHistoryPages() {
+    List<Long> placed = new ArrayList<>();
+    for (int lines = 1; lines <= 5; lines++) {
+      placed.add(0, orderService.createOrder(order(productIds.subList(0, lines)), user).getId());
+    }
+    entityManager.flush();
+
+    List<Long> visited = new ArrayList<>();
+    String cursor = null;
+    do {
+      entityManager.clear();
+      statistics.clear();
+      OrderHistoryPage page = orderService.getOrderHistory(user, cursor, 2);
+      for (WebOrder order : page.getContent()) {
+        visited.add(order.getId());
+        order.getQuantities().forEach(line -> line.getProduct().getInventory().getQuantity());
+      }
+      Assertions.assertEquals(2, statistics.getPrepareStatementCount(),
+          "Page ids and orders with lines, products and inventory should take one query each.");
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    Assertions.assertEquals(placed, visited, "Every order should be visited once, newest first.");
+  }
+
+  /**
+   * Tests that summaries give the total at order prices and the number of units.
+   */
+  @Test
+  public void testOrderSummaries() {
+    WebOrder order = order(productIds.subList(0, 3));
+    order.getQuantities().get(2).setQuantity(4);
+    Long id = orderService.createOrder(order, user).getId();
+    orderService.createOrder(order(productIds.subList(0, 1)), user);
+    entityManager.flush();
+
+    OrderSummaryPage first = orderService.getOrderSummaries(user, null, 1);
+    Assertions.assertTrue(first.isHasNext(), "Older order should be on the next page.");
+    OrderSummaryPage second = orderService.getOrderSummaries(user, first.getNextCursor(), 1);
+    OrderSummary summary = second.getContent().get(0);
+    Assertions.assertEquals(id, summary.getId(), "Older order should come second.");
+    Assertions.assertEquals(10.0 + 20.0 + 4 * 30.0, summary.getTotal(), 0.001, "Total should use order prices.");
+    Assertions.assertEquals(6, summary.getItemCount(), "Item count should sum quantities.");
+    Assertions.assertNotNull(summary.getCreatedAt(), "Date should be set.");
+    Assertions.assertFalse(second.isHasNext(), "There should be no third page.");
+  }
+
+  /**
+   * Places an order from an empty persistence context.
+   * @param lines The number of order lines.
+   * @return The number of statements prepared, not counting inserts.
+   */
+  private long countQueries(int lines) {
+    WebOrder order = order(productIds.subList(0, lines));
+    entityManager.clear();
+    statistics.clear();
+    WebOrder saved = orderService.createOrder(order, user);
+    entityManager.flush();
+    Assertions.assertEquals(lines, saved.getQuantities().size(), "Every line should be saved.");
+    return statistics.getPrepareStatementCount() - statistics.getEntityInsertCount();
+  }
+
+  private FlashSaleService newFlashSaleService() {
+    return new FlashSaleService(jdbcTemplate, event -> { }, fulfilmentService, transactionManager,
+        new SimpleMeterRegistry(), 4, 1000, Duration.ofSeconds(5));
+  }
+
+  private static LocalUser admin() {
+    LocalUser admin = new LocalUser();
+    admin.setRole(Role.ADMIN);
+    return admin;
+  }
+
+  private Warehouse warehouse(String name, double latitude, double longitude) {
+    Warehouse warehouse = new Warehouse();
+    warehouse.setName("Склад " + name);
+    warehouse.setAddress(name);
+    warehouse.setLatitude(latitude);
+    warehouse.setLongitude(longitude);
+    warehouse.setContactPhone("+79991234567");
+    return warehouseDAO.save(warehouse);
+  }
+
+  private void stock(Warehouse warehouse, Long productId, int quantity) {
+    WarehouseStock stock = new WarehouseStock();
+    stock.setWarehouse(warehouse);
+    stock.setProduct(productDAO.getReferenceById(productId));
+    stock.setQuantity(quantity);
+    entityManager.persist(stock);
+  }
+
+  private int warehouseQuantity(Warehouse warehouse, Long productId) {
+    return jdbcTemplate.queryForObject("SELECT quantity FROM warehouse_stock WHERE warehouse_id = ? AND product_id = ?",
+        Integer.class, warehouse.getId(), productId);
+  }
+
+  /** Warehouses the order was allocated to, by id. */
+  private List<Long> allocatedWarehouses(WebOrder order) {
+    entityManager.flush();
+    return jdbcTemplate.queryForList("SELECT DISTINCT warehouse_id FROM order_allocation WHERE order_id = ? ORDER BY warehouse_id",
+        Long.class, order.getId());
+  }
+
+  /** Places a one-unit order of the first product with a payment created for it. */
+  private Long paidOrder(String paymentId) {
+    Long id = orderService.createOrder(order(productIds.subList(0, 1)), user).getId();
+    entityManager.flush();
+    reservationService.preparePayment(id, user, "10.00");
+    reservationService.attachPayment(id, paymentId);
+    return id;
+  }
+
+  private String reservationStatus(Long orderId) {
+    return jdbcTemplate.queryForObject("SELECT reservation_status FROM web_order WHERE id = ?", String.class, orderId);
+  }
+
+  private int quantity(Long productId) {
+    return jdbcTemplate.queryForObject("SELECT quantity FROM inventory WHERE product_id = ?", Integer.class, productId);
+  }
+
+  private WebOrder order(List<Long> ids) {
+    WebOrder order = new WebOrder();
+    Address addressRef = new Address();
+    addressRef.setId(address.getId());
+    order.setAddress(addressRef);
+    for (Long id : ids) {
+      order.getQuantities().add(line(id));
+    }
+    return order;
+  }
+
+  private static WebOrderQuantities line(Long productId) {
+    Product product = new Product();
+    product.setId(productId);
+    WebOrderQuantities line = new WebOrderQuantities();
+    line.setProduct(product);
+    line.setQuantity(1);
+    return line;
+  }
+
+}
@@ -0,0 +1,55 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.enums.ProductSortOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to unit test the ProductCursor class.
+ */
+public class ProductCursorTest {
+
+  /**
+   * Tests that a cursor survives encoding and decoding.
+   */
+  @Test
+  public void testRoundTrip() {
+    Product product = new Product();
+    product.setId(42L);
+    product.setPrice(15.69);
+    product.setRaiting(4.5);
+
+    String token = ProductCursor.after(product, ProductSortOrder.PRICE).encode();
+    ProductCursor cursor = ProductCursor.decode(token, ProductSortOrder.PRICE);
+    Assertions.assertEquals(15.69, cursor.getLastValue(), "Price should be restored from the cursor.");
+    Assertions.assertEquals(42L, cursor.getLastId(), "Id should be restored from the cursor.");
+
+    token = ProductCursor.after(product, ProductSortOrder.ID).encode();
+    cursor = ProductCursor.decode(token, ProductSortOrder.ID);
+    Assertions.assertNull(cursor.getLastValue(), "Id ordering has no sort value.");
+    Assertions.assertEquals(42L, cursor.getLastId(), "Id should be restored from the cursor.");
+  }
+
+  /**
+   * Tests that malformed cursors and cursors of another sort order are rejected.
+   */
+  @Test
+  public void testInvalidCursor() {
+    Product product = new Product();
+    product.setId(1L);
+    product.setPrice(5.50);
+    String priceToken = ProductCursor.after(product, ProductSortOrder.PRICE).encode();
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ProductCursor.decode(priceToken, ProductSortOrder.RAITING),
+        "Cursor issued for another sort order should be rejected.");
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ProductCursor.decode("not a cursor!", ProductSortOrder.ID),
+        "Malformed cursor should be rejected.");
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ProductCursor.decode("aWQ6OmFiYw", ProductSortOrder.ID),
+        "Cursor with a non-numeric id should be rejected.");
+  }
+
+}
@@ -0,0 +1,130 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.Inventory;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Set;
+
+/**
+ * Test class to check ProductFacetService paging and index updates.
+ * Runs without a test transaction so the listener fires after a real commit, as it does behind a controller.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ProductFacetService.class)
+public class ProductFacetServiceTest {
+
+  @Autowired
+  private ProductFacetService facetService;
+
+  @Autowired
+  private ProductDAO productDAO;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactionTemplate;
+
+  private Long productId;
+
+  /**
+   * Creates a product and adds it to the index.
+   */
+  @BeforeEach
+  public void setUp() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    productId = transactionTemplate.execute(status -> {
+      Product product = new Product();
+      product.setName("Titanium kettle");
+      product.setShortDescription("Boils water");
+      product.setPrice(500.0);
+      product.setImage("products/kettle.png");
+      Inventory inventory = new Inventory();
+      inventory.setProduct(product);
+      inventory.setQuantity(5);
+      product.setInventory(inventory);
+      Long id = productDAO.save(product).getId();
+      eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.CREATED));
+      return id;
+    });
+  }
+
+  /**
+   * Deletes the committed product, bypassing the soft delete.
+   */
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("DELETE FROM inventory WHERE product_id = ?", productId);
+    jdbcTemplate.update("DELETE FROM product WHERE id = ?", productId);
+  }
+
+  /**
+   * Tests that a soft-deleted product is no longer counted although the listener still sees the managed entity.
+   */
+  @Test
+  public void testSoftDeleteRemovesFromIndex() {
+    Assertions.assertEquals(1, inStockTotal(), "Created product should be counted.");
+    softDelete(ProductChangedEvent.ChangeType.DELETED);
+    Assertions.assertEquals(0, inStockTotal(), "Deleted product should not be counted.");
+  }
+
+  /**
+   * Tests that a stock update of a soft-deleted product does not bring it back into the index.
+   */
+  @Test
+  public void testUpdateOfDeletedProductKeepsItOut() {
+    softDelete(ProductChangedEvent.ChangeType.UPDATED);
+    Assertions.assertEquals(0, inStockTotal(), "Deleted product should not be counted.");
+  }
+
+  /**
+   * Tests that pages starting too deep or overflowing the offset are rejected before the index is queried.
+   */
+  @Test
+  public void testDeepPageRejected() {
+    for (int page : new int[] {20_000_000, Integer.MAX_VALUE}) {
+      ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+          () -> facetService.query(null, null, null, null, null, "id", page, 100),
+          "Page " + page + " should be rejected.");
+      Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode(), "Deep page should be a 400.");
+    }
+    Assertions.assertTrue(facetService.query(null, null, null, null, null, "id", 100, 100).getContent().isEmpty(),
+        "The deepest allowed page should still be served.");
+  }
+
+  private long inStockTotal() {
+    return facetService.query(Set.of("0-1000"), null, null, null, true, "id", 0, 10).getTotalElements();
+  }
+
+  private void softDelete(ProductChangedEvent.ChangeType changeType) {
+    transactionTemplate.executeWithoutResult(status -> {
+      Product product = productDAO.findById(productId).orElseThrow();
+      product.softDelete("test");
+      productDAO.save(product);
+      eventPublisher.publishEvent(new ProductChangedEvent(productId, changeType));
+    });
+  }
+}
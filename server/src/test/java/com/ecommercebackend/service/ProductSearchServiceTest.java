@@ -0,0 +1,124 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.model.Inventory;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.service.event.ProductChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Test class to check that ProductSearchService keeps its index in sync with committed product changes.
+ * Runs without a test transaction so the listener fires after a real commit, as it does behind a controller.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ProductSearchService.class)
+public class ProductSearchServiceTest {
+
+  @Autowired
+  private ProductSearchService searchService;
+
+  @Autowired
+  private ProductDAO productDAO;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactionTemplate;
+
+  private Long productId;
+
+  /**
+   * Creates and indexes a product.
+   */
+  @BeforeEach
+  public void setUp() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    productId = transactionTemplate.execute(status -> {
+      Product product = new Product();
+      product.setName("Titanium kettle");
+      product.setShortDescription("Boils water");
+      product.setPrice(10.0);
+      product.setImage("products/kettle.png");
+      Inventory inventory = new Inventory();
+      inventory.setProduct(product);
+      inventory.setQuantity(5);
+      product.setInventory(inventory);
+      Long id = productDAO.save(product).getId();
+      eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.CREATED));
+      return id;
+    });
+  }
+
+  /**
+   * Deletes the committed product, bypassing the soft delete.
+   */
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("DELETE FROM inventory WHERE product_id = ?", productId);
+    jdbcTemplate.update("DELETE FROM product WHERE id = ?", productId);
+  }
+
+  /**
+   * Tests that a soft-deleted product leaves the index although the listener still sees the managed entity.
+   */
+  @Test
+  public void testSoftDeleteRemovesFromIndex() {
+    Assertions.assertEquals(1, searchService.search("kettle", 0, 10).getTotalElements(),
+        "Created product should be found.");
+    softDelete(ProductChangedEvent.ChangeType.DELETED);
+    Assertions.assertEquals(0, searchService.search("kettle", 0, 10).getTotalElements(),
+        "Deleted product should not be found.");
+  }
+
+  /**
+   * Tests that an unrelated update of a soft-deleted product does not bring it back into the index.
+   */
+  @Test
+  public void testUpdateOfDeletedProductKeepsItOut() {
+    softDelete(ProductChangedEvent.ChangeType.UPDATED);
+    Assertions.assertEquals(0, searchService.search("kettle", 0, 10).getTotalElements(),
+        "Deleted product should not be found.");
+  }
+
+  /**
+   * Tests that pages starting too deep or overflowing the offset are rejected.
+   */
+  @Test
+  public void testDeepPageRejected() {
+    for (int page : new int[] {20_000_000, Integer.MAX_VALUE}) {
+      ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+          () -> searchService.search("kettle", page, 100), "Page " + page + " should be rejected.");
+      Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode(), "Deep page should be a 400.");
+    }
+  }
+
+  private void softDelete(ProductChangedEvent.ChangeType changeType) {
+    transactionTemplate.executeWithoutResult(status -> {
+      Product product = productDAO.findById(productId).orElseThrow();
+      product.softDelete("test");
+      productDAO.save(product);
+      eventPublisher.publishEvent(new ProductChangedEvent(productId, changeType));
+    });
+  }
+}
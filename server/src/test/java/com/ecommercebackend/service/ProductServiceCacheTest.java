@@ -0,0 +1,221 @@
+package com.ecommercebackend.service;
+
+import com.ecommercebackend.api.model.DescriptionBody;
+import com.ecommercebackend.api.model.ProductBody;
+import com.ecommercebackend.config.CacheConfig;
+import com.ecommercebackend.config.S3Config;
+import com.ecommercebackend.config.UploadConfig;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.dao.ProductDAO;
+import com.ecommercebackend.model.dao.WebOrderQuantitiesDAO;
+import com.ecommercebackend.model.enums.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Test class to check that product reads are cached and every write path evicts the cached entry.
+ * Runs without a test transaction so the eviction listener fires after a real commit.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CacheConfig.class, ProductCacheListener.class, ProductDeletionService.class, DescriptionService.class})
+public class ProductServiceCacheTest {
+
+  /**
+   * Registers the service as a bean so @Cacheable is applied; image uploads and deletes do not reach storage.
+   */
+  @TestConfiguration
+  static class Config {
+
+    @Bean
+    CacheManager cacheManager() {
+      return new ConcurrentMapCacheManager(CacheConfig.PRODUCT_CACHE);
+    }
+
+    @Bean
+    ProductService productService(ProductDAO productDAO, WebOrderQuantitiesDAO orderQuantitiesDAO,
+                                  ProductDeletionService productDeletionService,
+                                  ApplicationEventPublisher eventPublisher) {
+      YandexStorageService storageService = new YandexStorageService(new S3Config(), null) {
+        @Override
+        public String uploadImage(MultipartFile imageFile, String prefix) {
+          return prefix + "/" + imageFile.getOriginalFilename();
+        }
+
+        @Override
+        public void deleteImage(String s3Key) {
+        }
+      };
+      return new ProductService(productDAO, orderQuantitiesDAO, new UploadConfig(), productDeletionService,
+          storageService, eventPublisher);
+    }
+  }
+
+  @Autowired
+  private ProductService productService;
+
+  @Autowired
+  private DescriptionService descriptionService;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactionTemplate;
+
+  private LocalUser admin;
+
+  private Long productId;
+
+  /**
+   * Creates a product through the service.
+   */
+  @BeforeEach
+  public void setUp() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    admin = new LocalUser();
+    admin.setUsername("admin");
+    admin.setRole(Role.ADMIN);
+    productId = productService.createProduct(admin, body("Titanium kettle")).getId();
+  }
+
+  /**
+   * Deletes the committed product, bypassing the soft delete.
+   */
+  @AfterEach
+  public void cleanUp() {
+    remove(productId);
+  }
+
+  /**
+   * Tests that a repeated read is served from the cache and not from the database.
+   */
+  @Test
+  public void testRepeatedReadHitsCache() {
+    Assertions.assertEquals("Titanium kettle", productService.getProductById(productId).getName(),
+        "First read should load the product.");
+    jdbcTemplate.update("UPDATE product SET name = 'Renamed behind the cache' WHERE id = ?", productId);
+    Assertions.assertEquals("Titanium kettle", productService.getProductById(productId).getName(),
+        "Repeated read should come from the cache.");
+  }
+
+  /**
+   * Tests that an entry cached while the creating transaction was still open is evicted on commit.
+   */
+  @Test
+  public void testCreateEvicts() {
+    Long created = transactionTemplate.execute(status -> {
+      Long id = productService.createProduct(admin, body("Copper kettle")).getId();
+      // A concurrent reader could have cached a state that is not committed yet
+      cache().put(id, new Product());
+      return id;
+    });
+    try {
+      Assertions.assertNull(cache().get(created), "Creating a product should evict its entry.");
+    } finally {
+      remove(created);
+    }
+  }
+
+  /**
+   * Tests that a soft-deleted product is no longer served from the cache.
+   */
+  @Test
+  public void testDeleteEvicts() {
+    productService.getProductById(productId);
+    productService.deleteProduct(admin, productId);
+    Assertions.assertNull(cache().get(productId), "Deleting a product should evict its entry.");
+    ResponseStatusException ex = Assertions.assertThrows(ResponseStatusException.class,
+        () -> productService.getProductById(productId), "Deleted product should not be found.");
+    Assertions.assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode(), "Deleted product should be not found.");
+  }
+
+  /**
+   * Tests that restoring a product evicts whatever was cached for it.
+   */
+  @Test
+  public void testRestoreEvicts() {
+    productService.deleteProduct(admin, productId);
+    cache().put(productId, new Product());
+    productService.restoreProduct(admin, productId);
+    Assertions.assertNull(cache().get(productId), "Restoring a product should evict its entry.");
+    Assertions.assertEquals("Titanium kettle", productService.getProductById(productId).getName(),
+        "Restored product should be read from the database.");
+    Assertions.assertEquals(Boolean.FALSE, jdbcTemplate.queryForObject(
+        "SELECT deleted FROM inventory WHERE product_id = ?", Boolean.class, productId),
+        "Restored product should be back in stock.");
+  }
+
+  /**
+   * Tests that a physically deleted product is no longer served from the cache.
+   */
+  @Test
+  public void testForceDeleteEvicts() {
+    productService.getProductById(productId);
+    productService.forceDeleteProduct(admin, productId, "test");
+    Assertions.assertNull(cache().get(productId), "Removing a product should evict its entry.");
+    Assertions.assertThrows(ResponseStatusException.class, () -> productService.getProductById(productId),
+        "Removed product should not be found.");
+  }
+
+  /**
+   * Tests that a description update evicts the product it belongs to.
+   */
+  @Test
+  public void testDescriptionUpdateEvicts() {
+    productService.getProductById(productId);
+    DescriptionBody body = new DescriptionBody();
+    body.setModel("TK-1");
+    descriptionService.updateDescriptionByProductId(productId, body, admin);
+    Assertions.assertNull(cache().get(productId), "Updating the description should evict the product.");
+    Assertions.assertEquals("TK-1", productService.getProductById(productId).getDescription().getModel(),
+        "Product should be read with the new description.");
+  }
+
+  private void remove(Long id) {
+    jdbcTemplate.update("DELETE FROM product_description WHERE product_id = ?", id);
+    jdbcTemplate.update("DELETE FROM inventory WHERE product_id = ?", id);
+    jdbcTemplate.update("DELETE FROM product WHERE id = ?", id);
+  }
+
+  private Cache cache() {
+    return cacheManager.getCache(CacheConfig.PRODUCT_CACHE);
+  }
+
+  private static ProductBody body(String name) {
+    ProductBody body = new ProductBody();
+    body.setName(name);
+    body.setShortDescription("Boils water");
+    body.setPrice(10.0);
+    body.setQuantity(5);
+    body.setImage(new MockMultipartFile("image", "kettle.png", "image/png", new byte[]{1}));
+    return body;
+  }
+
+}
@@ -0,0 +1,72 @@
+package com.ecommercebackend.service.catalog;
+
+import com.ecommercebackend.api.model.CatalogItem;
+import com.ecommercebackend.model.enums.ProductSortOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test class to unit test the CatalogSnapshot ordering, filtering and patching.
+ */
+public class CatalogSnapshotTest {
+
+  /**
+   * Tests that each order returns items sorted with the id as tie-break.
+   */
+  @Test
+  public void testOrders() {
+    CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+        item(3L, 100, 4.0), item(1L, 300, 5.0), item(2L, 100, 3.0)));
+    Assertions.assertEquals(List.of(1L, 2L, 3L), ids(snapshot.query(ProductSortOrder.ID, false, null, null, 0, 10)),
+        "Items should be ordered by id.");
+    Assertions.assertEquals(List.of(2L, 3L, 1L), ids(snapshot.query(ProductSortOrder.PRICE, false, null, null, 0, 10)),
+        "Items with equal price should be ordered by id.");
+    Assertions.assertEquals(List.of(1L, 3L, 2L), ids(snapshot.query(ProductSortOrder.RAITING, true, null, null, 0, 10)),
+        "Items should be ordered by raiting descending.");
+  }
+
+  /**
+   * Tests that the price filter and pagination give the same result whatever the order.
+   */
+  @Test
+  public void testPriceFilter() {
+    CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+        item(1L, 50, 1.0), item(2L, 150, 2.0), item(3L, 200, 3.0), item(4L, 250, 4.0), item(5L, 400, 5.0)));
+    Page<CatalogItem> byPrice = snapshot.query(ProductSortOrder.PRICE, true, 100.0, 250.0, 0, 2);
+    Assertions.assertEquals(List.of(4L, 3L), ids(byPrice), "Filtered page should be ordered by price descending.");
+    Assertions.assertEquals(3, byPrice.getTotalElements(), "Total should count only items in range.");
+
+    Page<CatalogItem> byId = snapshot.query(ProductSortOrder.ID, false, 100.0, 250.0, 1, 2);
+    Assertions.assertEquals(List.of(4L), ids(byId), "Second page should hold the remaining item in range.");
+    Assertions.assertEquals(3, byId.getTotalElements(), "Total should count only items in range.");
+  }
+
+  /**
+   * Tests that a batch replaces, adds and removes items in one pass with every order kept sorted.
+   */
+  @Test
+  public void testReplacingBatch() {
+    CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(item(1L, 100, 1.0), item(2L, 200, 2.0), item(3L, 300, 3.0)));
+    CatalogSnapshot patched = snapshot.replacing(Set.of(1L, 2L, 4L), List.of(item(1L, 400, 5.0), item(4L, 50, 4.0)));
+    Assertions.assertEquals(List.of(4L, 3L, 1L), ids(patched.query(ProductSortOrder.PRICE, false, null, null, 0, 10)),
+        "Replaced and added items should take their price positions.");
+    Assertions.assertEquals(List.of(1L, 4L, 3L), ids(patched.query(ProductSortOrder.RAITING, true, null, null, 0, 10)),
+        "Replaced and added items should take their raiting positions.");
+    Assertions.assertEquals(List.of(1L, 3L, 4L), ids(patched.query(ProductSortOrder.ID, false, null, null, 0, 10)),
+        "An id without a replacement item should be removed.");
+    Assertions.assertEquals(3, snapshot.size(), "Original snapshot should not change.");
+  }
+
+  private static CatalogItem item(Long id, double price, double raiting) {
+    return new CatalogItem(id, "Product #" + id, null, price, raiting, true, null, null);
+  }
+
+  private static List<Long> ids(Page<CatalogItem> page) {
+    return page.getContent().stream().map(CatalogItem::getId).toList();
+  }
+
+}
@@ -0,0 +1,86 @@
+package com.ecommercebackend.service.delivery;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test class to unit test the CircuitBreaker state machine.
+ */
+public class CircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private final List<Duration> outages = new ArrayList<>();
+
+  private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, Duration.ofSeconds(30),
+      clock::get, outages::add);
+
+  /**
+   * Tests that the circuit opens only once enough calls have been seen and the error rate reaches the threshold.
+   */
+  @Test
+  public void testOpensOnErrorRate() {
+    breaker.onFailure();
+    breaker.onFailure();
+    breaker.onFailure();
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "Too few calls should not open the circuit.");
+    for (int i = 0; i < 5; i++) {
+      breaker.onSuccess();
+    }
+    breaker.onFailure();
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "Four failures in nine calls is below the threshold.");
+    breaker.onFailure();
+    Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state(), "Half of the window failing should open the circuit.");
+    Assertions.assertFalse(breaker.tryAcquire(), "Open circuit should refuse calls.");
+  }
+
+  /**
+   * Tests that old outcomes slide out of the window.
+   */
+  @Test
+  public void testWindowSlides() {
+    for (int i = 0; i < 3; i++) {
+      breaker.onFailure();
+    }
+    for (int i = 0; i < 7; i++) {
+      breaker.onSuccess();
+    }
+    for (int i = 0; i < 4; i++) {
+      breaker.onFailure();
+    }
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state(),
+        "Four failures in the last ten calls should not open the circuit, whatever came before.");
+    breaker.onFailure();
+    Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state(), "Five failures in the last ten calls should open it.");
+  }
+
+  /**
+   * Tests that after the open period one probe is let through and decides whether the circuit closes.
+   */
+  @Test
+  public void testHalfOpenProbe() {
+    for (int i = 0; i < 4; i++) {
+      breaker.onFailure();
+    }
+    clock.addAndGet(Duration.ofSeconds(30).toNanos());
+    Assertions.assertTrue(breaker.tryAcquire(), "Probe should be let through after the open period.");
+    Assertions.assertFalse(breaker.tryAcquire(), "Only one probe should be in flight.");
+    breaker.onFailure();
+    Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state(), "Failed probe should reopen the circuit.");
+    Assertions.assertFalse(breaker.tryAcquire(), "Reopened circuit should wait a full period again.");
+
+    clock.addAndGet(Duration.ofSeconds(30).toNanos());
+    Assertions.assertTrue(breaker.tryAcquire(), "Next probe should be let through.");
+    breaker.onSuccess();
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "Successful probe should close the circuit.");
+    Assertions.assertEquals(List.of(Duration.ofSeconds(60)), outages, "Whole outage should be reported once.");
+    breaker.onFailure();
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "Window should start empty after closing.");
+  }
+
+}
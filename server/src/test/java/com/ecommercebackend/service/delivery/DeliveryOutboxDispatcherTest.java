@@ -0,0 +1,260 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.config.YandexDeliveryConfig;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.DeliveryOutbox;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.dao.DeliveryOutboxDAO;
+import com.ecommercebackend.model.dao.DeliveryTrackingDAO;
+import com.ecommercebackend.model.enums.DeliveryStatus;
+import com.ecommercebackend.model.enums.OutboxStatus;
+import com.ecommercebackend.model.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Test class to check retries, result recording and claim batching of the DeliveryOutboxDispatcher.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+public class DeliveryOutboxDispatcherTest {
+
+  @Autowired
+  private DeliveryOutboxDAO outboxDAO;
+
+  @Autowired
+  private DeliveryTrackingDAO trackingDAO;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  /** Responses the fake client returns in order; an exception is thrown instead of returned. */
+  private final Deque<Object> responses = new ArrayDeque<>();
+
+  /** Request id and body of every claim the fake client was asked to create. */
+  private final List<String[]> requests = new ArrayList<>();
+
+  private final YandexClaimWriter claimWriter = new YandexClaimWriter(new YandexDeliveryConfig());
+
+  private YandexDeliveryClient client;
+
+  private DeliveryTracker tracker;
+
+  private DeliveryOutboxDispatcher dispatcher;
+
+  private LocalUser user;
+
+  private DeliveryOutbox entry;
+
+  /**
+   * Creates an order with a pending outbox entry and a dispatcher with a fake client.
+   */
+  @BeforeEach
+  public void setUp() {
+    client = new YandexDeliveryClient(null, null, new SimpleMeterRegistry(),
+        1, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1), 10, 5, 0.5, Duration.ofSeconds(30)) {
+      @Override
+      public CompletableFuture<Claim> createClaimAsync(String requestId, String requestBody) {
+        requests.add(new String[]{requestId, requestBody});
+        Object response = responses.pop();
+        if (response instanceof IOException e) {
+          return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture((Claim) response);
+      }
+    };
+    tracker = new DeliveryTracker(trackingDAO, client, new SimpMessagingTemplate((message, timeout) -> true),
+        transactionManager, 100, 5, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofMinutes(1));
+    dispatcher = new DeliveryOutboxDispatcher(outboxDAO, client, tracker, claimWriter, transactionManager,
+        20, 2, Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofMinutes(2), Duration.ZERO, 3, 10);
+
+    user = new LocalUser();
+    user.setUsername("buyer");
+    user.setPassword("password");
+    user.setEmail("buyer@example.com");
+    user.setFirstName("Buyer");
+    user.setLastName("Buyer");
+    user.setRole(Role.USER);
+    entityManager.persist(user);
+    entry = entry(null);
+  }
+
+  /**
+   * Tests that a retryable failure schedules a retry and a later success records the claim.
+   */
+  @Test
+  public void testRetryThenSuccess() {
+    responses.add(new YandexDeliveryClient.DeliveryApiException(503, "unavailable"));
+    dispatcher.dispatch();
+    Assertions.assertEquals(OutboxStatus.PENDING, entry.getStatus(), "Entry should stay pending after a 503.");
+    Assertions.assertEquals(1, entry.getAttempts(), "Attempt should be counted.");
+    Assertions.assertTrue(entry.getNextAttemptAt().isAfter(LocalDateTime.now()), "Retry should be delayed.");
+
+    dispatcher.dispatch();
+    Assertions.assertEquals(1, entry.getAttempts(), "Entry should not be retried before its backoff.");
+
+    entry.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+    responses.add(new YandexDeliveryClient.Claim("claim-1", "new"));
+    dispatcher.dispatch();
+    Assertions.assertEquals(OutboxStatus.SENT, entry.getStatus(), "Entry should be sent.");
+    Assertions.assertEquals("claim-1", entry.getOrder().getDeliveryClaimId(), "Claim id should be recorded on the order.");
+    Assertions.assertEquals(DeliveryStatus.CREATED, entry.getOrder().getDeliveryStatus(), "Order delivery should be created.");
+    Assertions.assertEquals("claim-1", trackingDAO.findByOrder_Id(entry.getOrder().getId()).get(0).getClaimId(),
+        "Created claim should be tracked.");
+  }
+
+  /**
+   * Tests that a call the client refused to send is deferred without using up an attempt.
+   */
+  @Test
+  public void testUnavailableIsDeferred() {
+    responses.add(new YandexDeliveryClient.DeliveryUnavailableException("circuit is open"));
+    dispatcher.dispatch();
+    Assertions.assertEquals(OutboxStatus.PENDING, entry.getStatus(), "Entry should stay pending.");
+    Assertions.assertEquals(0, entry.getAttempts(), "Refused call should not count as an attempt.");
+    Assertions.assertTrue(entry.getNextAttemptAt().isAfter(LocalDateTime.now()), "Entry should be deferred.");
+  }
+
+  /**
+   * Tests that a client error fails the entry and the order without retrying.
+   */
+  @Test
+  public void testClientErrorIsNotRetried() {
+    responses.add(new YandexDeliveryClient.DeliveryApiException(400, "bad request"));
+    dispatcher.dispatch();
+    Assertions.assertEquals(OutboxStatus.FAILED, entry.getStatus(), "Entry should fail on a 400.");
+    Assertions.assertEquals(DeliveryStatus.FAILED, entry.getOrder().getDeliveryStatus(), "Order delivery should fail.");
+  }
+
+  /**
+   * Tests that orders leaving the same warehouse share one multi-drop claim up to the point limit,
+   * and that every order tracks its own point of it.
+   */
+  @Test
+  public void testSameWarehouseOrdersShareClaim() throws Exception {
+    DeliveryOutbox second = entry(null);
+    DeliveryOutbox third = entry(null);
+    DeliveryOutbox fourth = entry(null);
+    DeliveryOutbox otherWarehouse = entry(7L);
+    responses.add(new YandexDeliveryClient.Claim("claim-1", "new"));
+    responses.add(new YandexDeliveryClient.Claim("claim-2", "new"));
+    responses.add(new YandexDeliveryClient.Claim("claim-3", "new"));
+    dispatcher.dispatch();
+
+    Assertions.assertEquals(3, requests.size(), "Orders over the point limit or from another warehouse need own claims.");
+    Assertions.assertEquals("batch-" + entry.getId(), requests.get(0)[0], "Batch should have its own request id.");
+    JsonNode claim = new ObjectMapper().readTree(requests.get(0)[1]);
+    Assertions.assertEquals(4, claim.get("route_points").size(), "Claim should pick up once and drop off three times.");
+    Assertions.assertEquals(third.getRequestId(), claim.get("route_points").get(3).get("external_order_id").asText(),
+        "Every drop-off should name its order.");
+    Assertions.assertEquals(fourth.getRequestId(), requests.get(1)[0], "Fourth order should be sent alone.");
+    Assertions.assertEquals(otherWarehouse.getRequestId(), requests.get(2)[0], "Other warehouse should be sent alone.");
+
+    for (DeliveryOutbox batched : List.of(entry, second, third)) {
+      Assertions.assertEquals(OutboxStatus.SENT, batched.getStatus(), "Every batched entry should be sent.");
+      Assertions.assertEquals("claim-1", batched.getOrder().getDeliveryClaimId(), "Batched orders should share the claim.");
+      Assertions.assertEquals(batched.getRequestId(), trackingDAO.findByOrder_Id(batched.getOrder().getId()).get(0).getPointRef(),
+          "Every batched order should track its own point.");
+    }
+    Assertions.assertNull(trackingDAO.findByOrder_Id(fourth.getOrder().getId()).get(0).getPointRef(),
+        "Single claim should be tracked as a whole.");
+  }
+
+  /**
+   * Tests that fresh entries wait for the window before they are sent.
+   */
+  @Test
+  public void testWaitsForWindow() {
+    DeliveryOutboxDispatcher windowed = new DeliveryOutboxDispatcher(outboxDAO, client, tracker, claimWriter,
+        transactionManager, 20, 2, Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofMinutes(2),
+        Duration.ofMinutes(2), 3, 10);
+    windowed.dispatch();
+    Assertions.assertTrue(requests.isEmpty(), "Entry should wait for other orders.");
+
+    entry.setCreatedAt(LocalDateTime.now().minusMinutes(3));
+    responses.add(new YandexDeliveryClient.Claim("claim-1", "new"));
+    windowed.dispatch();
+    Assertions.assertEquals(OutboxStatus.SENT, entry.getStatus(), "Entry should be sent once its window is over.");
+  }
+
+  /**
+   * Tests that a batch the API rejects is split back into single claims.
+   */
+  @Test
+  public void testRejectedBatchIsSentOneByOne() {
+    DeliveryOutbox second = entry(null);
+    responses.add(new YandexDeliveryClient.DeliveryApiException(400, "too many points"));
+    dispatcher.dispatch();
+    Assertions.assertEquals(1, requests.size(), "Orders should first be sent together.");
+    Assertions.assertEquals(OutboxStatus.PENDING, second.getStatus(), "Rejected batch should be retried.");
+    Assertions.assertNull(second.getBatchId(), "Rejected batch should be split.");
+
+    responses.add(new YandexDeliveryClient.Claim("claim-1", "new"));
+    responses.add(new YandexDeliveryClient.Claim("claim-2", "new"));
+    dispatcher.dispatch();
+    Assertions.assertEquals(List.of(entry.getRequestId(), second.getRequestId()),
+        requests.subList(1, 3).stream().map(request -> request[0]).toList(), "Orders should be sent one by one.");
+    Assertions.assertEquals("claim-2", second.getOrder().getDeliveryClaimId(), "Every order should get its own claim.");
+  }
+
+  /**
+   * Tests that the backoff grows exponentially within its jitter range and is capped.
+   */
+  @Test
+  public void testBackoff() {
+    for (int attempt = 1; attempt <= 4; attempt++) {
+      long ceiling = 5_000L << (attempt - 1);
+      long delay = DeliveryOutboxDispatcher.backoff(attempt, Duration.ofSeconds(5), Duration.ofMinutes(1)).toMillis();
+      Assertions.assertTrue(delay >= ceiling / 2 && delay <= ceiling, "Delay should be within the jitter range.");
+    }
+    long capped = DeliveryOutboxDispatcher.backoff(40, Duration.ofSeconds(5), Duration.ofMinutes(1)).toMillis();
+    Assertions.assertTrue(capped <= 60_000, "Delay should be capped.");
+  }
+
+  private DeliveryOutbox entry(Long warehouseId) {
+    Address address = new Address();
+    address.setAddressLine("Москва, ул. Тверская, 15");
+    address.setCity("Москва");
+    address.setCountry("Россия");
+    address.setUser(user);
+    entityManager.persist(address);
+    WebOrder order = new WebOrder();
+    order.setUser(user);
+    order.setAddress(address);
+    order.setDeliveryStatus(DeliveryStatus.PENDING);
+    entityManager.persist(order);
+
+    DeliveryOutbox outbox = new DeliveryOutbox();
+    outbox.setOrder(order);
+    outbox.setRequestId(String.valueOf(order.getId()));
+    outbox.setWarehouseId(warehouseId);
+    outbox.setPayload(claimWriter.write(order, user));
+    outbox.setCreatedAt(LocalDateTime.now());
+    outbox.setNextAttemptAt(outbox.getCreatedAt());
+    outboxDAO.save(outbox);
+    entityManager.flush();
+    return outbox;
+  }
+
+}
@@ -0,0 +1,217 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.api.model.DataChange;
+import com.ecommercebackend.api.model.OrderDeliveryUpdate;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.DeliveryTracking;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.dao.DeliveryTrackingDAO;
+import com.ecommercebackend.model.enums.DeliveryStatus;
+import com.ecommercebackend.model.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Test class to check adaptive polling, call limits and pushes of the DeliveryTracker.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+public class DeliveryTrackerTest {
+
+  @Autowired
+  private DeliveryTrackingDAO trackingDAO;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  /** Statuses the fake client reports by claim id. */
+  private final Map<String, String> statuses = new HashMap<>();
+
+  /** Drop-off points the fake client reports by claim id. */
+  private final Map<String, List<YandexDeliveryClient.Point>> points = new HashMap<>();
+
+  /** Claim ids of every bulk call made. */
+  private final List<List<String>> calls = new ArrayList<>();
+
+  private final List<Message<?>> pushed = new ArrayList<>();
+
+  private boolean failing;
+
+  private DeliveryTracker tracker;
+
+  private LocalUser user;
+
+  @BeforeEach
+  public void setUp() {
+    YandexDeliveryClient client = new YandexDeliveryClient(null, null, new SimpleMeterRegistry(),
+        1, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1), 10, 5, 0.5, Duration.ofSeconds(30)) {
+      @Override
+      public CompletableFuture<List<Claim>> claimsInfoAsync(List<String> claimIds) {
+        calls.add(claimIds);
+        if (failing) {
+          return CompletableFuture.failedFuture(new DeliveryApiException(503, "unavailable"));
+        }
+        return CompletableFuture.completedFuture(claimIds.stream()
+            .filter(statuses::containsKey)
+            .map(id -> new Claim(id, statuses.get(id), points.getOrDefault(id, List.of())))
+            .toList());
+      }
+    };
+    SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> pushed.add(message));
+    tracker = new DeliveryTracker(trackingDAO, client, messagingTemplate, transactionManager,
+        2, 2, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofMinutes(1));
+
+    user = new LocalUser();
+    user.setUsername("buyer");
+    user.setPassword("password");
+    user.setEmail("buyer@example.com");
+    user.setFirstName("Buyer");
+    user.setLastName("Buyer");
+    user.setRole(Role.USER);
+    entityManager.persist(user);
+  }
+
+  /**
+   * Tests that a status change is stored, pushed to the owner and polled often while a courier has the order.
+   */
+  @Test
+  public void testChangeIsPushed() {
+    DeliveryTracking tracking = track("claim-1", "accepted");
+    statuses.put("claim-1", "performer_found");
+    tracker.poll();
+
+    Assertions.assertEquals("performer_found", tracking.getStatus(), "New status should be stored.");
+    Assertions.assertFalse(tracking.getNextPollAt().isAfter(LocalDateTime.now().plusSeconds(30)),
+        "Claim with a courier should be polled often.");
+    Assertions.assertEquals(1, pushed.size(), "Change should be pushed.");
+    Message<?> message = pushed.get(0);
+    Assertions.assertEquals("/topic/user/" + user.getId() + "/order", SimpMessageHeaderAccessor.getDestination(message.getHeaders()),
+        "Change should be pushed to the order topic of the owner.");
+    OrderDeliveryUpdate update = (OrderDeliveryUpdate) ((DataChange<?>) message.getPayload()).getData();
+    Assertions.assertEquals(tracking.getOrder().getId(), update.getOrderId(), "Update should name the order.");
+    Assertions.assertEquals("performer_found", update.getStatus(), "Update should carry the new status.");
+
+    tracking.setNextPollAt(LocalDateTime.now().minusSeconds(1));
+    tracker.poll();
+    Assertions.assertEquals(1, pushed.size(), "Unchanged status should not be pushed.");
+
+    statuses.put("claim-1", "delivered_finish");
+    tracking.setNextPollAt(LocalDateTime.now().minusSeconds(1));
+    tracker.poll();
+    Assertions.assertTrue(tracking.isFinished(), "Claim in a final status should be finished.");
+    tracker.poll();
+    Assertions.assertEquals(3, calls.size(), "Finished claim should not be polled.");
+  }
+
+  /**
+   * Tests that claims waiting for a courier are polled rarely.
+   */
+  @Test
+  public void testIdleClaimIsPolledRarely() {
+    DeliveryTracking tracking = track("claim-1", "new");
+    statuses.put("claim-1", "performer_lookup");
+    tracker.poll();
+    Assertions.assertTrue(tracking.getNextPollAt().isAfter(LocalDateTime.now().plusMinutes(4)),
+        "Claim without a courier should be polled rarely.");
+  }
+
+  /**
+   * Tests that one poll makes at most the configured number of bulk calls and leaves the rest for later.
+   */
+  @Test
+  public void testCallsPerPollAreBounded() {
+    for (int i = 1; i <= 5; i++) {
+      track("claim-" + i, "accepted");
+      statuses.put("claim-" + i, "accepted");
+    }
+    tracker.poll();
+    Assertions.assertEquals(2, calls.size(), "Poll should make at most max-calls-per-poll calls.");
+    Assertions.assertEquals(2, calls.get(0).size(), "Each call should carry a batch of claims.");
+    tracker.poll();
+    Assertions.assertEquals(List.of("claim-5"), calls.get(2), "Remaining claim should be polled next time.");
+  }
+
+  /**
+   * Tests that a failed call stops the poll and leaves the batch leased.
+   */
+  @Test
+  public void testFailureLeasesBatch() {
+    DeliveryTracking first = track("claim-1", "accepted");
+    track("claim-2", "accepted");
+    track("claim-3", "accepted");
+    failing = true;
+    tracker.poll();
+    Assertions.assertEquals(1, calls.size(), "Poll should stop after a failed call.");
+    Assertions.assertTrue(first.getNextPollAt().isAfter(LocalDateTime.now().plusSeconds(30)),
+        "Failed batch should wait for its lease.");
+    Assertions.assertNull(first.getLastPolledAt(), "Failed batch should not be marked as polled.");
+  }
+
+  /**
+   * Tests that orders sharing a multi-drop claim are polled with one id and follow their own points.
+   */
+  @Test
+  public void testOrdersOfSharedClaim() {
+    DeliveryTracking first = track("claim-1", "pickuped", "1");
+    DeliveryTracking second = track("claim-1", "pickuped", "2");
+    statuses.put("claim-1", "pickuped");
+    points.put("claim-1", List.of(new YandexDeliveryClient.Point("1", "visited"),
+        new YandexDeliveryClient.Point("2", "pending")));
+    tracker.poll();
+
+    Assertions.assertEquals(List.of(List.of("claim-1")), calls, "Shared claim should be polled once.");
+    Assertions.assertEquals("visited", first.getPointStatus(), "Point status should be stored.");
+    Assertions.assertTrue(first.isFinished(), "Order whose point was visited should be finished.");
+    Assertions.assertFalse(second.isFinished(), "Order still on the way should be polled.");
+    Assertions.assertEquals(1, pushed.size(), "Only the order whose point changed should be notified.");
+    OrderDeliveryUpdate update = (OrderDeliveryUpdate) ((DataChange<?>) pushed.get(0).getPayload()).getData();
+    Assertions.assertEquals(first.getOrder().getId(), update.getOrderId(), "Update should name the delivered order.");
+    Assertions.assertEquals("visited", update.getPointStatus(), "Update should carry the point status.");
+  }
+
+  private DeliveryTracking track(String claimId, String status) {
+    return track(claimId, status, null);
+  }
+
+  private DeliveryTracking track(String claimId, String status, String pointRef) {
+    Address address = new Address();
+    address.setAddressLine("Москва, ул. Тверская, 15");
+    address.setCity("Москва");
+    address.setCountry("Россия");
+    address.setUser(user);
+    entityManager.persist(address);
+    WebOrder order = new WebOrder();
+    order.setUser(user);
+    order.setAddress(address);
+    order.setDeliveryStatus(DeliveryStatus.CREATED);
+    order.setDeliveryClaimId(claimId);
+    entityManager.persist(order);
+    tracker.track(order, new YandexDeliveryClient.Claim(claimId, status), pointRef);
+    DeliveryTracking tracking = trackingDAO.findByOrder_Id(order.getId()).get(0);
+    tracking.setNextPollAt(LocalDateTime.now().minusSeconds(1));
+    entityManager.flush();
+    return tracking;
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.ecommercebackend.service.delivery;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to unit test parsing of Description dimensions and weight.
+ */
+public class LogisticsAttributesTest {
+
+  /**
+   * Tests that dimensions are read as height × width × depth with any of the usual separators.
+   */
+  @Test
+  public void testDimensions() {
+    Assertions.assertEquals(new LogisticsAttributes.Dimensions(63, 60, 178),
+        LogisticsAttributes.parseDimensions("178×60×63 см"), "Depth should be the length and the first number the height.");
+    Assertions.assertEquals(new LogisticsAttributes.Dimensions(3, 20.5, 10),
+        LogisticsAttributes.parseDimensions("10 x 20,5 x 3 CM"), "Latin x, decimal comma and cm should be accepted.");
+    Assertions.assertEquals(new LogisticsAttributes.Dimensions(3, 2, 1),
+        LogisticsAttributes.parseDimensions("1х2х3"), "Cyrillic х should be accepted as a separator.");
+    Assertions.assertNull(LogisticsAttributes.parseDimensions("178×60"), "Two numbers should not parse.");
+    Assertions.assertNull(LogisticsAttributes.parseDimensions("0×60×63 см"), "Non-positive sizes should not parse.");
+    Assertions.assertNull(LogisticsAttributes.parseDimensions("большой"), "Free text should not parse.");
+    Assertions.assertNull(LogisticsAttributes.parseDimensions(null), "Missing dimensions should not parse.");
+  }
+
+  /**
+   * Tests that weight is read in kilograms, with grams converted.
+   */
+  @Test
+  public void testWeight() {
+    Assertions.assertEquals(68.0, LogisticsAttributes.parseWeight("68 кг"), "Kilograms should be read as is.");
+    Assertions.assertEquals(1.5, LogisticsAttributes.parseWeight("1,5"), "A bare number should be kilograms.");
+    Assertions.assertEquals(0.5, LogisticsAttributes.parseWeight("500 г"), "Grams should be converted to kilograms.");
+    Assertions.assertNull(LogisticsAttributes.parseWeight("около 5 кг"), "Free text should not parse.");
+    Assertions.assertNull(LogisticsAttributes.parseWeight("0 кг"), "Zero weight should not parse.");
+  }
+
+}
@@ -0,0 +1,71 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.Warehouse;
+import com.ecommercebackend.model.Description;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Test class to unit test cargo profiles and the quote cache key.
+ */
+public class QuoteKeyTest {
+
+  /**
+   * Tests that the cargo adds up every unit and falls back to the default size and weight.
+   */
+  @Test
+  public void testCargoProfile() {
+    Description fridge = new Description();
+    fridge.setLengthCm(63.0);
+    fridge.setWidthCm(60.0);
+    fridge.setHeightCm(178.0);
+    fridge.setWeightKg(68.0);
+    CargoProfile profile = CargoProfile.of(List.of(new CargoProfile.Item(fridge, 1), new CargoProfile.Item(null, 3)));
+    Assertions.assertEquals(178.0, profile.longestSideCm(), "Longest side should be the largest item side.");
+    Assertions.assertEquals(63 * 60 * 178 / 1000.0 + 3 * 0.15, profile.volumeLiters(), 1e-9, "Volume should add up every unit.");
+    Assertions.assertEquals(71.0, profile.weightKg(), 1e-9, "Weight should add up every unit with the default for unknown ones.");
+  }
+
+  /**
+   * Tests that similar carts to the same city share a key and the key ignores address spelling.
+   */
+  @Test
+  public void testKey() {
+    QuoteKey first = QuoteKey.of(null, address("Россия", "Москва"), new CargoProfile(25, 7, 3.2));
+    QuoteKey second = QuoteKey.of(null, address(" россия ", "МОСКВА"), new CargoProfile(30, 10, 5));
+    Assertions.assertEquals(first, second, "Carts within the same classes and city should share a key.");
+    Assertions.assertEquals(new QuoteKey(null, "россия|москва", 30, 10, 5), first, "Values should round up to their class.");
+    Assertions.assertNotEquals(first, QuoteKey.of(null, address("Россия", "Москва"), new CargoProfile(25, 7, 5.1)),
+        "Heavier cart should get another weight class.");
+    Warehouse warehouse = new Warehouse();
+    warehouse.setId(3L);
+    Assertions.assertNotEquals(first, QuoteKey.of(warehouse, address("Россия", "Москва"), new CargoProfile(25, 7, 3.2)),
+        "Cart from another warehouse should get another key.");
+    Assertions.assertEquals(2000, QuoteKey.upperBound(1500.0, new int[]{500, 1000}), "Values above the last class should round up to its multiple.");
+    Assertions.assertEquals("россия, москва", first.fullname(), "Cell should give the address for the API.");
+  }
+
+  /**
+   * Tests that the representative cargo of a key fills its size class.
+   */
+  @Test
+  public void testRepresentativeSize() {
+    LogisticsAttributes.Dimensions size = new QuoteKey(null, "россия|москва", 100, 250, 50).representativeSize();
+    Assertions.assertEquals(100.0, size.length(), "Length should be the side class.");
+    Assertions.assertEquals(250.0, size.length() * size.width() * size.height() / 1000.0, 1e-6, "Volume should be the volume class.");
+    LogisticsAttributes.Dimensions flat = new QuoteKey(null, "россия|москва", 30, 4000, 50).representativeSize();
+    Assertions.assertEquals(30.0, flat.width(), "Other sides should not exceed the longest side.");
+  }
+
+  private static Address address(String country, String city) {
+    Address address = new Address();
+    address.setCountry(country);
+    address.setCity(city);
+    address.setAddressLine("ул. Тверская, 15");
+    return address;
+  }
+
+}
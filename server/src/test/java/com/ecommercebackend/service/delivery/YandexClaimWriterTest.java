@@ -0,0 +1,158 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.config.YandexDeliveryConfig;
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.Product;
+import com.ecommercebackend.model.WebOrder;
+import com.ecommercebackend.model.WebOrderQuantities;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class to unit test the streamed Yandex Delivery claim payload.
+ */
+public class YandexClaimWriterTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * Tests that the claim holds the configured warehouse, the customer address and every line.
+   */
+  @Test
+  public void testClaim() throws Exception {
+    YandexDeliveryConfig config = new YandexDeliveryConfig();
+    config.setPlatform_id("platform-1");
+    YandexClaimWriter writer = new YandexClaimWriter(config);
+
+    Description description = new Description();
+    description.setLengthCm(63.0);
+    description.setWidthCm(60.0);
+    description.setHeightCm(178.0);
+    description.setWeightKg(68.0);
+    WebOrder order = order(line(1L, "Холодильник", 1500.0, 2, description), line(2L, "Чайник \"Мини\"", 99.5, 1, null));
+
+    JsonNode claim = objectMapper.readTree(writer.write(order, user()));
+    Assertions.assertEquals("new", claim.get("status").asText(), "Claim should be new.");
+    JsonNode pickup = claim.get("route_points").get(0);
+    Assertions.assertEquals("source", pickup.get("type").asText(), "First point should be the warehouse.");
+    Assertions.assertEquals("platform-1", pickup.get("platform_station").get("platform_id").asText(),
+        "Warehouse should use the configured platform.");
+    JsonNode dropoff = claim.get("route_points").get(1);
+    Assertions.assertEquals("Казань, ул. Баумана, 1", dropoff.get("address").get("fullname").asText(),
+        "Second point should be the customer address.");
+    Assertions.assertEquals("Иван Петров", dropoff.get("contact").get("name").asText(), "Contact should be the customer.");
+    Assertions.assertEquals(49.1221, dropoff.get("address").get("coordinates").get(0).asDouble(),
+        "Longitude should come first from the geocoded address.");
+    Assertions.assertEquals(55.7887, dropoff.get("address").get("coordinates").get(1).asDouble(),
+        "Latitude should come second from the geocoded address.");
+
+    JsonNode items = claim.get("items");
+    Assertions.assertEquals(2, items.size(), "Every line should be an item.");
+    Assertions.assertEquals(2, items.get(0).get("quantity").asInt(), "Quantity should be copied.");
+    Assertions.assertEquals("1500.0", items.get(0).get("cost_value").asText(), "Cost should be the product price.");
+    Assertions.assertEquals(0.63, items.get(0).get("size").get("length").asDouble(), 1e-9, "Size should be in metres.");
+    Assertions.assertEquals(1.78, items.get(0).get("size").get("height").asDouble(), 1e-9, "Size should be in metres.");
+    Assertions.assertEquals(68.0, items.get(0).get("weight").asDouble(), "Weight should come from the description.");
+    Assertions.assertEquals("Чайник \"Мини\"", items.get(1).get("title").asText(), "Titles should be escaped.");
+    Assertions.assertEquals(0.1, items.get(1).get("size").get("length").asDouble(), "Missing size should use the default.");
+    Assertions.assertEquals(1.0, items.get(1).get("weight").asDouble(), "Missing weight should use the default.");
+    Assertions.assertEquals("already_paid", claim.get("billing_info").get("payment_method").asText(),
+        "Order should be marked as paid.");
+  }
+
+  /**
+   * Tests that an address that is not geocoded yet is sent without coordinates.
+   */
+  @Test
+  public void testAddressWithoutCoordinates() throws Exception {
+    WebOrder order = order(line(1L, "Товар", 10.0, 1, null));
+    order.getAddress().setLatitude(null);
+    order.getAddress().setLongitude(null);
+    JsonNode dropoff = objectMapper.readTree(new YandexClaimWriter(new YandexDeliveryConfig()).write(order, user()))
+        .get("route_points").get(1);
+    Assertions.assertFalse(dropoff.get("address").has("coordinates"), "Unknown coordinates should not be sent.");
+  }
+
+  /**
+   * Tests that merged claims pick up once and drop off every order at its own numbered point.
+   */
+  @Test
+  public void testMerge() throws Exception {
+    YandexClaimWriter writer = new YandexClaimWriter(new YandexDeliveryConfig());
+    String first = writer.write(order(line(1L, "Товар", 10.0, 2, null)), user());
+    WebOrder order = order(line(2L, "Чайник", 99.5, 1, null), line(3L, "Кружка", 5.0, 3, null));
+    order.getAddress().setAddressLine("Казань, ул. Пушкина, 2");
+    String second = writer.write(order, user());
+
+    JsonNode claim = objectMapper.readTree(writer.merge(List.of(first, second), List.of("7", "8")));
+    JsonNode points = claim.get("route_points");
+    Assertions.assertEquals(3, points.size(), "Claim should have one pickup and two drop-offs.");
+    Assertions.assertEquals("source", points.get(0).get("type").asText(), "First point should be the warehouse.");
+    Assertions.assertEquals(3, points.get(2).get("point_id").asInt(), "Drop-offs should be numbered in order.");
+    Assertions.assertEquals(3, points.get(2).get("visit_order").asInt(), "Drop-offs should be visited in order.");
+    Assertions.assertEquals("8", points.get(2).get("external_order_id").asText(), "Drop-off should name its order.");
+    Assertions.assertEquals("Казань, ул. Пушкина, 2", points.get(2).get("address").get("fullname").asText(),
+        "Drop-off should keep its address.");
+    JsonNode items = claim.get("items");
+    Assertions.assertEquals(3, items.size(), "Every item should be kept.");
+    Assertions.assertEquals(2, items.get(0).get("droppof_point").asInt(), "Item should go to the point of its order.");
+    Assertions.assertEquals(3, items.get(2).get("droppof_point").asInt(), "Item should go to the point of its order.");
+    Assertions.assertFalse(claim.has("recipient_info"), "Recipients should only be named at their points.");
+    Assertions.assertEquals(4.0, YandexClaimWriter.cargoWeightKg(second), "Weight should add up every item.");
+  }
+
+  /**
+   * Tests that reusing the per-thread buffer never leaks one claim into the next.
+   */
+  @Test
+  public void testBufferReuse() throws Exception {
+    YandexClaimWriter writer = new YandexClaimWriter(new YandexDeliveryConfig());
+    WebOrderQuantities[] lines = new WebOrderQuantities[50];
+    for (int i = 0; i < lines.length; i++) {
+      lines[i] = line((long) i + 1, "Товар " + i, 10.0, 1, null);
+    }
+    writer.write(order(lines), user());
+    String small = writer.write(order(line(1L, "Товар", 10.0, 1, null)), user());
+    Assertions.assertEquals(1, objectMapper.readTree(small).get("items").size(), "Second claim should hold only its own line.");
+  }
+
+  private static WebOrder order(WebOrderQuantities... lines) {
+    Address address = new Address();
+    address.setAddressLine("Казань, ул. Баумана, 1");
+    address.setLatitude(55.7887);
+    address.setLongitude(49.1221);
+    WebOrder order = new WebOrder();
+    order.setId(7L);
+    order.setAddress(address);
+    order.setQuantities(new ArrayList<>(List.of(lines)));
+    return order;
+  }
+
+  private static WebOrderQuantities line(Long productId, String name, double price, int quantity, Description description) {
+    Product product = new Product();
+    product.setId(productId);
+    product.setName(name);
+    product.setPrice(price);
+    product.setDescription(description);
+    WebOrderQuantities line = new WebOrderQuantities();
+    line.setProduct(product);
+    line.setQuantity(quantity);
+    return line;
+  }
+
+  private static LocalUser user() {
+    LocalUser user = new LocalUser();
+    user.setFirstName("Иван");
+    user.setLastName("Петров");
+    user.setEmail("ivan@example.com");
+    return user;
+  }
+
+}
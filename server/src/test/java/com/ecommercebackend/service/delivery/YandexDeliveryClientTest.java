@@ -0,0 +1,164 @@
+package com.ecommercebackend.service.delivery;
+
+import com.ecommercebackend.config.YandexDeliveryConfig;
+import com.ecommercebackend.stub.YandexDeliveryStub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Test class to check timeouts, the bulkhead and the circuit breaker of YandexDeliveryClient
+ * against a local stub server.
+ */
+public class YandexDeliveryClientTest {
+
+  private YandexDeliveryStub stub;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private YandexDeliveryClient client;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    stub = new YandexDeliveryStub();
+    YandexDeliveryConfig config = new YandexDeliveryConfig();
+    config.setUrl(stub.url());
+    config.setToken("token");
+    meterRegistry = new SimpleMeterRegistry();
+    client = new YandexDeliveryClient(config, HttpClient.newHttpClient(), meterRegistry,
+        2, Duration.ofMillis(300), Duration.ofSeconds(5), Duration.ofSeconds(5), 10, 4, 0.5, Duration.ofMillis(500));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    stub.close();
+  }
+
+  /**
+   * Tests that a successful call returns the claim and is timed.
+   */
+  @Test
+  public void testCreateClaim() throws Exception {
+    YandexDeliveryClient.Claim claim = client.createClaim("42", "{}");
+    Assertions.assertEquals("claim-1", claim.id(), "Claim id should be read from the response.");
+    Assertions.assertEquals(1, meterRegistry.get("delivery.client.requests").tag("outcome", "success").timer().count(),
+        "Successful call should be timed.");
+  }
+
+  /**
+   * Tests that a price check returns the price and its currency.
+   */
+  @Test
+  public void testCheckPrice() throws Exception {
+    YandexDeliveryClient.Price price = YandexDeliveryClient.await(
+        client.checkPriceAsync(null, new LogisticsAttributes.Dimensions(60, 30, 30), 5, "россия, москва"));
+    Assertions.assertEquals(new BigDecimal("349.00"), price.amount(), "Price should be read from the response.");
+    Assertions.assertEquals("RUB", price.currency(), "Currency should be read from the response.");
+  }
+
+  /**
+   * Tests that claim statuses are read with the status of every drop-off point.
+   */
+  @Test
+  public void testClaimsInfo() throws Exception {
+    String claimId = stub.claim("batch-1", "7", "8");
+    stub.update(claimId, "pickuped", "7");
+    List<YandexDeliveryClient.Claim> claims = YandexDeliveryClient.await(client.claimsInfoAsync(List.of(claimId, "unknown")));
+    Assertions.assertEquals(1, claims.size(), "Every known claim should be returned.");
+    Assertions.assertEquals("pickuped", claims.get(0).status(), "Claim status should be read.");
+    Assertions.assertEquals(List.of(new YandexDeliveryClient.Point("7", "visited"), new YandexDeliveryClient.Point("8", "pending")),
+        claims.get(0).points(), "Only drop-off points should be read, in route order.");
+  }
+
+  /**
+   * Tests that slow answers time out, open the circuit and that further calls then fail fast
+   * without reaching the API.
+   */
+  @Test
+  public void testSlowApiOpensCircuit() throws Exception {
+    stub.delay(Duration.ofSeconds(2));
+    for (int i = 0; i < 4; i++) {
+      Assertions.assertThrows(IOException.class, () -> client.createClaim("42", "{}"), "Slow call should time out.");
+    }
+    Assertions.assertEquals(4, meterRegistry.get("delivery.client.requests").tag("outcome", "timeout").timer().count(),
+        "Timeouts should be counted.");
+
+    int reached = stub.requests();
+    long start = System.nanoTime();
+    Assertions.assertThrows(YandexDeliveryClient.DeliveryUnavailableException.class,
+        () -> client.createClaim("42", "{}"), "Open circuit should refuse the call.");
+    Assertions.assertTrue(System.nanoTime() - start < Duration.ofMillis(100).toNanos(), "Refusal should be immediate.");
+    Assertions.assertEquals(reached, stub.requests(), "Refused call should not reach the API.");
+  }
+
+  /**
+   * Tests that server errors open the circuit and a healthy probe after the open period closes it.
+   */
+  @Test
+  public void testCircuitRecovers() throws Exception {
+    stub.status(503);
+    for (int i = 0; i < 4; i++) {
+      YandexDeliveryClient.DeliveryApiException e = Assertions.assertThrows(YandexDeliveryClient.DeliveryApiException.class,
+          () -> client.createClaim("42", "{}"), "Server error should be reported.");
+      Assertions.assertTrue(e.isRetryable(), "Server error should be retryable.");
+    }
+    Assertions.assertThrows(YandexDeliveryClient.DeliveryUnavailableException.class,
+        () -> client.createClaim("42", "{}"), "Circuit should be open.");
+
+    stub.status(200);
+    Thread.sleep(600);
+    Assertions.assertNotNull(client.createClaim("42", "{}").id(), "Probe should reach the recovered API.");
+    Assertions.assertNotNull(client.createClaim("43", "{}").id(), "Closed circuit should let calls through.");
+    Assertions.assertEquals(1, meterRegistry.get("delivery.client.circuit.open").timer().count(),
+        "Open period should be recorded.");
+  }
+
+  /**
+   * Tests that client errors do not open the circuit.
+   */
+  @Test
+  public void testClientErrorsKeepCircuitClosed() {
+    stub.status(400);
+    for (int i = 0; i < 6; i++) {
+      YandexDeliveryClient.DeliveryApiException e = Assertions.assertThrows(YandexDeliveryClient.DeliveryApiException.class,
+          () -> client.createClaim("42", "{}"), "Client error should be reported.");
+      Assertions.assertEquals(400, e.getStatusCode(), "Status should be kept.");
+    }
+  }
+
+  /**
+   * Tests that calls beyond the in-flight limit are refused at once instead of queueing.
+   */
+  @Test
+  public void testBulkhead() throws Exception {
+    stub.delay(Duration.ofMillis(200));
+    List<CompletableFuture<YandexDeliveryClient.Claim>> calls = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      calls.add(client.createClaimAsync(String.valueOf(i), "{}"));
+    }
+    int refused = 0;
+    int created = 0;
+    for (CompletableFuture<YandexDeliveryClient.Claim> call : calls) {
+      try {
+        YandexDeliveryClient.await(call);
+        created++;
+      } catch (YandexDeliveryClient.DeliveryUnavailableException e) {
+        refused++;
+      }
+    }
+    Assertions.assertEquals(2, created, "Calls within the limit should go through.");
+    Assertions.assertEquals(3, refused, "Calls over the limit should be refused.");
+    Assertions.assertNotNull(client.createClaim("5", "{}").id(), "Limit should be free again once calls finish.");
+  }
+
+}
@@ -0,0 +1,115 @@
+package com.ecommercebackend.service.event;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class to unit test the ProductChangeCoalescer batching and hand-over between callers.
+ */
+public class ProductChangeCoalescerTest {
+
+  /**
+   * Tests that a caller arriving while a batch is being read returns at once and its ids
+   * are drained by the busy caller as the next batch.
+   */
+  @Test
+  public void testBusyCallerHandsOver() throws Exception {
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Set<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+    ProductChangeCoalescer<Set<Long>> coalescer = new ProductChangeCoalescer<>(new NoOpTransactionManager(),
+        ids -> {
+          reading.countDown();
+          await(release);
+          return ids;
+        },
+        (ids, loaded) -> batches.add(loaded));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> first = executor.submit(() -> coalescer.submit(List.of(1L)));
+      Assertions.assertTrue(reading.await(10, TimeUnit.SECONDS), "First batch should start reading.");
+      coalescer.submit(List.of(2L, 3L));
+      Assertions.assertTrue(batches.isEmpty(), "Second caller should return without waiting for the first batch.");
+      release.countDown();
+      first.get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(List.of(Set.of(1L), Set.of(2L, 3L)), batches,
+        "Ids left by the second caller should be drained as one batch by the first.");
+  }
+
+  /**
+   * Tests that every submitted id is applied when many callers submit concurrently.
+   */
+  @Test
+  public void testConcurrentSubmitsAllApplied() throws Exception {
+    Set<Long> applied = ConcurrentHashMap.newKeySet();
+    ProductChangeCoalescer<Set<Long>> coalescer = new ProductChangeCoalescer<>(new NoOpTransactionManager(),
+        ids -> ids, (ids, loaded) -> applied.addAll(loaded));
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        long base = t * 1_000L;
+        futures.add(executor.submit(() -> {
+          for (long id = base; id < base + 1_000; id++) {
+            coalescer.submit(List.of(id));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(16_000, applied.size(), "Every submitted id should be applied.");
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Transaction manager without a resource, enough for the coalescer's read transaction.
+   */
+  private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+    @Override
+    protected Object doGetTransaction() {
+      return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+  }
+}
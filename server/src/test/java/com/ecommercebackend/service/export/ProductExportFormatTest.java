@@ -0,0 +1,72 @@
+package com.ecommercebackend.service.export;
+
+import com.ecommercebackend.model.Description;
+import com.ecommercebackend.model.Inventory;
+import com.ecommercebackend.model.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test class to unit test the row writers of the ProductExportFormat.
+ */
+public class ProductExportFormatTest {
+
+  /**
+   * Tests that every NDJSON line is a standalone JSON object with flattened fields.
+   */
+  @Test
+  public void testNdjson() throws Exception {
+    String[] lines = export(ProductExportFormat.NDJSON, product(1L, "Холодильник"), product(2L, "Plain")).split("\n");
+    Assertions.assertEquals(2, lines.length, "There should be one line per product.");
+    JsonNode first = new ObjectMapper().readTree(lines[0]);
+    Assertions.assertEquals(1L, first.get("id").asLong(), "Id should be exported as a number.");
+    Assertions.assertEquals("Холодильник", first.get("name").asText(), "Name should be exported as UTF-8.");
+    Assertions.assertEquals(5, first.get("quantity").asInt(), "Inventory quantity should be flattened.");
+    Assertions.assertEquals("RF-1", first.get("model").asText(), "Description model should be flattened.");
+    Assertions.assertTrue(first.get("warranty").isNull(), "Missing values should be null.");
+  }
+
+  /**
+   * Tests that CSV has a header row and quotes fields with separators, quotes or line breaks.
+   */
+  @Test
+  public void testCsv() throws Exception {
+    Product product = product(1L, "Шкаф, \"большой\"");
+    product.setLongDescription("Первая строка\nвторая строка");
+    String[] lines = export(ProductExportFormat.CSV, product).split("\r\n");
+    Assertions.assertTrue(lines[0].startsWith("id,name,shortDescription,"), "First line should be the header.");
+    Assertions.assertTrue(lines[1].startsWith("1,\"Шкаф, \"\"большой\"\"\",Short,\"Первая строка\nвторая строка\",10.0,"),
+        "Fields should be quoted per RFC 4180.");
+  }
+
+  private static String export(ProductExportFormat format, Product... products) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ProductExportFormat.RowWriter writer = format.open(out)) {
+      for (Product product : products) {
+        writer.write(product);
+      }
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static Product product(Long id, String name) {
+    Product product = new Product();
+    product.setId(id);
+    product.setName(name);
+    product.setShortDescription("Short");
+    product.setPrice(10.0);
+    Inventory inventory = new Inventory();
+    inventory.setQuantity(5);
+    product.setInventory(inventory);
+    Description description = new Description();
+    description.setModel("RF-1");
+    product.setDescription(description);
+    return product;
+  }
+
+}
@@ -0,0 +1,82 @@
+package com.ecommercebackend.service.facet;
+
+import com.ecommercebackend.model.enums.ProductSortOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Test class to unit test the ProductFacetIndex filtering and counting.
+ */
+public class ProductFacetIndexTest {
+
+  private ProductFacetIndex index;
+
+  /**
+   * Indexes a small catalog.
+   */
+  @BeforeEach
+  public void setUp() {
+    index = new ProductFacetIndex();
+    index.put(new ProductFacetIndex.Document(1L, 500, 4.5, "Китай", "Белый", true));
+    index.put(new ProductFacetIndex.Document(2L, 2_000, 3.0, "Китай", "Черный", false));
+    index.put(new ProductFacetIndex.Document(3L, 7_000, 4.0, "Германия", "белый", true));
+    index.put(new ProductFacetIndex.Document(4L, 150_000, 5.0, "Германия", null, true));
+  }
+
+  /**
+   * Tests that values of one facet are OR-ed, different facets are AND-ed and the order is applied.
+   */
+  @Test
+  public void testFiltering() {
+    ProductFacetIndex.Result result = index.query(
+        new ProductFacetIndex.Query(Set.of("0-1000", "5000-10000"), null, null, Set.of("БЕЛЫЙ"), true),
+        ProductSortOrder.PRICE, 0, 10);
+    Assertions.assertEquals(List.of(1L, 3L), result.ids(), "Products in either price bucket and white should match.");
+    Assertions.assertEquals(2, result.total(), "Total should count all matches.");
+  }
+
+  /**
+   * Tests that counts of a facet ignore its own selection but respect the other facets.
+   */
+  @Test
+  public void testCounts() {
+    ProductFacetIndex.Result result = index.query(
+        new ProductFacetIndex.Query(null, 4, Set.of("Китай"), null, null), ProductSortOrder.ID, 0, 10);
+    Assertions.assertEquals(List.of(1L), result.ids(), "Only the highly rated product from China should match.");
+    Map<String, Long> countries = counts(result, ProductFacetIndex.COUNTRY);
+    Assertions.assertEquals(1L, countries.get("Китай"), "China count should respect the raiting filter.");
+    Assertions.assertEquals(2L, countries.get("Германия"), "Other countries should still be counted.");
+    Assertions.assertEquals(2L, counts(result, ProductFacetIndex.RAITING).get("3"),
+        "Raiting counts should ignore the raiting selection.");
+    Assertions.assertEquals(1L, counts(result, ProductFacetIndex.COLOR).get("Белый"),
+        "Color values should be merged case-insensitively.");
+  }
+
+  /**
+   * Tests that updates move a product between bitmaps and removal frees it.
+   */
+  @Test
+  public void testUpdates() {
+    index.put(new ProductFacetIndex.Document(2L, 2_000, 3.0, "Италия", "Черный", true));
+    index.remove(1L);
+    ProductFacetIndex.Result result = index.query(
+        new ProductFacetIndex.Query(null, null, null, null, true), ProductSortOrder.RAITING, 0, 2);
+    Assertions.assertEquals(List.of(4L, 3L), result.ids(), "Page should be ordered by raiting descending.");
+    Assertions.assertEquals(3, result.total(), "Updated product should now be in stock.");
+    Map<String, Long> countries = counts(result, ProductFacetIndex.COUNTRY);
+    Assertions.assertNull(countries.get("Китай"), "Empty values should disappear.");
+    Assertions.assertEquals(1L, countries.get("Италия"), "New value should be counted.");
+  }
+
+  private static Map<String, Long> counts(ProductFacetIndex.Result result, String facet) {
+    return result.facets().get(facet).stream()
+        .collect(Collectors.toMap(ProductFacetIndex.FacetCount::value, ProductFacetIndex.FacetCount::count));
+  }
+
+}
@@ -0,0 +1,105 @@
+package com.ecommercebackend.service.fulfilment;
+
+import com.ecommercebackend.model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test class to unit test the warehouse index and the routing of orders.
+ */
+public class FulfilmentRouterTest {
+
+  /**
+   * Tests that the index returns every warehouse in the same order as sorting all of them by distance,
+   * including across the 180th meridian.
+   */
+  @Test
+  public void testNearestOrder() {
+    Random random = new Random(42);
+    List<Warehouse> warehouses = new ArrayList<>();
+    for (long id = 1; id <= 500; id++) {
+      warehouses.add(warehouse(id, random.nextDouble() * 140 - 70, random.nextDouble() * 360 - 180));
+    }
+    WarehouseIndex index = new WarehouseIndex(warehouses);
+    for (double[] query : new double[][]{{55.75, 37.62}, {64.73, 177.5}, {64.73, -179.9}, {-33.9, 18.4}}) {
+      List<Warehouse> expected = new ArrayList<>(warehouses);
+      expected.sort(Comparator.comparingDouble(w -> haversine(query[0], query[1], w.getLatitude(), w.getLongitude())));
+      WarehouseIndex.Cursor cursor = index.nearest(query[0], query[1]);
+      for (Warehouse warehouse : expected) {
+        Assertions.assertEquals(warehouse.getId(), cursor.next().getId(), "Warehouses should come nearest first.");
+      }
+      Assertions.assertNull(cursor.next(), "Cursor should end after the last warehouse.");
+    }
+  }
+
+  /**
+   * Tests that the nearest warehouse holding the whole order ships it alone.
+   */
+  @Test
+  public void testWholeOrderFromOneWarehouse() {
+    WarehouseIndex index = new WarehouseIndex(List.of(
+        warehouse(1, 55.75, 37.62), warehouse(2, 56.86, 35.90), warehouse(3, 59.94, 30.31)));
+    Map<Long, Map<Long, Integer>> stock = Map.of(
+        1L, Map.of(10L, 5),
+        2L, Map.of(10L, 5, 20L, 5),
+        3L, Map.of(10L, 5, 20L, 5));
+    List<Shipment> shipments = FulfilmentRouter.route(index, 55.75, 37.62, Map.of(10L, 2, 20L, 1), stock, 16);
+    Assertions.assertEquals(1, shipments.size(), "Order should not be split.");
+    Assertions.assertEquals(2L, shipments.get(0).warehouse().getId(), "Nearest warehouse with everything should ship.");
+  }
+
+  /**
+   * Tests that an order no warehouse holds whole is split nearest first and the rest goes to the main warehouse.
+   */
+  @Test
+  public void testSplit() {
+    WarehouseIndex index = new WarehouseIndex(List.of(
+        warehouse(1, 55.75, 37.62), warehouse(2, 56.86, 35.90), warehouse(3, 59.94, 30.31)));
+    Map<Long, Map<Long, Integer>> stock = Map.of(
+        1L, Map.of(10L, 3),
+        3L, Map.of(10L, 5, 20L, 1));
+    List<Shipment> shipments = FulfilmentRouter.route(index, 55.75, 37.62, Map.of(10L, 4, 20L, 2, 30L, 1), stock, 16);
+    Assertions.assertEquals(3, shipments.size(), "Order should be split.");
+    Assertions.assertEquals(1L, shipments.get(0).warehouse().getId(), "Nearest warehouse should ship first.");
+    Assertions.assertEquals(Map.of(10L, 3), shipments.get(0).quantities(), "Nearest warehouse should give all it has.");
+    Assertions.assertEquals(Map.of(10L, 1, 20L, 1), shipments.get(1).quantities(), "Next warehouse should give the rest it has.");
+    Assertions.assertNull(shipments.get(2).warehouse(), "Stock no warehouse holds should ship from the main warehouse.");
+    Assertions.assertEquals(Map.of(20L, 1, 30L, 1), shipments.get(2).quantities(), "Main warehouse should get the remainder.");
+  }
+
+  /**
+   * Tests that without warehouse stock the whole order ships from the main warehouse.
+   */
+  @Test
+  public void testNoStock() {
+    WarehouseIndex index = new WarehouseIndex(List.of(warehouse(1, 55.75, 37.62)));
+    List<Shipment> shipments = FulfilmentRouter.route(index, 55.75, 37.62, Map.of(10L, 1), new HashMap<>(), 16);
+    Assertions.assertEquals(1, shipments.size(), "Order should not be split.");
+    Assertions.assertNull(shipments.get(0).warehouse(), "Order should ship from the main warehouse.");
+  }
+
+  private static Warehouse warehouse(long id, double latitude, double longitude) {
+    Warehouse warehouse = new Warehouse();
+    warehouse.setId(id);
+    warehouse.setName("Склад " + id);
+    warehouse.setLatitude(latitude);
+    warehouse.setLongitude(longitude);
+    return warehouse;
+  }
+
+  private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * Math.asin(Math.sqrt(a));
+  }
+
+}
@@ -0,0 +1,167 @@
+package com.ecommercebackend.service.geocoding;
+
+import com.ecommercebackend.model.Address;
+import com.ecommercebackend.model.LocalUser;
+import com.ecommercebackend.model.dao.AddressDAO;
+import com.ecommercebackend.model.dao.GeocodeCacheEntryDAO;
+import com.ecommercebackend.model.enums.Role;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+/**
+ * Test class to check the persistent cache and the coordinate updates of the GeocodingService.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+public class GeocodingServiceTest {
+
+  private static final String TVERSKAYA = "Россия, Москва, ул. Тверская, 15";
+
+  @Autowired
+  private AddressDAO addressDAO;
+
+  @Autowired
+  private GeocodeCacheEntryDAO cacheDAO;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private StubGeocodingProvider provider;
+
+  private GeocodingService geocodingService;
+
+  private LocalUser user;
+
+  @BeforeEach
+  public void setUp() {
+    provider = new StubGeocodingProvider().add(TVERSKAYA, 55.7652, 37.6049);
+    geocodingService = new GeocodingService(addressDAO, cacheDAO, provider, transactionManager);
+    user = new LocalUser();
+    user.setUsername("buyer");
+    user.setPassword("password");
+    user.setEmail("buyer@example.com");
+    user.setFirstName("Buyer");
+    user.setLastName("Buyer");
+    user.setRole(Role.USER);
+    entityManager.persist(user);
+  }
+
+  /**
+   * Tests that coordinates are stored on the address and the same address spelled differently hits the cache.
+   */
+  @Test
+  public void testGeocodeIsCached() {
+    Address first = address("ул. Тверская, 15");
+    Assertions.assertEquals(Optional.of(new Coordinates(55.7652, 37.6049)), geocodingService.geocode(first),
+        "Coordinates should come from the provider.");
+    entityManager.refresh(first);
+    Assertions.assertEquals(55.7652, first.getLatitude(), "Latitude should be stored on the address.");
+    Assertions.assertEquals(37.6049, first.getLongitude(), "Longitude should be stored on the address.");
+
+    Address second = address("  Ул Тверская 15 ");
+    geocodingService.geocode(second);
+    entityManager.refresh(second);
+    Assertions.assertEquals(55.7652, second.getLatitude(), "Cached coordinates should be stored on the address.");
+    Assertions.assertEquals(1, provider.calls(), "Same normalized address should be geocoded once.");
+  }
+
+  /**
+   * Tests that addresses the provider cannot resolve are neither stored nor cached.
+   */
+  @Test
+  public void testMissesAreNotCached() {
+    Address address = address("ул. Неизвестная, 1");
+    Assertions.assertTrue(geocodingService.geocode(address).isEmpty(), "Unknown address should not be resolved.");
+    provider.failing(true);
+    Assertions.assertTrue(geocodingService.geocode(address).isEmpty(), "Failure should not be resolved.");
+    provider.failing(false);
+    geocodingService.geocode(address);
+    Assertions.assertEquals(3, provider.calls(), "Misses and failures should not be cached.");
+    entityManager.refresh(address);
+    Assertions.assertNull(address.getLatitude(), "Unknown address should have no coordinates.");
+  }
+
+  /**
+   * Tests that coordinates of the old address are not written over an address edited meanwhile.
+   */
+  @Test
+  public void testEditedAddressIsNotOverwritten() {
+    Address address = address("ул. Тверская, 15");
+    Address stale = new Address();
+    stale.setId(address.getId());
+    stale.setCountry(address.getCountry());
+    stale.setCity(address.getCity());
+    stale.setAddressLine(address.getAddressLine());
+    address.setAddressLine("ул. Арбат, 1");
+    entityManager.flush();
+
+    geocodingService.geocode(stale);
+    entityManager.refresh(address);
+    Assertions.assertNull(address.getLatitude(), "Edited address should keep no coordinates.");
+  }
+
+  /**
+   * Tests that the same city and line in another country is not served from the cache.
+   */
+  @Test
+  public void testCountryIsPartOfCacheKey() {
+    geocodingService.geocode(address("ул. Тверская, 15"));
+    Address abroad = address("ул. Тверская, 15");
+    abroad.setCountry("Беларусь");
+    entityManager.flush();
+    Assertions.assertTrue(geocodingService.geocode(abroad).isEmpty(),
+        "Address in another country should not get cached coordinates.");
+    Assertions.assertEquals(2, provider.calls(), "Address in another country should be geocoded separately.");
+  }
+
+  /**
+   * Tests that an edit keeps the coordinates only while country, city and line are unchanged.
+   */
+  @Test
+  public void testCarryCoordinates() {
+    Address original = address("ул. Тверская, 15");
+    geocodingService.geocode(original);
+    entityManager.refresh(original);
+
+    Address respelled = edit(original, "ул Тверская 15");
+    Assertions.assertTrue(geocodingService.carryCoordinates(original, respelled),
+        "Unchanged address should keep its coordinates.");
+    Assertions.assertEquals(55.7652, respelled.getLatitude(), "Latitude should be carried over.");
+    Assertions.assertEquals(37.6049, respelled.getLongitude(), "Longitude should be carried over.");
+
+    Address moved = edit(original, "ул. Арбат, 1");
+    Assertions.assertFalse(geocodingService.carryCoordinates(original, moved),
+        "Edited address should be geocoded again.");
+    Assertions.assertNull(moved.getLatitude(), "Edited address should not get old coordinates.");
+  }
+
+  private Address edit(Address original, String line) {
+    Address edited = new Address();
+    edited.setId(original.getId());
+    edited.setCountry(original.getCountry());
+    edited.setCity(original.getCity());
+    edited.setAddressLine(line);
+    return edited;
+  }
+
+  private Address address(String line) {
+    Address address = new Address();
+    address.setAddressLine(line);
+    address.setCity("Москва");
+    address.setCountry("Россия");
+    address.setUser(user);
+    entityManager.persist(address);
+    entityManager.flush();
+    return address;
+  }
+
+}
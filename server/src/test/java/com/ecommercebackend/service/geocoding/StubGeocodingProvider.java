@@ -0,0 +1,43 @@
+package com.ecommercebackend.service.geocoding;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory geocoding provider for tests: answers known queries, counts calls
+ * and can be switched to fail like an unavailable service.
+ */
+public class StubGeocodingProvider implements GeocodingProvider {
+
+  private final Map<String, Coordinates> known = new HashMap<>();
+
+  private int calls;
+
+  private boolean failing;
+
+  /** Answers this query with these coordinates. */
+  public StubGeocodingProvider add(String query, double latitude, double longitude) {
+    known.put(query, new Coordinates(latitude, longitude));
+    return this;
+  }
+
+  public StubGeocodingProvider failing(boolean failing) {
+    this.failing = failing;
+    return this;
+  }
+
+  public int calls() {
+    return calls;
+  }
+
+  @Override
+  public Optional<Coordinates> geocode(String query) throws IOException {
+    calls++;
+    if (failing) {
+      throw new IOException("Geocoder is unavailable");
+    }
+    return Optional.ofNullable(known.get(query));
+  }
+}
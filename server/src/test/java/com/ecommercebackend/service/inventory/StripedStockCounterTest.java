@@ -0,0 +1,70 @@
+package com.ecommercebackend.service.inventory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class to unit test the StripedStockCounter floor and stripe gathering.
+ */
+public class StripedStockCounterTest {
+
+  /**
+   * Tests that a take larger than any stripe gathers from several stripes, all or nothing.
+   */
+  @Test
+  public void testTakeAcrossStripes() {
+    StripedStockCounter counter = new StripedStockCounter(10, 4);
+    Assertions.assertFalse(counter.tryTake(11), "More than the total should not be taken.");
+    Assertions.assertEquals(10, counter.available(), "A failed take should leave every stripe as it was.");
+    Assertions.assertTrue(counter.tryTake(7), "A take larger than one stripe should gather from several.");
+    Assertions.assertEquals(3, counter.available(), "The taken quantity should be gone.");
+    counter.give(2);
+    Assertions.assertTrue(counter.tryTake(5), "Given back units should be available again.");
+    Assertions.assertFalse(counter.tryTake(1), "An empty counter should refuse any take.");
+  }
+
+  /**
+   * Tests that concurrent takers never take more than the stock, so no stripe goes negative.
+   */
+  @Test
+  public void testConcurrentTakesKeepFloor() throws Exception {
+    StripedStockCounter counter = new StripedStockCounter(10_000, 8);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<Long>> futures = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        futures.add(executor.submit(() -> {
+          long taken = 0;
+          int misses = 0;
+          while (misses < 100) {
+            int quantity = ThreadLocalRandom.current().nextInt(1, 4);
+            if (counter.tryTake(quantity)) {
+              taken += quantity;
+            } else {
+              misses++;
+            }
+          }
+          return taken;
+        }));
+      }
+      long taken = 0;
+      for (Future<Long> future : futures) {
+        taken += future.get(30, TimeUnit.SECONDS);
+      }
+      Assertions.assertTrue(taken <= 10_000, "No more than the stock should be taken.");
+      Assertions.assertEquals(10_000 - taken, counter.available(), "Counter should hold exactly what was not taken.");
+      Assertions.assertTrue(counter.available() < 3, "Takers should drain the counter down to the floor.");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+package com.ecommercebackend.service.payment;
+
+import com.ecommercebackend.api.security.YooKassaConfig;
+import com.ecommercebackend.stub.YooKassaStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.http.HttpClient;
+
+/**
+ * Test class to check that StubYooKassaClient creates payments in the YooKassa stub.
+ */
+public class StubYooKassaClientTest {
+
+  private YooKassaStub stub;
+
+  private StubYooKassaClient client;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    stub = new YooKassaStub();
+    YooKassaConfig config = new YooKassaConfig();
+    config.setShopId("shop");
+    config.setSecretKey("secret");
+    config.setUrl(stub.url());
+    client = new StubYooKassaClient(config, HttpClient.newHttpClient());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    stub.close();
+  }
+
+  /**
+   * Tests that a payment is sent in the API format and read back, and a repeated key does not create another.
+   */
+  @Test
+  public void testCreatePayment() {
+    CreatedPayment payment = client.createPayment(new PaymentParams("1500.00", "Order 7", "https://shop/return"),
+        "key-1", CreatedPayment.class);
+    Assertions.assertNotNull(payment.id, "Created payment should have an id.");
+    Assertions.assertEquals("pending", payment.status, "New payment should wait for the buyer.");
+    Assertions.assertEquals("1500.00", payment.amount.value, "Amount should be sent as given.");
+    Assertions.assertEquals("RUB", payment.amount.currency, "Currency should be sent as given.");
+    Assertions.assertEquals("https://shop/return", payment.confirmation.returnUrl,
+        "Return url should be sent in snake case.");
+    Assertions.assertNotNull(payment.confirmation.confirmationUrl, "Buyer should get a payment page.");
+
+    CreatedPayment repeated = client.createPayment(new PaymentParams("1500.00", "Order 7", "https://shop/return"),
+        "key-1", CreatedPayment.class);
+    Assertions.assertEquals(payment.id, repeated.id, "Repeated key should return the same payment.");
+    Assertions.assertEquals(1, stub.payments(), "Repeated key should not create a payment.");
+  }
+
+  /**
+   * Tests that a payment is read back with the status the buyer left it in.
+   */
+  @Test
+  public void testFindPayment() {
+    CreatedPayment payment = client.createPayment(new PaymentParams("250.00", "Order 9", "https://shop/return"),
+        "key-3", CreatedPayment.class);
+    Assertions.assertEquals("pending", client.findPayment(payment.id, CreatedPayment.class).status,
+        "Unpaid payment should be pending.");
+    stub.pay(payment.id);
+    CreatedPayment paid = client.findPayment(payment.id, CreatedPayment.class);
+    Assertions.assertEquals("succeeded", paid.status, "Paid payment with capture should be succeeded.");
+    Assertions.assertEquals("250.00", paid.amount.value, "Amount should be read back.");
+  }
+
+  /**
+   * Tests that an error answer of the API is reported as a bad gateway.
+   */
+  @Test
+  public void testErrorIsBadGateway() {
+    stub.status(500);
+    ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+        () -> client.createPayment(new PaymentParams("1.00", "Order 8", "https://shop/return"), "key-2",
+            CreatedPayment.class), "API error should reach the caller.");
+    Assertions.assertEquals(HttpStatus.BAD_GATEWAY, e.getStatusCode(), "API error should be a 502.");
+    Assertions.assertEquals(0, stub.payments(), "Failed call should not create a payment.");
+  }
+
+  /**
+   * Fields as the SDK payment declares them; only fields are serialized.
+   */
+  private static class PaymentParams {
+
+    private final Amount amount = new Amount();
+
+    private final Confirmation confirmation = new Confirmation();
+
+    private final String description;
+
+    private final Boolean capture = true;
+
+    private PaymentParams(String value, String description, String returnUrl) {
+      this.amount.value = value;
+      this.amount.currency = "RUB";
+      this.confirmation.type = "redirect";
+      this.confirmation.returnUrl = returnUrl;
+      this.description = description;
+    }
+  }
+
+  private static class CreatedPayment {
+
+    private String id;
+
+    private String status;
+
+    private Amount amount;
+
+    private Confirmation confirmation;
+  }
+
+  private static class Amount {
+
+    private String value;
+
+    private String currency;
+  }
+
+  private static class Confirmation {
+
+    private String type;
+
+    private String returnUrl;
+
+    private String confirmationUrl;
+  }
+
+}
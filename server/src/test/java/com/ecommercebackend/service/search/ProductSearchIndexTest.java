@@ -0,0 +1,90 @@
+package com.ecommercebackend.service.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Test class to unit test the ProductSearchIndex class.
+ */
+public class ProductSearchIndexTest {
+
+  /** The index under test. */
+  private ProductSearchIndex index;
+
+  /**
+   * Fills the index with a few products.
+   */
+  @BeforeEach
+  public void setUp() {
+    index = new ProductSearchIndex();
+    index.put(1L, List.of(
+        new ProductSearchIndex.Field("Холодильник Bosch KGN39", 3.0f),
+        new ProductSearchIndex.Field("Двухкамерный холодильник с системой No Frost", 1.0f)));
+    index.put(2L, List.of(
+        new ProductSearchIndex.Field("Морозильная камера Haier", 3.0f),
+        new ProductSearchIndex.Field("Подходит в пару к холодильникам Haier", 1.0f)));
+    index.put(3L, List.of(
+        new ProductSearchIndex.Field("Стиральная машина LG", 3.0f),
+        new ProductSearchIndex.Field("Фронтальная загрузка", 1.0f)));
+  }
+
+  /**
+   * Tests that other word forms match and that name matches rank first.
+   */
+  @Test
+  public void testWordFormsAndRanking() {
+    ProductSearchIndex.Result result = index.search("холодильники", 0, 10);
+    Assertions.assertEquals(2, result.total(), "Both products mentioning refrigerators should match.");
+    Assertions.assertEquals(List.of(1L, 2L), result.ids(), "Name match should rank above description match.");
+  }
+
+  /**
+   * Tests that every word must match and the last one matches as a prefix.
+   */
+  @Test
+  public void testAllTermsAndPrefix() {
+    Assertions.assertEquals(List.of(1L), index.search("bosch холод", 0, 10).ids(),
+        "Last term should match as a prefix.");
+    Assertions.assertEquals(0, index.search("bosch стиральная", 0, 10).total(),
+        "All terms should be required.");
+  }
+
+  /**
+   * Tests that a short prefix with many terms expands to the terms found in the
+   * most products and to the typed word itself, not to the first ones alphabetically.
+   */
+  @Test
+  public void testPrefixExpandsFrequentTerms() {
+    for (int i = 0; i < 70; i++) {
+      String rare = "kab" + (char) ('a' + i / 26) + (char) ('a' + i % 26);
+      index.put(100L + i, List.of(new ProductSearchIndex.Field("Чайник " + rare, 3.0f)));
+    }
+    index.put(200L, List.of(new ProductSearchIndex.Field("Чайник kazoo", 3.0f)));
+    index.put(201L, List.of(new ProductSearchIndex.Field("Термос kazoo", 3.0f)));
+    index.put(202L, List.of(new ProductSearchIndex.Field("Кружка kab", 3.0f)));
+
+    ProductSearchIndex.Result result = index.search("ka", 0, 100);
+    Assertions.assertTrue(result.ids().containsAll(List.of(200L, 201L)),
+        "Term found in the most products should be expanded even if it sorts last.");
+    Assertions.assertTrue(index.search("kab", 0, 100).ids().contains(202L),
+        "Typed word should match even among many rarer expansions.");
+  }
+
+  /**
+   * Tests that updates replace and removals drop a product.
+   */
+  @Test
+  public void testUpdateAndRemove() {
+    index.put(3L, List.of(new ProductSearchIndex.Field("Сушильная машина LG", 3.0f)));
+    Assertions.assertEquals(0, index.search("стиральная", 0, 10).total(), "Old text should be gone after update.");
+    Assertions.assertEquals(List.of(3L), index.search("сушильная", 0, 10).ids(), "New text should be searchable.");
+
+    index.remove(1L);
+    Assertions.assertEquals(List.of(2L), index.search("холодильник", 0, 10).ids(), "Removed product should not match.");
+    Assertions.assertEquals(2, index.size(), "Index should hold two products.");
+  }
+
+}
@@ -0,0 +1,42 @@
+package com.ecommercebackend.service.statistics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to unit test the incremental ProductStatisticsAggregate.
+ */
+public class ProductStatisticsAggregateTest {
+
+  /**
+   * Tests that price changes, deletion, restore and removal keep the aggregates exact.
+   */
+  @Test
+  public void testIncrementalUpdates() {
+    ProductStatisticsAggregate aggregate = new ProductStatisticsAggregate();
+    aggregate.apply(1L, new ProductStatisticsAggregate.Row(1L, 100.0, false, 5));
+    aggregate.apply(2L, new ProductStatisticsAggregate.Row(2L, 50.0, false, 0));
+    aggregate.apply(3L, new ProductStatisticsAggregate.Row(3L, 300.0, false, 2));
+    Assertions.assertEquals(150.0, aggregate.averagePrice(), "Average should cover all active products.");
+    Assertions.assertEquals(50.0, aggregate.minPrice(), "Min should be the cheapest product.");
+    Assertions.assertEquals(7, aggregate.totalStock(), "Stock should be summed.");
+    Assertions.assertEquals(1, aggregate.outOfStockCount(), "Product without stock should be counted.");
+
+    aggregate.apply(2L, new ProductStatisticsAggregate.Row(2L, 50.0, true, 0));
+    Assertions.assertEquals(100.0, aggregate.minPrice(), "Deleted product should leave the price range.");
+    Assertions.assertEquals(1, aggregate.deletedCount(), "Deleted product should be counted.");
+    Assertions.assertEquals(0, aggregate.outOfStockCount(), "Deleted product should not count as out of stock.");
+
+    aggregate.apply(3L, new ProductStatisticsAggregate.Row(3L, 120.0, false, 2));
+    Assertions.assertEquals(120.0, aggregate.maxPrice(), "Max should follow a price change.");
+    Assertions.assertEquals(110.0, aggregate.averagePrice(), "Average should follow a price change.");
+
+    aggregate.apply(2L, null);
+    aggregate.apply(1L, null);
+    Assertions.assertEquals(1, aggregate.totalCount(), "Removed products should not be counted.");
+    Assertions.assertEquals(0, aggregate.deletedCount(), "Removed deleted product should leave the deleted count.");
+    Assertions.assertEquals(120.0, aggregate.minPrice(), "Min should come from the remaining product.");
+    Assertions.assertEquals(2, aggregate.totalStock(), "Stock should come from the remaining product.");
+  }
+
+}
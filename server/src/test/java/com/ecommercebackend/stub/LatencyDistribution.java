@@ -0,0 +1,41 @@
+package com.ecommercebackend.stub;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How long a stub server waits before answering a request.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+  /** @return Delay before the next answer. */
+  Duration sample();
+
+  /** Answers at once. */
+  static LatencyDistribution none() {
+    return () -> Duration.ZERO;
+  }
+
+  /** Answers after exactly this delay. */
+  static LatencyDistribution fixed(Duration delay) {
+    return () -> delay;
+  }
+
+  /** Answers after a delay spread evenly between min and max. */
+  static LatencyDistribution uniform(Duration min, Duration max) {
+    long minNanos = min.toNanos();
+    long maxNanos = max.toNanos();
+    return () -> Duration.ofNanos(minNanos + (long) (ThreadLocalRandom.current().nextDouble() * (maxNanos - minNanos)));
+  }
+
+  /**
+   * Long-tailed delay of a real API: log-normal with this median and 99th percentile.
+   */
+  static LatencyDistribution logNormal(Duration median, Duration p99) {
+    double mu = Math.log(median.toNanos());
+    // 2.326 is the 99th percentile of the standard normal distribution
+    double sigma = Math.max(0, (Math.log(p99.toNanos()) - mu) / 2.3263);
+    return () -> Duration.ofNanos((long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+  }
+}
@@ -0,0 +1,197 @@
+package com.ecommercebackend.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Stand-in for an S3-compatible object storage with path-style addressing:
+ * ListBuckets, CreateBucket, PutObject, GetObject, DeleteObject and
+ * ListObjectsV2. Requests are not authenticated. Objects are kept in memory.
+ * <p>
+ * Over plain http the AWS SDK sends PutObject bodies as signed aws-chunked
+ * streams; they are decoded before storing.
+ */
+public class S3Stub extends StubServer {
+
+  private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+  private static final String NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+  private record StoredObject(byte[] content, String etag, Instant lastModified) {
+  }
+
+  private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+
+  public S3Stub() throws IOException {
+    this(0);
+  }
+
+  public S3Stub(int port) throws IOException {
+    super(port);
+    route("/", this::handle);
+    start();
+  }
+
+  /** Creates an empty bucket. */
+  public S3Stub bucket(String name) {
+    buckets.computeIfAbsent(name, key -> new ConcurrentSkipListMap<>());
+    return this;
+  }
+
+  /** @return Content of the object or null if there is none. */
+  public byte[] object(String bucket, String key) {
+    StoredObject object = buckets.getOrDefault(bucket, new ConcurrentSkipListMap<>()).get(key);
+    return object != null ? object.content() : null;
+  }
+
+  @Override
+  protected Response error(int status) {
+    String code = switch (status) {
+      case 503 -> "SlowDown";
+      case 500 -> "InternalError";
+      case 403 -> "AccessDenied";
+      case 404 -> "NoSuchKey";
+      default -> "InvalidRequest";
+    };
+    return Response.xml(status, XML_HEADER + "<Error><Code>" + code + "</Code><Message>stub error</Message>"
+        + "<RequestId>" + UUID.randomUUID() + "</RequestId></Error>");
+  }
+
+  private Response handle(HttpExchange exchange, byte[] body) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    String method = exchange.getRequestMethod();
+    if (path.equals("/")) {
+      return listBuckets();
+    }
+    int slash = path.indexOf('/', 1);
+    String bucket = slash < 0 ? path.substring(1) : path.substring(1, slash);
+    String key = slash < 0 || slash == path.length() - 1 ? null : path.substring(slash + 1);
+    NavigableMap<String, StoredObject> objects = buckets.computeIfAbsent(bucket, name -> new ConcurrentSkipListMap<>());
+    if (key == null) {
+      return "GET".equals(method)
+          ? listObjects(bucket, objects, parameter(exchange.getRequestURI().getRawQuery(), "prefix"))
+          : Response.empty(200, Map.of());
+    }
+    switch (method) {
+      case "PUT": {
+        byte[] content = isChunked(exchange) ? decodeChunked(body) : body;
+        StoredObject object = new StoredObject(content, md5(content), Instant.now());
+        objects.put(key, object);
+        return Response.empty(200, Map.of("ETag", "\"" + object.etag() + "\""));
+      }
+      case "DELETE":
+        objects.remove(key);
+        return Response.empty(204, Map.of());
+      case "GET": {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+          return error(404);
+        }
+        return new Response(200, "application/octet-stream", object.content(), Map.of("ETag", "\"" + object.etag() + "\""));
+      }
+      default:
+        return error(400);
+    }
+  }
+
+  private Response listBuckets() {
+    StringBuilder xml = new StringBuilder(XML_HEADER).append("<ListAllMyBucketsResult xmlns=\"").append(NAMESPACE)
+        .append("\"><Owner><ID>stub</ID><DisplayName>stub</DisplayName></Owner><Buckets>");
+    for (String name : buckets.keySet()) {
+      xml.append("<Bucket><Name>").append(escape(name)).append("</Name><CreationDate>")
+          .append(Instant.EPOCH).append("</CreationDate></Bucket>");
+    }
+    return Response.xml(200, xml.append("</Buckets></ListAllMyBucketsResult>").toString());
+  }
+
+  private Response listObjects(String bucket, NavigableMap<String, StoredObject> objects, String prefix) {
+    Map<String, StoredObject> matching = prefix == null || prefix.isEmpty()
+        ? objects
+        : objects.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    StringBuilder xml = new StringBuilder(XML_HEADER).append("<ListBucketResult xmlns=\"").append(NAMESPACE).append("\">")
+        .append("<Name>").append(escape(bucket)).append("</Name>")
+        .append("<Prefix>").append(prefix == null ? "" : escape(prefix)).append("</Prefix>")
+        .append("<KeyCount>").append(matching.size()).append("</KeyCount>")
+        .append("<MaxKeys>").append(Math.max(1000, matching.size())).append("</MaxKeys>")
+        .append("<IsTruncated>false</IsTruncated>");
+    matching.forEach((key, object) -> xml.append("<Contents><Key>").append(escape(key)).append("</Key>")
+        .append("<LastModified>").append(object.lastModified()).append("</LastModified>")
+        .append("<ETag>&quot;").append(object.etag()).append("&quot;</ETag>")
+        .append("<Size>").append(object.content().length).append("</Size>")
+        .append("<StorageClass>STANDARD</StorageClass></Contents>"));
+    return Response.xml(200, xml.append("</ListBucketResult>").toString());
+  }
+
+  private static boolean isChunked(HttpExchange exchange) {
+    String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+    String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+    return (sha != null && sha.startsWith("STREAMING-")) || (encoding != null && encoding.contains("aws-chunked"));
+  }
+
+  /**
+   * Reads "size-in-hex;chunk-signature=...\r\n data \r\n" chunks up to the empty one.
+   */
+  private static byte[] decodeChunked(byte[] body) {
+    ByteArrayOutputStream content = new ByteArrayOutputStream(body.length);
+    int position = 0;
+    while (position < body.length) {
+      int lineEnd = indexOf(body, position);
+      if (lineEnd < 0) {
+        break;
+      }
+      String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+      int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+      if (size == 0) {
+        break;
+      }
+      content.write(body, lineEnd + 2, size);
+      position = lineEnd + 2 + size + 2;
+    }
+    return content.toByteArray();
+  }
+
+  private static int indexOf(byte[] body, int from) {
+    for (int i = from; i < body.length - 1; i++) {
+      if (body[i] == '\r' && body[i + 1] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String parameter(String query, String name) {
+    if (query != null) {
+      for (String parameter : query.split("&")) {
+        if (parameter.startsWith(name + "=")) {
+          return URLDecoder.decode(parameter.substring(name.length() + 1), StandardCharsets.UTF_8);
+        }
+      }
+    }
+    return null;
+  }
+
+  private static String md5(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String escape(String value) {
+    return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+}
@@ -0,0 +1,147 @@
+package com.ecommercebackend.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP stand-in for an external API. Every answer waits for a delay drawn
+ * from the latency distribution, and a share of answers (the error rate) is an
+ * error in the format of the API instead of the real answer.
+ * Listens on 127.0.0.1; use {@link #url()} as the configured endpoint.
+ */
+public abstract class StubServer implements AutoCloseable {
+
+  static {
+    // Without TCP_NODELAY every answer waits ~40ms for a delayed ACK; read once when the JDK server loads
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  private final HttpServer server;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private volatile LatencyDistribution latency = LatencyDistribution.none();
+
+  private volatile double errorRate;
+
+  private volatile int errorStatus = 500;
+
+  /**
+   * @param port Port to listen on; 0 picks a free one.
+   */
+  protected StubServer(int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+    server.setExecutor(executor);
+  }
+
+  /** Answer of a handler. */
+  protected record Response(int status, String contentType, byte[] body, Map<String, String> headers) {
+
+    static Response json(int status, String body) {
+      return new Response(status, "application/json", body.getBytes(StandardCharsets.UTF_8), Map.of());
+    }
+
+    static Response xml(int status, String body) {
+      return new Response(status, "application/xml", body.getBytes(StandardCharsets.UTF_8), Map.of());
+    }
+
+    static Response empty(int status, Map<String, String> headers) {
+      return new Response(status, null, new byte[0], headers);
+    }
+  }
+
+  @FunctionalInterface
+  protected interface Handler {
+    Response handle(HttpExchange exchange, byte[] body) throws IOException;
+  }
+
+  /** Serves requests under this path prefix; call before {@link #start()}. */
+  protected void route(String path, Handler handler) {
+    server.createContext(path, exchange -> answer(exchange, handler));
+  }
+
+  protected void start() {
+    server.start();
+  }
+
+  /** Error answer in the format of the API. */
+  protected abstract Response error(int status);
+
+  public String url() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /** Waits for a delay from this distribution before every following answer. */
+  public StubServer latency(LatencyDistribution latency) {
+    this.latency = latency;
+    return this;
+  }
+
+  /** Waits exactly this long before every following answer. */
+  public StubServer delay(Duration delay) {
+    return latency(LatencyDistribution.fixed(delay));
+  }
+
+  /** Answers this share of the following requests with an error of this status. */
+  public StubServer errors(double rate, int status) {
+    this.errorRate = rate;
+    this.errorStatus = status;
+    return this;
+  }
+
+  /** Answers every following request with this status; 2xx gives the real answers again. */
+  public StubServer status(int status) {
+    return status >= 200 && status < 300 ? errors(0, 500) : errors(1, status);
+  }
+
+  /** Requests received so far, including those still waiting for their answer. */
+  public int requests() {
+    return requests.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void answer(HttpExchange exchange, Handler handler) throws IOException {
+    requests.incrementAndGet();
+    try (exchange) {
+      byte[] body = exchange.getRequestBody().readAllBytes();
+      try {
+        Thread.sleep(latency.sample().toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      double rate = errorRate;
+      Response response = rate > 0 && ThreadLocalRandom.current().nextDouble() < rate
+          ? error(errorStatus)
+          : handler.handle(exchange, body);
+      response.headers().forEach(exchange.getResponseHeaders()::add);
+      if (response.contentType() != null) {
+        exchange.getResponseHeaders().add("Content-Type", response.contentType());
+      }
+      exchange.sendResponseHeaders(response.status(), response.body().length == 0 ? -1 : response.body().length);
+      if (response.body().length > 0) {
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(response.body());
+        }
+      }
+    }
+  }
+}
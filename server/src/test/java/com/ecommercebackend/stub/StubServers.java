@@ -0,0 +1,55 @@
+package com.ecommercebackend.stub;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Starts the Yandex Delivery, YooKassa and S3 stubs on the ports of the
+ * "stub" profile (application-stub.properties) for load tests without
+ * network. Run with the main method, e.g. from the IDE, then start the
+ * application with --spring.profiles.active=stub.
+ * <p>
+ * Every stub answers with log-normal latency and a share of errors; tune them
+ * with system properties, e.g. -Dstub.delivery.median=PT0.1S
+ * -Dstub.delivery.p99=PT1S -Dstub.delivery.error-rate=0.02. Prefixes are
+ * stub.delivery, stub.yookassa and stub.s3; ports are set with
+ * stub.&lt;name&gt;.port.
+ */
+public final class StubServers {
+
+  private StubServers() {
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    YandexDeliveryStub delivery = new YandexDeliveryStub(Integer.getInteger("stub.delivery.port", 18081));
+    delivery.statusStep(Duration.parse(System.getProperty("stub.delivery.status-step", "PT20S")));
+    configure(delivery, "stub.delivery", Duration.ofMillis(150), Duration.ofMillis(900), 0.01, 503);
+    YooKassaStub yooKassa = new YooKassaStub(Integer.getInteger("stub.yookassa.port", 18082));
+    configure(yooKassa, "stub.yookassa", Duration.ofMillis(250), Duration.ofMillis(1500), 0.005, 500);
+    S3Stub s3 = new S3Stub(Integer.getInteger("stub.s3.port", 18083));
+    s3.bucket(System.getProperty("stub.s3.bucket", "ecommerce"));
+    configure(s3, "stub.s3", Duration.ofMillis(40), Duration.ofMillis(300), 0.005, 503);
+
+    List<StubServer> stubs = List.of(delivery, yooKassa, s3);
+    CountDownLatch stopped = new CountDownLatch(1);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      stubs.forEach(StubServer::close);
+      stopped.countDown();
+    }));
+    System.out.println("Yandex Delivery stub: " + delivery.url());
+    System.out.println("YooKassa stub:        " + yooKassa.url());
+    System.out.println("S3 stub:              " + s3.url());
+    stopped.await();
+  }
+
+  private static void configure(StubServer stub, String prefix, Duration median, Duration p99,
+                                double errorRate, int errorStatus) {
+    stub.latency(LatencyDistribution.logNormal(
+        Duration.parse(System.getProperty(prefix + ".median", median.toString())),
+        Duration.parse(System.getProperty(prefix + ".p99", p99.toString()))));
+    stub.errors(Double.parseDouble(System.getProperty(prefix + ".error-rate", String.valueOf(errorRate))),
+        Integer.getInteger(prefix + ".error-status", errorStatus));
+  }
+}
@@ -0,0 +1,170 @@
+package com.ecommercebackend.stub;
+
+import com.ecommercebackend.config.S3ClientConfig;
+import com.ecommercebackend.config.S3Config;
+import com.ecommercebackend.service.YandexStorageService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class to check that the stub servers speak the protocols the application uses.
+ */
+public class StubServersTest {
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * Tests that images are uploaded, listed and deleted through the S3 client of the application.
+   */
+  @Test
+  public void testS3() throws Exception {
+    try (S3Stub stub = new S3Stub().bucket("ecommerce")) {
+      S3Config config = new S3Config();
+      config.setAccessKey("key");
+      config.setSecretKey("secret");
+      config.setBucketName("ecommerce");
+      config.setEndpoint(stub.url());
+      config.setPathStyleAccess(true);
+      try (S3Client s3Client = new S3ClientConfig(config).s3Client()) {
+        YandexStorageService storageService = new YandexStorageService(config, s3Client);
+        Assertions.assertTrue(storageService.testConnection(), "Stub should list its buckets.");
+
+        byte[] image = "not really a png".getBytes(StandardCharsets.UTF_8);
+        String key = storageService.uploadImage(new MockMultipartFile("image", "photo.png", "image/png", image), "products");
+        Assertions.assertArrayEquals(image, stub.object("ecommerce", key), "Uploaded bytes should be stored as sent.");
+        Assertions.assertEquals(List.of(key), storageService.listFiles("products/"), "Uploaded image should be listed.");
+        Assertions.assertEquals(List.of(), storageService.listFiles("other/"), "Listing should respect the prefix.");
+
+        storageService.deleteImage(key);
+        Assertions.assertNull(stub.object("ecommerce", key), "Deleted image should be gone.");
+      }
+    }
+  }
+
+  /**
+   * Tests that payments are idempotent by key, succeed once paid and can be captured when not captured automatically.
+   */
+  @Test
+  public void testYooKassa() throws Exception {
+    try (YooKassaStub stub = new YooKassaStub()) {
+      String body = "{\"amount\":{\"value\":\"100.00\",\"currency\":\"RUB\"},\"capture\":true,"
+          + "\"confirmation\":{\"type\":\"redirect\",\"return_url\":\"https://shop/return\"},\"description\":\"Order 1\"}";
+      JsonNode payment = send(stub.url() + "/payments", "key-1", body);
+      Assertions.assertEquals(payment.get("id"), send(stub.url() + "/payments", "key-1", body).get("id"),
+          "Repeated key should return the same payment.");
+      Assertions.assertEquals("pending", payment.get("status").asText(), "New payment should wait for the buyer.");
+      Assertions.assertTrue(payment.get("confirmation").has("confirmation_url"), "Buyer should get a payment page.");
+      Assertions.assertEquals(1, stub.payments(), "Repeated key should not create a payment.");
+
+      String paymentId = payment.get("id").asText();
+      stub.pay(paymentId);
+      Assertions.assertEquals("succeeded", get(stub.url() + "/payments/" + paymentId).get("status").asText(),
+          "Paid payment with capture should succeed.");
+
+      String twoStep = send(stub.url() + "/payments", "key-2", body.replace("\"capture\":true", "\"capture\":false"))
+          .get("id").asText();
+      stub.pay(twoStep);
+      Assertions.assertEquals("waiting_for_capture", get(stub.url() + "/payments/" + twoStep).get("status").asText(),
+          "Paid payment without capture should wait for it.");
+      Assertions.assertEquals("succeeded", send(stub.url() + "/payments/" + twoStep + "/capture", "key-3", "{}")
+          .get("status").asText(), "Captured payment should succeed.");
+    }
+  }
+
+  /**
+   * Tests that claims are idempotent by request id and move through their statuses, visiting their points.
+   */
+  @Test
+  public void testDeliveryLifecycle() throws Exception {
+    try (YandexDeliveryStub stub = new YandexDeliveryStub()) {
+      String body = "{\"route_points\":[{\"type\":\"source\"},{\"type\":\"destination\",\"external_order_id\":\"7\"}]}";
+      String claimId = send(stub.url() + "/b2b/cargo/integration/v2/claims/create?request_id=7", "7", body).get("id").asText();
+      Assertions.assertEquals(claimId, send(stub.url() + "/b2b/cargo/integration/v2/claims/create?request_id=7", "7", body)
+          .get("id").asText(), "Repeated request id should return the same claim.");
+
+      stub.statusStep(Duration.ofMillis(1));
+      Thread.sleep(20);
+      JsonNode claim = send(stub.url() + "/b2b/cargo/integration/v2/claims/bulk_info", "info",
+          "{\"claim_ids\":[\"" + claimId + "\"]}").get("claims").get(0);
+      Assertions.assertEquals("delivered_finish", claim.get("status").asText(), "Claim should reach its final status.");
+      Assertions.assertEquals("visited", claim.get("route_points").get(1).get("visit_status").asText(),
+          "Drop-off of a delivered claim should be visited.");
+      Assertions.assertEquals("7", claim.get("route_points").get(1).get("external_order_id").asText(),
+          "Drop-off should keep its order.");
+    }
+  }
+
+  /**
+   * Tests that the share of errors follows the configured rate and errors use the format of the API.
+   */
+  @Test
+  public void testErrorRate() throws Exception {
+    try (YandexDeliveryStub stub = new YandexDeliveryStub()) {
+      stub.errors(0.3, 503);
+      int errors = 0;
+      for (int i = 0; i < 300; i++) {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder()
+            .uri(URI.create(stub.url() + "/b2b/cargo/integration/v2/claims/create?request_id=" + i))
+            .POST(HttpRequest.BodyPublishers.ofString("{}"))
+            .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 503) {
+          errors++;
+          Assertions.assertEquals("error", objectMapper.readTree(response.body()).get("code").asText(),
+              "Error should use the format of the API.");
+        }
+      }
+      Assertions.assertTrue(errors > 50 && errors < 130, "About 30% of answers should be errors, was " + errors);
+      Assertions.assertEquals(300 - errors, stub.claims(), "Failed calls should not create claims.");
+    }
+  }
+
+  /**
+   * Tests that the log-normal latency has the configured median and 99th percentile.
+   */
+  @Test
+  public void testLogNormalLatency() {
+    LatencyDistribution latency = LatencyDistribution.logNormal(Duration.ofMillis(100), Duration.ofMillis(800));
+    List<Long> samples = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) {
+      samples.add(latency.sample().toMillis());
+    }
+    Collections.sort(samples);
+    long median = samples.get(samples.size() / 2);
+    long p99 = samples.get(samples.size() * 99 / 100);
+    Assertions.assertTrue(median >= 90 && median <= 110, "Median should be about 100ms, was " + median);
+    Assertions.assertTrue(p99 >= 650 && p99 <= 980, "99th percentile should be about 800ms, was " + p99);
+  }
+
+  private JsonNode send(String url, String idempotenceKey, String body) throws Exception {
+    HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder()
+        .uri(URI.create(url))
+        .header("Idempotence-Key", idempotenceKey)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build(), HttpResponse.BodyHandlers.ofString());
+    Assertions.assertEquals(200, response.statusCode(), "Call should succeed: " + response.body());
+    return objectMapper.readTree(response.body());
+  }
+
+  private JsonNode get(String url) throws Exception {
+    return objectMapper.readTree(httpClient.send(HttpRequest.newBuilder().uri(URI.create(url)).build(),
+        HttpResponse.BodyHandlers.ofString()).body());
+  }
+
+}
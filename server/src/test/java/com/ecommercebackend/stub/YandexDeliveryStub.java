@@ -0,0 +1,173 @@
+package com.ecommercebackend.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the Yandex Delivery API: claims/create, claims/bulk_info and check-price.
+ * <p>
+ * Claims are idempotent by request_id. Their status either follows
+ * {@link #update} or, with a status step, moves one step along new, accepted,
+ * performer_found, pickuped, delivered, delivered_finish every step; drop-off
+ * points are visited once the claim is delivered.
+ */
+public class YandexDeliveryStub extends StubServer {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private static final List<String> LIFECYCLE = List.of(
+      "new", "accepted", "performer_found", "pickuped", "delivered", "delivered_finish");
+
+  private final Map<String, StubClaim> claimsByRequest = new ConcurrentHashMap<>();
+
+  private final Map<String, StubClaim> claims = new ConcurrentHashMap<>();
+
+  private final AtomicInteger created = new AtomicInteger();
+
+  private volatile Duration statusStep = Duration.ZERO;
+
+  private static final class StubClaim {
+
+    private final String id;
+
+    private final List<String> points;
+
+    private final long createdAt = System.nanoTime();
+
+    private volatile String status;
+
+    private volatile Set<String> visited = Set.of();
+
+    private StubClaim(String id, List<String> points) {
+      this.id = id;
+      this.points = points;
+    }
+  }
+
+  public YandexDeliveryStub() throws IOException {
+    this(0);
+  }
+
+  public YandexDeliveryStub(int port) throws IOException {
+    super(port);
+    route("/b2b/cargo/integration/v2/claims/create", (exchange, body) ->
+        createClaim(requestId(exchange.getRequestURI().getRawQuery()), body));
+    route("/b2b/cargo/integration/v2/claims/bulk_info", (exchange, body) -> bulkInfo(body));
+    route("/b2b/cargo/integration/v2/check-price", (exchange, body) ->
+        Response.json(200, "{\"price\":\"349.00\",\"currency_rules\":{\"code\":\"RUB\"}}"));
+    start();
+  }
+
+  /** Moves every claim not set by {@link #update} one lifecycle status further per step; zero keeps them new. */
+  public YandexDeliveryStub statusStep(Duration statusStep) {
+    this.statusStep = statusStep;
+    return this;
+  }
+
+  /**
+   * Creates a claim as claims/create would, without a call.
+   * @return Id of the claim.
+   */
+  public String claim(String requestId, String... points) {
+    return claimsByRequest.computeIfAbsent(requestId, key -> newClaim(List.of(points))).id;
+  }
+
+  /** Sets the status of a claim and the external_order_id of its visited drop-off points. */
+  public void update(String claimId, String status, String... visitedPoints) {
+    StubClaim claim = claims.get(claimId);
+    claim.status = status;
+    claim.visited = Set.of(visitedPoints);
+  }
+
+  /** Claims created so far; repeats of a request_id are not counted. */
+  public int claims() {
+    return created.get();
+  }
+
+  @Override
+  protected Response error(int status) {
+    return Response.json(status, "{\"code\":\"error\",\"message\":\"stub error\"}");
+  }
+
+  private Response createClaim(String requestId, byte[] body) {
+    StubClaim claim = claimsByRequest.computeIfAbsent(requestId, key -> newClaim(destinations(body)));
+    return Response.json(200, "{\"id\":\"" + claim.id + "\",\"status\":\"" + status(claim) + "\",\"version\":1}");
+  }
+
+  private StubClaim newClaim(List<String> points) {
+    StubClaim claim = new StubClaim("claim-" + created.incrementAndGet(), points);
+    claims.put(claim.id, claim);
+    return claim;
+  }
+
+  private Response bulkInfo(byte[] body) throws IOException {
+    ObjectNode response = OBJECT_MAPPER.createObjectNode();
+    ArrayNode found = response.putArray("claims");
+    for (JsonNode id : OBJECT_MAPPER.readTree(body).path("claim_ids")) {
+      StubClaim claim = claims.get(id.asText());
+      if (claim == null) {
+        continue;
+      }
+      String status = status(claim);
+      ObjectNode info = found.addObject();
+      info.put("id", claim.id);
+      info.put("status", status);
+      ArrayNode routePoints = info.putArray("route_points");
+      routePoints.addObject().put("type", "source")
+          .put("visit_status", LIFECYCLE.indexOf(status) >= LIFECYCLE.indexOf("pickuped") ? "visited" : "pending");
+      for (String point : claim.points) {
+        boolean visited = claim.visited.contains(point) || status.startsWith("delivered");
+        routePoints.addObject().put("type", "destination").put("external_order_id", point)
+            .put("visit_status", visited ? "visited" : "pending");
+      }
+    }
+    return Response.json(200, response.toString());
+  }
+
+  private String status(StubClaim claim) {
+    if (claim.status != null) {
+      return claim.status;
+    }
+    long step = statusStep.toNanos();
+    int index = step == 0 ? 0 : (int) Math.min((System.nanoTime() - claim.createdAt) / step, LIFECYCLE.size() - 1);
+    return LIFECYCLE.get(index);
+  }
+
+  private static List<String> destinations(byte[] body) {
+    List<String> points = new ArrayList<>();
+    try {
+      for (JsonNode point : OBJECT_MAPPER.readTree(body).path("route_points")) {
+        if ("destination".equals(point.path("type").asText())) {
+          points.add(point.path("external_order_id").asText(String.valueOf(points.size() + 1)));
+        }
+      }
+    } catch (IOException e) {
+      // Not JSON: a claim without drop-off points
+    }
+    return points;
+  }
+
+  private static String requestId(String query) {
+    if (query != null) {
+      for (String parameter : query.split("&")) {
+        if (parameter.startsWith("request_id=")) {
+          return URLDecoder.decode(parameter.substring("request_id=".length()), StandardCharsets.UTF_8);
+        }
+      }
+    }
+    return "missing-" + System.nanoTime();
+  }
+}
@@ -0,0 +1,118 @@
+package com.ecommercebackend.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for the YooKassa API v3: POST /v3/payments, POST /v3/payments/{id}/capture
+ * and GET /v3/payments/{id}.
+ * <p>
+ * Creating is idempotent by the Idempotence-Key header, as in YooKassa. A new
+ * payment waits for the buyer ({@link #pay}); after that it is succeeded, or
+ * waiting_for_capture until captured if it was created with capture false.
+ */
+public class YooKassaStub extends StubServer {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final Map<String, ObjectNode> paymentsByKey = new ConcurrentHashMap<>();
+
+  private final Map<String, ObjectNode> payments = new ConcurrentHashMap<>();
+
+  public YooKassaStub() throws IOException {
+    this(0);
+  }
+
+  public YooKassaStub(int port) throws IOException {
+    super(port);
+    route("/v3/payments", this::payments);
+    start();
+  }
+
+  /** API url to configure, including the version. */
+  @Override
+  public String url() {
+    return super.url() + "/v3";
+  }
+
+  /** Confirms a pending payment as the buyer would on the YooKassa page. */
+  public void pay(String paymentId) {
+    ObjectNode payment = payments.get(paymentId);
+    synchronized (payment) {
+      payment.put("paid", true);
+      payment.put("status", payment.path("capture").asBoolean() ? "succeeded" : "waiting_for_capture");
+    }
+  }
+
+  /** Payments created so far; repeats of an Idempotence-Key are not counted. */
+  public int payments() {
+    return payments.size();
+  }
+
+  @Override
+  protected Response error(int status) {
+    String code = status == 429 ? "too_many_requests" : status >= 500 ? "internal_server_error" : "invalid_request";
+    return Response.json(status, "{\"type\":\"error\",\"id\":\"" + UUID.randomUUID() + "\",\"code\":\"" + code
+        + "\",\"description\":\"stub error\"}");
+  }
+
+  private Response payments(HttpExchange exchange, byte[] body) throws IOException {
+    String rest = exchange.getRequestURI().getPath().substring("/v3/payments".length());
+    String method = exchange.getRequestMethod();
+    if ((rest.isEmpty() || rest.equals("/")) && "POST".equals(method)) {
+      return create(exchange.getRequestHeaders().getFirst("Idempotence-Key"), body);
+    }
+    // "/{id}" or "/{id}/capture"
+    String[] path = rest.split("/");
+    ObjectNode payment = path.length >= 2 ? payments.get(path[1]) : null;
+    if (payment == null) {
+      return Response.json(404, "{\"type\":\"error\",\"code\":\"not_found\",\"description\":\"Payment not found\"}");
+    }
+    synchronized (payment) {
+      if (path.length == 3 && "capture".equals(path[2]) && "POST".equals(method)) {
+        if (!"waiting_for_capture".equals(payment.path("status").asText())) {
+          return Response.json(400, "{\"type\":\"error\",\"code\":\"invalid_request\","
+              + "\"description\":\"Payment is not waiting for capture\"}");
+        }
+        payment.put("status", "succeeded");
+      }
+      return Response.json(200, payment.toString());
+    }
+  }
+
+  private Response create(String idempotenceKey, byte[] body) throws IOException {
+    if (idempotenceKey == null || idempotenceKey.isBlank()) {
+      return Response.json(400, "{\"type\":\"error\",\"code\":\"invalid_request\","
+          + "\"description\":\"Idempotence-Key header is required\"}");
+    }
+    JsonNode request = OBJECT_MAPPER.readTree(body);
+    ObjectNode payment = paymentsByKey.computeIfAbsent(idempotenceKey, key -> {
+      String id = UUID.randomUUID().toString();
+      ObjectNode created = OBJECT_MAPPER.createObjectNode();
+      created.put("id", id);
+      created.put("status", "pending");
+      created.put("paid", false);
+      created.set("amount", request.path("amount"));
+      created.put("description", request.path("description").asText(null));
+      created.put("capture", request.path("capture").asBoolean(false));
+      ObjectNode confirmation = created.putObject("confirmation");
+      confirmation.put("type", "redirect");
+      confirmation.put("return_url", request.path("confirmation").path("return_url").asText(null));
+      confirmation.put("confirmation_url", url() + "/checkout/" + id);
+      created.put("test", true);
+      created.put("refundable", false);
+      payments.put(id, created);
+      return created;
+    });
+    synchronized (payment) {
+      return Response.json(200, payment.toString());
+    }
+  }
+}